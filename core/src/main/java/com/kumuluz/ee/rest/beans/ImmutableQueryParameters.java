@@ -0,0 +1,661 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.beans;
+
+import com.kumuluz.ee.rest.enums.CountMode;
+import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.FilterOperation;
+import com.kumuluz.ee.rest.enums.OrderDirection;
+import com.kumuluz.ee.rest.enums.OrderNulls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable variant of {@link QueryParameters}, which can be shared between threads and used as a cache key. The hash
+ * code is computed once, when the parameters are built.
+ * <p>
+ * Orders and filters returned by the getters cannot be modified, their setters throw an
+ * {@link UnsupportedOperationException}. Variants derived with {@link #toBuilder()} or the {@code with} methods share
+ * the unchanged parts with the original, e.g. the orders and the filter expression when only the page changes.
+ */
+public final class ImmutableQueryParameters {
+
+    private final boolean count;
+    private final CountMode countMode;
+
+    private final Long limit;
+    private final Long offset;
+    private final QueryCursor cursor;
+
+    private final List<QueryOrder> order;
+    private final List<String> fields;
+    private final List<QueryFilter> filters;
+    private final QueryFilterExpression filterExpression;
+
+    private final int hash;
+
+    private ImmutableQueryParameters(Builder builder) {
+
+        count = builder.count == null || builder.count;
+        countMode = builder.countMode == null ? CountMode.EXACT : builder.countMode;
+        limit = builder.limit;
+        offset = builder.offset;
+        cursor = builder.cursor;
+        order = builder.order;
+        fields = builder.fields;
+        filters = builder.filters;
+        filterExpression = builder.filterExpression;
+
+        int h = Objects.hash(count, countMode, limit, offset, cursor, fields);
+
+        for (QueryOrder o : order) {
+            h = 31 * h + Objects.hash(o.getField(), o.getOrder(), o.getNulls());
+        }
+
+        for (QueryFilter f : filters) {
+            h = 31 * h + hash(f);
+        }
+
+        hash = 31 * h + hash(filterExpression);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns an immutable copy of the passed query parameters.
+     */
+    public static ImmutableQueryParameters of(QueryParameters q) {
+
+        if (q == null) throw new IllegalArgumentException("The query parameters cannot be null");
+
+        return new Builder()
+                .count(q.getCount())
+                .countMode(q.getCountMode())
+                .limit(q.getLimit())
+                .offset(q.getOffset())
+                .cursor(q.getCursor())
+                .order(q.getOrder())
+                .fields(q.getFields())
+                .filters(q.getFilters())
+                .filterExpression(q.getFilterExpression())
+                .build();
+    }
+
+    /**
+     * Returns a builder initialized with these parameters. Parts which are not changed are shared with these
+     * parameters.
+     */
+    public Builder toBuilder() {
+
+        Builder builder = new Builder();
+
+        builder.count = count;
+        builder.countMode = countMode;
+        builder.limit = limit;
+        builder.offset = offset;
+        builder.cursor = cursor;
+        builder.order = order;
+        builder.fields = fields;
+        builder.filters = filters;
+        builder.filterExpression = filterExpression;
+
+        return builder;
+    }
+
+    /**
+     * Returns a mutable copy of these parameters.
+     */
+    public QueryParameters toQueryParameters() {
+
+        QueryParameters q = new QueryParameters();
+
+        q.setCount(count);
+        q.setCountMode(countMode);
+        q.setLimit(limit);
+        q.setOffset(offset);
+        q.setCursor(cursor);
+
+        for (QueryOrder o : order) {
+            q.getOrder().add(new QueryOrder(o.getField(), o.getOrder(), o.getNulls()));
+        }
+
+        q.getFields().addAll(fields);
+
+        for (QueryFilter f : filters) {
+            q.getFilters().add(thaw(f));
+        }
+
+        q.setFilterExpression(thaw(filterExpression));
+
+        return q;
+    }
+
+    /**
+     * Returns a read-only view of these parameters, which can be passed to {@link com.kumuluz.ee.rest.utils.JPAUtils}
+     * and {@link com.kumuluz.ee.rest.utils.StreamUtils} without copying them. The view shares the orders and filters
+     * of these parameters and its setters throw an {@link UnsupportedOperationException}.
+     */
+    public QueryParameters asQueryParameters() {
+        return new QueryParametersView(this);
+    }
+
+    public ImmutableQueryParameters withPage(Long offset, Long limit) {
+        return toBuilder().offset(offset).limit(limit).build();
+    }
+
+    public ImmutableQueryParameters withCursor(QueryCursor cursor) {
+        return toBuilder().cursor(cursor).build();
+    }
+
+    /**
+     * Returns these parameters with the passed expression joined to the filter expression with the passed operation.
+     */
+    public ImmutableQueryParameters withFilter(FilterExpressionOperation operation, QueryFilterExpression expression) {
+        return toBuilder().addFilterExpression(operation, expression).build();
+    }
+
+    public boolean getCount() {
+        return count;
+    }
+
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    public Long getLimit() {
+        return limit;
+    }
+
+    public Long getOffset() {
+        return offset;
+    }
+
+    public QueryCursor getCursor() {
+        return cursor;
+    }
+
+    public List<QueryOrder> getOrder() {
+        return order;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * @deprecated Will be removed in future releases. Use {@link #getFilterExpression()} instead.
+     */
+    @Deprecated
+    public List<QueryFilter> getFilters() {
+        return filters;
+    }
+
+    public QueryFilterExpression getFilterExpression() {
+        return filterExpression;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImmutableQueryParameters that = (ImmutableQueryParameters) o;
+        return hash == that.hash &&
+                count == that.count &&
+                countMode == that.countMode &&
+                Objects.equals(limit, that.limit) &&
+                Objects.equals(offset, that.offset) &&
+                Objects.equals(cursor, that.cursor) &&
+                fields.equals(that.fields) &&
+                equalOrders(order, that.order) &&
+                equalFilters(filters, that.filters) &&
+                equal(filterExpression, that.filterExpression);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static boolean equalOrders(List<QueryOrder> a, List<QueryOrder> b) {
+
+        if (a == b) return true;
+        if (a.size() != b.size()) return false;
+
+        for (int i = 0; i < a.size(); i++) {
+
+            QueryOrder x = a.get(i);
+            QueryOrder y = b.get(i);
+
+            if (!Objects.equals(x.getField(), y.getField()) || x.getOrder() != y.getOrder() ||
+                    x.getNulls() != y.getNulls()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean equalFilters(List<QueryFilter> a, List<QueryFilter> b) {
+
+        if (a == b) return true;
+        if (a.size() != b.size()) return false;
+
+        for (int i = 0; i < a.size(); i++) {
+            if (!equal(a.get(i), b.get(i))) return false;
+        }
+
+        return true;
+    }
+
+    private static boolean equal(QueryFilterExpression a, QueryFilterExpression b) {
+
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+
+        return a.operation() == b.operation() && equal(a.value(), b.value()) && equal(a.left(), b.left()) &&
+                equal(a.right(), b.right());
+    }
+
+    private static boolean equal(QueryFilter a, QueryFilter b) {
+
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+
+        return Objects.equals(a.getField(), b.getField()) && a.getOperation() == b.getOperation() &&
+                Objects.equals(a.getValue(), b.getValue()) && Objects.equals(a.getDateValue(), b.getDateValue()) &&
+                a.getValues().equals(b.getValues());
+    }
+
+    private static int hash(QueryFilterExpression expression) {
+
+        if (expression == null) return 0;
+
+        return Objects.hash(expression.operation(), hash(expression.value()), hash(expression.left()),
+                hash(expression.right()));
+    }
+
+    private static int hash(QueryFilter f) {
+
+        if (f == null) return 0;
+
+        return Objects.hash(f.getField(), f.getOperation(), f.getValue(), f.getDateValue(), f.getValues());
+    }
+
+    private static QueryFilter thaw(QueryFilter f) {
+
+        QueryFilter copy = new QueryFilter(f.getField(), f.getOperation());
+
+        copy.setValue(f.getValue());
+        copy.setDateValue(f.getDateValue());
+
+        if (!f.getValues().isEmpty()) {
+            copy.setValues(new ArrayList<>(f.getValues()));
+        }
+
+        return copy;
+    }
+
+    private static QueryFilterExpression thaw(QueryFilterExpression expression) {
+
+        if (expression == null) {
+            return null;
+        }
+
+        if (expression.isLeaf() || expression.isEmptyLeaf()) {
+            return new QueryFilterExpression(expression.value() == null ? null : thaw(expression.value()));
+        }
+
+        return new QueryFilterExpression(expression.operation(), thaw(expression.left()), thaw(expression.right()));
+    }
+
+    private static QueryFilter freeze(QueryFilter f) {
+
+        if (f == null || f instanceof FrozenQueryFilter) {
+            return f;
+        }
+
+        return new FrozenQueryFilter(f);
+    }
+
+    /**
+     * Returns the expression with frozen filters. Subtrees which are already frozen are reused.
+     */
+    private static QueryFilterExpression freeze(QueryFilterExpression expression) {
+
+        if (expression == null) {
+            return null;
+        }
+
+        if (expression.isLeaf() || expression.isEmptyLeaf()) {
+
+            QueryFilter value = freeze(expression.value());
+
+            return value == expression.value() ? expression : new QueryFilterExpression(value);
+        }
+
+        QueryFilterExpression left = freeze(expression.left());
+        QueryFilterExpression right = freeze(expression.right());
+
+        if (left == expression.left() && right == expression.right()) {
+            return expression;
+        }
+
+        return new QueryFilterExpression(expression.operation(), left, right);
+    }
+
+    private static <E> List<E> freeze(List<E> list) {
+        return list == null || list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    public static final class Builder {
+
+        private Boolean count;
+        private CountMode countMode;
+
+        private Long limit;
+        private Long offset;
+        private QueryCursor cursor;
+
+        private List<QueryOrder> order = Collections.emptyList();
+        private List<String> fields = Collections.emptyList();
+        private List<QueryFilter> filters = Collections.emptyList();
+        private QueryFilterExpression filterExpression;
+
+        private Builder() {
+        }
+
+        public Builder count(Boolean count) {
+            this.count = count;
+            return this;
+        }
+
+        public Builder countMode(CountMode countMode) {
+            this.countMode = countMode;
+            return this;
+        }
+
+        public Builder limit(Long limit) {
+
+            if (limit != null && limit < 0)
+                throw new IllegalArgumentException("The passed limit must be a positive number");
+
+            this.limit = limit;
+            return this;
+        }
+
+        public Builder offset(Long offset) {
+
+            if (offset != null && offset < 0)
+                throw new IllegalArgumentException("The passed offset must be a positive number");
+
+            this.offset = offset;
+            return this;
+        }
+
+        public Builder cursor(QueryCursor cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
+        public Builder order(List<QueryOrder> order) {
+
+            List<QueryOrder> frozen = new ArrayList<>();
+
+            if (order != null) {
+                for (QueryOrder o : order) {
+                    frozen.add(o instanceof FrozenQueryOrder ? o : new FrozenQueryOrder(o));
+                }
+            }
+
+            this.order = freeze(frozen);
+            return this;
+        }
+
+        public Builder addOrder(QueryOrder order) {
+
+            if (order == null) throw new IllegalArgumentException("The passed order cannot be null");
+
+            List<QueryOrder> orders = new ArrayList<>(this.order);
+            orders.add(order);
+
+            return order(orders);
+        }
+
+        public Builder fields(List<String> fields) {
+            this.fields = fields == null ? Collections.emptyList() : freeze(new ArrayList<>(fields));
+            return this;
+        }
+
+        /**
+         * @deprecated Will be removed in future releases. Use {@link #filterExpression(QueryFilterExpression)}
+         * instead.
+         */
+        @Deprecated
+        public Builder filters(List<QueryFilter> filters) {
+
+            List<QueryFilter> frozen = new ArrayList<>();
+
+            if (filters != null) {
+                for (QueryFilter f : filters) {
+                    frozen.add(freeze(f));
+                }
+            }
+
+            this.filters = freeze(frozen);
+            return this;
+        }
+
+        public Builder filterExpression(QueryFilterExpression filterExpression) {
+            this.filterExpression = freeze(filterExpression);
+            return this;
+        }
+
+        /**
+         * Joins the passed expression to the filter expression with the passed operation. The current filter
+         * expression is shared by the new one.
+         */
+        public Builder addFilterExpression(FilterExpressionOperation operation, QueryFilterExpression expression) {
+
+            if (operation == null) throw new IllegalArgumentException("The passed operation cannot be null");
+
+            QueryFilterExpression frozen = freeze(expression);
+
+            if (filterExpression == null) {
+                filterExpression = frozen;
+            } else if (frozen != null) {
+                filterExpression = new QueryFilterExpression(operation, filterExpression, frozen);
+            }
+
+            return this;
+        }
+
+        public ImmutableQueryParameters build() {
+            return new ImmutableQueryParameters(this);
+        }
+    }
+
+    private static final class FrozenQueryOrder extends QueryOrder {
+
+        private final static long serialVersionUID = 1L;
+
+        private FrozenQueryOrder(QueryOrder order) {
+            super(order.getField(), order.getOrder(), order.getNulls());
+        }
+
+        @Override
+        public void setField(String field) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setOrder(OrderDirection order) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setNulls(OrderNulls nulls) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+    }
+
+    private static final class FrozenQueryFilter extends QueryFilter {
+
+        private final static long serialVersionUID = 1L;
+
+        private FrozenQueryFilter(QueryFilter f) {
+
+            super(f.getField(), f.getOperation(), freeze(new ArrayList<>(f.getValues())));
+
+            super.setValue(f.getValue());
+            super.setDateValue(f.getDateValue() == null ? null : new Date(f.getDateValue().getTime()));
+        }
+
+        @Override
+        public Date getDateValue() {
+
+            Date dateValue = super.getDateValue();
+
+            return dateValue == null ? null : new Date(dateValue.getTime());
+        }
+
+        @Override
+        public void setField(String field) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setOperation(FilterOperation operation) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setValue(String value) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setValues(List<String> values) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setDateValue(Date dateValue) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+    }
+
+    private static final class QueryParametersView extends QueryParameters {
+
+        private final static long serialVersionUID = 1L;
+
+        private QueryParametersView(ImmutableQueryParameters q) {
+
+            super.setCount(q.count);
+            super.setCountMode(q.countMode);
+            super.setLimit(q.limit);
+            super.setOffset(q.offset);
+            super.setCursor(q.cursor);
+            super.setOrder(q.order);
+            super.setFields(q.fields);
+            super.setFilters(q.filters);
+            super.setFilterExpression(q.filterExpression);
+        }
+
+        @Override
+        public void setCount(Boolean count) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setCountMode(CountMode countMode) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setLimit(Long limit) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setLimit(Integer limit) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setOffset(Long offset) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setOffset(Integer offset) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setCursor(QueryCursor cursor) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setOrder(List<QueryOrder> order) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setFields(List<String> fields) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        @Deprecated
+        public void addFilter(QueryFilter filter) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void removeFilterParameter(String field) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        @Deprecated
+        public void setFilters(List<QueryFilter> filters) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public QueryFilterExpression addFilterExpression(FilterExpressionOperation operation,
+                                                         QueryFilterExpression queryFilterExpression) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+
+        @Override
+        public void setFilterExpression(QueryFilterExpression filterExpression) {
+            throw new UnsupportedOperationException("Immutable query parameters cannot be modified");
+        }
+    }
+}
@@ -20,7 +20,10 @@
  */
 package com.kumuluz.ee.rest.beans;
 
+import com.kumuluz.ee.rest.enums.CountPrecision;
+
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -28,12 +31,26 @@ import java.util.stream.Stream;
  */
 public class Queried<R> {
 
-    private final Long totalCount;
+    private final Supplier<QueryCount> totalCount;
     private final Stream<R> result;
+    private final String nextCursor;
+
+    private QueryCount computedTotalCount;
 
     private Queried(Long totalCount, Stream<R> result) {
+        this(totalCount, result, null);
+    }
+
+    private Queried(Long totalCount, Stream<R> result, String nextCursor) {
+        this(() -> QueryCount.exact(totalCount), result, nextCursor);
+
+        this.computedTotalCount = QueryCount.exact(totalCount);
+    }
+
+    private Queried(Supplier<QueryCount> totalCount, Stream<R> result, String nextCursor) {
         this.totalCount = totalCount;
         this.result = result;
+        this.nextCursor = nextCursor;
     }
 
     public static <T> Queried<T> result(Long totalCount, Stream<T> result) {
@@ -46,18 +63,81 @@ public class Queried<R> {
         return new Queried<>(totalCount, result.stream());
     }
 
+    public static <T> Queried<T> result(Long totalCount, Stream<T> result, String nextCursor) {
+
+        return new Queried<>(totalCount, result, nextCursor);
+    }
+
     @SafeVarargs
     public static <T> Queried<T> result(Long totalCount, T... result) {
 
         return new Queried<>(totalCount, Stream.of(result));
     }
 
+    /**
+     * Creates a result whose total count is computed by the supplier on the first call of {@link #getTotalCount()}.
+     * The supplier is called at most once.
+     */
+    public static <T> Queried<T> deferred(Supplier<Long> totalCount, Stream<T> result) {
+
+        return deferred(totalCount, result, null);
+    }
+
+    public static <T> Queried<T> deferred(Supplier<Long> totalCount, Stream<T> result, String nextCursor) {
+
+        if (totalCount == null) throw new IllegalArgumentException("The total count supplier cannot be null.");
+
+        return new Queried<>(() -> QueryCount.exact(totalCount.get()), result, nextCursor);
+    }
+
+    /**
+     * Same as {@link #deferred(Supplier, Stream, String)} for counts that are not necessarily exact.
+     */
+    public static <T> Queried<T> deferredCount(Supplier<QueryCount> totalCount, Stream<T> result, String nextCursor) {
+
+        if (totalCount == null) throw new IllegalArgumentException("The total count supplier cannot be null.");
+
+        return new Queried<>(totalCount, result, nextCursor);
+    }
+
     public Long getTotalCount() {
-        return totalCount;
+        return getQueryCount().getValue();
+    }
+
+    /**
+     * Returns whether the total count is exact, bounded or estimated, or {@code null} if it was not queried.
+     */
+    public CountPrecision getCountPrecision() {
+        return getQueryCount().getPrecision();
+    }
+
+    public synchronized QueryCount getQueryCount() {
+
+        if (computedTotalCount == null) {
+            QueryCount count = totalCount.get();
+            computedTotalCount = count == null ? QueryCount.exact(null) : count;
+        }
+
+        return computedTotalCount;
+    }
+
+    /**
+     * Returns whether the total count was already computed, i.e. whether a call to {@link #getTotalCount()} is free.
+     */
+    public synchronized boolean isTotalCountComputed() {
+        return computedTotalCount != null;
     }
 
     public Stream<R> stream() {
         return result;
     }
 
+    /**
+     * Returns the cursor of the next page for keyset pagination, or {@code null} if there is no next page or the
+     * query was not ordered deterministically.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
 }
@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.beans;
+
+import com.kumuluz.ee.rest.enums.CountPrecision;
+
+import java.util.Objects;
+
+/**
+ * Total count of a query together with its precision.
+ */
+public class QueryCount {
+
+    private final Long value;
+    private final CountPrecision precision;
+
+    private QueryCount(Long value, CountPrecision precision) {
+        this.value = value;
+        this.precision = precision;
+    }
+
+    public static QueryCount exact(Long value) {
+
+        return new QueryCount(value, value == null ? null : CountPrecision.EXACT);
+    }
+
+    public static QueryCount bounded(long limit) {
+
+        return new QueryCount(limit, CountPrecision.BOUNDED);
+    }
+
+    public static QueryCount estimated(long value) {
+
+        return new QueryCount(value, CountPrecision.ESTIMATED);
+    }
+
+    public Long getValue() {
+        return value;
+    }
+
+    public CountPrecision getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QueryCount that = (QueryCount) o;
+        return Objects.equals(value, that.value) && precision == that.precision;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, precision);
+    }
+
+    /**
+     * Returns the count as reported to clients, e.g. {@code 1000+} for a bounded count.
+     */
+    @Override
+    public String toString() {
+        return precision == CountPrecision.BOUNDED ? value + "+" : String.valueOf(value);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.beans;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Position in an ordered result used for keyset (seek) pagination. A cursor holds the values of the order fields of
+ * the last returned entity, followed by the value of its id, which is used as the tiebreaker.
+ * <p>
+ * Cursors are exchanged with clients as opaque, URL safe strings, see {@link #encode()} and {@link #decode(String)}.
+ */
+public class QueryCursor implements Serializable {
+
+    private final static long serialVersionUID = 1L;
+
+    private static final String VERSION = "1";
+
+    private final List<String> fields;
+    private final List<String> values;
+
+    public QueryCursor(List<String> fields, List<String> values) {
+
+        if (fields == null || values == null || fields.size() != values.size())
+            throw new IllegalArgumentException("The cursor must contain a value for every field");
+
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public String encode() {
+
+        StringBuilder sb = new StringBuilder(VERSION);
+
+        for (int i = 0; i < fields.size(); i++) {
+            appendString(sb, fields.get(i));
+            appendString(sb, values.get(i));
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor created with {@link #encode()}.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static QueryCursor decode(String cursor) {
+
+        if (cursor == null || cursor.isEmpty())
+            throw new IllegalArgumentException("The cursor cannot be empty");
+
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+        if (!decoded.startsWith(VERSION))
+            throw new IllegalArgumentException("Unsupported cursor version");
+
+        List<String> fields = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        int[] position = {VERSION.length()};
+
+        while (position[0] < decoded.length()) {
+
+            String field = readString(decoded, position);
+
+            if (field == null || position[0] >= decoded.length())
+                throw new IllegalArgumentException("The cursor is malformed");
+
+            fields.add(field);
+            values.add(readString(decoded, position));
+        }
+
+        if (fields.isEmpty())
+            throw new IllegalArgumentException("The cursor is malformed");
+
+        return new QueryCursor(fields, values);
+    }
+
+    /**
+     * Formats an entity value in the form expected when parsing filter and cursor values.
+     */
+    public static String formatValue(Object value) {
+
+        if (value == null) {
+            return null;
+        }
+
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toInstant().toString();
+        }
+
+        if (value instanceof Date) {
+            return Instant.ofEpochMilli(((Date) value).getTime()).toString();
+        }
+
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+
+        return value.toString();
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+
+        if (value == null) {
+            sb.append('~');
+        } else {
+            sb.append(value.length()).append(':').append(value);
+        }
+    }
+
+    private static String readString(String s, int[] position) {
+
+        if (s.charAt(position[0]) == '~') {
+            position[0]++;
+
+            return null;
+        }
+
+        int idxSeparator = s.indexOf(':', position[0]);
+
+        if (idxSeparator == -1)
+            throw new IllegalArgumentException("The cursor is malformed");
+
+        int length;
+
+        try {
+            length = Integer.parseInt(s.substring(position[0], idxSeparator));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The cursor is malformed");
+        }
+
+        int end = idxSeparator + 1 + length;
+
+        if (length < 0 || end > s.length())
+            throw new IllegalArgumentException("The cursor is malformed");
+
+        position[0] = end;
+
+        return s.substring(idxSeparator + 1, end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QueryCursor that = (QueryCursor) o;
+        return fields.equals(that.fields) && values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fields, values);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -20,6 +20,7 @@
  */
 package com.kumuluz.ee.rest.beans;
 
+import com.kumuluz.ee.rest.enums.CountMode;
 import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
 import com.kumuluz.ee.rest.utils.QueryStringBuilder;
 
@@ -36,9 +37,11 @@ public class QueryParameters implements Serializable {
     private final static long serialVersionUID = 1L;
 
     private Boolean count;
+    private CountMode countMode;
 
     private Long limit;
     private Long offset;
+    private QueryCursor cursor;
 
     private List<QueryOrder> order;
     private List<String> fields;
@@ -57,6 +60,18 @@ public class QueryParameters implements Serializable {
         this.count = count;
     }
 
+    public CountMode getCountMode() {
+        if (countMode == null) {
+            return CountMode.EXACT;
+        }
+
+        return countMode;
+    }
+
+    public void setCountMode(CountMode countMode) {
+        this.countMode = countMode;
+    }
+
     public Long getLimit() {
         return limit;
     }
@@ -81,6 +96,17 @@ public class QueryParameters implements Serializable {
         this.offset = offset.longValue();
     }
 
+    /**
+     * Returns the cursor after which the results should start (keyset pagination), or {@code null}.
+     */
+    public QueryCursor getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(QueryCursor cursor) {
+        this.cursor = cursor;
+    }
+
     public List<QueryOrder> getOrder() {
 
         if (order == null)
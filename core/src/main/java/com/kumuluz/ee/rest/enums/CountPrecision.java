@@ -0,0 +1,42 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.enums;
+
+/**
+ * Precision of a computed total count.
+ */
+public enum CountPrecision {
+
+    /**
+     * The count is the exact number of matching entities.
+     */
+    EXACT,
+
+    /**
+     * There are more matching entities than the count, which equals the count limit.
+     */
+    BOUNDED,
+
+    /**
+     * The count is an estimate, for example from the database statistics.
+     */
+    ESTIMATED
+}
@@ -0,0 +1,44 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.enums;
+
+/**
+ * Strategy used by {@link com.kumuluz.ee.rest.utils.JPAUtils} to query entities when specific fields are selected.
+ */
+public enum FieldsQueryStrategy {
+
+    /**
+     * Uses a single query, unless the selected fields contain a to-many relation and the query is paged, in which case
+     * {@link #TWO_PHASE} is used.
+     */
+    AUTO,
+
+    /**
+     * Always selects the fields with a single query. When to-many relations are selected, paging is applied to the
+     * joined rows instead of the entities.
+     */
+    SINGLE_QUERY,
+
+    /**
+     * Queries the page of ids first and selects the fields of those ids with a second query.
+     */
+    TWO_PHASE
+}
@@ -0,0 +1,40 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.enums;
+
+/**
+ * Strategy used by {@link com.kumuluz.ee.rest.utils.JPAUtils} for filters on to-many relations.
+ */
+public enum ToManyFilterStrategy {
+
+    /**
+     * Joins the to-many relations to the queried entity and selects (or counts) distinct entities.
+     */
+    JOIN,
+
+    /**
+     * Moves the filters on to-many relations into correlated {@code EXISTS} subqueries, so the entities are neither
+     * joined with the relations nor made distinct. Filters combined with {@code AND} on the top level are tested in a
+     * separate subquery for each relation, all other filters on the same relation are tested in one subquery, with the
+     * same results as {@link #JOIN}. Selected to-many fields are not narrowed by the filters.
+     */
+    EXISTS
+}
@@ -20,20 +20,29 @@
  */
 package com.kumuluz.ee.rest.utils;
 
-import com.kumuluz.ee.rest.annotations.RestIgnore;
-import com.kumuluz.ee.rest.annotations.RestMapping;
+import com.kumuluz.ee.rest.beans.QueryCursor;
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.beans.QueryOrder;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.OrderDirection;
+import com.kumuluz.ee.rest.enums.OrderNulls;
+import com.kumuluz.ee.rest.enums.QueryFormatError;
+import com.kumuluz.ee.rest.exceptions.InvalidEntityFieldException;
 import com.kumuluz.ee.rest.exceptions.InvalidFieldValueException;
 import com.kumuluz.ee.rest.exceptions.NoGenericTypeException;
+import com.kumuluz.ee.rest.exceptions.NoSuchEntityFieldException;
+import com.kumuluz.ee.rest.exceptions.QueryFormatException;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.time.*;
 import java.time.format.DateTimeParseException;
-import java.util.AbstractMap;
-import java.util.Date;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -43,26 +52,15 @@ import java.util.stream.Stream;
 public class ClassUtils {
 
     protected static Field fieldLookup(Class<?> clazz, String fieldName) throws NoSuchFieldException {
-        try {
-            if (isRestIgnored(clazz, fieldName)) {
-                return null;
-            }
-
-            return clazz.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            Class<?> superclass = clazz.getSuperclass();
-            if (superclass == null) {
-                throw e;
-            }
+        return EntityDescriptor.of(clazz).lookupField(fieldName);
+    }
 
-            return fieldLookup(superclass, fieldName);
-        }
+    protected static FieldAccessor fieldAccessorLookup(Class<?> clazz, String fieldName) throws NoSuchFieldException {
+        return EntityDescriptor.of(clazz).lookupAccessor(fieldName);
     }
 
     protected static boolean isRestIgnored(final Class<?> entityClass, final String restField) {
-        final RestIgnore restIgnore = entityClass.getAnnotation(RestIgnore.class);
-
-        return restIgnore != null && Stream.of(restIgnore.value()).anyMatch(restField::equalsIgnoreCase);
+        return EntityDescriptor.of(entityClass).isIgnored(restField);
     }
 
     protected static Stream<String> getRestFieldMappings(final Class<?> clazz, final String restField) {
@@ -71,21 +69,32 @@ public class ClassUtils {
             return Stream.empty();
         }
 
-        List<String> mappingList = Stream.of(clazz.getDeclaredFields())
-                .flatMap(entityField -> Stream.of(entityField.getAnnotationsByType(RestMapping.class))
-                        .map(annotation -> {
-                                    String restFieldName = annotation.value();
-                                    String entityFieldPath = annotation.toChildField().isEmpty() ? entityField.getName() :
-                                            entityField.getName() + "." + annotation.toChildField();
-                                    return new AbstractMap.SimpleEntry<>(restFieldName, entityFieldPath);
-                                }
-                        )
-                        .filter(e -> restField.equals(e.getKey())).map(AbstractMap.SimpleEntry::getValue)
-                ).collect(Collectors.toList());
+        List<String> mappingList = EntityDescriptor.of(clazz).getDeclaredRestMappings(restField);
 
         return mappingList.isEmpty() ? Stream.of(restField) : mappingList.stream();
     }
 
+    /**
+     * Combines the filter expression and the (deprecated) list of filters of the query parameters into a single
+     * expression.
+     */
+    protected static QueryFilterExpression getFilterExpression(QueryParameters q) {
+
+        QueryFilterExpression filterExpression = q.getFilterExpression();
+
+        for (QueryFilter queryFilter : q.getFilters()) {
+            QueryFilterExpression additionalFilterExpression = new QueryFilterExpression(queryFilter);
+
+            if (filterExpression == null) {
+                filterExpression = additionalFilterExpression;
+            } else {
+                filterExpression = new QueryFilterExpression(FilterExpressionOperation.AND, filterExpression, additionalFilterExpression);
+            }
+        }
+
+        return filterExpression;
+    }
+
     protected static Class<?> getGenericType(Field field) {
 
         ParameterizedType pt = (ParameterizedType) field.getGenericType();
@@ -164,4 +173,180 @@ public class ClassUtils {
         return value;
     }
 
+    /**
+     * Returns the order used for keyset pagination: the order of the query followed by the id field as the
+     * tiebreaker, unless the id is already ordered by.
+     */
+    protected static List<QueryOrder> getCursorOrder(QueryParameters q, String idField) {
+
+        List<QueryOrder> cursorOrder = q.getOrder().stream()
+                .filter(o -> o.getField() != null)
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (cursorOrder.stream().noneMatch(o -> o.getField().equals(idField))) {
+            cursorOrder.add(new QueryOrder(idField, OrderDirection.ASC, OrderNulls.LAST));
+        }
+
+        return cursorOrder;
+    }
+
+    protected static void validateCursor(QueryCursor cursor, List<QueryOrder> cursorOrder) {
+
+        List<String> fields = cursorOrder.stream().map(QueryOrder::getField).collect(Collectors.toList());
+
+        if (!cursor.getFields().equals(fields)) {
+            throw new QueryFormatException("The cursor does not match the order of the query",
+                    QueryStringBuilder.AFTER_DELIMITER, QueryFormatError.MALFORMED);
+        }
+    }
+
+    protected static QueryCursor createCursor(Object entity, List<QueryOrder> cursorOrder) {
+
+        List<String> fields = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        for (QueryOrder o : cursorOrder) {
+            fields.add(o.getField());
+            values.add(QueryCursor.formatValue(getFieldPathValue(entity, getFieldPath(entity.getClass(), o.getField()))));
+        }
+
+        return new QueryCursor(fields, values);
+    }
+
+    /**
+     * Resolves a (dot separated) rest field to the entity fields it is mapped to. Collections are not supported.
+     */
+    protected static List<Field> getFieldPath(Class<?> clazz, String restField) {
+
+        List<Field> path = new ArrayList<>();
+
+        Class<?> from = clazz;
+
+        for (String field : restField.split("\\.")) {
+
+            Optional<String> mappedField = getRestFieldMappings(from, field).findFirst();
+
+            if (!mappedField.isPresent()) {
+                throw new NoSuchEntityFieldException("The field is ignored", restField, clazz.getSimpleName());
+            }
+
+            for (String entityField : mappedField.get().split("\\.")) {
+
+                try {
+                    Field f = fieldLookup(from, entityField);
+
+                    if (f == null) {
+                        throw new NoSuchEntityFieldException("The field is ignored", restField, clazz.getSimpleName());
+                    }
+
+                    if (Collection.class.isAssignableFrom(f.getType())) {
+                        throw new InvalidEntityFieldException("OneToMany and ManyToMany relations are not supported by the cursor",
+                                restField, clazz.getSimpleName());
+                    }
+
+                    f.setAccessible(true);
+                    path.add(f);
+
+                    from = f.getType();
+                } catch (NoSuchFieldException e) {
+                    throw new NoSuchEntityFieldException(e.getMessage(), restField, clazz.getSimpleName());
+                }
+            }
+        }
+
+        return path;
+    }
+
+    protected static Object getFieldPathValue(Object instance, List<Field> path) {
+
+        Object value = instance;
+
+        try {
+            for (Field f : path) {
+
+                if (value == null) {
+                    return null;
+                }
+
+                value = f.get(value);
+            }
+        } catch (IllegalAccessException e) {
+            throw new NoSuchEntityFieldException(e.getMessage(), path.get(path.size() - 1).getName(),
+                    instance.getClass().getSimpleName());
+        }
+
+        return value;
+    }
+
+    /**
+     * Converts a string value to the given type. Unlike {@link #getValueForField(Field, String)} numbers are
+     * converted as well, so the result can be compared with the entity values.
+     */
+    protected static Object getValueForType(Class<?> c, String value, String fieldName) {
+
+        if (value == null) return null;
+
+        try {
+
+            if (Date.class.isAssignableFrom(c))
+                return Date.from(ZonedDateTime.parse(value).toInstant());
+
+            if (c.equals(Instant.class))
+                return ZonedDateTime.parse(value).toInstant();
+
+            if (c.equals(LocalDate.class))
+                return LocalDate.parse(value);
+
+            if (c.equals(LocalDateTime.class))
+                return LocalDateTime.parse(value);
+
+            if (c.equals(LocalTime.class))
+                return LocalTime.parse(value);
+
+            if (c.equals(OffsetDateTime.class))
+                return ZonedDateTime.parse(value).toOffsetDateTime();
+
+            if (c.equals(ZonedDateTime.class))
+                return ZonedDateTime.parse(value);
+
+            if (c.equals(Boolean.class) || c.equals(boolean.class))
+                return Boolean.parseBoolean(value);
+
+            if (c.isEnum())
+                return Enum.valueOf((Class) c, value);
+
+            if (c.equals(UUID.class))
+                return UUID.fromString(value);
+
+            if (c.equals(Integer.class) || c.equals(int.class))
+                return Integer.valueOf(value);
+
+            if (c.equals(Long.class) || c.equals(long.class))
+                return Long.valueOf(value);
+
+            if (c.equals(Short.class) || c.equals(short.class))
+                return Short.valueOf(value);
+
+            if (c.equals(Byte.class) || c.equals(byte.class))
+                return Byte.valueOf(value);
+
+            if (c.equals(Double.class) || c.equals(double.class))
+                return Double.valueOf(value);
+
+            if (c.equals(Float.class) || c.equals(float.class))
+                return Float.valueOf(value);
+
+            if (c.equals(BigDecimal.class))
+                return new BigDecimal(value);
+
+            if (c.equals(BigInteger.class))
+                return new BigInteger(value);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+
+            throw new InvalidFieldValueException(e.getMessage(), fieldName, value);
+        }
+
+        return value;
+    }
 }
@@ -0,0 +1,212 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.annotations.RestIgnore;
+import com.kumuluz.ee.rest.annotations.RestMapping;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reflection metadata of an entity class (declared fields and their accessors, {@link RestMapping} table and {@link RestIgnore} set),
+ * resolved once per class so field lookups on the query path are hash lookups instead of reflection scans.
+ */
+final class EntityDescriptor {
+
+    private static final ClassValue<EntityDescriptor> DESCRIPTORS = new ClassValue<EntityDescriptor>() {
+        @Override
+        protected EntityDescriptor computeValue(Class<?> type) {
+            return new EntityDescriptor(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final EntityDescriptor superDescriptor;
+
+    private final List<Field> declaredFields;
+    private final Map<String, Field> declaredFieldsByName;
+    private final Set<String> ignoredFields;
+    private final Map<Field, FieldAccessor> accessors = new ConcurrentHashMap<>();
+
+    private final Map<String, List<String>> declaredRestMappings;
+    private final List<Map.Entry<String, String>> restMappings;
+
+    private volatile IdAttribute idAttribute;
+
+    private EntityDescriptor(Class<?> type) {
+
+        this.type = type;
+        this.superDescriptor = type.getSuperclass() == null ? null : of(type.getSuperclass());
+
+        this.declaredFields = Collections.unmodifiableList(Arrays.asList(type.getDeclaredFields()));
+
+        Map<String, Field> fieldsByName = new HashMap<>();
+        Map<String, List<String>> mappingsByRestName = new HashMap<>();
+        List<Map.Entry<String, String>> mappings = new ArrayList<>();
+
+        for (Field field : declaredFields) {
+
+            fieldsByName.put(field.getName(), field);
+
+            for (RestMapping annotation : field.getAnnotationsByType(RestMapping.class)) {
+
+                String entityFieldPath = annotation.toChildField().isEmpty() ? field.getName() :
+                        field.getName() + "." + annotation.toChildField();
+
+                mappingsByRestName.computeIfAbsent(annotation.value(), k -> new ArrayList<>()).add(entityFieldPath);
+                mappings.add(new AbstractMap.SimpleImmutableEntry<>(annotation.value(), entityFieldPath));
+            }
+        }
+
+        if (superDescriptor != null) {
+            mappings.addAll(superDescriptor.restMappings);
+        }
+
+        this.declaredFieldsByName = fieldsByName;
+        this.declaredRestMappings = mappingsByRestName;
+        this.restMappings = Collections.unmodifiableList(mappings);
+
+        Set<String> ignored = new HashSet<>();
+        RestIgnore restIgnore = type.getAnnotation(RestIgnore.class);
+
+        if (restIgnore != null) {
+            for (String field : restIgnore.value()) {
+                ignored.add(field.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        this.ignoredFields = ignored;
+    }
+
+    static EntityDescriptor of(Class<?> type) {
+        return DESCRIPTORS.get(type);
+    }
+
+    /**
+     * Returns whether the field is listed in the {@link RestIgnore} annotation of this class (case insensitive).
+     */
+    boolean isIgnored(String field) {
+        return !ignoredFields.isEmpty() && ignoredFields.contains(field.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Finds the field in this class or its superclasses. Returns {@code null} if the field is ignored by the class
+     * that is searched when reaching it.
+     */
+    Field lookupField(String fieldName) throws NoSuchFieldException {
+
+        if (isIgnored(fieldName)) {
+            return null;
+        }
+
+        Field field = declaredFieldsByName.get(fieldName);
+
+        if (field != null) {
+            return field;
+        }
+
+        if (superDescriptor == null) {
+            throw new NoSuchFieldException(fieldName);
+        }
+
+        return superDescriptor.lookupField(fieldName);
+    }
+
+    /**
+     * Same as {@link #lookupField(String)}, but returns a cached accessor of the field.
+     */
+    FieldAccessor lookupAccessor(String fieldName) throws NoSuchFieldException {
+
+        Field field = lookupField(fieldName);
+
+        if (field == null) {
+            return null;
+        }
+
+        return of(field.getDeclaringClass()).accessors.computeIfAbsent(field, FieldAccessor::new);
+    }
+
+    List<Field> getDeclaredFields() {
+        return declaredFields;
+    }
+
+    /**
+     * Returns the entity paths that the fields declared in this class map the REST field to.
+     */
+    List<String> getDeclaredRestMappings(String restField) {
+        return declaredRestMappings.getOrDefault(restField, Collections.emptyList());
+    }
+
+    /**
+     * Returns all REST to entity path mappings of this class and its superclasses.
+     */
+    List<Map.Entry<String, String>> getRestMappings() {
+        return restMappings;
+    }
+
+    /**
+     * Returns the name of the id attribute in the given metamodel, or an empty string if the entity has none. The
+     * name is resolved once and reused for as long as the same metamodel is passed.
+     */
+    @SuppressWarnings("unchecked")
+    String getIdAttribute(Metamodel metamodel) {
+
+        IdAttribute cached = idAttribute;
+
+        if (cached != null && cached.metamodel == metamodel) {
+            return cached.name;
+        }
+
+        String idProperty = "";
+
+        EntityType e = metamodel.entity(type);
+        Set<SingularAttribute> singularAttributes = e.getSingularAttributes();
+
+        for (SingularAttribute singularAttribute : singularAttributes) {
+
+            if (singularAttribute.isId()) {
+
+                idProperty = singularAttribute.getName();
+                break;
+            }
+        }
+
+        idAttribute = new IdAttribute(metamodel, idProperty);
+
+        return idProperty;
+    }
+
+    private static class IdAttribute {
+
+        private final Metamodel metamodel;
+        private final String name;
+
+        private IdAttribute(Metamodel metamodel, String name) {
+            this.metamodel = metamodel;
+            this.name = name;
+        }
+    }
+}
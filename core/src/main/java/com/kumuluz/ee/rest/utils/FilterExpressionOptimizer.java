@@ -0,0 +1,478 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.FilterOperation;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simplifies filter expressions before they are turned into predicates by {@link JPAUtils} and {@link StreamUtils}.
+ * <p>
+ * Nested operations of the same kind are flattened and duplicate operands removed. Equality filters joined with OR
+ * on the same field are merged into a single IN filter, an IN filter with a single value becomes an equality filter
+ * and a GTE and a LTE filter joined with AND on the same field become a BETWEEN filter. The rewrites which depend on
+ * the type of the field are only applied when the field can be resolved on the entity and the rewritten filter is
+ * evaluated the same way. Finally, the operands are sorted, so expressions which differ only in the order of the
+ * operands become equal and share the same {@link #canonicalKey(QueryFilterExpression) key}.
+ */
+public final class FilterExpressionOptimizer {
+
+    /**
+     * Types for which EQ and IN filters are evaluated the same way. {@link StreamUtils} compares the values of IN
+     * filters on numeric fields as strings, so numbers are not included.
+     */
+    private static final Set<Class<?>> IN_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+            UUID.class));
+
+    private static final FieldType UNKNOWN = new FieldType(null, true);
+
+    private static final int MAX_FIELD_TYPES = 256;
+
+    private static final ClassValue<Map<String, FieldType>> FIELD_TYPES = new ClassValue<Map<String, FieldType>>() {
+        @Override
+        protected Map<String, FieldType> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private FilterExpressionOptimizer() {
+    }
+
+    /**
+     * Returns the simplified expression. The passed expression is not modified.
+     *
+     * @param entity the entity the expression filters, or {@code null} if only the rewrites which do not depend on
+     *               the types of the fields should be applied
+     */
+    public static QueryFilterExpression optimize(Class<?> entity, QueryFilterExpression expression) {
+
+        if (expression == null) {
+            return null;
+        }
+
+        return optimizeOperand(entity, expression).expression;
+    }
+
+    /**
+     * Returns a key which identifies the expression, including the values of the filters. Optimized expressions
+     * which are equal have equal keys.
+     */
+    public static String canonicalKey(QueryFilterExpression expression) {
+
+        if (expression == null) {
+            return "";
+        }
+
+        if (expression.isLeaf()) {
+            return key(expression.value());
+        }
+
+        if (expression.isEmptyLeaf()) {
+            return "()";
+        }
+
+        List<QueryFilterExpression> operands = new ArrayList<>();
+        collectOperands(expression, expression.operation(), operands);
+
+        StringBuilder key = new StringBuilder().append(expression.operation()).append('(');
+
+        for (int i = 0; i < operands.size(); i++) {
+            key.append(i == 0 ? "" : ",").append(canonicalKey(operands.get(i)));
+        }
+
+        return key.append(')').toString();
+    }
+
+    private static Operand optimizeOperand(Class<?> entity, QueryFilterExpression expression) {
+
+        if (expression.isEmptyLeaf()) {
+            return new Operand(expression, "()");
+        }
+
+        if (expression.isLeaf()) {
+
+            QueryFilter f = expression.value();
+
+            if (f.getOperation() == FilterOperation.IN && f.getValues().size() == 1 && f.getValues().get(0) != null &&
+                    f.getValue() == null && f.getDateValue() == null && isInType(fieldType(entity, f).type)) {
+
+                f = new QueryFilter(f.getField(), FilterOperation.EQ, f.getValues().get(0));
+                expression = new QueryFilterExpression(f);
+            }
+
+            return new Operand(expression, key(f));
+        }
+
+        FilterExpressionOperation operation = expression.operation();
+
+        List<QueryFilterExpression> children = new ArrayList<>();
+        collectOperands(expression, operation, children);
+
+        List<Operand> operands = new ArrayList<>();
+
+        for (QueryFilterExpression child : children) {
+
+            Operand operand = optimizeOperand(entity, child);
+
+            // optimized children are already flat, so operands of the same operation can be taken over directly
+            if (operand.operands != null && operand.operation == operation) {
+                operands.addAll(operand.operands);
+            } else {
+                operands.add(operand);
+            }
+        }
+
+        operands = operation == FilterExpressionOperation.OR ? mergeEqualities(entity, operands)
+                : mergeRanges(entity, operands);
+
+        Map<String, Operand> distinct = new LinkedHashMap<>();
+
+        for (Operand operand : operands) {
+            distinct.putIfAbsent(operand.key, operand);
+        }
+
+        List<Operand> sorted = new ArrayList<>(distinct.values());
+        sorted.sort((a, b) -> a.key.compareTo(b.key));
+
+        if (sorted.size() == 1) {
+            return sorted.get(0);
+        }
+
+        StringBuilder key = new StringBuilder().append(operation).append('(');
+
+        for (int i = 0; i < sorted.size(); i++) {
+            key.append(i == 0 ? "" : ",").append(sorted.get(i).key);
+        }
+
+        return new Operand(operation, sorted, build(operation, sorted, 0, sorted.size()), key.append(')').toString());
+    }
+
+    /**
+     * Merges EQ and IN filters on the same field of the disjunction into a single IN filter.
+     */
+    private static List<Operand> mergeEqualities(Class<?> entity, List<Operand> operands) {
+
+        Map<String, List<Operand>> byField = new LinkedHashMap<>();
+
+        for (Operand operand : operands) {
+
+            QueryFilter f = operand.filter();
+
+            if (f != null && f.getDateValue() == null && isInType(fieldType(entity, f).type) &&
+                    ((f.getOperation() == FilterOperation.EQ && f.getValue() != null) ||
+                            (f.getOperation() == FilterOperation.IN && f.getValue() == null &&
+                                    !f.getValues().isEmpty() && !f.getValues().contains(null)))) {
+
+                byField.computeIfAbsent(f.getField(), k -> new ArrayList<>()).add(operand);
+            }
+        }
+
+        List<Operand> merged = new ArrayList<>();
+
+        for (Operand operand : operands) {
+
+            QueryFilter f = operand.filter();
+            List<Operand> group = f == null ? null : byField.get(f.getField());
+
+            if (group == null || group.size() < 2 || !group.contains(operand)) {
+                merged.add(operand);
+                continue;
+            }
+
+            if (group.get(0) != operand) {
+                continue;
+            }
+
+            Set<String> values = new LinkedHashSet<>();
+
+            for (Operand o : group) {
+                if (o.filter().getOperation() == FilterOperation.EQ) {
+                    values.add(o.filter().getValue());
+                } else {
+                    values.addAll(o.filter().getValues());
+                }
+            }
+
+            QueryFilter in = values.size() == 1 && values.iterator().next() != null
+                    ? new QueryFilter(f.getField(), FilterOperation.EQ, values.iterator().next())
+                    : new QueryFilter(f.getField(), FilterOperation.IN, new ArrayList<>(values));
+
+            merged.add(new Operand(new QueryFilterExpression(in), key(in)));
+        }
+
+        return merged;
+    }
+
+    /**
+     * Merges a GTE and a LTE filter on the same field of the conjunction into a BETWEEN filter.
+     */
+    private static List<Operand> mergeRanges(Class<?> entity, List<Operand> operands) {
+
+        Map<String, Operand[]> byField = new LinkedHashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+
+        for (Operand operand : operands) {
+
+            QueryFilter f = operand.filter();
+
+            if (f == null || (f.getOperation() != FilterOperation.GTE && f.getOperation() != FilterOperation.LTE)) {
+                continue;
+            }
+
+            FieldType type = fieldType(entity, f);
+
+            if (f.getValue() == null || f.getDateValue() != null || type.collection || !isRangeType(type.type)) {
+                continue;
+            }
+
+            Operand[] bounds = byField.computeIfAbsent(f.getField(), k -> new Operand[2]);
+            int i = f.getOperation() == FilterOperation.GTE ? 0 : 1;
+
+            if (bounds[i] != null && !bounds[i].key.equals(operand.key)) {
+                ambiguous.add(f.getField());
+            }
+
+            bounds[i] = operand;
+        }
+
+        List<Operand> merged = new ArrayList<>();
+
+        for (Operand operand : operands) {
+
+            QueryFilter f = operand.filter();
+            Operand[] bounds = f == null ? null : byField.get(f.getField());
+
+            if (bounds == null || bounds[0] == null || bounds[1] == null || ambiguous.contains(f.getField())) {
+                merged.add(operand);
+                continue;
+            }
+
+            boolean lower = operand.key.equals(bounds[0].key);
+            boolean upper = operand.key.equals(bounds[1].key);
+
+            if (!lower && !upper) {
+                merged.add(operand);
+                continue;
+            }
+
+            // the filter is added in place of the lower bound, duplicates of it are removed afterwards
+            if (upper) {
+                continue;
+            }
+
+            QueryFilter between = new QueryFilter(f.getField(), FilterOperation.BETWEEN,
+                    Arrays.asList(bounds[0].filter().getValue(), bounds[1].filter().getValue()));
+
+            merged.add(new Operand(new QueryFilterExpression(between), key(between)));
+        }
+
+        return merged;
+    }
+
+    private static boolean isInType(Class<?> type) {
+        return type != null && (IN_TYPES.contains(type) || type.isEnum());
+    }
+
+    /**
+     * Primitive fields are not included, as range filters ignore them while BETWEEN filters do not.
+     */
+    private static boolean isRangeType(Class<?> type) {
+        return type != null && (type.equals(String.class) || Number.class.isAssignableFrom(type));
+    }
+
+    private static QueryFilterExpression build(FilterExpressionOperation operation, List<Operand> operands,
+                                               int from, int to) {
+
+        if (to - from == 1) {
+            return operands.get(from).expression;
+        }
+
+        int middle = (from + to) >>> 1;
+
+        return new QueryFilterExpression(operation, build(operation, operands, from, middle),
+                build(operation, operands, middle, to));
+    }
+
+    private static void collectOperands(QueryFilterExpression expression, FilterExpressionOperation operation,
+                                        List<QueryFilterExpression> operands) {
+
+        if (!expression.isLeaf() && !expression.isEmptyLeaf() && expression.operation() == operation) {
+            collectOperands(expression.left(), operation, operands);
+            collectOperands(expression.right(), operation, operands);
+        } else {
+            operands.add(expression);
+        }
+    }
+
+    private static String key(QueryFilter f) {
+
+        StringBuilder key = new StringBuilder();
+
+        appendString(key, f.getField());
+        key.append(':').append(f.getOperation()).append(':');
+
+        if (f.getDateValue() != null) {
+            key.append("dt").append(f.getDateValue().getTime());
+        } else {
+            appendString(key, f.getValue());
+        }
+
+        if (!f.getValues().isEmpty()) {
+
+            key.append('[');
+
+            for (int i = 0; i < f.getValues().size(); i++) {
+                key.append(i == 0 ? "" : ",");
+                appendString(key, f.getValues().get(i));
+            }
+
+            key.append(']');
+        }
+
+        return key.toString();
+    }
+
+    private static void appendString(StringBuilder key, String value) {
+
+        if (value == null) {
+            key.append("null");
+        } else {
+            key.append('\'').append(value.replace("\\", "\\\\").replace("'", "\\'")).append('\'');
+        }
+    }
+
+    /**
+     * Resolves the type of the filtered field. Fields which are ignored or mapped to other fields are not resolved,
+     * as the filter is not applied to the field with the same name. The paths come from the query string, so only
+     * resolved paths are cached and only up to {@link #MAX_FIELD_TYPES} of them per entity.
+     */
+    private static FieldType fieldType(Class<?> entity, QueryFilter f) {
+
+        if (entity == null || f.getField() == null) {
+            return UNKNOWN;
+        }
+
+        Map<String, FieldType> fieldTypes = FIELD_TYPES.get(entity);
+        FieldType fieldType = fieldTypes.get(f.getField());
+
+        if (fieldType == null) {
+            fieldType = resolveFieldType(entity, f.getField());
+
+            if (fieldType != UNKNOWN && fieldTypes.size() < MAX_FIELD_TYPES) {
+                fieldTypes.put(f.getField(), fieldType);
+            }
+        }
+
+        return fieldType;
+    }
+
+    private static FieldType resolveFieldType(Class<?> entity, String path) {
+
+        Class<?> type = entity;
+        boolean collection = false;
+
+        try {
+            if (!EntityDescriptor.of(entity).getDeclaredRestMappings(path).isEmpty()) {
+                return UNKNOWN;
+            }
+
+            for (String name : path.split("\\.", -1)) {
+
+                EntityDescriptor descriptor = EntityDescriptor.of(type);
+
+                if (descriptor.isIgnored(name) || !descriptor.getDeclaredRestMappings(name).isEmpty()) {
+                    return UNKNOWN;
+                }
+
+                Field field = descriptor.lookupField(name);
+
+                if (field == null) {
+                    return UNKNOWN;
+                }
+
+                type = field.getType();
+
+                if (Collection.class.isAssignableFrom(type)) {
+                    collection = true;
+                    type = ClassUtils.getGenericType(field);
+                }
+            }
+        } catch (NoSuchFieldException | RuntimeException e) {
+            return UNKNOWN;
+        }
+
+        return new FieldType(type, collection);
+    }
+
+    private static class FieldType {
+
+        private final Class<?> type;
+        private final boolean collection;
+
+        private FieldType(Class<?> type, boolean collection) {
+            this.type = type;
+            this.collection = collection;
+        }
+    }
+
+    private static class Operand {
+
+        private final QueryFilterExpression expression;
+        private final String key;
+
+        private final FilterExpressionOperation operation;
+        private final List<Operand> operands;
+
+        private Operand(QueryFilterExpression expression, String key) {
+            this.expression = expression;
+            this.key = key;
+            this.operation = null;
+            this.operands = null;
+        }
+
+        private Operand(FilterExpressionOperation operation, List<Operand> operands, QueryFilterExpression expression,
+                        String key) {
+            this.expression = expression;
+            this.key = key;
+            this.operation = operation;
+            this.operands = operands;
+        }
+
+        private QueryFilter filter() {
+            return expression.isLeaf() ? expression.value() : null;
+        }
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.FilterOperation;
+import com.kumuluz.ee.rest.enums.QueryFormatError;
+import com.kumuluz.ee.rest.exceptions.QueryFormatException;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Recursive descent parser of filter expressions, which matches the grammar of {@link QueryFilterExpressionParser}
+ * rule for rule, including the ordered choices and the backtracking of a PEG parser, and builds the same filters.
+ * Like the Parboiled parser it accepts the longest valid prefix of the input. Inputs without a valid prefix return
+ * {@code null}, so they can be passed to the Parboiled parser and its error recovery.
+ */
+final class FilterExpressionParser {
+
+    private static final Logger log = Logger.getLogger(FilterExpressionParser.class.getSimpleName());
+
+    private final String key;
+    private final String input;
+
+    private int pos;
+
+    private FilterExpressionParser(String key, String input) {
+        this.key = key;
+        this.input = input;
+    }
+
+    /**
+     * Parses the filter expression, or returns {@code null} when the input does not start with a valid expression.
+     *
+     * @throws QueryFormatException when a filter has an unknown operation, a malformed date or the wrong number of
+     *                              operands, the same as the Parboiled parser
+     */
+    static QueryFilterExpression parse(String key, String input) {
+        return new FilterExpressionParser(key, input).orExpression();
+    }
+
+    private QueryFilterExpression orExpression() {
+
+        QueryFilterExpression left = andExpression();
+
+        if (left == null) {
+            return null;
+        }
+
+        while (true) {
+
+            int start = pos;
+
+            whiteSpace();
+
+            if (!consume(',') && !consumeIgnoreCase("or")) {
+                pos = start;
+                return left;
+            }
+
+            whiteSpace();
+
+            QueryFilterExpression right = andExpression();
+
+            if (right == null) {
+                pos = start;
+                return left;
+            }
+
+            left = new QueryFilterExpression(FilterExpressionOperation.OR, left, right);
+        }
+    }
+
+    private QueryFilterExpression andExpression() {
+
+        QueryFilterExpression left = expression();
+
+        if (left == null) {
+            return null;
+        }
+
+        while (true) {
+
+            int start = pos;
+
+            // ' ', '+', ';' or 'and' represent an 'AND' expression, the whitespace alone is tried only without them
+            whiteSpace();
+
+            if (consume('+') || consume(';') || consumeIgnoreCase("and")) {
+                whiteSpace();
+            }
+
+            QueryFilterExpression right = expression();
+
+            if (right == null) {
+                pos = start;
+                return left;
+            }
+
+            left = new QueryFilterExpression(FilterExpressionOperation.AND, left, right);
+        }
+    }
+
+    private QueryFilterExpression expression() {
+
+        QueryFilterExpression filter = filter();
+
+        return filter != null ? filter : parens();
+    }
+
+    private QueryFilterExpression parens() {
+
+        int start = pos;
+
+        if (consume('(')) {
+
+            QueryFilterExpression expression = orExpression();
+
+            if (expression != null && consume(')')) {
+                return expression;
+            }
+        }
+
+        pos = start;
+
+        return null;
+    }
+
+    /**
+     * Matches a binary filter or, when there is no value, a unary filter. Both start with the field and the
+     * operation, which are matched once.
+     */
+    private QueryFilterExpression filter() {
+
+        int start = pos;
+
+        int fieldStart = pos;
+
+        if (!string()) {
+            return null;
+        }
+
+        String field = input.substring(fieldStart, pos);
+
+        if (!consume(':')) {
+            pos = start;
+            return null;
+        }
+
+        int operationStart = pos;
+
+        while (pos < input.length() && isLetter(input.charAt(pos))) {
+            pos++;
+        }
+
+        if (pos == operationStart) {
+            pos = start;
+            return null;
+        }
+
+        String operation = input.substring(operationStart, pos);
+
+        int unaryEnd = pos;
+
+        if (consume(':')) {
+
+            QueryFilter filter = filterValue(field, operation);
+
+            if (filter != null) {
+                return new QueryFilterExpression(filter);
+            }
+        }
+
+        pos = unaryEnd;
+
+        return new QueryFilterExpression(buildQueryFilter(field, operation));
+    }
+
+    /**
+     * Matches a date, a list or a string value and builds the binary filter, or returns {@code null} when there is no
+     * value.
+     */
+    private QueryFilter filterValue(String field, String operation) {
+
+        int start = pos;
+
+        if (input.startsWith("dt", pos)) {
+
+            pos += 2;
+
+            if (quotedString()) {
+                return buildQueryFilter(field, operation, start, null);
+            }
+
+            pos = start;
+        }
+
+        List<String> items = stringArray();
+
+        if (items != null) {
+            return buildQueryFilter(field, operation, start, items);
+        }
+
+        if (quotedString() || string()) {
+            return buildQueryFilter(field, operation, start, null);
+        }
+
+        return null;
+    }
+
+    /**
+     * Matches a list of values and returns the matched items, quoted ones with their quotes.
+     */
+    private List<String> stringArray() {
+
+        int start = pos;
+
+        if (!consume('[')) {
+            return null;
+        }
+
+        List<String> items = new ArrayList<>();
+
+        int itemStart = pos;
+
+        if (quotedString() || string()) {
+
+            items.add(input.substring(itemStart, pos));
+
+            while (consume(',')) {
+
+                itemStart = pos;
+
+                if (quotedString() || string()) {
+                    items.add(input.substring(itemStart, pos));
+                }
+            }
+        }
+
+        if (!consume(']')) {
+            pos = start;
+            return null;
+        }
+
+        return items;
+    }
+
+    private boolean quotedString() {
+
+        int start = pos;
+
+        if (!consume('\'')) {
+            return false;
+        }
+
+        while (pos < input.length()) {
+
+            char c = input.charAt(pos);
+
+            if (c == '\'') {
+                pos++;
+                return true;
+            }
+
+            if (c == '\r' || c == '\n') {
+                break;
+            }
+
+            pos++;
+        }
+
+        pos = start;
+
+        return false;
+    }
+
+    private boolean string() {
+
+        int start = pos;
+
+        while (pos < input.length() && !isReserved(input.charAt(pos))) {
+            pos++;
+        }
+
+        return pos > start;
+    }
+
+    private void whiteSpace() {
+
+        while (pos < input.length()) {
+
+            char c = input.charAt(pos);
+
+            if (c != ' ' && c != '\t' && c != '\f') {
+                return;
+            }
+
+            pos++;
+        }
+    }
+
+    private boolean consume(char c) {
+
+        if (pos < input.length() && input.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Matches the lower case ASCII keyword in any case.
+     */
+    private boolean consumeIgnoreCase(String keyword) {
+
+        if (pos + keyword.length() > input.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < keyword.length(); i++) {
+
+            char c = input.charAt(pos + i);
+            char k = keyword.charAt(i);
+
+            if (c != k && c != Character.toUpperCase(k)) {
+                return false;
+            }
+        }
+
+        pos += keyword.length();
+
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isReserved(char c) {
+
+        switch (c) {
+            case ' ':
+            case ',':
+            case ';':
+            case ':':
+            case '\'':
+            case '(':
+            case ')':
+            case '[':
+            case ']':
+            case '\r':
+            case '\n':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private QueryFilter buildQueryFilter(String field, String operation) {
+
+        FilterOperation filterOperation = buildQueryFilterOperation(operation);
+
+        if (!filterOperation.equals(FilterOperation.ISNULL) && !filterOperation.equals(FilterOperation.ISNOTNULL)) {
+            throw new QueryFormatException("Wrong use of unary and/or binary operators", key, QueryFormatError.MALFORMED);
+        }
+
+        return new QueryFilter(field, filterOperation);
+    }
+
+    /**
+     * Builds the binary filter of the value matched from the start position, with the matched list items when the
+     * value is a list.
+     */
+    private QueryFilter buildQueryFilter(String field, String operation, int start, List<String> items) {
+
+        String value = input.substring(start, pos);
+
+        // the Parboiled parser classifies values with regular expressions, which do not match line separators
+        if (hasLineSeparator(value)) {
+            return new QueryFilterExpressionParser(key).buildQueryFilter(field, operation, value);
+        }
+
+        FilterOperation filterOperation = buildQueryFilterOperation(operation);
+
+        if (items != null && (filterOperation == FilterOperation.IN ||
+                filterOperation == FilterOperation.NIN ||
+                filterOperation == FilterOperation.NINIC ||
+                filterOperation == FilterOperation.INIC ||
+                filterOperation == FilterOperation.BETWEEN ||
+                filterOperation == FilterOperation.NBETWEEN)) {
+
+            Set<String> distinctItems = new LinkedHashSet<>(items);
+
+            List<String> values = new ArrayList<>(distinctItems.size());
+
+            for (String item : distinctItems) {
+                values.add(unquote(item));
+            }
+
+            return new QueryFilter(field, filterOperation, values);
+        }
+
+        if (value.startsWith("dt'") && value.length() > 3 && value.endsWith("'")) {
+
+            Date dateValue = parseDate(value.substring(3, value.length() - 1));
+
+            if (dateValue == null) {
+                String msg = "Value for '" + key + "' is malformed: '" + value + "'";
+
+                log.finest(msg);
+
+                throw new QueryFormatException(msg, key, QueryFormatError.MALFORMED);
+            }
+
+            return new QueryFilter(field, filterOperation, dateValue);
+        }
+
+        return new QueryFilter(field, filterOperation, unquote(value).trim());
+    }
+
+    private FilterOperation buildQueryFilterOperation(String operation) {
+        try {
+            return FilterOperation.valueOf(operation.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            String msg = "Constant in '" + key + "' does not exist: '" + operation + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.NO_SUCH_CONSTANT);
+        }
+    }
+
+    private static String unquote(String value) {
+
+        int from = value.startsWith("'") ? 1 : 0;
+        int to = value.length() > from && value.endsWith("'") ? value.length() - 1 : value.length();
+
+        return value.substring(from, to);
+    }
+
+    private static boolean hasLineSeparator(String value) {
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Date parseDate(String date) {
+        try {
+            return Date.from(ZonedDateTime.parse(date).toInstant());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
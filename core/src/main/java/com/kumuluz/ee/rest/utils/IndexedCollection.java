@@ -0,0 +1,579 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.beans.QueryOrder;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.OrderDirection;
+import com.kumuluz.ee.rest.enums.OrderNulls;
+import com.kumuluz.ee.rest.enums.QueryFormatError;
+import com.kumuluz.ee.rest.exceptions.InvalidEntityFieldException;
+import com.kumuluz.ee.rest.exceptions.InvalidFieldValueException;
+import com.kumuluz.ee.rest.exceptions.NoSuchEntityFieldException;
+import com.kumuluz.ee.rest.exceptions.QueryFormatException;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * An in-memory collection of entities with secondary indexes on chosen fields, queried with the same
+ * {@link QueryParameters} and with the same results as {@link StreamUtils}. Hash indexes serve {@code EQ} and
+ * {@code IN} filters, sorted indexes serve comparison and {@code BETWEEN} filters as well as ordering. A query uses the
+ * index of the most selective filter of the top level conjunction, and only the entities found in the index are
+ * filtered, sorted and paged with {@link StreamUtils}.
+ * <p>
+ * Entities are kept in the order they were added, which is the encounter order of equal entities in the results.
+ * Entities are compared by identity, and an entity changed after it was added has to be passed to
+ * {@link #update(Object)} to re-index it. The collection is safe for concurrent use.
+ */
+public class IndexedCollection<T> {
+
+    private static final Set<Class<?>> EQ_TYPES = new HashSet<>(Arrays.asList(Integer.class, Long.class, Short.class,
+            Byte.class, Double.class, Float.class, String.class, BigDecimal.class, Date.class, LocalDate.class,
+            LocalDateTime.class, UUID.class));
+
+    private static final Set<Class<?>> IN_TYPES = new HashSet<>(Arrays.asList(String.class, Date.class, UUID.class));
+
+    private static final Set<Class<?>> RANGE_TYPES = new HashSet<>(Arrays.asList(Integer.class, Long.class,
+            Short.class, Byte.class, Double.class, Float.class, Date.class, LocalDate.class, LocalDateTime.class));
+
+    private final Class<T> entity;
+
+    private final Map<T, Long> sequences = new IdentityHashMap<>();
+    private final NavigableMap<Long, T> elements = new TreeMap<>();
+    private final Map<String, Index> indexes = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long nextSequence;
+
+    public IndexedCollection(Class<T> entity) {
+
+        if (entity == null)
+            throw new IllegalArgumentException("The entity cannot be null.");
+
+        this.entity = entity;
+    }
+
+    public IndexedCollection(Class<T> entity, Collection<T> elements) {
+
+        this(entity);
+
+        addAll(elements);
+    }
+
+    /**
+     * Adds a hash index of the field, which serves {@code EQ} and {@code IN} filters.
+     */
+    public IndexedCollection<T> hashIndex(String field) {
+        return index(field, false);
+    }
+
+    /**
+     * Adds a sorted index of the field, which serves {@code EQ}, {@code IN}, comparison and {@code BETWEEN} filters,
+     * and ordering by the field.
+     */
+    public IndexedCollection<T> sortedIndex(String field) {
+        return index(field, true);
+    }
+
+    public void add(T element) {
+
+        if (element == null)
+            throw new IllegalArgumentException("The element cannot be null.");
+
+        lock.writeLock().lock();
+
+        try {
+            if (sequences.containsKey(element)) {
+                return;
+            }
+
+            long sequence = nextSequence++;
+
+            sequences.put(element, sequence);
+            elements.put(sequence, element);
+
+            indexes.values().forEach(i -> i.add(sequence, element));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addAll(Collection<T> elements) {
+
+        if (elements == null)
+            throw new IllegalArgumentException("The elements cannot be null.");
+
+        elements.forEach(this::add);
+    }
+
+    public boolean remove(T element) {
+
+        lock.writeLock().lock();
+
+        try {
+            Long sequence = sequences.remove(element);
+
+            if (sequence == null) {
+                return false;
+            }
+
+            elements.remove(sequence);
+
+            indexes.values().forEach(i -> i.remove(sequence));
+
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes an element after its indexed fields were changed. The element keeps its position in the collection.
+     */
+    public void update(T element) {
+
+        lock.writeLock().lock();
+
+        try {
+            Long sequence = sequences.get(element);
+
+            if (sequence == null)
+                throw new IllegalArgumentException("The element is not in the collection.");
+
+            for (Index index : indexes.values()) {
+                index.remove(sequence);
+                index.add(sequence, element);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+
+        lock.readLock().lock();
+
+        try {
+            return elements.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<T> toList() {
+
+        lock.readLock().lock();
+
+        try {
+            return new ArrayList<>(elements.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queries the entities of the collection. The returned entities are the stored instances, so selecting fields is
+     * not supported, as it would clear the unselected fields of the stored entities.
+     */
+    public List<T> queryEntities(QueryParameters q) {
+
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null. " +
+                    "If you don't have any parameters either pass a empty object.");
+
+        if (!q.getFields().isEmpty())
+            throw new QueryFormatException("Fields can not be selected from an indexed collection", "fields",
+                    QueryFormatError.MALFORMED);
+
+        lock.readLock().lock();
+
+        try {
+            return StreamUtils.queryEntities(candidates(q, true).stream(), entity, q).collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Long queryEntitiesCount(QueryParameters q) {
+
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null. " +
+                    "If you don't have any parameters either pass a empty object.");
+
+        lock.readLock().lock();
+
+        try {
+            return StreamUtils.queryEntitiesCount(candidates(q, false).stream(), entity, q, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private IndexedCollection<T> index(String field, boolean sorted) {
+
+        if (field == null)
+            throw new IllegalArgumentException("The field cannot be null.");
+
+        List<Field> path;
+
+        try {
+            path = ClassUtils.getFieldPath(entity, field);
+        } catch (InvalidEntityFieldException e) {
+            throw new InvalidEntityFieldException("OneToMany and ManyToMany relations cannot be indexed", field,
+                    entity.getSimpleName());
+        }
+
+        Class<?> type = wrap(path.get(path.size() - 1).getType());
+
+        if (sorted && !Comparable.class.isAssignableFrom(type)) {
+            throw new InvalidEntityFieldException("Only comparable fields can have a sorted index", field,
+                    entity.getSimpleName());
+        }
+
+        lock.writeLock().lock();
+
+        try {
+            Index index = new Index(path, type, sorted);
+
+            elements.forEach(index::add);
+
+            indexes.put(path.stream().map(Field::getName).collect(Collectors.joining(".")), index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the entities which can match the query, in the order they were added. With {@code ordered} set the
+     * entities preceding the requested page in the order of a sorted index are found as well.
+     */
+    private Collection<T> candidates(QueryParameters q, boolean ordered) {
+
+        QueryFilterExpression expression = ClassUtils.getFilterExpression(q);
+
+        List<NavigableSet<Long>> best = null;
+        long bestSize = Long.MAX_VALUE;
+
+        if (expression != null) {
+
+            List<QueryFilter> filters = new ArrayList<>();
+            collectConjunction(expression, filters);
+
+            for (QueryFilter f : filters) {
+
+                Index index = index(f.getField());
+
+                List<NavigableSet<Long>> buckets = index == null ? null : index.lookup(f);
+
+                if (buckets != null) {
+
+                    long size = buckets.stream().mapToLong(Set::size).sum();
+
+                    if (size < bestSize) {
+                        best = buckets;
+                        bestSize = size;
+                    }
+                }
+            }
+        }
+
+        if (best != null) {
+
+            List<Long> found = new ArrayList<>((int) bestSize);
+            best.forEach(found::addAll);
+
+            if (best.size() > 1) {
+                Collections.sort(found);
+            }
+
+            return found.stream().map(elements::get).collect(Collectors.toList());
+        }
+
+        if (ordered) {
+
+            Collection<T> page = orderedCandidates(q);
+
+            if (page != null) {
+                return page;
+            }
+        }
+
+        return elements.values();
+    }
+
+    /**
+     * Walks a sorted index in the order of the query until the requested page is complete, which is the case when
+     * enough matching entities are found and the entities with the last found value are included. Returns
+     * {@code null} when the query cannot be served by a sorted index.
+     */
+    @SuppressWarnings("unchecked")
+    private Collection<T> orderedCandidates(QueryParameters q) {
+
+        if (q.getOrder().isEmpty() || q.getLimit() == null || q.getLimit() < 0) {
+            return null;
+        }
+
+        QueryOrder order = q.getOrder().get(0);
+
+        Index index = index(order.getField());
+
+        if (index == null || !index.sorted) {
+            return null;
+        }
+
+        long needed = q.getLimit() + (q.getOffset() != null && q.getOffset() > -1 ? q.getOffset() : 0);
+
+        Predicate<T> predicate = StreamUtils.createQueryPredicate(entity, q);
+
+        NavigableMap<Object, NavigableSet<Long>> entries = (NavigableMap<Object, NavigableSet<Long>>) index.entries;
+
+        List<NavigableSet<Long>> groups = new ArrayList<>();
+
+        if (order.getNulls() == OrderNulls.FIRST) {
+            groups.add(index.nulls);
+        }
+
+        groups.addAll(order.getOrder() == OrderDirection.DESC ? entries.descendingMap().values() : entries.values());
+
+        if (order.getNulls() != OrderNulls.FIRST) {
+            groups.add(index.nulls);
+        }
+
+        List<Long> found = new ArrayList<>();
+
+        for (NavigableSet<Long> group : groups) {
+
+            if (found.size() >= needed) {
+                break;
+            }
+
+            for (Long sequence : group) {
+                if (predicate == null || predicate.test(elements.get(sequence))) {
+                    found.add(sequence);
+                }
+            }
+        }
+
+        Collections.sort(found);
+
+        return found.stream().map(elements::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the index of the entity field the (rest) field is mapped to, resolved the same way as by
+     * {@link StreamUtils}. Ignored and unknown fields have no index, and unknown fields are reported by the filters.
+     */
+    private Index index(String field) {
+
+        String path;
+
+        try {
+            path = field == null ? null : StreamUtils.getEntityFieldPath(entity, field);
+        } catch (NoSuchEntityFieldException e) {
+            return null;
+        }
+
+        return path == null ? null : indexes.get(path);
+    }
+
+    private static void collectConjunction(QueryFilterExpression expression, List<QueryFilter> filters) {
+
+        if (expression.isLeaf()) {
+            filters.add(expression.value());
+        } else if (expression.operation() == FilterExpressionOperation.AND) {
+            collectConjunction(expression.left(), filters);
+            collectConjunction(expression.right(), filters);
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+
+        if (!type.isPrimitive()) {
+            return type;
+        }
+
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == char.class) return Character.class;
+
+        return type;
+    }
+
+    /**
+     * Dates are indexed by their instant, as they are compared by the filters.
+     */
+    private static Object key(Object value) {
+        return value instanceof Date ? (Object) new Date(((Date) value).getTime()) : value;
+    }
+
+    private class Index {
+
+        private final List<Field> path;
+        private final Class<?> type;
+        private final boolean sorted;
+
+        private final Map<Object, NavigableSet<Long>> entries;
+        private final NavigableSet<Long> nulls = new TreeSet<>();
+        private final Map<Long, Object> keys = new HashMap<>();
+
+        private Index(List<Field> path, Class<?> type, boolean sorted) {
+            this.path = path;
+            this.type = type;
+            this.sorted = sorted;
+            this.entries = sorted ? new TreeMap<>() : new HashMap<>();
+        }
+
+        private void add(Long sequence, T element) {
+
+            Object key = key(ClassUtils.getFieldPathValue(element, path));
+
+            if (key == null) {
+                nulls.add(sequence);
+            } else {
+                entries.computeIfAbsent(key, k -> new TreeSet<>()).add(sequence);
+            }
+
+            keys.put(sequence, key);
+        }
+
+        private void remove(Long sequence) {
+
+            Object key = keys.remove(sequence);
+
+            if (key == null) {
+                nulls.remove(sequence);
+            } else {
+                NavigableSet<Long> bucket = entries.get(key);
+
+                bucket.remove(sequence);
+
+                if (bucket.isEmpty()) {
+                    entries.remove(key);
+                }
+            }
+        }
+
+        /**
+         * Returns the buckets of the entities matching the filter, or {@code null} when the index cannot serve the
+         * filter the same way as {@link StreamUtils}.
+         */
+        @SuppressWarnings("unchecked")
+        private List<NavigableSet<Long>> lookup(QueryFilter f) {
+
+            if (f.getDateValue() != null) {
+                return null;
+            }
+
+            try {
+                switch (f.getOperation()) {
+                    case EQ:
+                        if (!EQ_TYPES.contains(type) && !type.isEnum() || f.getValue() == null) {
+                            return null;
+                        }
+                        return bucket(value(f.getValue()));
+                    case IN:
+                        if (!IN_TYPES.contains(type) && !type.isEnum()) {
+                            return null;
+                        }
+                        List<NavigableSet<Long>> buckets = new ArrayList<>();
+                        for (Object value : new HashSet<>(f.getValues().stream().filter(Objects::nonNull)
+                                .map(this::value).collect(Collectors.toList()))) {
+                            buckets.addAll(bucket(value));
+                        }
+                        return buckets;
+                    case GT:
+                        return isRangeSupported() && f.getValue() != null ? range(value(f.getValue()), false, null, false) : null;
+                    case GTE:
+                        return isRangeSupported() && f.getValue() != null ? range(value(f.getValue()), true, null, false) : null;
+                    case LT:
+                        return isRangeSupported() && f.getValue() != null ? range(null, false, value(f.getValue()), false) : null;
+                    case LTE:
+                        return isRangeSupported() && f.getValue() != null ? range(null, false, value(f.getValue()), true) : null;
+                    case BETWEEN:
+                        if (!isRangeSupported() || f.getValues().size() != 2) {
+                            return null;
+                        }
+                        Object from = value(f.getValues().get(0));
+                        Object to = value(f.getValues().get(1));
+                        if (((Comparable) from).compareTo(to) > 0) {
+                            return new ArrayList<>();
+                        }
+                        return range(from, true, to, true);
+                    default:
+                        return null;
+                }
+            } catch (InvalidFieldValueException | NumberFormatException | NullPointerException e) {
+                // invalid values are reported by the filters
+                return null;
+            }
+        }
+
+        private boolean isRangeSupported() {
+            return sorted && RANGE_TYPES.contains(type);
+        }
+
+        private Object value(String value) {
+            return key(ClassUtils.getValueForType(type, value, path.get(path.size() - 1).getName()));
+        }
+
+        private List<NavigableSet<Long>> bucket(Object key) {
+
+            NavigableSet<Long> bucket = entries.get(key);
+
+            return bucket == null ? new ArrayList<>() : Collections.singletonList(bucket);
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<NavigableSet<Long>> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+
+            NavigableMap<Object, NavigableSet<Long>> map = (NavigableMap<Object, NavigableSet<Long>>) entries;
+
+            if (from != null && to != null) {
+                map = map.subMap(from, fromInclusive, to, toInclusive);
+            } else if (from != null) {
+                map = map.tailMap(from, fromInclusive);
+            } else {
+                map = map.headMap(to, toInclusive);
+            }
+
+            return new ArrayList<>(map.values());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.enums.FieldsQueryStrategy;
+import com.kumuluz.ee.rest.enums.ToManyFilterStrategy;
+import com.kumuluz.ee.rest.interfaces.CountEstimator;
+
+/**
+ * Execution options for queries built by {@link JPAUtils}.
+ */
+public class JPAQueryOptions {
+
+    private QueryPlanCache queryPlanCache;
+
+    private boolean bindParameters = true;
+
+    private FieldsQueryStrategy fieldsQueryStrategy = FieldsQueryStrategy.AUTO;
+
+    private long countLimit = 1000;
+
+    private CountEstimator countEstimator;
+
+    private Integer fetchSize;
+
+    private boolean fetchAssociations;
+
+    private ToManyFilterStrategy toManyFilterStrategy = ToManyFilterStrategy.JOIN;
+
+    /**
+     * Enables reuse of compiled query plans for queries with the same shape. Disabled when set to {@code null}.
+     * <p>
+     * The cache saves building the criteria query; the persistence provider still translates the criteria query on
+     * every {@code createQuery}, unless it caches the translation itself. A cached criteria query is passed to the
+     * entity managers of the same factory from many threads at once. JPA does not guarantee that this is safe; it is
+     * tested with Hibernate and EclipseLink.
+     */
+    public JPAQueryOptions queryPlanCache(QueryPlanCache queryPlanCache) {
+
+        this.queryPlanCache = queryPlanCache;
+
+        return this;
+    }
+
+    /**
+     * Binds filter values as query parameters instead of rendering them as literals, so queries with the same shape
+     * share one SQL statement. Enabled by default; parameters are always bound when a query plan cache is used.
+     */
+    public JPAQueryOptions bindParameters(boolean bindParameters) {
+
+        this.bindParameters = bindParameters;
+
+        return this;
+    }
+
+    /**
+     * Sets the strategy used when specific fields are selected. Defaults to {@link FieldsQueryStrategy#AUTO}.
+     */
+    public JPAQueryOptions fieldsQueryStrategy(FieldsQueryStrategy fieldsQueryStrategy) {
+
+        if (fieldsQueryStrategy == null)
+            throw new IllegalArgumentException("The fields query strategy cannot be null");
+
+        this.fieldsQueryStrategy = fieldsQueryStrategy;
+
+        return this;
+    }
+
+    /**
+     * Sets the number of entities up to which an approximate count is exact. Larger results are reported as bounded
+     * by the limit. Defaults to 1000.
+     */
+    public JPAQueryOptions countLimit(long countLimit) {
+
+        if (countLimit < 1)
+            throw new IllegalArgumentException("The count limit must be a positive number");
+
+        this.countLimit = countLimit;
+
+        return this;
+    }
+
+    /**
+     * Sets the estimator used for approximate counts of queries without filters. When the estimator is not set or
+     * returns no estimate, the count is bounded by the count limit.
+     */
+    public JPAQueryOptions countEstimator(CountEstimator countEstimator) {
+
+        this.countEstimator = countEstimator;
+
+        return this;
+    }
+
+    /**
+     * Sets the number of rows fetched from the database at once, e.g. for large results read with
+     * {@link JPAUtils#getEntityStream}. The driver default is used when set to {@code null}.
+     */
+    public JPAQueryOptions fetchSize(Integer fetchSize) {
+
+        if (fetchSize != null && fetchSize < 1)
+            throw new IllegalArgumentException("The fetch size must be a positive number");
+
+        this.fetchSize = fetchSize;
+
+        return this;
+    }
+
+    /**
+     * Fetches the eager associations of the queried entities, and the to-one associations the order and the filters
+     * go through, with the entities instead of loading them for each entity separately. A page of entities is then
+     * loaded with at most two queries (the ids of the page and the entities) unless the model has more than one eager
+     * to-many association. Applies to queries without selected fields. Disabled by default.
+     */
+    public JPAQueryOptions fetchAssociations(boolean fetchAssociations) {
+
+        this.fetchAssociations = fetchAssociations;
+
+        return this;
+    }
+
+    /**
+     * Sets the strategy used for filters on to-many relations. Defaults to {@link ToManyFilterStrategy#JOIN}.
+     */
+    public JPAQueryOptions toManyFilterStrategy(ToManyFilterStrategy toManyFilterStrategy) {
+
+        if (toManyFilterStrategy == null)
+            throw new IllegalArgumentException("The to-many filter strategy cannot be null");
+
+        this.toManyFilterStrategy = toManyFilterStrategy;
+
+        return this;
+    }
+
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
+    public boolean isBindParameters() {
+        return bindParameters;
+    }
+
+    public FieldsQueryStrategy getFieldsQueryStrategy() {
+        return fieldsQueryStrategy;
+    }
+
+    public long getCountLimit() {
+        return countLimit;
+    }
+
+    public CountEstimator getCountEstimator() {
+        return countEstimator;
+    }
+
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    public boolean isFetchAssociations() {
+        return fetchAssociations;
+    }
+
+    public ToManyFilterStrategy getToManyFilterStrategy() {
+        return toManyFilterStrategy;
+    }
+}
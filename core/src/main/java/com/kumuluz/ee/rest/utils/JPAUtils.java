@@ -20,36 +20,51 @@
  */
 package com.kumuluz.ee.rest.utils;
 
-import com.kumuluz.ee.rest.annotations.RestIgnore;
-import com.kumuluz.ee.rest.annotations.RestMapping;
 import com.kumuluz.ee.rest.beans.*;
+import com.kumuluz.ee.rest.enums.CountMode;
 import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.FilterOperation;
 import com.kumuluz.ee.rest.enums.OrderDirection;
+import com.kumuluz.ee.rest.enums.OrderNulls;
 import com.kumuluz.ee.rest.enums.QueryFormatError;
+import com.kumuluz.ee.rest.enums.ToManyFilterStrategy;
 import com.kumuluz.ee.rest.exceptions.InvalidEntityFieldException;
 import com.kumuluz.ee.rest.exceptions.InvalidFieldValueException;
 import com.kumuluz.ee.rest.exceptions.NoSuchEntityFieldException;
 import com.kumuluz.ee.rest.exceptions.QueryFormatException;
+import com.kumuluz.ee.rest.interfaces.CountEstimator;
 import com.kumuluz.ee.rest.interfaces.CriteriaFilter;
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Subgraph;
 import jakarta.persistence.Tuple;
 import jakarta.persistence.TupleElement;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import jakarta.persistence.metamodel.*;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.AnnotatedElement;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Timestamp;
 import java.time.*;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Tilen Faganel
@@ -61,6 +76,14 @@ public class JPAUtils {
     private static final String PROP_PERSISTENCE_JDBC_DRIVER = "jakarta.persistence.jdbc.driver";
     private static final String POSTGRES_SQL_DRIVER = "org.postgresql.Driver";
 
+    private static final String HINT_HIBERNATE_FETCH_SIZE = "org.hibernate.fetchSize";
+    private static final String HINT_ECLIPSELINK_FETCH_SIZE = "eclipselink.jdbc.fetch-size";
+
+    private static final String HINT_LOAD_GRAPH = "jakarta.persistence.loadgraph";
+    private static final String HINT_ECLIPSELINK_LEFT_JOIN_FETCH = "eclipselink.left-join-fetch";
+
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
     public static <T> Stream<T> getEntityStream(EntityManager em, Class<T> entity) {
 
         return getEntityStream(em, entity, new QueryParameters());
@@ -147,39 +170,244 @@ public class JPAUtils {
 
     public static <T> Queried<T> getQueried(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
                                             List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct) {
+        return getQueried(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, new JPAQueryOptions());
+    }
+
+    /**
+     * Queries the page of entities. The total count is only queried on the first call of
+     * {@link Queried#getTotalCount()}, so it has to be read while the entity manager is still open.
+     */
+    public static <T> Queried<T> getQueried(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
+                                            List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct,
+                                            JPAQueryOptions options) {
+
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
+
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null. " +
+                    "If you don't have any parameters either pass a empty object or " +
+                    "use the getQueried(EntityManager, Class<T>) method.");
+
+        Queried<T> page = queryPage(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options, null, false);
+
+        if (!q.getCount()) {
+            return page;
+        }
+
+        return Queried.deferredCount(() -> countEntities(em, entity, q, customFilter, options), page.stream(),
+                page.getNextCursor());
+    }
+
+    public static <T> CompletableFuture<Queried<T>> getQueriedAsync(EntityManagerFactory emf, Class<T> entity,
+                                                                    QueryParameters q, Executor executor) {
+        return getQueriedAsync(emf, entity, q, null, executor);
+    }
+
+    public static <T> CompletableFuture<Queried<T>> getQueriedAsync(EntityManagerFactory emf, Class<T> entity,
+                                                                    QueryParameters q, CriteriaFilter<T> customFilter,
+                                                                    Executor executor) {
+        return getQueriedAsync(emf, entity, q, customFilter, null, null, false, new JPAQueryOptions(), executor);
+    }
+
+    /**
+     * Runs the count and the page query concurrently on the given executor. Each query uses its own entity manager
+     * created from the factory, which is closed once the query completes, so the returned entities are detached and
+     * their lazy relations can not be loaded afterwards.
+     */
+    public static <T> CompletableFuture<Queried<T>> getQueriedAsync(EntityManagerFactory emf, Class<T> entity,
+                                                                    QueryParameters q, CriteriaFilter<T> customFilter,
+                                                                    List<QueryHintPair> queryHints, String rootAlias,
+                                                                    boolean forceDistinct, JPAQueryOptions options,
+                                                                    Executor executor) {
+
+        if (emf == null || entity == null)
+            throw new IllegalArgumentException("The entity manager factory and the entity cannot be null.");
+
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null. " +
+                    "If you don't have any parameters either pass a empty object or " +
+                    "use the getQueriedAsync(EntityManagerFactory, Class<T>, Executor) method.");
+
+        if (executor == null)
+            throw new IllegalArgumentException("The executor cannot be null.");
+
+        CompletableFuture<QueryCount> countFuture = q.getCount()
+                ? CompletableFuture.supplyAsync(() -> withEntityManager(emf,
+                em -> countEntities(em, entity, q, customFilter, options)), executor)
+                : CompletableFuture.completedFuture(QueryCount.exact(null));
+
+        CompletableFuture<Queried<T>> pageFuture = CompletableFuture.supplyAsync(() -> withEntityManager(emf,
+                em -> queryPage(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options, null, true)),
+                executor);
+
+        return countFuture.thenCombine(pageFuture,
+                (totalCount, page) -> Queried.deferredCount(() -> totalCount, page.stream(), page.getNextCursor()));
+    }
+
+    private static <R> R withEntityManager(EntityManagerFactory emf, Function<EntityManager, R> function) {
+
+        EntityManager em = emf.createEntityManager();
+
+        try {
+            return function.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Queries the page of entities. A materialized page is read completely, so it can be used after the entity manager
+     * is closed.
+     */
+    private static <T> Queried<T> queryPage(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
+                                            List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct,
+                                            JPAQueryOptions options, Long totalCount, boolean materialize) {
 
-        Long totalCount = null;
-        if (q.getCount()) {
-            totalCount = queryEntitiesCount(em, entity, q, customFilter);
+        if (isCursorPage(em, entity, q, forceDistinct, options)) {
+            List<T> entities = queryEntities(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
+
+            String nextCursor = entities.size() == q.getLimit()
+                    ? createCursor(em, entity, q, entities.get(entities.size() - 1))
+                    : null;
+
+            return Queried.result(totalCount, entities.stream(), nextCursor);
+        }
+
+        if (materialize) {
+            return Queried.result(totalCount,
+                    queryEntities(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options));
         }
-        Stream<T> entityStream = getEntityStream(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct);
+
+        Stream<T> entityStream = getEntityStream(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
 
         return Queried.result(totalCount, entityStream);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Creates the cursor pointing after the given entity, which can be passed as the {@code after} query parameter to
+     * retrieve the next page. The entity must contain the values of all the order fields and of the id.
+     */
+    public static <T> String createCursor(EntityManager em, Class<T> entity, QueryParameters q, T last) {
+
+        if (em == null || entity == null || q == null || last == null)
+            throw new IllegalArgumentException("The entity manager, the entity, the query parameters and the last entity cannot be null.");
+
+        return ClassUtils.createCursor(last, ClassUtils.getCursorOrder(q, getEntityIdField(em, entity))).encode();
+    }
+
+    /**
+     * Whether the query returns a page for which the next cursor can be determined: the page is limited, the results
+     * are ordered deterministically and all the order fields are part of the returned entities. Distinct queries keep
+     * the null ordering of the database, so they are only paged with cursors when ordered by the id alone.
+     */
+    private static <T> boolean isCursorPage(EntityManager em, Class<T> entity, QueryParameters q, boolean forceDistinct,
+                                            JPAQueryOptions options) {
+
+        if (q.getLimit() == null || q.getLimit() < 1 || (q.getOrder().isEmpty() && q.getCursor() == null)) {
+            return false;
+        }
+
+        String idField = getEntityIdField(em, entity);
+
+        List<QueryOrder> cursorOrder = ClassUtils.getCursorOrder(q, idField);
+
+        // cursor values are only read from single valued fields
+        if (crossesToMany(em, entity, cursorOrder)) {
+            return false;
+        }
+
+        if (cursorOrder.stream().anyMatch(o -> !o.getField().equals(idField)) && isDistinct(em, entity, q, forceDistinct, options)) {
+            return false;
+        }
+
+        if (q.getFields().isEmpty()) {
+            return true;
+        }
+
+        return cursorOrder.stream()
+                .map(QueryOrder::getField)
+                .allMatch(f -> f.equals(idField) ||
+                        q.getFields().stream().anyMatch(s -> f.equals(s) || f.startsWith(s + ".")));
+    }
+
+    private static boolean crossesToMany(EntityManager em, Class<?> entity, List<QueryOrder> order) {
+        return order.stream().anyMatch(o -> getToManyPath(em.getMetamodel(), entity, o.getField()) != null);
+    }
+
+    /**
+     * Whether the query of the entities is distinct, because it is forced to be or the filters join to-many relations.
+     */
+    private static boolean isDistinct(EntityManager em, Class<?> entity, QueryParameters q, boolean forceDistinct,
+                                      JPAQueryOptions options) {
+
+        if (forceDistinct) {
+            return true;
+        }
+
+        return options.getToManyFilterStrategy() == ToManyFilterStrategy.JOIN &&
+                getFilterLeaves(ClassUtils.getFilterExpression(q)).stream()
+                        .anyMatch(f -> getToManyPath(em.getMetamodel(), entity, f.getField()) != null);
+    }
+
     public static <T> Stream<T> getEntityStream(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
                                                 List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct) {
+        return getEntityStream(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, new JPAQueryOptions());
+    }
 
-        Optional<TypedQuery<T>> tqOptional = buildQuery(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct);
-        if (tqOptional.isPresent()) {
-            TypedQuery<T> tq = tqOptional.get();
+    /**
+     * Streams the entities of the query. When fields are selected, the rows are ordered by the id as the last key and
+     * the entities are created while the result is read, so the whole result is not held in memory as long as the
+     * persistence provider streams the result. Results ordered through a to-many relation are read and grouped
+     * completely, as the rows of an entity are not adjacent. Set the {@link JPAQueryOptions#fetchSize(Integer) fetch size} for large
+     * results and close the stream when done.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Stream<T> getEntityStream(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
+                                                List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct,
+                                                JPAQueryOptions options) {
 
-            if (q.getFields().isEmpty()) {
-                return tq.getResultStream();
-            } else {
-                return createEntitiesFromTuples((List<Tuple>) tq.getResultList(), entity, getEntityIdField(em, entity));
-            }
-        } else {
+        if (q == null || q.getFields().isEmpty()) {
+
+            Optional<TypedQuery<T>> tqOptional = buildQuery(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
+
+            return tqOptional.isPresent() ? tqOptional.get().getResultStream() : Stream.empty();
+        }
+
+        String idField = getEntityIdField(em, entity);
+
+        // the rows of an entity are adjacent when the id is the last order key, so the entities are created as the rows are read
+        QueryParameters qq = q;
+
+        if (q.getOrder().isEmpty() && q.getCursor() == null) {
+            qq = deriveQuery(q, Collections.singletonList(new QueryOrder(idField, OrderDirection.ASC)), q.getFields());
+        }
+
+        Optional<TypedQuery<T>> tqOptional = buildQuery(em, entity, qq, customFilter, queryHints, rootAlias, forceDistinct, options);
+
+        if (!tqOptional.isPresent()) {
             return Stream.empty();
         }
+
+        // an order key with several values per entity would interleave the rows of the entities
+        if (crossesToMany(em, entity, ClassUtils.getCursorOrder(qq, idField))) {
+            return createEntitiesFromTuples((List<Tuple>) tqOptional.get().getResultList(), entity, idField);
+        }
+
+        return createEntitiesFromTupleStream((Stream<Tuple>) tqOptional.get().getResultStream(), entity, idField);
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> List<T> queryEntities(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
                                             List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct) {
+        return queryEntities(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, new JPAQueryOptions());
+    }
 
-        Optional<TypedQuery<T>> tqOptional = buildQuery(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct);
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> queryEntities(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
+                                            List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct,
+                                            JPAQueryOptions options) {
+
+        Optional<TypedQuery<T>> tqOptional = buildQuery(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
 
         if (tqOptional.isPresent()) {
             TypedQuery<T> tq = tqOptional.get();
@@ -194,366 +422,1370 @@ public class JPAUtils {
         }
     }
 
-    private static <T> Optional<TypedQuery<T>> buildQuery(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
-                                                          List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct) {
-        if (em == null || entity == null)
-            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
+    public static <T> List<Map<String, Object>> queryProjection(EntityManager em, Class<T> entity, QueryParameters q) {
+        return queryProjection(em, entity, q, null, new JPAQueryOptions());
+    }
 
-        if (q == null)
-            throw new IllegalArgumentException("Query parameters can't be null. " +
-                    "If you don't have any parameters either pass a empty object or " +
-                    "use the queryEntities(EntityManager, Class<T>) method.");
+    /**
+     * Queries the selected fields of the entity as one map per result row, keyed by the entity path of each field in
+     * the order the fields were requested. No entities are created; selecting a to-many field returns a row for each
+     * of its elements.
+     */
+    public static <T> List<Map<String, Object>> queryProjection(EntityManager em, Class<T> entity, QueryParameters q,
+                                                                CriteriaFilter<T> customFilter, JPAQueryOptions options) {
 
-        LOG.finest("Querying entity: '" + entity.getSimpleName() + "' with parameters: " + q);
+        List<Tuple> tuples = buildProjectionQuery(em, entity, q, customFilter, options, Tuple.class).getResultList();
 
-        String idField = getEntityIdField(em, entity);
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
 
-        if (q.getFields().isEmpty() || q.getFields().stream().distinct().allMatch(f -> f.equals(idField))) {
+        for (Tuple tuple : tuples) {
 
-            return buildQuerySimple(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct);
-        } else {
+            List<TupleElement<?>> elements = tuple.getElements();
+            Map<String, Object> row = new LinkedHashMap<>(elements.size() * 2);
 
-            return buildQueryAdvanced(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct);
+            for (int i = 0; i < elements.size(); i++) {
+                row.put(elements.get(i).getAlias(), tuple.get(i));
+            }
+
+            rows.add(row);
         }
-    }
 
-    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity) {
+        return rows;
+    }
 
-        return queryEntitiesCount(em, entity, new QueryParameters());
+    public static <T, R> List<R> queryProjection(EntityManager em, Class<T> entity, QueryParameters q, Class<R> resultClass) {
+        return queryProjection(em, entity, q, null, new JPAQueryOptions(), resultClass);
     }
 
-    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, QueryParameters q) {
+    /**
+     * Queries the selected fields of the entity into instances of the result class with a constructor expression. The
+     * result class (e.g. a record) needs a constructor whose parameters match the types of the fields in the order
+     * they were requested.
+     */
+    public static <T, R> List<R> queryProjection(EntityManager em, Class<T> entity, QueryParameters q,
+                                                 CriteriaFilter<T> customFilter, JPAQueryOptions options,
+                                                 Class<R> resultClass) {
 
-        return queryEntitiesCount(em, entity, q, null);
-    }
+        if (resultClass == null)
+            throw new IllegalArgumentException("The result class cannot be null.");
 
-    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, CriteriaFilter<T> customFilter) {
+        return buildProjectionQuery(em, entity, q, customFilter, options, resultClass).getResultList();
+    }
 
-        return queryEntitiesCount(em, entity, new QueryParameters(), customFilter);
+    public static <T> List<Object[]> queryRows(EntityManager em, Class<T> entity, QueryParameters q) {
+        return queryRows(em, entity, q, null, new JPAQueryOptions());
     }
 
-    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter) {
+    /**
+     * Queries the selected fields of the entity as arrays of values, in the order the fields were requested.
+     */
+    public static <T> List<Object[]> queryRows(EntityManager em, Class<T> entity, QueryParameters q,
+                                               CriteriaFilter<T> customFilter, JPAQueryOptions options) {
+        return buildProjectionQuery(em, entity, q, customFilter, options, Object[].class).getResultList();
+    }
 
+    private static <T, R> TypedQuery<R> buildProjectionQuery(EntityManager em, Class<T> entity, QueryParameters q,
+                                                             CriteriaFilter<T> customFilter, JPAQueryOptions options,
+                                                             Class<R> resultClass) {
         if (em == null || entity == null)
             throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
 
-        if (q == null) {
-            throw new IllegalArgumentException("Query parameters can't be null. " +
-                    "If you don't have any parameters either pass a empty object or " +
-                    "use the queryEntitiesCount(EntityManager, Class<T>) method.");
-        }
+        if (q == null || q.getFields().isEmpty())
+            throw new IllegalArgumentException("A projection requires query parameters with selected fields.");
 
-        LOG.finest("Querying entity count: '" + entity.getSimpleName() + "' with parameters: " + q);
+        if (options == null)
+            throw new IllegalArgumentException("Query options can't be null.");
 
-        Boolean requiresDistinct = false;
+        LOG.finest("Querying projection of entity: '" + entity.getSimpleName() + "' with parameters: " + q);
 
         CriteriaBuilder cb = em.getCriteriaBuilder();
-
-        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        CriteriaQuery<R> cq = cb.createQuery(resultClass);
 
         Root<T> r = cq.from(entity);
 
-        Predicate wherePredicate = null;
-
         Map<String, From> fieldJoins = new HashMap<>();
+        ParameterBinder binder = options.isBindParameters() ? new ParameterBinder() : null;
 
-        if (q.getFilterExpression() != null || !q.getFilters().isEmpty()) {
+        boolean requiresDistinct = applyQueryConditions(em, cb, cq, r, q,
+                FilterExpressionOptimizer.optimize(entity, ClassUtils.getFilterExpression(q)), customFilter, fieldJoins, binder,
+                options.getToManyFilterStrategy(), false);
 
-            CriteriaWhereQuery criteriaWhereQuery = createWhereQueryInternal(em, cb, r, q, fieldJoins);
+        List<Selection<?>> selections = createProjectionSelect(r, q, fieldJoins);
 
-            requiresDistinct = criteriaWhereQuery.containsToMany();
-            wherePredicate = criteriaWhereQuery.getPredicate();
+        if (resultClass.equals(Tuple.class) || resultClass.equals(Object[].class)) {
+            cq.multiselect(selections);
+        } else {
+            cq.select(cb.construct(resultClass, selections.toArray(new Selection<?>[0])));
         }
 
-        if (customFilter != null) {
+        cq.distinct(requiresDistinct);
 
-            wherePredicate = customFilter.createPredicate(
-                    wherePredicate == null ? cb.conjunction() : wherePredicate, cb, r);
+        TypedQuery<R> tq = em.createQuery(cq);
+
+        if (binder != null) {
+            binder.bind(tq);
         }
 
-        if (wherePredicate != null) {
-            cq.where(wherePredicate);
+        if (q.getLimit() != null && q.getLimit() > -1) {
+            tq.setMaxResults(q.getLimit().intValue());
         }
 
-        cq.select(requiresDistinct ? cb.countDistinct(r) : cb.count(r));
+        if (q.getOffset() != null && q.getOffset() > -1) {
+            tq.setFirstResult(q.getOffset().intValue());
+        }
 
-        return em.createQuery(cq).getSingleResult();
-    }
+        if (options.getFetchSize() != null) {
+            setFetchSize(em, tq, options.getFetchSize());
+        }
 
-    public static List<Order> createOrderQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q) {
-        return createOrderQuery(cb, r, q, null, new HashMap<>());
+        return tq;
     }
 
-    public static List<Order> createOrderQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q, String id, Map<String, From> fieldJoins) {
+    private static <T> Optional<TypedQuery<T>> buildQuery(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
+                                                          List<QueryHintPair> queryHints, String rootAlias, boolean forceDistinct,
+                                                          JPAQueryOptions options) {
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
 
-        List<Order> orders = new ArrayList<>();
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null. " +
+                    "If you don't have any parameters either pass a empty object or " +
+                    "use the queryEntities(EntityManager, Class<T>) method.");
 
-        q.getOrder().stream().filter(qo -> qo.getField() != null).forEach(qo -> {
+        if (options == null)
+            throw new IllegalArgumentException("Query options can't be null.");
 
-            try {
+        LOG.finest("Querying entity: '" + entity.getSimpleName() + "' with parameters: " + q);
 
-                CriteriaField field = getCriteriaField(qo.getField(), r, fieldJoins);
+        String idField = getEntityIdField(em, entity);
 
-                if (null != field) {
+        if (q.getFields().isEmpty() && options.isFetchAssociations()) {
 
-                    if (field.containsToMany()) {
-                        throw new InvalidEntityFieldException(
-                                "OneToMany and ManyToMany relations are not supported by the order query",
-                                qo.getField(), r.getJavaType().getSimpleName());
-                    }
+            return buildQueryFetched(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
+        }
 
-                    if (qo.getOrder() == OrderDirection.DESC) {
+        if (q.getFields().isEmpty() || q.getFields().stream().distinct().allMatch(f -> f.equals(idField))) {
 
-                        orders.add(cb.desc(field.getPath()));
-                    } else {
+            return buildQuerySimple(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
+        }
 
-                        orders.add(cb.asc(field.getPath()));
-                    }
+        switch (options.getFieldsQueryStrategy()) {
+            case SINGLE_QUERY:
+                return buildQuerySimple(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
+            case TWO_PHASE:
+                return buildQueryAdvanced(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
+            default:
+                // paging the joined rows of to-many fields would cut entities apart, so the ids are paged first
+                if (isPaged(q) && selectsToMany(em, entity, q)) {
+                    return buildQueryAdvanced(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
                 }
-            } catch (IllegalArgumentException e) {
 
-                throw new NoSuchEntityFieldException(e.getMessage(), qo.getField(), r.getJavaType().getSimpleName());
-            }
-        });
+                return buildQuerySimple(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
+        }
+    }
 
-        //Add sort by id for correct pagination when field has same values
-        if (id != null) {
-            CriteriaField criteriaField = getCriteriaField(id, r, fieldJoins);
-            if (null != criteriaField) {
-                orders.add(cb.asc(criteriaField.getPath()));
-            }
+    /**
+     * Builds the entity query with the associations returned by {@link #getFetchPaths} fetched by the query itself,
+     * with an entity graph on Hibernate and the equivalent join fetch hints on EclipseLink. Paging a query that fetches
+     * a to-many association would cut entities apart, so the ids of such a page are queried first.
+     */
+    private static <T> Optional<TypedQuery<T>> buildQueryFetched(EntityManager em, Class<T> entity, QueryParameters q,
+                                                                 CriteriaFilter<T> customFilter,
+                                                                 List<QueryHintPair> queryHints, String rootAlias,
+                                                                 boolean forceDistinct, JPAQueryOptions options) {
+
+        Set<String> toManyPaths = new HashSet<>();
+        List<String> fetchPaths = getFetchPaths(em, entity, q, toManyPaths);
+
+        if (fetchPaths.isEmpty()) {
+            return buildQuerySimple(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, options);
         }
 
-        return orders;
-    }
+        List<QueryHintPair> fetchHints = new ArrayList<>();
 
-    @Deprecated
-    public static Predicate createWhereQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q) {
-        return createWhereQuery(null, cb, r, q);
-    }
+        PersistenceProvider provider = PersistenceProvider.of(em);
 
-    public static Predicate createWhereQuery(EntityManager em, CriteriaBuilder cb, Root<?> r, QueryParameters q) {
-        return createWhereQueryInternal(em, cb, r, q, new HashMap<>()).getPredicate();
-    }
+        if (provider.acceptsHibernateHints()) {
+            fetchHints.add(new QueryHintPair(HINT_LOAD_GRAPH, createFetchGraph(em, entity, fetchPaths)));
+        }
 
-    public static List<Selection<?>> createFieldsSelect(Root<?> r, QueryParameters q, String idField) {
-        return createFieldsSelect(r, q, idField, new HashMap<>());
+        if (provider.acceptsEclipseLinkHints()) {
+            String alias = rootAlias == null ? "e" : rootAlias;
+            fetchPaths.forEach(p -> fetchHints.add(new QueryHintPair(HINT_ECLIPSELINK_LEFT_JOIN_FETCH, alias + "." + p)));
+        }
+
+        if (queryHints != null) {
+            fetchHints.addAll(queryHints);
+        }
+
+        if (isPaged(q) && !toManyPaths.isEmpty()) {
+            return buildQueryAdvanced(em, entity, q, customFilter, queryHints, fetchHints, rootAlias, forceDistinct, options);
+        }
+
+        return buildQuerySimple(em, entity, q, customFilter, fetchHints, rootAlias, forceDistinct, options);
     }
 
-    public static List<Selection<?>> createFieldsSelect(Root<?> r, QueryParameters q, String idField, Map<String, From> fieldJoins) {
+    /**
+     * Returns the association paths fetched with the entities: the eager associations reachable from the entity and
+     * the to-one associations that the order and the filters go through, together with their eager associations.
+     * To-one associations back to the entity they were reached from are already loaded and are skipped, and at most
+     * one to-many association is fetched, since fetching several would multiply the rows. The fetched to-many paths
+     * are added to the given set.
+     */
+    private static List<String> getFetchPaths(EntityManager em, Class<?> entity, QueryParameters q, Set<String> toManyPaths) {
+
+        Metamodel metamodel = em.getMetamodel();
+        Set<String> paths = new LinkedHashSet<>();
+
+        addEagerFetchPaths(metamodel, metamodel.managedType(entity), "", null, new HashSet<>(), paths, toManyPaths);
 
-        final List<Selection<?>> fields = q.getFields().stream()
+        List<String> fields = new ArrayList<>();
+        q.getOrder().forEach(o -> fields.add(o.getField()));
+        getFilterLeaves(ClassUtils.getFilterExpression(q)).forEach(f -> fields.add(f.getField()));
+
+        Root<?> r = em.getCriteriaBuilder().createQuery().from(entity);
+
+        fields.stream()
+                .filter(Objects::nonNull)
+                .flatMap(restField -> getRestFieldMappings(r, restField))
                 .distinct()
-                .flatMap(restField ->
-                        getRestFieldMappings(r, restField)
-                                .map(alias -> {
-                                    CriteriaField cfc;
+                .forEach(field -> {
 
-                                    try {
-                                        cfc = getCriteriaField(alias, r, fieldJoins);
-                                        if (null == cfc) {
-                                            return Optional.<Selection<?>>empty();
-                                        }
-                                    } catch (IllegalArgumentException e) {
-                                        throw new NoSuchEntityFieldException(e.getMessage(), restField, r.getJavaType().getSimpleName());
-                                    }
+                    ManagedType<?> type = metamodel.managedType(entity);
+                    String[] segments = field.split("\\.");
+                    StringBuilder path = new StringBuilder();
 
-                                    return Optional.<Selection<?>>of(cfc.getPath().alias(alias));
-                                })
-                                .filter(Optional::isPresent)
-                                .map(Optional::get)
-                ).collect(Collectors.toList());
+                    Set<Attribute<?, ?>> pathAttributes = new HashSet<>();
 
-        try {
-            boolean exists = fields.stream()
-                    .anyMatch(f -> f.getAlias().equals(idField));
+                    for (int i = 0; i < segments.length - 1; i++) {
 
-            if (!exists) {
-                fields.add(r.get(idField).alias(idField));
-            }
-        } catch (IllegalArgumentException e) {
+                        Attribute<?, ?> attribute;
 
-            throw new NoSuchEntityFieldException(e.getMessage(), idField, r.getJavaType().getSimpleName());
-        }
+                        try {
+                            attribute = type.getAttribute(segments[i]);
+                        } catch (IllegalArgumentException e) {
+                            // an unknown field is reported when the query is built
+                            return;
+                        }
 
-        return fields.stream()
-                .distinct()
-                .sorted((s1, s2) -> s1.getAlias().compareToIgnoreCase(s2.getAlias()))
-                .collect(Collectors.toList());
-    }
+                        if (!attribute.isAssociation() || attribute.isCollection()) {
+                            return;
+                        }
 
-    // Temporary methods to not break the public API
+                        path.append(i == 0 ? "" : ".").append(segments[i]);
+                        paths.add(path.toString());
 
-    private static <T> Optional<TypedQuery<T>> buildQuerySimple(EntityManager em, Class<T> entity, QueryParameters q,
-                                                                CriteriaFilter<T> customFilter,
-                                                                List<QueryHintPair> queryHints, String rootAlias,
-                                                                boolean forceDistinct) {
-        return buildQuerySimple(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, false);
+                        pathAttributes.add(attribute);
+                        type = metamodel.managedType(attribute.getJavaType());
+
+                        addEagerFetchPaths(metamodel, type, path + ".", attribute, pathAttributes, paths, toManyPaths);
+                    }
+                });
+
+        return new ArrayList<>(paths);
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T> Optional<TypedQuery<T>> buildQuerySimple(EntityManager em, Class<T> entity, QueryParameters q,
-                                                                CriteriaFilter<T> customFilter,
-                                                                List<QueryHintPair> queryHints, String rootAlias,
-                                                                boolean forceDistinct, boolean ignorePaging) {
+    private static void addEagerFetchPaths(Metamodel metamodel, ManagedType<?> type, String prefix, Attribute<?, ?> from,
+                                           Set<Attribute<?, ?>> pathAttributes, Set<String> paths, Set<String> toManyPaths) {
+
+        List<Attribute<?, ?>> attributes = new ArrayList<>(type.getAttributes());
+        attributes.sort(Comparator.comparing(Attribute::getName));
+
+        for (Attribute<?, ?> attribute : attributes) {
+
+            if (!attribute.isAssociation() || !isEagerAttribute(attribute) || pathAttributes.contains(attribute)
+                    || (!attribute.isCollection() && isInverseAttribute(from, attribute))) {
+                continue;
+            }
+
+            String path = prefix + attribute.getName();
+
+            if (attribute.isCollection()) {
+
+                if (!toManyPaths.isEmpty()) {
+                    continue;
+                }
+
+                toManyPaths.add(path);
+            }
+
+            paths.add(path);
+
+            Class<?> target = attribute.isCollection()
+                    ? ((PluralAttribute<?, ?, ?>) attribute).getElementType().getJavaType()
+                    : attribute.getJavaType();
+
+            pathAttributes.add(attribute);
+            addEagerFetchPaths(metamodel, metamodel.managedType(target), path + ".", attribute, pathAttributes, paths,
+                    toManyPaths);
+            pathAttributes.remove(attribute);
+        }
+    }
+
+    /**
+     * Whether the attribute is the other side of the bidirectional association it was reached through.
+     */
+    private static boolean isInverseAttribute(Attribute<?, ?> from, Attribute<?, ?> attribute) {
+
+        if (from == null || !attribute.getJavaType().isAssignableFrom(from.getDeclaringType().getJavaType())) {
+            return false;
+        }
+
+        return attribute.getName().equals(getMappedBy(from)) || from.getName().equals(getMappedBy(attribute));
+    }
+
+    private static String getMappedBy(Attribute<?, ?> attribute) {
+
+        if (!(attribute.getJavaMember() instanceof AnnotatedElement)) {
+            return "";
+        }
+
+        AnnotatedElement member = (AnnotatedElement) attribute.getJavaMember();
+
+        if (member.isAnnotationPresent(OneToOne.class)) {
+            return member.getAnnotation(OneToOne.class).mappedBy();
+        }
+
+        if (member.isAnnotationPresent(OneToMany.class)) {
+            return member.getAnnotation(OneToMany.class).mappedBy();
+        }
+
+        if (member.isAnnotationPresent(ManyToMany.class)) {
+            return member.getAnnotation(ManyToMany.class).mappedBy();
+        }
+
+        return "";
+    }
+
+    private static boolean isEagerAttribute(Attribute<?, ?> attribute) {
+
+        if (!(attribute.getJavaMember() instanceof AnnotatedElement)) {
+            return false;
+        }
+
+        AnnotatedElement member = (AnnotatedElement) attribute.getJavaMember();
+
+        if (member.isAnnotationPresent(ManyToOne.class)) {
+            return member.getAnnotation(ManyToOne.class).fetch() == FetchType.EAGER;
+        }
+
+        if (member.isAnnotationPresent(OneToOne.class)) {
+            return member.getAnnotation(OneToOne.class).fetch() == FetchType.EAGER;
+        }
+
+        if (member.isAnnotationPresent(OneToMany.class)) {
+            return member.getAnnotation(OneToMany.class).fetch() == FetchType.EAGER;
+        }
+
+        if (member.isAnnotationPresent(ManyToMany.class)) {
+            return member.getAnnotation(ManyToMany.class).fetch() == FetchType.EAGER;
+        }
+
+        return false;
+    }
+
+    private static <T> EntityGraph<T> createFetchGraph(EntityManager em, Class<T> entity, List<String> fetchPaths) {
+
+        Map<String, Object> tree = new LinkedHashMap<>();
+
+        for (String path : fetchPaths) {
+
+            Map<String, Object> node = tree;
+
+            for (String segment : path.split("\\.")) {
+                node = getChildNode(node, segment);
+            }
+        }
+
+        EntityGraph<T> graph = em.createEntityGraph(entity);
+
+        tree.forEach((name, children) -> {
+            if (((Map<?, ?>) children).isEmpty()) {
+                graph.addAttributeNodes(name);
+            } else {
+                addFetchSubgraph(graph.addSubgraph(name), getChildNodes(children));
+            }
+        });
+
+        return graph;
+    }
+
+    private static void addFetchSubgraph(Subgraph<?> subgraph, Map<String, Object> tree) {
+
+        tree.forEach((name, children) -> {
+            if (((Map<?, ?>) children).isEmpty()) {
+                subgraph.addAttributeNodes(name);
+            } else {
+                addFetchSubgraph(subgraph.addSubgraph(name), getChildNodes(children));
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getChildNode(Map<String, Object> node, String name) {
+        return (Map<String, Object>) node.computeIfAbsent(name, n -> new LinkedHashMap<String, Object>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getChildNodes(Object node) {
+        return (Map<String, Object>) node;
+    }
+
+    private static void setFetchSize(EntityManager em, TypedQuery<?> tq, int fetchSize) {
+
+        PersistenceProvider provider = PersistenceProvider.of(em);
+
+        if (provider.acceptsHibernateHints()) {
+            tq.setHint(HINT_HIBERNATE_FETCH_SIZE, fetchSize);
+        }
+
+        if (provider.acceptsEclipseLinkHints()) {
+            tq.setHint(HINT_ECLIPSELINK_FETCH_SIZE, fetchSize);
+        }
+    }
+
+    private static boolean isPaged(QueryParameters q) {
+
+        return (q.getLimit() != null && q.getLimit() > -1) || (q.getOffset() != null && q.getOffset() > 0)
+                || q.getCursor() != null;
+    }
+
+    private static <T> boolean selectsToMany(EntityManager em, Class<T> entity, QueryParameters q) {
+
+        Root<T> r = em.getCriteriaBuilder().createTupleQuery().from(entity);
+        Map<String, From> fieldJoins = new HashMap<>();
+
+        try {
+            return q.getFields().stream()
+                    .distinct()
+                    .flatMap(restField -> getRestFieldMappings(r, restField))
+                    .map(alias -> getCriteriaField(alias, r, fieldJoins))
+                    .anyMatch(criteriaField -> criteriaField != null && criteriaField.containsToMany());
+        } catch (IllegalArgumentException e) {
+            // the field does not exist, which is reported when the fields are selected
+            return false;
+        }
+    }
+
+    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity) {
+
+        return queryEntitiesCount(em, entity, new QueryParameters());
+    }
+
+    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, QueryParameters q) {
+
+        return queryEntitiesCount(em, entity, q, null);
+    }
+
+    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, CriteriaFilter<T> customFilter) {
+
+        return queryEntitiesCount(em, entity, new QueryParameters(), customFilter);
+    }
+
+    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter) {
+
+        return queryEntitiesCount(em, entity, q, customFilter, new JPAQueryOptions());
+    }
+
+    public static <T> Long queryEntitiesCount(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
+                                              JPAQueryOptions options) {
+
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
+
+        if (q == null) {
+            throw new IllegalArgumentException("Query parameters can't be null. " +
+                    "If you don't have any parameters either pass a empty object or " +
+                    "use the queryEntitiesCount(EntityManager, Class<T>) method.");
+        }
+
+        if (options == null)
+            throw new IllegalArgumentException("Query options can't be null.");
+
+        LOG.finest("Querying entity count: '" + entity.getSimpleName() + "' with parameters: " + q);
+
+        QueryFilterExpression filterExpression = FilterExpressionOptimizer.optimize(entity, ClassUtils.getFilterExpression(q));
+
+        QueryPlanCache planCache = customFilter == null ? options.getQueryPlanCache() : null;
+        String planKey = null;
+
+        if (planCache != null) {
+            planKey = QueryPlanCache.key("count", entity, q, filterExpression, null, null, false);
+
+            QueryPlan plan = planCache.get(em.getEntityManagerFactory(), planKey);
+
+            if (plan != null) {
+                TypedQuery<Long> tq = em.createQuery(plan.<Long>getCriteriaQuery());
+                plan.bind(tq, getFilterLeaves(filterExpression));
+
+                return tq.getSingleResult();
+            }
+        }
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+
+        Root<T> r = cq.from(entity);
+
+        ParameterBinder binder = planCache != null || options.isBindParameters() ? new ParameterBinder() : null;
+
+        createCountWhereQuery(em, cb, cq, r, filterExpression, customFilter, binder);
+
+        String idField = getEntityIdField(em, entity);
+
+        cq.select(cb.count(idField.isEmpty() ? r : r.get(idField)));
+
+        TypedQuery<Long> tq = em.createQuery(cq);
+
+        if (binder != null) {
+            binder.bind(tq);
+        }
+
+        if (planCache != null) {
+            planCache.put(em.getEntityManagerFactory(), planKey, new QueryPlan(cq, binder.getBindings()));
+        }
+
+        return tq.getSingleResult();
+    }
+
+    /**
+     * Counts the entities according to the count mode of the query. Approximate counts of queries without filters
+     * are estimated when a {@link JPAQueryOptions#countEstimator(CountEstimator) count estimator} is set, otherwise
+     * they are bounded by the {@link JPAQueryOptions#countLimit(long) count limit}, so at most that many ids are read.
+     */
+    public static <T> QueryCount countEntities(EntityManager em, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter,
+                                               JPAQueryOptions options) {
+
+        if (em == null || entity == null)
+            throw new IllegalArgumentException("The entity manager and the entity cannot be null.");
+
+        if (q == null) {
+            throw new IllegalArgumentException("Query parameters can't be null. " +
+                    "If you don't have any parameters either pass a empty object or " +
+                    "use the queryEntitiesCount(EntityManager, Class<T>) method.");
+        }
+
+        if (options == null)
+            throw new IllegalArgumentException("Query options can't be null.");
+
+        if (q.getCountMode() == CountMode.EXACT) {
+            return QueryCount.exact(queryEntitiesCount(em, entity, q, customFilter, options));
+        }
+
+        QueryFilterExpression filterExpression = FilterExpressionOptimizer.optimize(entity, ClassUtils.getFilterExpression(q));
+
+        if (options.getCountEstimator() != null && filterExpression == null && customFilter == null) {
+
+            Long estimate = options.getCountEstimator().estimate(em, entity);
+
+            if (estimate != null) {
+                return QueryCount.estimated(estimate);
+            }
+        }
+
+        LOG.finest("Querying bounded entity count: '" + entity.getSimpleName() + "' with parameters: " + q);
+
+        long countLimit = options.getCountLimit();
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        CriteriaQuery<Object> cq = cb.createQuery(Object.class);
+
+        Root<T> r = cq.from(entity);
+
+        ParameterBinder binder = options.isBindParameters() ? new ParameterBinder() : null;
+
+        createCountWhereQuery(em, cb, cq, r, filterExpression, customFilter, binder);
+
+        String idField = getEntityIdField(em, entity);
+
+        cq.select(idField.isEmpty() ? r : r.get(idField));
+
+        TypedQuery<Object> tq = em.createQuery(cq);
+
+        if (binder != null) {
+            binder.bind(tq);
+        }
+
+        tq.setMaxResults((int) Math.min(countLimit + 1, Integer.MAX_VALUE));
+
+        long count = tq.getResultList().size();
+
+        return count > countLimit ? QueryCount.bounded(countLimit) : QueryCount.exact(count);
+    }
+
+    private static String planKind(String kind, JPAQueryOptions options) {
+        return options.getToManyFilterStrategy() == ToManyFilterStrategy.JOIN ? kind : kind + "-" + options.getToManyFilterStrategy();
+    }
+
+    /**
+     * Creates the where query of a count. Only the joins the filters need are created, since counts are neither
+     * ordered nor select any fields, and filters on to-many relations are tested with {@code EXISTS} subqueries
+     * regardless of the {@link JPAQueryOptions#toManyFilterStrategy(ToManyFilterStrategy) to-many filter strategy},
+     * so every entity is matched by a single row and no distinct count is needed.
+     */
+    private static <T> void createCountWhereQuery(EntityManager em, CriteriaBuilder cb, CriteriaQuery<?> cq, Root<T> r,
+                                                  QueryFilterExpression filterExpression, CriteriaFilter<T> customFilter,
+                                                  ParameterBinder binder) {
+
+        Predicate wherePredicate = null;
+
+        if (filterExpression != null) {
+            wherePredicate = createWhereQueryInternal(em, cb, cq, r, filterExpression, new HashMap<>(), binder,
+                    ToManyFilterStrategy.EXISTS).getPredicate();
+        }
+
+        if (customFilter != null) {
+
+            wherePredicate = customFilter.createPredicate(
+                    wherePredicate == null ? cb.conjunction() : wherePredicate, cb, r);
+        }
+
+        if (wherePredicate != null) {
+            cq.where(wherePredicate);
+        }
+    }
+
+    public static List<Order> createOrderQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q) {
+        return createOrderQuery(cb, r, q, null, new HashMap<>());
+    }
+
+    /**
+     * Creates the order of the query. Nulls are ordered as requested, last by default, the same way as by
+     * {@link StreamUtils}, regardless of the default null ordering of the database.
+     */
+    public static List<Order> createOrderQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q, String id, Map<String, From> fieldJoins) {
+        return createOrderQuery(cb, r, q, id, fieldJoins, true);
+    }
+
+    /**
+     * Creates the order of the query, placing the nulls as requested only if {@code orderNulls} is set. Distinct
+     * queries can only be ordered by the selected columns, so they keep the null ordering of the database.
+     */
+    private static List<Order> createOrderQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q, String id,
+                                                Map<String, From> fieldJoins, boolean orderNulls) {
+
+        List<Order> orders = new ArrayList<>();
+
+        q.getOrder().stream().filter(qo -> qo.getField() != null).forEach(qo -> {
+
+            try {
+
+                CriteriaField field = getCriteriaField(qo.getField(), r, fieldJoins);
+
+                if (null != field) {
+
+                    if (field.containsToMany()) {
+                        throw new InvalidEntityFieldException(
+                                "OneToMany and ManyToMany relations are not supported by the order query",
+                                qo.getField(), r.getJavaType().getSimpleName());
+                    }
+
+                    if (orderNulls && isNullable(field.getPath())) {
+                        orders.add(cb.asc(createNullsOrder(cb, field.getPath(), qo.getNulls())));
+                    }
+
+                    if (qo.getOrder() == OrderDirection.DESC) {
+
+                        orders.add(cb.desc(field.getPath()));
+                    } else {
+
+                        orders.add(cb.asc(field.getPath()));
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+
+                throw new NoSuchEntityFieldException(e.getMessage(), qo.getField(), r.getJavaType().getSimpleName());
+            }
+        });
+
+        //Add sort by id for correct pagination when field has same values
+        if (id != null && q.getOrder().stream().noneMatch(qo -> id.equals(qo.getField()))) {
+            CriteriaField criteriaField = getCriteriaField(id, r, fieldJoins);
+            if (null != criteriaField) {
+                orders.add(cb.asc(criteriaField.getPath()));
+            }
+        }
+
+        return orders;
+    }
+
+    /**
+     * Returns the ascending order key which places the nulls of the path first or last.
+     */
+    private static Expression<Integer> createNullsOrder(CriteriaBuilder cb, Path<?> path, OrderNulls nulls) {
+
+        boolean nullsFirst = nulls == OrderNulls.FIRST;
+
+        return cb.<Integer>selectCase()
+                .when(cb.isNull(path), nullsFirst ? 0 : 1)
+                .otherwise(nullsFirst ? 1 : 0);
+    }
+
+    /**
+     * Whether the path can be null. Only the id and the primitive fields of the entity itself are known to be set.
+     */
+    private static boolean isNullable(Path<?> path) {
+
+        if (!(path.getModel() instanceof SingularAttribute) || !(path.getParentPath() instanceof Root)) {
+            return true;
+        }
+
+        SingularAttribute<?, ?> attribute = (SingularAttribute<?, ?>) path.getModel();
+
+        return !attribute.isId() && !attribute.getJavaType().isPrimitive();
+    }
+
+    @Deprecated
+    public static Predicate createWhereQuery(CriteriaBuilder cb, Root<?> r, QueryParameters q) {
+        return createWhereQuery(null, cb, r, q);
+    }
+
+    public static Predicate createWhereQuery(EntityManager em, CriteriaBuilder cb, Root<?> r, QueryParameters q) {
+        return createWhereQueryInternal(em, cb, r, q, new HashMap<>()).getPredicate();
+    }
+
+    public static List<Selection<?>> createFieldsSelect(Root<?> r, QueryParameters q, String idField) {
+        return createFieldsSelect(r, q, idField, new HashMap<>());
+    }
+
+    public static List<Selection<?>> createFieldsSelect(Root<?> r, QueryParameters q, String idField, Map<String, From> fieldJoins) {
+
+        final List<Selection<?>> fields = createProjectionSelect(r, q, fieldJoins);
+
+        try {
+            boolean exists = fields.stream()
+                    .anyMatch(f -> f.getAlias().equals(idField));
+
+            if (!exists) {
+                fields.add(r.get(idField).alias(idField));
+            }
+        } catch (IllegalArgumentException e) {
+
+            throw new NoSuchEntityFieldException(e.getMessage(), idField, r.getJavaType().getSimpleName());
+        }
+
+        return fields.stream()
+                .distinct()
+                .sorted((s1, s2) -> s1.getAlias().compareToIgnoreCase(s2.getAlias()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Selects the fields of the query in the order they were requested, each aliased with its entity path.
+     */
+    private static List<Selection<?>> createProjectionSelect(Root<?> r, QueryParameters q, Map<String, From> fieldJoins) {
+
+        return q.getFields().stream()
+                .distinct()
+                .flatMap(restField ->
+                        getRestFieldMappings(r, restField)
+                                .map(alias -> {
+                                    CriteriaField cfc;
+
+                                    try {
+                                        cfc = getCriteriaField(alias, r, fieldJoins);
+                                        if (null == cfc) {
+                                            return Optional.<Selection<?>>empty();
+                                        }
+                                    } catch (IllegalArgumentException e) {
+                                        throw new NoSuchEntityFieldException(e.getMessage(), restField, r.getJavaType().getSimpleName());
+                                    }
+
+                                    return Optional.<Selection<?>>of(cfc.getPath().alias(alias));
+                                })
+                                .filter(Optional::isPresent)
+                                .map(Optional::get)
+                ).collect(Collectors.toList());
+    }
+
+    // Temporary methods to not break the public API
+
+    private static <T> Optional<TypedQuery<T>> buildQuerySimple(EntityManager em, Class<T> entity, QueryParameters q,
+                                                                CriteriaFilter<T> customFilter,
+                                                                List<QueryHintPair> queryHints, String rootAlias,
+                                                                boolean forceDistinct, JPAQueryOptions options) {
+        return buildQuerySimple(em, entity, q, customFilter, queryHints, rootAlias, forceDistinct, false, options);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Optional<TypedQuery<T>> buildQuerySimple(EntityManager em, Class<T> entity, QueryParameters q,
+                                                                CriteriaFilter<T> customFilter,
+                                                                List<QueryHintPair> queryHints, String rootAlias,
+                                                                boolean forceDistinct, boolean ignorePaging,
+                                                                JPAQueryOptions options) {
+
+        LOG.finest("Querying entity: '" + entity.getSimpleName() + "' with parameters: " + q + "(simple)");
+
+        QueryFilterExpression filterExpression = FilterExpressionOptimizer.optimize(entity, ClassUtils.getFilterExpression(q));
+
+        QueryPlanCache planCache = customFilter == null ? options.getQueryPlanCache() : null;
+
+        TypedQuery<T> tq = null;
+
+        if (planCache != null) {
+            String planKey = QueryPlanCache.key(planKind("list", options), entity, q, filterExpression, q.getCursor(),
+                    rootAlias, forceDistinct);
+
+            QueryPlan plan = planCache.get(em.getEntityManagerFactory(), planKey);
+
+            if (plan != null) {
+                tq = (TypedQuery<T>) em.createQuery(plan.getCriteriaQuery());
+
+                List<QueryFilter> leaves = getFilterLeaves(filterExpression);
+                leaves.addAll(getCursorLeaves(q.getCursor()));
+
+                plan.bind(tq, leaves);
+            } else {
+                ParameterBinder binder = new ParameterBinder();
+
+                CriteriaQuery<?> cq = createQuerySimple(em, entity, q, filterExpression, customFilter, rootAlias,
+                        forceDistinct, binder, options.getToManyFilterStrategy());
+
+                tq = (TypedQuery<T>) em.createQuery(cq);
+                binder.bind(tq);
+
+                planCache.put(em.getEntityManagerFactory(), planKey, new QueryPlan(cq, binder.getBindings()));
+            }
+        } else {
+            ParameterBinder binder = options.isBindParameters() ? new ParameterBinder() : null;
+
+            tq = (TypedQuery<T>) em.createQuery(createQuerySimple(em, entity, q, filterExpression, customFilter,
+                    rootAlias, forceDistinct, binder, options.getToManyFilterStrategy()));
+
+            if (binder != null) {
+                binder.bind(tq);
+            }
+        }
+
+        if (!ignorePaging) {
+
+            if (q.getLimit() != null && q.getLimit() > -1) {
+
+                tq.setMaxResults(q.getLimit().intValue());
+            }
+
+            if (q.getOffset() != null && q.getOffset() > -1) {
+
+                tq.setFirstResult(q.getOffset().intValue());
+            }
+        }
+
+        if (options.getFetchSize() != null) {
+            setFetchSize(em, tq, options.getFetchSize());
+        }
+
+        if (queryHints != null) {
+            TypedQuery<T> hintedQuery = tq;
+            queryHints.forEach(i -> hintedQuery.setHint(i.getKey(), i.getValue()));
+        }
+
+        return Optional.of(tq);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> CriteriaQuery<?> createQuerySimple(EntityManager em, Class<T> entity, QueryParameters q,
+                                                          QueryFilterExpression filterExpression,
+                                                          CriteriaFilter<T> customFilter, String rootAlias,
+                                                          boolean forceDistinct, ParameterBinder binder,
+                                                          ToManyFilterStrategy toManyFilterStrategy) {
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+
+        CriteriaQuery<?> cq;
+
+        if (q.getFields().isEmpty()) {
+
+            cq = cb.createQuery(entity);
+        } else {
+
+            cq = cb.createTupleQuery();
+        }
+
+        Root<T> r = cq.from(entity);
+        if (rootAlias != null) {
+            r.alias(rootAlias);
+        }
+
+        Map<String, From> fieldJoins = new HashMap<>();
+
+        boolean requiresDistinct = applyQueryConditions(em, cb, cq, r, q, filterExpression, customFilter, fieldJoins, binder,
+                toManyFilterStrategy, forceDistinct);
+
+        if (q.getFields().isEmpty()) {
+
+            cq.select((Selection) r).distinct(requiresDistinct || forceDistinct);
+        } else {
+
+            cq.multiselect(createFieldsSelect(r, q, getEntityIdField(em, entity), fieldJoins)).distinct(requiresDistinct || forceDistinct);
+        }
+
+        return cq;
+    }
+
+    /**
+     * Applies the filters, the custom filter, the order and the cursor of the query to the criteria query. Returns
+     * whether the filters join to-many relations, in which case the query has to be distinct.
+     */
+    private static <T> boolean applyQueryConditions(EntityManager em, CriteriaBuilder cb, CriteriaQuery<?> cq, Root<T> r,
+                                                    QueryParameters q, QueryFilterExpression filterExpression,
+                                                    CriteriaFilter<T> customFilter, Map<String, From> fieldJoins,
+                                                    ParameterBinder binder, ToManyFilterStrategy toManyFilterStrategy,
+                                                    boolean forceDistinct) {
+
+        boolean requiresDistinct = false;
+
+        Predicate wherePredicate = null;
+
+        if (filterExpression != null) {
+
+            CriteriaWhereQuery criteriaWhereQuery = createWhereQueryInternal(em, cb, cq, r, filterExpression, fieldJoins,
+                    binder, toManyFilterStrategy);
+
+            requiresDistinct = criteriaWhereQuery.containsToMany();
+            wherePredicate = criteriaWhereQuery.getPredicate();
+        }
+
+        if (customFilter != null) {
+
+            wherePredicate = customFilter.createPredicate(
+                    wherePredicate == null ? cb.conjunction() : wherePredicate, cb, r);
+        }
+
+        if (!q.getOrder().isEmpty() || q.getCursor() != null) {
+
+            List<Order> orders = createOrderQuery(cb, r, q, getEntityIdField(em, r.getJavaType()), fieldJoins,
+                    !requiresDistinct && !forceDistinct);
+
+            cq.orderBy(orders);
+        }
+
+        if (q.getCursor() != null) {
+
+            Predicate seekPredicate = createSeekPredicate(cb, r, q, getEntityIdField(em, r.getJavaType()), fieldJoins, binder,
+                    requiresDistinct || forceDistinct);
+
+            wherePredicate = wherePredicate == null ? seekPredicate : cb.and(wherePredicate, seekPredicate);
+        }
+
+        if (wherePredicate != null) {
+            cq.where(wherePredicate);
+        }
+
+        return requiresDistinct;
+    }
+
+    private static <T> Optional<TypedQuery<T>> buildQueryAdvanced(EntityManager em, Class<T> entity, QueryParameters q,
+                                                                  CriteriaFilter<T> customFilter,
+                                                                  List<QueryHintPair> queryHints, String rootAlias,
+                                                                  boolean forceDistinct, JPAQueryOptions options) {
+        return buildQueryAdvanced(em, entity, q, customFilter, queryHints, queryHints, rootAlias, forceDistinct, options);
+    }
+
+    /**
+     * Queries the ids of the page first and then the entities with those ids. The entity query hints are only set
+     * on the second query.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Optional<TypedQuery<T>> buildQueryAdvanced(EntityManager em, Class<T> entity, QueryParameters q,
+                                                                  CriteriaFilter<T> customFilter,
+                                                                  List<QueryHintPair> queryHints,
+                                                                  List<QueryHintPair> entityQueryHints, String rootAlias,
+                                                                  boolean forceDistinct, JPAQueryOptions options) {
+
+        LOG.finest("Querying entity: '" + entity.getSimpleName() + "' with parameters: " + q + "(advanced)");
+
+        String idFieldName = getEntityIdField(em, entity);
+
+        QueryParameters qq = deriveQuery(q, q.getOrder(), Collections.singletonList(idFieldName));
+
+        Optional<TypedQuery<T>> entityListQueryOptional = buildQuerySimple(em, entity, qq, customFilter, queryHints, rootAlias, forceDistinct, options);
+
+        List<?> idList = null;
+        if (entityListQueryOptional.isPresent()) {
+            TypedQuery<T> entityListQuery = entityListQueryOptional.get();
+
+            idList = new ArrayList<>(getTuplesGroupingById((List<Tuple>) entityListQuery.getResultList(), idFieldName).keySet());
+        }
+
+        if (idList == null || idList.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<?> ids = idList;
+
+        CriteriaFilter<T> advancedCustomFilter = (p, cb, r) ->
+                customFilter != null
+                        ? cb.and(customFilter.createPredicate(p, cb, r), createIdInPredicate(cb, r.get(idFieldName), ids))
+                        : createIdInPredicate(cb, r.get(idFieldName), ids);
+
+        return buildQuerySimple(em, entity, q, advancedCustomFilter, entityQueryHints, rootAlias, forceDistinct, true, options);
+    }
+
+    /**
+     * Derives the parameters of an internal query with other orders and fields. The page, the cursor and the filters
+     * are shared with the passed parameters instead of copied, since the derived parameters are only read.
+     */
+    private static QueryParameters deriveQuery(QueryParameters q, List<QueryOrder> order, List<String> fields) {
+
+        QueryParameters qq = new QueryParameters();
+        qq.setCount(q.getCount());
+        qq.setCountMode(q.getCountMode());
+        qq.setLimit(q.getLimit());
+        qq.setOffset(q.getOffset());
+        qq.setCursor(q.getCursor());
+        qq.setOrder(order);
+        qq.setFields(fields);
+        qq.setFilters(q.getFilters());
+        qq.setFilterExpression(q.getFilterExpression());
+
+        return qq;
+    }
+
+    private static CriteriaWhereQuery createWhereQueryInternal(EntityManager em, CriteriaBuilder cb, Root<?> r, QueryParameters q, Map<String, From> fieldJoins) {
+
+        QueryFilterExpression filterExpression = FilterExpressionOptimizer.optimize(r.getJavaType(),
+                ClassUtils.getFilterExpression(q));
+
+        return createWhereQueryInternal(em, cb, r, filterExpression, fieldJoins, null);
+    }
+
+    private static CriteriaWhereQuery createWhereQueryInternal(EntityManager em, CriteriaBuilder cb, Root<?> r,
+                                                               QueryFilterExpression filterExpression,
+                                                               Map<String, From> fieldJoins, ParameterBinder binder) {
+        return createWhereQueryInternal(em, cb, null, r, filterExpression, fieldJoins, binder, ToManyFilterStrategy.JOIN);
+    }
+
+    private static CriteriaWhereQuery createWhereQueryInternal(EntityManager em, CriteriaBuilder cb, AbstractQuery<?> query,
+                                                               Root<?> r, QueryFilterExpression filterExpression,
+                                                               Map<String, From> fieldJoins, ParameterBinder binder,
+                                                               ToManyFilterStrategy toManyFilterStrategy) {
+
+        if (toManyFilterStrategy == ToManyFilterStrategy.EXISTS && query != null && filterExpression != null) {
+            return new CriteriaWhereQuery(createExistsWhereQuery(em, cb, query, r, filterExpression, fieldJoins, binder), false);
+        }
+
+        Predicate predicate = cb.conjunction();
+        AtomicBoolean containsToManyAtomic = new AtomicBoolean();
+
+        if (filterExpression != null) {
+            Predicate filterExpressionPredicate = createWhereQueryInternal(em, cb, r, containsToManyAtomic, filterExpression, fieldJoins, binder);
+            if (filterExpressionPredicate != null) {
+                predicate = cb.and(predicate, filterExpressionPredicate);
+            }
+        }
+
+        return new CriteriaWhereQuery(predicate, containsToManyAtomic.get());
+    }
+
+    /**
+     * Creates the where query with the top level conjuncts of the filter expression that go through to-many relations
+     * moved into correlated {@code EXISTS} subqueries. Conjuncts sharing a to-many relation are tested in the same
+     * subquery, which left joins the relations to the correlated entity just like the joined query does, so every
+     * conjunct is evaluated on the same rows as before. The leaves are visited in the order of
+     * {@link #getFilterLeaves(QueryFilterExpression)}, so the parameters are bound as in the joined query.
+     */
+    private static Predicate createExistsWhereQuery(EntityManager em, CriteriaBuilder cb, AbstractQuery<?> query, Root<?> r,
+                                                    QueryFilterExpression filterExpression, Map<String, From> fieldJoins,
+                                                    ParameterBinder binder) {
+
+        List<QueryFilterExpression> conjuncts = new ArrayList<>();
+        addConjuncts(filterExpression, conjuncts);
+
+        // conjuncts that share a to-many relation end up in the same group
+        List<Set<String>> groupRelations = new ArrayList<>();
+        List<Integer> conjunctGroups = new ArrayList<>();
+
+        for (QueryFilterExpression conjunct : conjuncts) {
+
+            Set<String> relations = new HashSet<>();
+            getFilterLeaves(conjunct).forEach(f -> {
+                String relation = getToManyPath(em.getMetamodel(), r.getJavaType(), f.getField());
+                if (relation != null) {
+                    relations.add(relation);
+                }
+            });
+
+            if (relations.isEmpty()) {
+                conjunctGroups.add(null);
+                continue;
+            }
+
+            Integer group = null;
+
+            for (int i = 0; i < groupRelations.size(); i++) {
+
+                if (groupRelations.get(i) == null || Collections.disjoint(groupRelations.get(i), relations)) {
+                    continue;
+                }
+
+                if (group == null) {
+                    group = i;
+                } else {
+                    // the conjunct connects two groups, which are merged
+                    groupRelations.get(group).addAll(groupRelations.get(i));
+                    groupRelations.set(i, null);
+
+                    for (int j = 0; j < conjunctGroups.size(); j++) {
+                        if (Integer.valueOf(i).equals(conjunctGroups.get(j))) {
+                            conjunctGroups.set(j, group);
+                        }
+                    }
+                }
+            }
+
+            if (group == null) {
+                group = groupRelations.size();
+                groupRelations.add(new HashSet<>());
+            }
+
+            groupRelations.get(group).addAll(relations);
+            conjunctGroups.add(group);
+        }
+
+        Predicate predicate = cb.conjunction();
+        AtomicBoolean containsToMany = new AtomicBoolean();
+
+        Map<Integer, Subquery<Integer>> subqueries = new HashMap<>();
+        Map<Integer, Root<?>> subqueryRoots = new HashMap<>();
+        Map<Integer, Map<String, From>> subqueryJoins = new HashMap<>();
+        Map<Integer, Predicate> subqueryPredicates = new LinkedHashMap<>();
 
-        LOG.finest("Querying entity: '" + entity.getSimpleName() + "' with parameters: " + q + "(simple)");
+        for (int i = 0; i < conjuncts.size(); i++) {
 
-        Boolean requiresDistinct = false;
+            Integer group = conjunctGroups.get(i);
 
-        CriteriaBuilder cb = em.getCriteriaBuilder();
+            if (group == null) {
 
-        CriteriaQuery<?> cq;
+                Predicate conjunctPredicate = createWhereQueryInternal(em, cb, r, containsToMany, conjuncts.get(i), fieldJoins, binder);
 
-        if (q.getFields().isEmpty()) {
+                if (conjunctPredicate != null) {
+                    predicate = cb.and(predicate, conjunctPredicate);
+                }
 
-            cq = cb.createQuery(entity);
-        } else {
+                continue;
+            }
 
-            cq = cb.createTupleQuery();
-        }
+            if (!subqueries.containsKey(group)) {
+                Subquery<Integer> subquery = query.subquery(Integer.class);
 
-        Root<T> r = cq.from(entity);
-        if (rootAlias != null) {
-            r.alias(rootAlias);
-        }
+                subqueries.put(group, subquery);
+                subqueryRoots.put(group, correlate(subquery, r));
+                subqueryJoins.put(group, new HashMap<>());
+                subqueryPredicates.put(group, cb.conjunction());
+            }
 
-        Predicate wherePredicate = null;
+            Predicate conjunctPredicate = createWhereQueryInternal(em, cb, subqueryRoots.get(group), containsToMany,
+                    conjuncts.get(i), subqueryJoins.get(group), binder);
 
-        Map<String, From> fieldJoins = new HashMap<>();
+            if (conjunctPredicate != null) {
+                subqueryPredicates.put(group, cb.and(subqueryPredicates.get(group), conjunctPredicate));
+            }
+        }
 
-        if (q.getFilterExpression() != null || !q.getFilters().isEmpty()) {
+        for (Map.Entry<Integer, Predicate> e : subqueryPredicates.entrySet()) {
 
-            CriteriaWhereQuery criteriaWhereQuery = createWhereQueryInternal(em, cb, r, q, fieldJoins);
+            Subquery<Integer> subquery = subqueries.get(e.getKey());
+            subquery.select(cb.literal(1)).where(e.getValue());
 
-            requiresDistinct = criteriaWhereQuery.containsToMany();
-            wherePredicate = criteriaWhereQuery.getPredicate();
+            predicate = cb.and(predicate, cb.exists(subquery));
         }
 
-        if (customFilter != null) {
+        return predicate;
+    }
 
-            wherePredicate = customFilter.createPredicate(
-                    wherePredicate == null ? cb.conjunction() : wherePredicate, cb, r);
+    @SuppressWarnings("unchecked")
+    private static <T> Root<T> correlate(Subquery<?> subquery, Root<T> r) {
+        return subquery.correlate(r);
+    }
+
+    private static void addConjuncts(QueryFilterExpression expression, List<QueryFilterExpression> conjuncts) {
+
+        if (!expression.isLeaf() && !expression.isEmptyLeaf()
+                && expression.operation() == FilterExpressionOperation.AND) {
+            addConjuncts(expression.left(), conjuncts);
+            addConjuncts(expression.right(), conjuncts);
+        } else {
+            conjuncts.add(expression);
         }
+    }
 
-        if (wherePredicate != null) {
-            cq.where(wherePredicate);
+    /**
+     * Returns the path of the first to-many relation the (rest) field goes through, or {@code null} if there is none
+     * or the field can not be resolved, which is reported when the predicate of the field is created.
+     */
+    private static String getToManyPath(Metamodel metamodel, Class<?> entity, String fieldName) {
+
+        if (fieldName == null) {
+            return null;
         }
 
-        if (!q.getOrder().isEmpty()) {
+        Class<?> type = entity;
+        String fieldPath = null;
 
-            List<Order> orders = createOrderQuery(cb, r, q, getEntityIdField(em, entity), fieldJoins);
+        for (String field : fieldName.split("\\.")) {
 
-            cq.orderBy(orders);
-        }
+            Optional<String> mappedField = getRestFieldMappings(type, field).findFirst();
 
-        if (q.getFields().isEmpty()) {
+            if (!mappedField.isPresent()) {
+                return null;
+            }
 
-            cq.select((Selection) r).distinct(requiresDistinct || forceDistinct);
-        } else {
+            for (String mapped : mappedField.get().split("\\.")) {
 
-            cq.multiselect(createFieldsSelect(r, q, getEntityIdField(em, entity), fieldJoins)).distinct(requiresDistinct || forceDistinct);
-        }
+                fieldPath = fieldPath == null ? mapped : fieldPath + "." + mapped;
 
-        TypedQuery<T> tq = (TypedQuery<T>) em.createQuery(cq);
+                Attribute<?, ?> attribute;
 
-        if (!ignorePaging) {
+                try {
+                    attribute = metamodel.managedType(type).getAttribute(mapped);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
 
-            if (q.getLimit() != null && q.getLimit() > -1) {
+                if (attribute.isCollection()) {
+                    return fieldPath;
+                }
 
-                tq.setMaxResults(q.getLimit().intValue());
+                type = attribute.getJavaType();
             }
+        }
 
-            if (q.getOffset() != null && q.getOffset() > -1) {
+        return null;
+    }
 
-                tq.setFirstResult(q.getOffset().intValue());
+    /**
+     * Returns the filters of the expression in the same order as they are visited when building the where query.
+     */
+    private static List<QueryFilter> getFilterLeaves(QueryFilterExpression filterExpression) {
+
+        List<QueryFilter> leaves = new ArrayList<>();
+
+        Deque<QueryFilterExpression> stack = new ArrayDeque<>();
+        if (filterExpression != null) {
+            stack.push(filterExpression);
+        }
+
+        while (!stack.isEmpty()) {
+            QueryFilterExpression expression = stack.pop();
+
+            if (expression.isLeaf()) {
+                leaves.add(expression.value());
+            } else if (!expression.isEmptyLeaf()) {
+                stack.push(expression.right());
+                stack.push(expression.left());
             }
         }
 
-        if (queryHints != null) {
-            queryHints.forEach(i -> tq.setHint(i.getKey(), i.getValue()));
+        return leaves;
+    }
+
+    /**
+     * Returns the cursor values as filters, so they can be bound as parameters after the filter leaves.
+     */
+    private static List<QueryFilter> getCursorLeaves(QueryCursor cursor) {
+
+        List<QueryFilter> leaves = new ArrayList<>();
+
+        if (cursor != null) {
+            for (int i = 0; i < cursor.getFields().size(); i++) {
+                leaves.add(new QueryFilter(cursor.getFields().get(i), FilterOperation.EQ, cursor.getValues().get(i)));
+            }
         }
 
-        return Optional.of(tq);
+        return leaves;
     }
 
+    /**
+     * Creates the keyset pagination predicate, which selects the rows ordered after the cursor:
+     * {@code (k1 > v1) or (k1 = v1 and k2 > v2) or ...}, with {@code <} for descending fields. Nulls are placed as by
+     * {@link #createOrderQuery}, so the null values follow the values when placed last and precede them otherwise.
+     * Distinct queries keep the null ordering of the database, so their cursors can't contain nullable fields.
+     */
     @SuppressWarnings("unchecked")
-    private static <T> Optional<TypedQuery<T>> buildQueryAdvanced(EntityManager em, Class<T> entity, QueryParameters q,
-                                                                  CriteriaFilter<T> customFilter,
-                                                                  List<QueryHintPair> queryHints, String rootAlias,
-                                                                  boolean forceDistinct) {
-
-        LOG.finest("Querying entity: '" + entity.getSimpleName() + "' with parameters: " + q + "(advanced)");
+    private static Predicate createSeekPredicate(CriteriaBuilder cb, Root<?> r, QueryParameters q, String idField,
+                                                 Map<String, From> fieldJoins, ParameterBinder binder, boolean distinct) {
 
-        String idFieldName = getEntityIdField(em, entity);
+        List<QueryOrder> cursorOrder = ClassUtils.getCursorOrder(q, idField);
 
-        Field idField = null;
-        try {
-            idField = getFieldFromEntity(entity, idFieldName);
-        } catch (NoSuchFieldException e) {
-            // ignore; getEntityIdFiled will throw error if field not found
-        }
+        ClassUtils.validateCursor(q.getCursor(), cursorOrder);
 
-        QueryParameters qq = new QueryParameters();
-        qq.setLimit(q.getLimit());
-        qq.setOffset(q.getOffset());
-        qq.getOrder().addAll(q.getOrder());
-        qq.getFields().add(idFieldName);
-        qq.setFilterExpression(q.getFilterExpression());
-        qq.getFilters().addAll(q.getFilters());
+        List<QueryFilter> cursorLeaves = getCursorLeaves(q.getCursor());
 
-        Optional<TypedQuery<T>> entityListQueryOptional = buildQuerySimple(em, entity, qq, customFilter, queryHints, rootAlias, forceDistinct);
+        List<Predicate> equalities = new ArrayList<>();
+        List<Predicate> disjunction = new ArrayList<>();
 
-        List<T> entityList = null;
-        if (entityListQueryOptional.isPresent()) {
-            TypedQuery<T> entityListQuery = entityListQueryOptional.get();
+        for (int i = 0; i < cursorOrder.size(); i++) {
 
-            entityList = createEntitiesFromTuples((List<Tuple>) entityListQuery.getResultList(), entity, getEntityIdField(em, entity))
-                    .collect(Collectors.toList());
-        }
+            QueryOrder o = cursorOrder.get(i);
+            QueryFilter f = cursorLeaves.get(i);
 
-        if (entityList == null || entityList.isEmpty()) {
-            return Optional.empty();
-        }
+            if (binder != null) {
+                binder.nextLeaf();
+            }
 
-        List<?> idList = createIdListFromEntities(entityList, idField);
+            CriteriaField criteriaField = getCriteriaField(o.getField(), r, fieldJoins);
 
-        CriteriaFilter<T> advancedCustomFilter = (p, cb, r) ->
-                customFilter != null
-                        ? cb.and(customFilter.createPredicate(p, cb, r), r.get(idFieldName).in(idList))
-                        : r.get(idFieldName).in(idList);
+            if (criteriaField == null) {
+                throw new NoSuchEntityFieldException("The field is ignored", o.getField(), r.getJavaType().getSimpleName());
+            }
 
-        return buildQuerySimple(em, entity, q, advancedCustomFilter, queryHints, rootAlias, forceDistinct, true);
-    }
+            Path<Comparable> path = (Path<Comparable>) criteriaField.getPath();
 
-    private static CriteriaWhereQuery createWhereQueryInternal(EntityManager em, CriteriaBuilder cb, Root<?> r, QueryParameters q, Map<String, From> fieldJoins) {
+            if (distinct && isNullable(path)) {
+                throw new QueryFormatException("Distinct queries can't be paged after the nullable field " + o.getField(),
+                        QueryStringBuilder.AFTER_DELIMITER, QueryFormatError.MALFORMED);
+            }
 
-        Predicate predicate = cb.conjunction();
-        AtomicBoolean containsToManyAtomic = new AtomicBoolean();
+            boolean nullsFirst = o.getNulls() == OrderNulls.FIRST;
 
-        QueryFilterExpression filterExpression = q.getFilterExpression();
+            Predicate after;
+            Predicate equal;
 
-        for (QueryFilter queryFilter : q.getFilters()) {
-            QueryFilterExpression additionalFilterExpression = new QueryFilterExpression(queryFilter);
+            if (f.getValue() == null) {
 
-            if (filterExpression == null) {
-                filterExpression = additionalFilterExpression;
+                // only the values follow the nulls placed first, nothing follows the nulls placed last
+                after = nullsFirst ? cb.isNotNull(path) : null;
+                equal = cb.isNull(path);
             } else {
-                filterExpression = new QueryFilterExpression(FilterExpressionOperation.AND, filterExpression, additionalFilterExpression);
+
+                Expression<Comparable> value = binder == null
+                        ? cb.literal((Comparable) getParameterValueForPath(path, f.getValue()))
+                        : binder.parameter(cb, f, p -> (Comparable) getParameterValueForPath(path, p.getValue()));
+
+                after = o.getOrder() == OrderDirection.DESC
+                        ? cb.lessThan(path, value)
+                        : cb.greaterThan(path, value);
+
+                if (!nullsFirst && isNullable(path)) {
+                    after = cb.or(after, cb.isNull(path));
+                }
+
+                equal = cb.equal(path, value);
             }
-        }
 
-        if (filterExpression != null) {
-            Predicate filterExpressionPredicate = createWhereQueryInternal(em, cb, r, containsToManyAtomic, filterExpression, fieldJoins);
-            if (filterExpressionPredicate != null) {
-                predicate = cb.and(predicate, filterExpressionPredicate);
+            if (after != null) {
+                List<Predicate> conjunction = new ArrayList<>(equalities);
+                conjunction.add(after);
+
+                disjunction.add(cb.and(conjunction.toArray(new Predicate[0])));
             }
+
+            equalities.add(equal);
         }
 
-        return new CriteriaWhereQuery(predicate, containsToManyAtomic.get());
+        if (disjunction.isEmpty()) {
+            return cb.disjunction();
+        }
+
+        return cb.or(disjunction.toArray(new Predicate[0]));
     }
 
-    private static Predicate createWhereQueryInternal(EntityManager em, CriteriaBuilder cb, Root<?> r, AtomicBoolean containsToManyAtomic, QueryFilterExpression filterExpression, Map<String, From> fieldJoins) {
+    @SuppressWarnings("unchecked")
+    private static Predicate createWhereQueryInternal(EntityManager em, CriteriaBuilder cb, Root<?> r, AtomicBoolean containsToManyAtomic,
+                                                      QueryFilterExpression filterExpression, Map<String, From> fieldJoins,
+                                                      ParameterBinder binder) {
 
         if (filterExpression == null) {
             return null;
@@ -562,6 +1794,10 @@ public class JPAUtils {
         if (filterExpression.isLeaf()) {
             QueryFilter f = filterExpression.value();
 
+            if (binder != null) {
+                binder.nextLeaf();
+            }
+
             Predicate np = null;
 
             try {
@@ -588,11 +1824,8 @@ public class JPAUtils {
                 boolean isAssociation = attribute.isAssociation();
                 boolean isCollection = attribute.isCollection();
 
-                @SuppressWarnings("unchecked")
                 Path<String> stringField = (Path<String>) entityField;
-                @SuppressWarnings("unchecked")
                 Path<Date> dateField = (Path<Date>) entityField;
-                @SuppressWarnings("unchecked")
                 Path<Comparable> compField = (Path<Comparable>) entityField;
 
                 if (isBasic) {
@@ -601,74 +1834,110 @@ public class JPAUtils {
 
                         case EQ:
                             if (f.getDateValue() != null && Date.class.isAssignableFrom(entityField.getJavaType())) {
-                                np = cb.equal(entityField, f.getDateValue());
+                                np = binder == null
+                                        ? cb.equal(entityField, f.getDateValue())
+                                        : cb.equal(entityField, binder.parameter(cb, f, QueryFilter::getDateValue));
                             } else if (f.getValue() != null) {
-                                np = cb.equal(entityField, getValueForPath(entityField, f.getValue()));
+                                np = binder == null
+                                        ? cb.equal(entityField, getValueForPath(entityField, f.getValue()))
+                                        : cb.equal(entityField, binder.parameter(cb, f, p -> getParameterValueForPath(entityField, p.getValue())));
                             }
                             break;
                         case EQIC:
                             if (entityField.getJavaType().equals(String.class) && f.getValue() != null) {
-                                np = cb.equal(cb.lower(stringField), f.getValue().toLowerCase());
+                                np = binder == null
+                                        ? cb.equal(cb.lower(stringField), f.getValue().toLowerCase())
+                                        : cb.equal(cb.lower(stringField), binder.parameter(cb, f, p -> p.getValue().toLowerCase()));
                             }
                             break;
                         case NEQ:
                             if (f.getDateValue() != null && Date.class.isAssignableFrom(entityField.getJavaType())) {
-                                np = cb.notEqual(entityField, f.getDateValue());
+                                np = binder == null
+                                        ? cb.notEqual(entityField, f.getDateValue())
+                                        : cb.notEqual(entityField, binder.parameter(cb, f, QueryFilter::getDateValue));
                             } else if (f.getValue() != null) {
-                                np = cb.notEqual(entityField, getValueForPath(entityField, f.getValue()));
+                                np = binder == null
+                                        ? cb.notEqual(entityField, getValueForPath(entityField, f.getValue()))
+                                        : cb.notEqual(entityField, binder.parameter(cb, f, p -> getParameterValueForPath(entityField, p.getValue())));
                             }
                             break;
                         case NEQIC:
                             if (entityField.getJavaType().equals(String.class) && f.getValue() != null) {
-                                np = cb.notEqual(cb.lower(stringField), f.getValue().toLowerCase());
+                                np = binder == null
+                                        ? cb.notEqual(cb.lower(stringField), f.getValue().toLowerCase())
+                                        : cb.notEqual(cb.lower(stringField), binder.parameter(cb, f, p -> p.getValue().toLowerCase()));
                             }
                             break;
                         case LIKE:
                             if (entityField.getJavaType().equals(String.class) && f.getValue() != null) {
-                                np = cb.like(stringField, f.getValue());
+                                np = binder == null
+                                        ? cb.like(stringField, f.getValue())
+                                        : cb.like(stringField, binder.parameter(cb, f, QueryFilter::getValue));
                             } else if (entityField.getJavaType().equals(UUID.class) && f.getValue() != null) {
                                 String driver = (null == em ? null : (String) em.getProperties().get(PROP_PERSISTENCE_JDBC_DRIVER));
+                                Expression<String> uuidField;
                                 if (POSTGRES_SQL_DRIVER.equalsIgnoreCase(driver)) {
-                                    np = cb.like(cb.function("text", String.class, r.get(f.getField()).as(String.class)), f.getValue());
+                                    uuidField = cb.function("text", String.class, r.get(f.getField()).as(String.class));
                                 } else {
-                                    np = cb.like(r.get(f.getField()).as(String.class), f.getValue());
+                                    uuidField = r.get(f.getField()).as(String.class);
                                 }
+                                np = binder == null
+                                        ? cb.like(uuidField, f.getValue())
+                                        : cb.like(uuidField, binder.parameter(cb, f, QueryFilter::getValue));
                             }
                             break;
                         case LIKEIC:
                             if (entityField.getJavaType().equals(String.class) && f.getValue() != null) {
-                                np = cb.like(cb.lower(stringField), f.getValue().toLowerCase());
+                                np = binder == null
+                                        ? cb.like(cb.lower(stringField), f.getValue().toLowerCase())
+                                        : cb.like(cb.lower(stringField), binder.parameter(cb, f, p -> p.getValue().toLowerCase()));
                             } else if (entityField.getJavaType().equals(UUID.class) && f.getValue() != null) {
                                 String driver = (null == em ? null : (String) em.getProperties().get(PROP_PERSISTENCE_JDBC_DRIVER));
+                                Expression<String> uuidField;
                                 if (POSTGRES_SQL_DRIVER.equalsIgnoreCase(driver)) {
-                                    np = cb.like(cb.lower(cb.function("text", String.class, r.get(f.getField()).as(String.class))), f.getValue());
+                                    uuidField = cb.lower(cb.function("text", String.class, r.get(f.getField()).as(String.class)));
                                 } else {
-                                    np = cb.like(cb.lower(r.get(f.getField()).as(String.class)), f.getValue());
+                                    uuidField = cb.lower(r.get(f.getField()).as(String.class));
                                 }
+                                np = binder == null
+                                        ? cb.like(uuidField, f.getValue())
+                                        : cb.like(uuidField, binder.parameter(cb, f, QueryFilter::getValue));
                             }
                             break;
                         case NLIKE:
                             if (entityField.getJavaType().equals(String.class) && f.getValue() != null) {
-                                np = cb.notLike(stringField, f.getValue());
+                                np = binder == null
+                                        ? cb.notLike(stringField, f.getValue())
+                                        : cb.notLike(stringField, binder.parameter(cb, f, QueryFilter::getValue));
                             } else if (entityField.getJavaType().equals(UUID.class) && f.getValue() != null) {
                                 String driver = (null == em ? null : (String) em.getProperties().get(PROP_PERSISTENCE_JDBC_DRIVER));
+                                Expression<String> uuidField;
                                 if (POSTGRES_SQL_DRIVER.equalsIgnoreCase(driver)) {
-                                    np = cb.notLike(cb.function("text", String.class, r.get(f.getField()).as(String.class)), f.getValue());
+                                    uuidField = cb.function("text", String.class, r.get(f.getField()).as(String.class));
                                 } else {
-                                    np = cb.notLike(r.get(f.getField()).as(String.class), f.getValue());
+                                    uuidField = r.get(f.getField()).as(String.class);
                                 }
+                                np = binder == null
+                                        ? cb.notLike(uuidField, f.getValue())
+                                        : cb.notLike(uuidField, binder.parameter(cb, f, QueryFilter::getValue));
                             }
                             break;
                         case NLIKEIC:
                             if (entityField.getJavaType().equals(String.class) && f.getValue() != null) {
-                                np = cb.notLike(cb.lower(stringField), f.getValue().toLowerCase());
+                                np = binder == null
+                                        ? cb.notLike(cb.lower(stringField), f.getValue().toLowerCase())
+                                        : cb.notLike(cb.lower(stringField), binder.parameter(cb, f, p -> p.getValue().toLowerCase()));
                             } else if (entityField.getJavaType().equals(UUID.class) && f.getValue() != null) {
                                 String driver = (null == em ? null : (String) em.getProperties().get(PROP_PERSISTENCE_JDBC_DRIVER));
+                                Expression<String> uuidField;
                                 if (POSTGRES_SQL_DRIVER.equalsIgnoreCase(driver)) {
-                                    np = cb.notLike(cb.lower(cb.function("text", String.class, r.get(f.getField()).as(String.class))), f.getValue());
+                                    uuidField = cb.lower(cb.function("text", String.class, r.get(f.getField()).as(String.class)));
                                 } else {
-                                    np = cb.notLike(cb.lower(r.get(f.getField()).as(String.class)), f.getValue());
+                                    uuidField = cb.lower(r.get(f.getField()).as(String.class));
                                 }
+                                np = binder == null
+                                        ? cb.notLike(uuidField, f.getValue())
+                                        : cb.notLike(uuidField, binder.parameter(cb, f, QueryFilter::getValue));
                             }
                             break;
                         case GT:
@@ -678,9 +1947,13 @@ public class JPAUtils {
                                     String.class.isAssignableFrom(entityField.getJavaType())) {
 
                                 if (f.getDateValue() != null && Date.class.isAssignableFrom(entityField.getJavaType())) {
-                                    np = cb.greaterThan(dateField, f.getDateValue());
+                                    np = binder == null
+                                            ? cb.greaterThan(dateField, f.getDateValue())
+                                            : cb.greaterThan(dateField, binder.parameter(cb, f, QueryFilter::getDateValue));
                                 } else if (f.getValue() != null) {
-                                    np = cb.greaterThan(compField, (Comparable) getValueForPath(stringField, f.getValue()));
+                                    np = binder == null
+                                            ? cb.greaterThan(compField, (Comparable) getValueForPath(stringField, f.getValue()))
+                                            : cb.greaterThan(compField, binder.parameter(cb, f, p -> (Comparable) getParameterValueForPath(entityField, p.getValue())));
                                 }
                             }
                             break;
@@ -691,9 +1964,13 @@ public class JPAUtils {
                                     String.class.isAssignableFrom(entityField.getJavaType())) {
 
                                 if (f.getDateValue() != null && Date.class.isAssignableFrom(entityField.getJavaType())) {
-                                    np = cb.greaterThanOrEqualTo(dateField, f.getDateValue());
+                                    np = binder == null
+                                            ? cb.greaterThanOrEqualTo(dateField, f.getDateValue())
+                                            : cb.greaterThanOrEqualTo(dateField, binder.parameter(cb, f, QueryFilter::getDateValue));
                                 } else if (f.getValue() != null) {
-                                    np = cb.greaterThanOrEqualTo(compField, (Comparable) getValueForPath(stringField, f.getValue()));
+                                    np = binder == null
+                                            ? cb.greaterThanOrEqualTo(compField, (Comparable) getValueForPath(stringField, f.getValue()))
+                                            : cb.greaterThanOrEqualTo(compField, binder.parameter(cb, f, p -> (Comparable) getParameterValueForPath(entityField, p.getValue())));
                                 }
                             }
                             break;
@@ -704,9 +1981,13 @@ public class JPAUtils {
                                     String.class.isAssignableFrom(entityField.getJavaType())) {
 
                                 if (f.getDateValue() != null && Date.class.isAssignableFrom(entityField.getJavaType())) {
-                                    np = cb.lessThan(dateField, f.getDateValue());
+                                    np = binder == null
+                                            ? cb.lessThan(dateField, f.getDateValue())
+                                            : cb.lessThan(dateField, binder.parameter(cb, f, QueryFilter::getDateValue));
                                 } else if (f.getValue() != null) {
-                                    np = cb.lessThan(compField, (Comparable) getValueForPath(stringField, f.getValue()));
+                                    np = binder == null
+                                            ? cb.lessThan(compField, (Comparable) getValueForPath(stringField, f.getValue()))
+                                            : cb.lessThan(compField, binder.parameter(cb, f, p -> (Comparable) getParameterValueForPath(entityField, p.getValue())));
                                 }
                             }
                             break;
@@ -717,39 +1998,51 @@ public class JPAUtils {
                                     String.class.isAssignableFrom(entityField.getJavaType())) {
 
                                 if (f.getDateValue() != null && Date.class.isAssignableFrom(entityField.getJavaType())) {
-                                    np = cb.lessThanOrEqualTo(dateField, f.getDateValue());
+                                    np = binder == null
+                                            ? cb.lessThanOrEqualTo(dateField, f.getDateValue())
+                                            : cb.lessThanOrEqualTo(dateField, binder.parameter(cb, f, QueryFilter::getDateValue));
                                 } else if (f.getValue() != null) {
-                                    np = cb.lessThanOrEqualTo(compField, (Comparable) getValueForPath(stringField, f.getValue()));
+                                    np = binder == null
+                                            ? cb.lessThanOrEqualTo(compField, (Comparable) getValueForPath(stringField, f.getValue()))
+                                            : cb.lessThanOrEqualTo(compField, binder.parameter(cb, f, p -> (Comparable) getParameterValueForPath(entityField, p.getValue())));
                                 }
                             }
                             break;
                         case IN:
-                            np = stringField.in(f.getValues().stream()
+                            np = binder == null
+                                    ? stringField.in(f.getValues().stream()
                                     .filter(Objects::nonNull)
                                     .map(s -> getValueForPath(entityField, s)).collect(Collectors
-                                            .toList()));
+                                            .toList()))
+                                    : inParameters(cb, binder, entityField, f, s -> getParameterValueForPath(entityField, s));
                             break;
                         case INIC:
                             if (entityField.getJavaType().equals(String.class)) {
-                                np = cb.lower(stringField)
+                                np = binder == null
+                                        ? cb.lower(stringField)
                                         .in(f.getValues().stream()
                                                 .filter(Objects::nonNull)
                                                 .map(String::toLowerCase)
-                                                .collect(Collectors.toList()));
+                                                .collect(Collectors.toList()))
+                                        : inParameters(cb, binder, cb.lower(stringField), f, String::toLowerCase);
                             }
                             break;
                         case NIN:
-                            np = cb.not(stringField.in(f.getValues().stream()
+                            np = cb.not(binder == null
+                                    ? stringField.in(f.getValues().stream()
                                     .filter(Objects::nonNull)
-                                    .map(s -> getValueForPath(entityField, s)).collect(Collectors.toList())));
+                                    .map(s -> getValueForPath(entityField, s)).collect(Collectors.toList()))
+                                    : inParameters(cb, binder, entityField, f, s -> getParameterValueForPath(entityField, s)));
                             break;
                         case NINIC:
                             if (entityField.getJavaType().equals(String.class)) {
-                                np = cb.not(cb.lower(stringField)
+                                np = cb.not(binder == null
+                                        ? cb.lower(stringField)
                                         .in(f.getValues().stream()
                                                 .filter(Objects::nonNull)
                                                 .map(String::toLowerCase)
-                                                .collect(Collectors.toList())));
+                                                .collect(Collectors.toList()))
+                                        : inParameters(cb, binder, cb.lower(stringField), f, String::toLowerCase));
                             }
                             break;
                         case ISNULL:
@@ -760,27 +2053,13 @@ public class JPAUtils {
                             break;
                         case BETWEEN:
                             if (!f.getValues().isEmpty()) {
-                                Object value1 = getValueForPath(entityField, f.getValues().get(0));
-                                Object value2 = getValueForPath(entityField, f.getValues().get(1));
-
-                                if (!value1.getClass().equals(value2.getClass())) {
-                                    throw new QueryFormatException("Incompatible values for BETWEEN filter", f.getField(), QueryFormatError.MALFORMED);
-                                }
-
-                                np = cb.between(compField, (Comparable) value1, (Comparable) value2);
+                                np = between(cb, binder, entityField, f);
                             }
                             break;
                         case NBETWEEN:
                             if (!f.getValues().isEmpty()) {
-                                Object value1 = getValueForPath(entityField, f.getValues().get(0));
-                                Object value2 = getValueForPath(entityField, f.getValues().get(1));
-
-                                if (!value1.getClass().equals(value2.getClass())) {
-                                    throw new QueryFormatException("Incompatible values for BETWEEN filter", f.getField(), QueryFormatError.MALFORMED);
-                                }
-
                                 np = cb.not(
-                                        cb.between(compField, (Comparable) value1, (Comparable) value2)
+                                        between(cb, binder, entityField, f)
                                 );
                             }
                     }
@@ -819,8 +2098,8 @@ public class JPAUtils {
         } else {
             FilterExpressionOperation operation = filterExpression.operation();
 
-            Predicate leftPredicate = createWhereQueryInternal(em, cb, r, containsToManyAtomic, filterExpression.left(), fieldJoins);
-            Predicate rightPredicate = createWhereQueryInternal(em, cb, r, containsToManyAtomic, filterExpression.right(), fieldJoins);
+            Predicate leftPredicate = createWhereQueryInternal(em, cb, r, containsToManyAtomic, filterExpression.left(), fieldJoins, binder);
+            Predicate rightPredicate = createWhereQueryInternal(em, cb, r, containsToManyAtomic, filterExpression.right(), fieldJoins, binder);
 
             if (leftPredicate == null && rightPredicate == null) {
                 return cb.conjunction();
@@ -842,190 +2121,145 @@ public class JPAUtils {
         }
     }
 
-    ///// Private helper methods
+    /**
+     * Creates an IN predicate with one parameter per non null filter value.
+     */
+    private static Predicate inParameters(CriteriaBuilder cb, ParameterBinder binder, Expression<?> expression, QueryFilter f,
+                                          Function<String, ?> converter) {
 
-    @SuppressWarnings("unchecked")
-    private static <T> Stream<T> createEntitiesFromTuples(List<Tuple> tuples, Class<T> entity, String idField) {
+        List<Expression<?>> parameters = new ArrayList<>();
 
-        Map<Object, List<Tuple>> tuplesGrouping = getTuplesGroupingById(tuples, idField);
+        for (int i = 0; i < f.getValues().size(); i++) {
+            if (f.getValues().get(i) != null) {
+                final int valueIndex = i;
+                parameters.add(binder.parameter(cb, f, p -> converter.apply(p.getValues().get(valueIndex))));
+            }
+        }
+
+        if (parameters.isEmpty()) {
+            return expression.in(Collections.emptyList());
+        }
 
-        return tuplesGrouping.entrySet().stream().map(tuplesGroup -> {
+        return expression.in(parameters.toArray(new Expression<?>[0]));
+    }
 
-            T el;
+    @SuppressWarnings("unchecked")
+    private static Predicate between(CriteriaBuilder cb, ParameterBinder binder, Path entityField, QueryFilter f) {
 
-            try {
-                el = entity.getConstructor().newInstance();
-            } catch (InstantiationException | IllegalAccessException |
-                     NoSuchMethodException | InvocationTargetException e) {
+        Path<Comparable> compField = (Path<Comparable>) entityField;
 
-                throw new AssertionError();
-            }
+        Object value1 = binder == null
+                ? getValueForPath(entityField, f.getValues().get(0))
+                : getParameterValueForPath(entityField, f.getValues().get(0));
+        Object value2 = binder == null
+                ? getValueForPath(entityField, f.getValues().get(1))
+                : getParameterValueForPath(entityField, f.getValues().get(1));
 
-            List<Tuple> tuples2 = tuplesGroup.getValue();
-            for (int i = 0; i < tuples2.size(); i++) {
-                Tuple t = tuples2.get(i);
+        if (!value1.getClass().equals(value2.getClass())) {
+            throw new QueryFormatException("Incompatible values for BETWEEN filter", f.getField(), QueryFormatError.MALFORMED);
+        }
 
-                List<TupleElement<?>> tes = t.getElements()
-                        .stream()
-                        .sorted(Comparator.comparing(TupleElement::getAlias))
-                        .collect(Collectors.toList());
+        if (binder == null) {
+            return cb.between(compField, (Comparable) value1, (Comparable) value2);
+        }
 
-                for (TupleElement<?> te : tes) {
-                    Object o = t.get(te);
-                    if (o == null) {
-                        continue;
-                    }
+        return cb.between(compField,
+                binder.parameter(cb, f, p -> (Comparable) getParameterValueForPath(entityField, p.getValues().get(0))),
+                binder.parameter(cb, f, p -> (Comparable) getParameterValueForPath(entityField, p.getValues().get(1))));
+    }
 
-                    try {
-                        String[] fName = te.getAlias().split("\\.");
+    ///// Private helper methods
 
-                        createEntityFromTuple(fName, entity, el, o, i);
-                    } catch (NoSuchFieldException | IllegalAccessException | NoSuchMethodException |
-                             InvocationTargetException | InstantiationException e) {
+    private static <T> Stream<T> createEntitiesFromTuples(List<Tuple> tuples, Class<T> entity, String idField) {
 
-                        throw new NoSuchEntityFieldException(e.getMessage(), te.getAlias(), entity.getSimpleName());
-                    }
-                }
-            }
+        Map<Object, List<Tuple>> tuplesGrouping = getTuplesGroupingById(tuples, idField);
 
-            return el;
-        });
+        return tuplesGrouping.values().stream().map(tuplesGroup -> createEntityFromTuples(tuplesGroup, entity));
     }
 
-    private static <T> T createEntityFromTuple(String[] fName, Class<?> entity, T el, Object o, int row)
-            throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, InstantiationException, NoSuchFieldException {
-        String fName2 = fName[0];
+    /**
+     * Creates the entities from tuples ordered by id as the last key. The rows are read from the result as the
+     * entities are consumed, an entity is created when the id of the rows changes.
+     */
+    private static <T> Stream<T> createEntitiesFromTupleStream(Stream<Tuple> tuples, Class<T> entity, String idField) {
 
-        Field field = getFieldFromEntity(entity, fName2);
-        if (null == field) {
-            return el;
-        }
+        Iterator<Tuple> iterator = tuples.iterator();
 
-        if (fName.length == 1) {
-            setEntityFieldValue(el, field, o);
-            return el;
-        }
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
 
-        Class entity2 = entity, entity2Wrapper = null;
-        Object el2 = null;
-        Collection<?> el2Wrapper = null;
+            private Tuple next;
 
-        if (isCollectionField(field)) {
-            ParameterizedType listType = (ParameterizedType) field.getGenericType();
-            entity2 = (Class<?>) listType.getActualTypeArguments()[0];
-            entity2Wrapper = field.getType();
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
 
-            el2Wrapper = (Collection<?>) initializeField(el, field, entity2Wrapper);
-            el2 = !el2Wrapper.isEmpty() && el2Wrapper.size() >= row + 1
-                    ? el2Wrapper.toArray()[row]
-                    : entity2.getConstructor().newInstance();
-        } else {
-            entity2 = field.getType();
+                if (next == null) {
 
-            el2 = initializeField(el, field, entity2);
-        }
+                    if (!iterator.hasNext()) {
+                        return false;
+                    }
 
-        Object o2 = createEntityFromTuple(Arrays.asList(fName).subList(1, fName.length).toArray(new String[]{}), entity2, el2, o, row);
+                    next = iterator.next();
+                }
 
-        setEntityFieldValue(el, field, o2);
+                Object id = next.get(idField);
 
-        return el;
-    }
+                List<Tuple> group = new ArrayList<>();
+                group.add(next);
+                next = null;
 
-    private static List<?> createIdListFromTuples(List<Tuple> tuples, String idField) {
-        return tuples.stream()
-                .map(t -> t.get(idField))
-                .collect(Collectors.toList());
-    }
+                while (iterator.hasNext()) {
 
-    private static <T> List<?> createIdListFromEntities(List<T> entityList, Field idField) {
-        return entityList.stream()
-                .map(entity -> {
-                    try {
-                        idField.setAccessible(true);
-                        return idField.get(entity);
-                    } catch (IllegalAccessException e) {
-                        // do nothing
-                    }
+                    Tuple tuple = iterator.next();
 
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-    }
+                    if (!Objects.equals(id, tuple.get(idField))) {
+                        next = tuple;
+                        break;
+                    }
 
-    @SuppressWarnings("unchecked")
-    private static <T> T initializeField(T entity, Field field, Class<T> entity2Class)
-            throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, InstantiationException {
-        field.setAccessible(true);
-
-        if (isCollectionField(field)) {
-            Object collection = field.get(entity);
-
-            if (collection == null) {
-                if (isListField(field)) {
-                    field.set(entity, new ArrayList<>());
-                } else if (isSetField(field)) {
-                    field.set(entity, new HashSet<>());
+                    group.add(tuple);
                 }
-            }
-        } else if (isObjectField(field)) {
-            Object object = field.get(entity);
 
-            if (object == null) {
-                field.set(entity, entity2Class.getConstructor().newInstance());
+                action.accept(createEntityFromTuples(group, entity));
+
+                return true;
             }
-        }
+        };
 
-        return (T) field.get(entity);
+        return StreamSupport.stream(spliterator, false).onClose(tuples::close);
     }
 
-    private static <T> void setEntityFieldValue(T entity, Field field, Object value)
-            throws IllegalAccessException, NoSuchMethodException, InvocationTargetException {
-        field.setAccessible(true);
-
-        if (isCollectionField(field)) {
-            Collection<?> collection = (Collection<?>) field.get(entity);
-            if (collection == null) {
-                if (isListField(field)) {
-                    field.set(entity, new ArrayList<>());
-                } else if (isSetField(field)) {
-                    field.set(entity, new HashSet<>());
-                }
-
-                collection = (Collection<?>) field.get(entity);
-            }
-
-            if (value != null && !collection.contains(value)) {
-                Method add = Collection.class.getDeclaredMethod("add", Object.class);
-                add.invoke(collection, value);
-            }
-        } else if (isObjectField(field)) {
-            field.set(entity, value);
-        } else {
-            field.set(entity, value);
-        }
+    private static <T> T createEntityFromTuples(List<Tuple> tuples, Class<T> entity) {
+        return TupleMaterializer.of(entity, tuples.get(0)).materialize(tuples);
     }
 
-    @SuppressWarnings("unchecked")
-    private static String getEntityIdField(EntityManager em, Class entityClass) {
+    /**
+     * Creates an IN predicate for the ids, split into several IN lists of at most {@link #MAX_IN_LIST_SIZE} elements,
+     * since some databases (e.g. Oracle) limit the size of a single list.
+     */
+    private static Predicate createIdInPredicate(CriteriaBuilder cb, Path<?> idPath, List<?> ids) {
 
-        String idProperty = "";
+        if (ids.size() <= MAX_IN_LIST_SIZE) {
+            return idPath.in(ids);
+        }
 
-        Metamodel metamodel = em.getMetamodel();
-        EntityType e = metamodel.entity(entityClass);
-        Set<SingularAttribute> singularAttributes = e.getSingularAttributes();
+        List<Predicate> predicates = new ArrayList<>();
 
-        for (SingularAttribute singularAttribute : singularAttributes) {
+        for (int i = 0; i < ids.size(); i += MAX_IN_LIST_SIZE) {
+            predicates.add(idPath.in(ids.subList(i, Math.min(i + MAX_IN_LIST_SIZE, ids.size()))));
+        }
 
-            if (singularAttribute.isId()) {
+        return cb.or(predicates.toArray(new Predicate[0]));
+    }
 
-                idProperty = singularAttribute.getName();
-                break;
-            }
-        }
+    private static List<?> createIdListFromTuples(List<Tuple> tuples, String idField) {
+        return tuples.stream()
+                .map(t -> t.get(idField))
+                .collect(Collectors.toList());
+    }
 
-        return idProperty;
+    private static String getEntityIdField(EntityManager em, Class entityClass) {
+        return EntityDescriptor.of(entityClass).getIdAttribute(em.getMetamodel());
     }
 
     @SuppressWarnings("unchecked")
@@ -1047,23 +2281,6 @@ public class JPAUtils {
         return idProperty;
     }
 
-    private static Field getFieldFromEntity(Class entityClass, String fieldName) throws NoSuchFieldException {
-
-        try {
-            if (ClassUtils.isRestIgnored(entityClass, fieldName)) {
-                return null;
-            }
-            return entityClass.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-
-            if (entityClass.getSuperclass() == null) {
-                throw e;
-            }
-
-            return getFieldFromEntity(entityClass.getSuperclass(), fieldName);
-        }
-    }
-
     private static Object getValueForPath(Path path, String value) {
 
         if (value == null) return null;
@@ -1127,6 +2344,65 @@ public class JPAUtils {
         return value;
     }
 
+    /**
+     * Converts the value like {@link #getValueForPath(Path, String)} and additionally converts numeric and primitive
+     * boolean values, so the type of the query parameter matches the type of the path.
+     */
+    private static Object getParameterValueForPath(Path path, String value) {
+
+        Object converted = getValueForPath(path, value);
+
+        if (!(converted instanceof String)) {
+            return converted;
+        }
+
+        Class c = path.getModel().getBindableJavaType();
+
+        try {
+
+            if (c.equals(Integer.class) || c.equals(int.class)) {
+                return Integer.valueOf(value);
+            }
+
+            if (c.equals(Long.class) || c.equals(long.class)) {
+                return Long.valueOf(value);
+            }
+
+            if (c.equals(Short.class) || c.equals(short.class)) {
+                return Short.valueOf(value);
+            }
+
+            if (c.equals(Byte.class) || c.equals(byte.class)) {
+                return Byte.valueOf(value);
+            }
+
+            if (c.equals(Double.class) || c.equals(double.class)) {
+                return Double.valueOf(value);
+            }
+
+            if (c.equals(Float.class) || c.equals(float.class)) {
+                return Float.valueOf(value);
+            }
+
+            if (c.equals(BigDecimal.class)) {
+                return new BigDecimal(value);
+            }
+
+            if (c.equals(BigInteger.class)) {
+                return new BigInteger(value);
+            }
+
+            if (c.equals(boolean.class)) {
+                return Boolean.parseBoolean(value);
+            }
+        } catch (NumberFormatException e) {
+
+            throw new InvalidFieldValueException(e.getMessage(), path.getAlias(), value);
+        }
+
+        return converted;
+    }
+
     private static CriteriaField getCriteriaField(String fieldName, Root<?> r, Map<String, From> fieldJoins) {
 
         if (fieldName == null) fieldName = "";
@@ -1206,36 +2482,30 @@ public class JPAUtils {
     }
 
     private static Stream<String> getRestFieldMappings(final Path path, final String restField) {
+        return getRestFieldMappings(path.getJavaType(), restField);
+    }
+
+    private static Stream<String> getRestFieldMappings(final Class<?> type, final String restField) {
 
-        if (null == restField || ClassUtils.isRestIgnored(path.getJavaType(), restField)) {
+        if (null == restField || ClassUtils.isRestIgnored(type, restField)) {
             return Stream.empty();
         }
 
-        Class<?> javaType = path.getJavaType();
+        List<Map.Entry<String, String>> restMappings = EntityDescriptor.of(type).getRestMappings();
 
-        Stream<Field> declaredFields = Stream.of(javaType.getDeclaredFields());
-        while (javaType.getSuperclass() != null) {
-            declaredFields = Stream.concat(declaredFields, Stream.of(javaType.getSuperclass().getDeclaredFields()));
-            javaType = javaType.getSuperclass();
+        if (restMappings.isEmpty()) {
+            return Stream.of(restField);
         }
 
-        List<String> mappingList = declaredFields
-                .flatMap(entityField -> Stream.of(entityField.getAnnotationsByType(RestMapping.class))
-                        .map(annotation -> {
-                                    String restFieldName = annotation.value();
-                                    String jpaFieldPath = annotation.toChildField().isEmpty() ? entityField.getName() : entityField.getName() + "." + annotation.toChildField();
-                                    return new AbstractMap.SimpleEntry<>(restFieldName, jpaFieldPath);
-                                }
-                        )
-                        .filter(e -> restField.equals(e.getKey()) || restField.contains(e.getKey()))
-                        .map(e -> {
-                            if (!restField.equals(e.getKey()) && restField.contains(e.getKey())) {
-                                return restField.replace(e.getKey(), e.getValue());
-                            }
+        List<String> mappingList = restMappings.stream()
+                .filter(e -> restField.equals(e.getKey()) || restField.contains(e.getKey()))
+                .map(e -> {
+                    if (!restField.equals(e.getKey()) && restField.contains(e.getKey())) {
+                        return restField.replace(e.getKey(), e.getValue());
+                    }
 
-                            return e.getValue();
-                        })
-                ).collect(Collectors.toList());
+                    return e.getValue();
+                }).collect(Collectors.toList());
 
         return mappingList.isEmpty() ? Stream.of(restField) : mappingList.stream();
     }
@@ -1264,32 +2534,6 @@ public class JPAUtils {
         return tupleGrouping;
     }
 
-    private static boolean isCollectionField(Field f) {
-        return Collection.class.isAssignableFrom(f.getType());
-    }
-
-    private static boolean isListField(Field f) {
-        return List.class.isAssignableFrom(f.getType());
-    }
-
-    private static boolean isSetField(Field f) {
-        return Set.class.isAssignableFrom(f.getType());
-    }
-
-    private static boolean isRestIgnored(final Class entityClass, final String restField) {
-        final RestIgnore restIgnore = (RestIgnore) entityClass.getAnnotation(RestIgnore.class);
-
-        if (restIgnore != null) {
-            return Stream.of(restIgnore.value()).anyMatch(restField::equalsIgnoreCase);
-        }
-
-        return false;
-    }
-
-    private static boolean isObjectField(Field f) {
-        return !f.getType().isPrimitive() && !f.getType().isAssignableFrom(String.class);
-    }
-
     private static boolean isAssignableToInstantHoldingTemporal(Class clazz) {
         return Instant.class.isAssignableFrom(clazz) ||
                 LocalDate.class.isAssignableFrom(clazz) ||
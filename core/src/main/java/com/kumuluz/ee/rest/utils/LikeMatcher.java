@@ -0,0 +1,121 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matches strings against a LIKE pattern, where {@code %} matches any sequence of characters and {@code ?} matches a
+ * single character. Patterns that only have wildcards at their ends are matched as a literal prefix, suffix or
+ * substring; other patterns are compiled to a regular expression once.
+ */
+final class LikeMatcher {
+
+    private static final String REGEX_CHARACTERS = "\\^$|?*+()[]{}";
+
+    private enum Kind {
+        EQUALS, PREFIX, SUFFIX, CONTAINS, ANY, PATTERN
+    }
+
+    private final Kind kind;
+    private final String literal;
+    private final Pattern pattern;
+    private final boolean ignoreCase;
+
+    private LikeMatcher(Kind kind, String literal, Pattern pattern, boolean ignoreCase) {
+        this.kind = kind;
+        this.literal = literal;
+        this.pattern = pattern;
+        this.ignoreCase = ignoreCase;
+    }
+
+    static LikeMatcher compile(String like, boolean ignoreCase) {
+
+        int start = 0;
+        int end = like.length();
+
+        while (start < end && like.charAt(start) == '%') start++;
+        while (end > start && like.charAt(end - 1) == '%') end--;
+
+        boolean leading = start > 0;
+        boolean trailing = end < like.length();
+
+        String inner = like.substring(start, end);
+
+        if (inner.indexOf('%') >= 0 || inner.chars().anyMatch(c -> REGEX_CHARACTERS.indexOf(c) >= 0)) {
+
+            String expr = like.replace(".", "\\.").replace("?", ".").replace("%", ".*");
+
+            int flags = Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+
+            return new LikeMatcher(Kind.PATTERN, null, Pattern.compile(expr, flags), ignoreCase);
+        }
+
+        Kind kind;
+
+        if (inner.isEmpty() && (leading || trailing)) {
+            kind = Kind.ANY;
+        } else if (leading && trailing) {
+            kind = Kind.CONTAINS;
+        } else if (leading) {
+            kind = Kind.SUFFIX;
+        } else if (trailing) {
+            kind = Kind.PREFIX;
+        } else {
+            kind = Kind.EQUALS;
+        }
+
+        return new LikeMatcher(kind, inner, null, ignoreCase);
+    }
+
+    boolean matches(String value) {
+
+        switch (kind) {
+            case ANY:
+                return true;
+            case EQUALS:
+                return value.length() == literal.length() && value.regionMatches(ignoreCase, 0, literal, 0, literal.length());
+            case PREFIX:
+                return value.regionMatches(ignoreCase, 0, literal, 0, literal.length());
+            case SUFFIX:
+                return value.regionMatches(ignoreCase, value.length() - literal.length(), literal, 0, literal.length());
+            case CONTAINS:
+                return contains(value);
+            default:
+                return pattern.matcher(value).matches();
+        }
+    }
+
+    private boolean contains(String value) {
+
+        if (!ignoreCase) {
+            return value.contains(literal);
+        }
+
+        for (int i = 0, last = value.length() - literal.length(); i <= last; i++) {
+            if (value.regionMatches(true, i, literal, 0, literal.length())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
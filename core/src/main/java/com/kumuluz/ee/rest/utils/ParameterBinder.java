@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import jakarta.persistence.Parameter;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.ParameterExpression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the filter values of a criteria query as parameter expressions instead of inlined literals. Every
+ * binding remembers the index of the filter leaf it was created for and how its value is derived from that leaf,
+ * so the same bindings can later be applied to a query built for a different set of filter values.
+ */
+class ParameterBinder {
+
+    private static final String PARAMETER_PREFIX = "kee_p";
+
+    private final List<Binding> bindings = new ArrayList<>();
+
+    private int leafIndex = -1;
+
+    /**
+     * Marks the start of the next filter leaf in the traversal order of the filter expression.
+     */
+    void nextLeaf() {
+        leafIndex++;
+    }
+
+    @SuppressWarnings("unchecked")
+    <V> ParameterExpression<V> parameter(CriteriaBuilder cb, QueryFilter filter, Function<QueryFilter, V> value) {
+
+        V currentValue = value.apply(filter);
+
+        Class<V> type = (Class<V>) parameterType(currentValue);
+
+        ParameterExpression<V> parameter = cb.parameter(type, PARAMETER_PREFIX + bindings.size());
+
+        bindings.add(new Binding((ParameterExpression<Object>) parameter, leafIndex, (Function<QueryFilter, Object>) value,
+                currentValue));
+
+        return parameter;
+    }
+
+    List<Binding> getBindings() {
+        return Collections.unmodifiableList(bindings);
+    }
+
+    /**
+     * Binds the values captured while the query was built. Parameters that did not end up in the query (e.g. when a
+     * custom filter replaced the filter predicate) are skipped.
+     */
+    void bind(Query query) {
+
+        Set<String> names = query.getParameters().stream()
+                .map(Parameter::getName)
+                .collect(Collectors.toSet());
+
+        bindings.stream()
+                .filter(b -> names.contains(b.parameter.getName()))
+                .forEach(b -> query.setParameter(b.parameter, b.currentValue));
+    }
+
+    private static Class<?> parameterType(Object value) {
+
+        if (value == null) {
+            return Object.class;
+        }
+
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).getDeclaringClass();
+        }
+
+        return value.getClass();
+    }
+
+    static class Binding {
+
+        private final ParameterExpression<Object> parameter;
+        private final int leafIndex;
+        private final Function<QueryFilter, Object> value;
+        private final Object currentValue;
+
+        private Binding(ParameterExpression<Object> parameter, int leafIndex, Function<QueryFilter, Object> value,
+                        Object currentValue) {
+            this.parameter = parameter;
+            this.leafIndex = leafIndex;
+            this.value = value;
+            this.currentValue = currentValue;
+        }
+
+        /**
+         * Derives the value for this binding from the filter leaves of another query with the same shape.
+         */
+        void bind(Query query, List<QueryFilter> leaves) {
+            query.setParameter(parameter, value.apply(leaves.get(leafIndex)));
+        }
+    }
+}
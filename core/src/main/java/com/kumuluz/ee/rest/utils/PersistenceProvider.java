@@ -0,0 +1,86 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Persistence provider behind an entity manager, used to pass only the query hints the provider understands.
+ * The provider is detected once per {@link EntityManagerFactory} from the class names of the factory and, for
+ * wrapped factories, of the entity manager delegate.
+ */
+enum PersistenceProvider {
+
+    HIBERNATE,
+    ECLIPSELINK,
+    UNKNOWN;
+
+    private static final Map<EntityManagerFactory, PersistenceProvider> PROVIDERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    static PersistenceProvider of(EntityManager em) {
+        return PROVIDERS.computeIfAbsent(em.getEntityManagerFactory(), emf -> {
+
+            PersistenceProvider provider = of(emf.getClass());
+
+            if (provider == UNKNOWN) {
+                Object delegate = em.getDelegate();
+                provider = delegate == null ? UNKNOWN : of(delegate.getClass());
+            }
+
+            return provider;
+        });
+    }
+
+    private static PersistenceProvider of(Class<?> type) {
+
+        String name = type.getName();
+
+        if (name.startsWith("org.hibernate.")) {
+            return HIBERNATE;
+        }
+
+        if (name.startsWith("org.eclipse.persistence.")) {
+            return ECLIPSELINK;
+        }
+
+        return UNKNOWN;
+    }
+
+    /**
+     * Returns {@code true} if the hints of Hibernate should be set, which unknown providers get as well.
+     */
+    boolean acceptsHibernateHints() {
+        return this != ECLIPSELINK;
+    }
+
+    /**
+     * Returns {@code true} if the hints of EclipseLink should be set, which unknown providers get as well.
+     */
+    boolean acceptsEclipseLinkHints() {
+        return this != HIBERNATE;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.interfaces.CountEstimator;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Table;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Estimates the number of entities from the {@code reltuples} statistics of the PostgreSQL planner. The estimate is
+ * only as recent as the last {@code ANALYZE} of the table.
+ */
+public class PostgresCountEstimator implements CountEstimator {
+
+    private static final Logger LOG = Logger.getLogger(PostgresCountEstimator.class.getName());
+
+    @Override
+    public Long estimate(EntityManager em, Class<?> entity) {
+
+        String table = getTableName(entity);
+
+        List<?> result = em.createNativeQuery("SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = to_regclass(?1)")
+                .setParameter(1, table)
+                .getResultList();
+
+        if (result.isEmpty() || result.get(0) == null) {
+
+            LOG.finest("No statistics found for table: " + table);
+
+            return null;
+        }
+
+        long estimate = ((Number) result.get(0)).longValue();
+
+        // The table has never been analyzed
+        if (estimate < 0) return null;
+
+        return estimate;
+    }
+
+    /**
+     * Returns the name of the table of the entity from its {@link Table} annotation, or else from the name of the
+     * {@link Entity}, lower cased as unquoted identifiers are by PostgreSQL. Entities mapped with a custom physical
+     * naming strategy need an estimator which overrides this method.
+     */
+    protected String getTableName(Class<?> entity) {
+
+        Table table = entity.getAnnotation(Table.class);
+
+        String name = table == null ? "" : table.name();
+
+        if (name.isEmpty()) {
+
+            Entity entityAnnotation = entity.getAnnotation(Entity.class);
+
+            name = entityAnnotation == null || entityAnnotation.name().isEmpty()
+                    ? entity.getSimpleName()
+                    : entityAnnotation.name();
+
+            name = name.toLowerCase(Locale.ROOT);
+        }
+
+        if (table != null && !table.schema().isEmpty()) {
+            name = table.schema() + "." + name;
+        }
+
+        return name;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaQuery;
+
+import java.util.List;
+
+/**
+ * A compiled criteria query together with the parameter bindings needed to execute it for any query parameters
+ * of the same shape.
+ */
+class QueryPlan {
+
+    private final CriteriaQuery<?> criteriaQuery;
+    private final List<ParameterBinder.Binding> bindings;
+
+    QueryPlan(CriteriaQuery<?> criteriaQuery, List<ParameterBinder.Binding> bindings) {
+        this.criteriaQuery = criteriaQuery;
+        this.bindings = bindings;
+    }
+
+    @SuppressWarnings("unchecked")
+    <R> CriteriaQuery<R> getCriteriaQuery() {
+        return (CriteriaQuery<R>) criteriaQuery;
+    }
+
+    void bind(Query query, List<QueryFilter> leaves) {
+        bindings.forEach(b -> b.bind(query, leaves));
+    }
+}
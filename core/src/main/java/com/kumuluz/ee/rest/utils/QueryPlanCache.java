@@ -0,0 +1,180 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.beans.QueryCursor;
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.beans.QueryOrder;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of compiled query plans used by {@link JPAUtils}. Query parameters are normalized into a shape key (entity,
+ * selected fields, order and the structure and operators of the filter expression) while the filter values are
+ * turned into bind parameters, so every request with the same shape reuses one criteria query and only binds its
+ * values.
+ * <p>
+ * Plans are kept per {@link EntityManagerFactory} and the least recently used plans are evicted once the
+ * configured size is reached. Queries with a custom {@link com.kumuluz.ee.rest.interfaces.CriteriaFilter} are never
+ * cached, since their predicates can not be part of the shape key.
+ */
+public class QueryPlanCache {
+
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    private final int maxSize;
+
+    private final Map<EntityManagerFactory, Map<String, QueryPlan>> plans = new WeakHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public QueryPlanCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public QueryPlanCache(int maxSize) {
+
+        if (maxSize < 1)
+            throw new IllegalArgumentException("The maximum size of the query plan cache must be a positive number");
+
+        this.maxSize = maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public synchronized int size() {
+        return plans.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public synchronized void clear() {
+        plans.clear();
+    }
+
+    synchronized QueryPlan get(EntityManagerFactory emf, String key) {
+
+        Map<String, QueryPlan> emfPlans = plans.get(emf);
+        QueryPlan plan = emfPlans == null ? null : emfPlans.get(key);
+
+        if (plan == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+
+        return plan;
+    }
+
+    synchronized void put(EntityManagerFactory emf, String key, QueryPlan plan) {
+
+        plans.computeIfAbsent(emf, e -> new LinkedHashMap<String, QueryPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryPlan> eldest) {
+                return size() > maxSize;
+            }
+        }).put(key, plan);
+    }
+
+    /**
+     * Builds the shape key of a query. Two query parameters produce the same key exactly when the criteria queries
+     * built from them differ only in the values of the filters and of the cursor.
+     */
+    static String key(String kind, Class<?> entity, QueryParameters q, QueryFilterExpression filterExpression,
+                      QueryCursor cursor, String rootAlias, boolean forceDistinct) {
+
+        StringBuilder key = new StringBuilder(128)
+                .append(kind).append('|')
+                .append(entity.getName()).append('|')
+                .append(forceDistinct ? 'd' : '-');
+
+        appendString(key, rootAlias);
+
+        key.append("|f");
+        q.getFields().forEach(f -> appendString(key, f));
+
+        key.append("|o");
+        for (QueryOrder o : q.getOrder()) {
+            appendString(key, o.getField());
+            key.append(o.getOrder());
+        }
+
+        key.append("|w");
+        appendExpression(key, filterExpression);
+
+        if (cursor != null) {
+            key.append("|c");
+            for (int i = 0; i < cursor.getFields().size(); i++) {
+                appendString(key, cursor.getFields().get(i));
+                key.append(cursor.getValues().get(i) != null ? 'x' : '0');
+            }
+        }
+
+        return key.toString();
+    }
+
+    private static void appendExpression(StringBuilder key, QueryFilterExpression expression) {
+
+        if (expression == null) {
+            key.append('N');
+        } else if (expression.isLeaf()) {
+            QueryFilter f = expression.value();
+
+            key.append('L');
+            appendString(key, f.getField());
+            key.append(f.getOperation())
+                    .append(f.getDateValue() != null ? 'd' : '-')
+                    .append(f.getValue() != null ? 'v' : '-')
+                    .append('[');
+
+            f.getValues().forEach(v -> key.append(v != null ? 'x' : '0'));
+
+            key.append(']');
+        } else if (expression.isEmptyLeaf()) {
+            key.append('E');
+        } else {
+            key.append('(').append(expression.operation());
+            appendExpression(key, expression.left());
+            appendExpression(key, expression.right());
+            key.append(')');
+        }
+    }
+
+    private static void appendString(StringBuilder key, String value) {
+
+        if (value == null) {
+            key.append('~');
+        } else {
+            key.append(value.length()).append(':').append(value);
+        }
+    }
+}
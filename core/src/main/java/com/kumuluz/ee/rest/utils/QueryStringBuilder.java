@@ -20,11 +20,14 @@
  */
 package com.kumuluz.ee.rest.utils;
 
+import com.kumuluz.ee.rest.beans.QueryCursor;
 import com.kumuluz.ee.rest.beans.QueryFilter;
 import com.kumuluz.ee.rest.beans.QueryFilterExpression;
 import com.kumuluz.ee.rest.beans.QueryOrder;
 import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.CountMode;
 import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.FilterParserStrategy;
 import com.kumuluz.ee.rest.enums.OrderDirection;
 import com.kumuluz.ee.rest.enums.OrderNulls;
 import com.kumuluz.ee.rest.enums.QueryFormatError;
@@ -38,6 +41,7 @@ import java.net.URI;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -52,6 +56,7 @@ public class QueryStringBuilder {
     private static final Logger log = Logger.getLogger(QueryStringBuilder.class.getSimpleName());
 
     public static final String COUNT_DELIMITER = "count";
+    public static final String COUNT_APPROXIMATE = "approx";
 
     public static final String LIMIT_DELIMITER = "limit";
     public static final String LIMIT_DELIMITER_ALT = "max";
@@ -59,6 +64,8 @@ public class QueryStringBuilder {
     public static final String OFFSET_DELIMITER = "offset";
     public static final String OFFSET_DELIMITER_ALT = "skip";
 
+    public static final String AFTER_DELIMITER = "after";
+
     public static final String ORDER_DELIMITER = "order";
     public static final String ORDER_DELIMITER_ALT = "sort";
 
@@ -75,10 +82,13 @@ public class QueryStringBuilder {
     private Boolean orderEnabled = true;
     private Boolean fieldsEnabled = true;
 
+    private Boolean defaultCount;
     private Long maxLimit;
     private Long defaultLimit;
     private Long defaultOffset;
     private List<QueryFilter> defaultFilters;
+    private FilterParserStrategy filterParserStrategy = FilterParserStrategy.RECURSIVE_DESCENT;
+    private QueryStringCache queryStringCache;
 
     public QueryStringBuilder uri(URI uri) {
 
@@ -175,6 +185,34 @@ public class QueryStringBuilder {
         return this;
     }
 
+    /**
+     * Sets whether the total count is queried when the query string does not contain the count parameter.
+     */
+    public QueryStringBuilder defaultCount(Boolean count) {
+
+        log.finest("Setting default count: " + count);
+
+        if (count == null) throw new IllegalArgumentException("The passed count cannot be null");
+
+        defaultCount = count;
+
+        return this;
+    }
+
+    /**
+     * Sets the parser of filter expressions. Defaults to {@link FilterParserStrategy#RECURSIVE_DESCENT}.
+     */
+    public QueryStringBuilder filterParser(FilterParserStrategy strategy) {
+
+        log.finest("Setting filter parser: " + strategy);
+
+        if (strategy == null) throw new IllegalArgumentException("The passed filter parser cannot be null");
+
+        filterParserStrategy = strategy;
+
+        return this;
+    }
+
     public QueryStringBuilder maxLimit(int limit) {
 
         return maxLimit((long) limit);
@@ -241,12 +279,56 @@ public class QueryStringBuilder {
         return this;
     }
 
+    /**
+     * Sets the cache of parsed query parameters. Query strings which were already built with the same configuration
+     * are then copied from the cache instead of parsed again.
+     */
+    public QueryStringBuilder queryStringCache(QueryStringCache cache) {
+
+        log.finest("Setting query string cache");
+
+        queryStringCache = cache;
+
+        return this;
+    }
+
     public QueryParameters build() {
 
         log.finest("Building query string: " + query);
 
+        if (queryStringCache == null || query == null || query.isEmpty()) {
+            return parse();
+        }
+
+        String key = cacheKey();
+
+        QueryParameters cached = queryStringCache.get(key);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        QueryParameters params;
+
+        try {
+            params = parse();
+        } catch (QueryFormatException e) {
+
+            queryStringCache.putFailure(key, e);
+
+            throw e;
+        }
+
+        queryStringCache.put(key, params);
+
+        return params;
+    }
+
+    private QueryParameters parse() {
+
         QueryParameters params = new QueryParameters();
 
+        if (defaultCount != null) params.setCount(defaultCount);
         if (paginationEnabled && defaultLimit != null) params.setLimit(defaultLimit);
         if (paginationEnabled && defaultOffset != null) params.setOffset(defaultOffset);
 
@@ -257,7 +339,7 @@ public class QueryStringBuilder {
             return params;
         }
 
-        for (String pair : query.split("&+(?=([^']*'[^']*')*[^']*$)")) {
+        for (String pair : splitPairs(query)) {
 
             int idxOfPair = pair.indexOf("=");
 
@@ -278,6 +360,120 @@ public class QueryStringBuilder {
         return params;
     }
 
+    /**
+     * Splits the query into its pairs in a single pass. Runs of '&' separate the pairs unless they are inside quotes,
+     * which is the case when an odd number of quotes follows them. Empty pairs at the end are dropped.
+     */
+    private static List<String> splitPairs(String query) {
+
+        int quotes = 0;
+
+        for (int i = 0; i < query.length(); i++) {
+            if (query.charAt(i) == '\'') quotes++;
+        }
+
+        List<String> pairs = new ArrayList<>();
+
+        int start = 0;
+        int i = 0;
+
+        while (i < query.length()) {
+
+            char c = query.charAt(i);
+
+            if (c == '\'') {
+                quotes--;
+            }
+
+            if (c != '&' || quotes % 2 != 0) {
+                i++;
+                continue;
+            }
+
+            int end = i;
+
+            while (i < query.length() && query.charAt(i) == '&') {
+                i++;
+            }
+
+            pairs.add(query.substring(start, end));
+
+            start = i;
+        }
+
+        pairs.add(query.substring(start));
+
+        while (!pairs.isEmpty() && pairs.get(pairs.size() - 1).isEmpty()) {
+            pairs.remove(pairs.size() - 1);
+        }
+
+        return pairs;
+    }
+
+    /**
+     * Splits an order on each whitespace or '+' character, the same as {@link String#split(String)}, so empty parts
+     * in the middle are kept and empty parts at the end are dropped.
+     */
+    private static String[] splitOrder(String value) {
+
+        List<String> parts = new ArrayList<>(3);
+
+        int start = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c == '+' || c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                parts.add(value.substring(start, i));
+                start = i + 1;
+            }
+        }
+
+        parts.add(value.substring(start));
+
+        int size = parts.size();
+
+        while (size > 0 && parts.get(size - 1).isEmpty()) {
+            size--;
+        }
+
+        return parts.subList(0, size).toArray(new String[0]);
+    }
+
+    /**
+     * Returns whether the filter ends with an operator without a value, e.g. "field:like:". Line terminators are not
+     * allowed before the last colon.
+     */
+    private static boolean endsWithEmptyValue(String value) {
+
+        int colon = value.lastIndexOf(':');
+
+        if (colon == -1) {
+            return false;
+        }
+
+        for (int i = colon + 1; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r') {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < colon; i++) {
+
+            char c = value.charAt(i);
+
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private void buildPair(QueryParameters params, String key, String value) {
 
         log.finest("Building query string pair: " + key + " " + value);
@@ -301,7 +497,15 @@ public class QueryStringBuilder {
         switch (key) {
 
             case COUNT_DELIMITER:
-                params.setCount(buildCount(key, value));
+
+                if (value.equalsIgnoreCase(COUNT_APPROXIMATE)) {
+                    params.setCount(true);
+                    params.setCountMode(CountMode.APPROXIMATE);
+                } else {
+                    params.setCount(buildCount(key, value));
+                    params.setCountMode(CountMode.EXACT);
+                }
+
                 break;
 
             case LIMIT_DELIMITER:
@@ -322,6 +526,14 @@ public class QueryStringBuilder {
 
                 break;
 
+            case AFTER_DELIMITER:
+
+                if (paginationEnabled) {
+                    params.setCursor(buildCursor(key, value));
+                }
+
+                break;
+
             case ORDER_DELIMITER:
             case ORDER_DELIMITER_ALT:
 
@@ -439,6 +651,23 @@ public class QueryStringBuilder {
         return limit;
     }
 
+    private QueryCursor buildCursor(String key, String value) {
+
+        log.finest("Building cursor string: " + value);
+
+        try {
+
+            return QueryCursor.decode(value);
+        } catch (IllegalArgumentException e) {
+
+            String msg = "Value for '" + key + "' is not a valid cursor: '" + value + "'";
+
+            log.finest(msg);
+
+            throw new QueryFormatException(msg, key, QueryFormatError.MALFORMED);
+        }
+    }
+
     private QueryOrder buildOrder(String key, String value) {
 
         log.finest("Building order string: " + value);
@@ -447,7 +676,7 @@ public class QueryStringBuilder {
 
         QueryOrder o = new QueryOrder();
 
-        String[] pair = value.split("(\\s|\\+)");
+        String[] pair = splitOrder(value);
 
         if (pair[0].isEmpty()) {
 
@@ -498,10 +727,19 @@ public class QueryStringBuilder {
         log.finest("Building filter string: " + value);
 
         // Skip filters with empty values (e.g., "field:like:" with no value after operator)
-        if (value == null || value.isEmpty() || value.matches(".*:\\s*$")) {
+        if (value == null || value.isEmpty() || endsWithEmptyValue(value)) {
             return null;
         }
 
+        if (filterParserStrategy == FilterParserStrategy.RECURSIVE_DESCENT) {
+
+            QueryFilterExpression filterExpression = FilterExpressionParser.parse(key, value);
+
+            if (filterExpression != null) {
+                return filterExpression;
+            }
+        }
+
         QueryFilterExpressionParser parser = Parboiled.createParser(QueryFilterExpressionParser.class, key);
 
         QueryFilterExpression filterExpression;
@@ -545,13 +783,44 @@ public class QueryStringBuilder {
             if (modifiedFilterExpression == null) {
                 modifiedFilterExpression = additionalFilterExpression;
             } else {
-                modifiedFilterExpression = new QueryFilterExpression(FilterExpressionOperation.AND, filterExpression, additionalFilterExpression);
+                modifiedFilterExpression = new QueryFilterExpression(FilterExpressionOperation.AND, modifiedFilterExpression, additionalFilterExpression);
             }
         }
 
         params.setFilterExpression(modifiedFilterExpression);
     }
 
+    /**
+     * Builds the cache key from the configuration of the builder and the query string, which comes last.
+     */
+    private String cacheKey() {
+
+        StringBuilder key = new StringBuilder()
+                .append(paginationEnabled ? 'p' : '-')
+                .append(filtersEnabled ? 'f' : '-')
+                .append(orderEnabled ? 'o' : '-')
+                .append(fieldsEnabled ? 's' : '-')
+                .append('|').append(defaultCount)
+                .append('|').append(maxLimit)
+                .append('|').append(defaultLimit)
+                .append('|').append(defaultOffset)
+                .append('|').append(filterParserStrategy);
+
+        if (defaultFilters != null) {
+
+            for (QueryFilter f : defaultFilters) {
+
+                key.append('|').append(f.getField())
+                        .append(' ').append(f.getOperation())
+                        .append(' ').append(f.getValue())
+                        .append(' ').append(f.getValues())
+                        .append(' ').append(f.getDateValue() == null ? null : f.getDateValue().getTime());
+            }
+        }
+
+        return key.append('\n').append(query).toString();
+    }
+
     private String decodeUrl(String url) {
 
         if (url == null) return null;
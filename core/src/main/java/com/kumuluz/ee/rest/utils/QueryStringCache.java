@@ -0,0 +1,172 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.beans.ImmutableQueryParameters;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.exceptions.QueryFormatException;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of query parameters parsed by {@link QueryStringBuilder}, keyed by the raw query string and the configuration
+ * of the builder. Every lookup returns a copy of the cached parameters, so callers can modify them freely. Query strings
+ * which fail to parse are cached as well, and the same {@link QueryFormatException} is thrown again for them without
+ * parsing.
+ * <p>
+ * Lookups don't lock the cache. Once the configured size is reached, entries are evicted with the clock algorithm: an
+ * entry which was hit since the clock last passed it is kept for another round, the others are evicted, so recently
+ * used query strings are kept like in a least recently used cache. A single cache can be shared by all builders, e.g.
+ * through {@link QueryStringDefaults}.
+ */
+public class QueryStringCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Object clockLock = new Object();
+    private Iterator<Map.Entry<String, Entry>> clockHand;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public QueryStringCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public QueryStringCache(int maxSize) {
+
+        if (maxSize < 1)
+            throw new IllegalArgumentException("The maximum size of the query string cache must be a positive number");
+
+        this.maxSize = maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns a copy of the cached parameters, or {@code null} when the key is not cached.
+     *
+     * @throws QueryFormatException when the query string of the key failed to parse
+     */
+    QueryParameters get(String key) {
+
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+
+        if (entry.value instanceof QueryFormatException) {
+            QueryFormatException e = (QueryFormatException) entry.value;
+            throw new QueryFormatException(e.getMessage(), e.getField(), e.getSource(), e.getReason());
+        }
+
+        return ((ImmutableQueryParameters) entry.value).toQueryParameters();
+    }
+
+    void put(String key, QueryParameters params) {
+        putEntry(key, ImmutableQueryParameters.of(params));
+    }
+
+    void putFailure(String key, QueryFormatException e) {
+        putEntry(key, e);
+    }
+
+    private void putEntry(String key, Object value) {
+
+        entries.put(key, new Entry(value));
+
+        if (entries.size() > maxSize) {
+            evict(key);
+        }
+    }
+
+    /**
+     * Advances the clock over the entries until the cache fits its size, sparing the entry which was just added.
+     */
+    private void evict(String addedKey) {
+
+        synchronized (clockLock) {
+
+            while (entries.size() > maxSize) {
+
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = entries.entrySet().iterator();
+
+                    if (!clockHand.hasNext()) {
+                        return;
+                    }
+                }
+
+                Map.Entry<String, Entry> next = clockHand.next();
+
+                if (next.getKey().equals(addedKey)) {
+                    continue;
+                }
+
+                if (next.getValue().referenced) {
+                    next.getValue().referenced = false;
+                } else {
+                    entries.remove(next.getKey(), next.getValue());
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final Object value;
+
+        private volatile boolean referenced;
+
+        private Entry(Object value) {
+            this.value = value;
+        }
+    }
+}
@@ -21,6 +21,7 @@
 package com.kumuluz.ee.rest.utils;
 
 import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.enums.FilterParserStrategy;
 
 import java.util.List;
 
@@ -34,10 +35,13 @@ public class QueryStringDefaults {
     private Boolean orderEnabled = true;
     private Boolean fieldsEnabled = true;
 
+    private Boolean defaultCount = true;
     private Long maxLimit = 100L;
     private Long defaultLimit = 10L;
     private Long defaultOffset = 0L;
     private List<QueryFilter> defaultFilters = null;
+    private FilterParserStrategy filterParserStrategy = FilterParserStrategy.RECURSIVE_DESCENT;
+    private QueryStringCache queryStringCache = null;
 
     public QueryStringDefaults enablePagination(Boolean enable) {
 
@@ -67,6 +71,15 @@ public class QueryStringDefaults {
         return this;
     }
 
+    public QueryStringDefaults defaultCount(Boolean count) {
+
+        if (count == null) throw new IllegalArgumentException("The passed count cannot be null");
+
+        defaultCount = count;
+
+        return this;
+    }
+
     public QueryStringDefaults maxLimit(int limit) {
 
         return maxLimit((long) limit);
@@ -110,12 +123,31 @@ public class QueryStringDefaults {
         return this;
     }
 
+    public QueryStringDefaults filterParser(FilterParserStrategy strategy) {
+
+        if (strategy == null) throw new IllegalArgumentException("The passed filter parser cannot be null");
+
+        filterParserStrategy = strategy;
+
+        return this;
+    }
+
+    public QueryStringDefaults queryStringCache(QueryStringCache cache) {
+
+        queryStringCache = cache;
+
+        return this;
+    }
+
     public QueryStringBuilder builder() {
         return new QueryStringBuilder()
+                .defaultCount(defaultCount)
                 .maxLimit(maxLimit)
                 .defaultLimit(defaultLimit)
                 .defaultOffset(defaultOffset)
                 .defaultFilters(defaultFilters)
+                .filterParser(filterParserStrategy)
+                .queryStringCache(queryStringCache)
                 .enablePagination(paginationEnabled)
                 .enableFilters(filtersEnabled)
                 .enableOrder(orderEnabled)
@@ -0,0 +1,82 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Execution options for queries of in-memory collections with {@link StreamUtils}.
+ */
+public class StreamQueryOptions {
+
+    private boolean parallel;
+
+    private int parallelThreshold = 10_000;
+
+    private ForkJoinPool forkJoinPool;
+
+    /**
+     * Filters and sorts collections with at least {@link #parallelThreshold(int)} elements in parallel. The result is
+     * the same as with sequential execution. Disabled by default.
+     */
+    public StreamQueryOptions parallel(boolean parallel) {
+
+        this.parallel = parallel;
+
+        return this;
+    }
+
+    /**
+     * Sets the smallest collection size queried in parallel, as smaller collections are faster to query on a single
+     * thread. Defaults to 10000.
+     */
+    public StreamQueryOptions parallelThreshold(int parallelThreshold) {
+
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("The parallel threshold cannot be negative");
+
+        this.parallelThreshold = parallelThreshold;
+
+        return this;
+    }
+
+    /**
+     * Sets the pool which runs parallel queries. The common pool is used when set to {@code null}.
+     */
+    public StreamQueryOptions forkJoinPool(ForkJoinPool forkJoinPool) {
+
+        this.forkJoinPool = forkJoinPool;
+
+        return this;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+}
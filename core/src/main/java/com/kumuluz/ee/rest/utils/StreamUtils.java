@@ -21,13 +21,17 @@
 package com.kumuluz.ee.rest.utils;
 
 import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.beans.QueryOrder;
 import com.kumuluz.ee.rest.beans.QueryParameters;
 import com.kumuluz.ee.rest.beans.StreamCriteriaField;
 import com.kumuluz.ee.rest.beans.StreamCriteriaWhereQuery;
+import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
 import com.kumuluz.ee.rest.enums.FilterOperation;
 import com.kumuluz.ee.rest.enums.OrderDirection;
 import com.kumuluz.ee.rest.enums.OrderNulls;
 import com.kumuluz.ee.rest.exceptions.InvalidEntityFieldException;
+import com.kumuluz.ee.rest.exceptions.InvalidFieldValueException;
 import com.kumuluz.ee.rest.exceptions.NoSuchEntityFieldException;
 import com.kumuluz.ee.rest.interfaces.CriteriaFilter;
 
@@ -35,8 +39,14 @@ import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -52,6 +62,8 @@ public class StreamUtils {
 
     private static final Logger log = Logger.getLogger(StreamUtils.class.getSimpleName());
 
+    private static final String ID_FIELD = "id";
+
     public static <T> Stream<T> queryEntities(Stream<T> stream, Class<T> entity, QueryParameters q) {
 
         return queryEntities(stream, entity, q, null);
@@ -81,6 +93,27 @@ public class StreamUtils {
         return queryEntities(collection.stream(), entity, q, customFilter).collect(Collectors.toList());
     }
 
+    /**
+     * Queries the collection with the given execution options. Large collections are queried in parallel when
+     * enabled by the options, with the same result as a sequential query.
+     */
+    public static <T> List<T> queryEntities(Collection<T> collection, QueryParameters q, CriteriaFilter<T> customFilter,
+                                            StreamQueryOptions options) {
+
+        if (!isParallel(collection, options)) {
+            return queryEntities(collection, q, customFilter);
+        }
+
+        if (q == null)
+            throw new IllegalArgumentException("Query parameters can't be null. " +
+                    "If you don't have any parameters either pass a empty object or " +
+                    "use the queryEntities(Class<T>) method.");
+
+        Class<T> entity = (Class<T>) collection.iterator().next().getClass();
+
+        return queryEntitiesParallel(collection, entity, q, options.getForkJoinPool());
+    }
+
     @SuppressWarnings("unchecked")
     public static <T> Stream<T> queryEntities(Stream<T> stream, Class<T> entity, QueryParameters q, CriteriaFilter<T> customFilter) {
 
@@ -99,7 +132,7 @@ public class StreamUtils {
 
         Predicate wherePredicate = null;
 
-        if (!q.getFilters().isEmpty()) {
+        if (q.getFilterExpression() != null || !q.getFilters().isEmpty()) {
 
             StreamCriteriaWhereQuery criteriaWhereQuery = createWhereQueryInternal(entity, q);
 
@@ -110,12 +143,27 @@ public class StreamUtils {
             stream = stream.filter(wherePredicate);
         }
 
-        if (!q.getOrder().isEmpty()) {
+        if (q.getCursor() != null) {
+            stream = stream.filter(createSeekPredicate(entity, q));
+        }
+
+        if (!q.getOrder().isEmpty() || q.getCursor() != null) {
 
-            Comparator comparator = createOrderQuery(entity, q, null);
+            // sort by id as well, so pages are consistent with the cursors
+            Comparator comparator = createOrderQuery(entity, q, hasIdField(entity) ? ID_FIELD : null);
 
             if (comparator != null) {
-                stream = stream.sorted(comparator);
+
+                long topK = q.getLimit() != null && q.getLimit() > -1
+                        ? q.getLimit() + (q.getOffset() != null && q.getOffset() > -1 ? q.getOffset() : 0)
+                        : -1;
+
+                // only the first offset + limit entities are sorted when the page is bounded
+                if (topK > -1 && topK < Integer.MAX_VALUE) {
+                    stream = TopKSelector.select(stream, comparator, (int) topK);
+                } else {
+                    stream = stream.sorted(comparator);
+                }
             }
         }
 
@@ -158,6 +206,26 @@ public class StreamUtils {
         return queryEntitiesCount(collection.parallelStream(), entity, q, customFilter);
     }
 
+    /**
+     * Counts the matching entities of the collection with the given execution options. Large collections are counted
+     * in parallel when enabled by the options.
+     */
+    public static <T> Long queryEntitiesCount(Collection<T> collection, QueryParameters q, CriteriaFilter<T> customFilter,
+                                              StreamQueryOptions options) {
+        if (null == collection || collection.isEmpty()) {
+            return 0L;
+        }
+
+        Class<T> entity = (Class<T>) collection.iterator().next().getClass();
+
+        if (!isParallel(collection, options)) {
+            return queryEntitiesCount(collection.stream(), entity, q, customFilter);
+        }
+
+        return execute(options.getForkJoinPool(),
+                () -> queryEntitiesCount(collection.parallelStream(), entity, q, customFilter));
+    }
+
     public static <T> Long queryEntitiesCount(Stream<T> stream, Class<T> entity, QueryParameters q,
                                               CriteriaFilter<T> customFilter) {
 
@@ -173,7 +241,7 @@ public class StreamUtils {
 
         Predicate wherePredicate = null;
 
-        if (!q.getFilters().isEmpty()) {
+        if (q.getFilterExpression() != null || !q.getFilters().isEmpty()) {
 
             StreamCriteriaWhereQuery criteriaWhereQuery = createWhereQueryInternal(entity, q);
 
@@ -187,6 +255,133 @@ public class StreamUtils {
         return stream.count();
     }
 
+    private static boolean isParallel(Collection<?> collection, StreamQueryOptions options) {
+        return options != null && options.isParallel() && collection != null
+                && collection.size() >= Math.max(1, options.getParallelThreshold());
+    }
+
+    /**
+     * Runs the task on the given pool, or on the current thread when the pool is not set, in which case parallel
+     * streams run on the common pool.
+     */
+    private static <R> R execute(ForkJoinPool pool, Supplier<R> task) {
+
+        if (pool == null || ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+            return task.get();
+        }
+
+        try {
+            return pool.submit(task::get).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the parallel query");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Creates the predicate accepting the entities matched by the filters and the cursor of the query, or
+     * {@code null} when all entities are accepted.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Predicate<T> createQueryPredicate(Class<T> entity, QueryParameters q) {
+
+        Predicate<T> predicate = null;
+
+        if (q.getFilterExpression() != null || !q.getFilters().isEmpty()) {
+            predicate = (Predicate<T>) createWhereQueryInternal(entity, q).getPredicate();
+        }
+
+        if (q.getCursor() != null) {
+            Predicate<T> seekPredicate = createSeekPredicate(entity, q);
+            predicate = predicate == null ? seekPredicate : predicate.and(seekPredicate);
+        }
+
+        return predicate;
+    }
+
+    /**
+     * Filters and sorts the collection in parallel. The predicates and the comparator are created on the calling
+     * thread, so invalid queries fail before any work is submitted. Both the filtered list and the sorted or selected
+     * entities keep the encounter order of equal elements, so the page is the same as with a sequential query.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> queryEntitiesParallel(Collection<T> collection, Class<T> entity, QueryParameters q,
+                                                     ForkJoinPool pool) {
+
+        if (log.isLoggable(Level.FINEST)) {
+            log.finest("Querying entity in parallel: '" + entity.getSimpleName() + "' with parameters: " + q);
+        }
+
+        Predicate<T> predicate = createQueryPredicate(entity, q);
+
+        Comparator<T> comparator = null;
+
+        if (!q.getOrder().isEmpty() || q.getCursor() != null) {
+            comparator = createOrderQuery(entity, q, hasIdField(entity) ? ID_FIELD : null);
+        }
+
+        Function<T, T> fieldsSelect = q.getFields().isEmpty() ? null : createFieldsSelect(entity, q);
+
+        long offset = q.getOffset() != null && q.getOffset() > -1 ? q.getOffset() : 0;
+        long limit = q.getLimit() != null && q.getLimit() > -1 ? q.getLimit() : -1;
+
+        Predicate<T> wherePredicate = predicate;
+        Comparator<T> orderComparator = comparator;
+
+        List<T> entities = execute(pool, () -> {
+
+            List<T> result = wherePredicate == null
+                    ? new ArrayList<>(collection)
+                    : collection.parallelStream().filter(wherePredicate).collect(Collectors.toList());
+
+            if (orderComparator != null) {
+
+                long topK = limit > -1 ? limit + offset : -1;
+
+                if (topK > -1 && topK < result.size()) {
+                    result = TopKSelector.selectParallel(result, orderComparator, (int) topK);
+                } else {
+                    T[] sorted = (T[]) result.toArray();
+                    Arrays.parallelSort(sorted, orderComparator);
+                    result = Arrays.asList(sorted);
+                }
+            }
+
+            return result;
+        });
+
+        int from = (int) Math.min(offset, entities.size());
+        int to = limit > -1 ? (int) Math.min(entities.size(), from + limit) : entities.size();
+
+        List<T> page = new ArrayList<>(entities.subList(from, to));
+
+        if (fieldsSelect != null) {
+            page.replaceAll(fieldsSelect::apply);
+        }
+
+        return page;
+    }
+
+    /**
+     * Creates the cursor pointing after the given entity, which can be passed as the {@code after} query parameter to
+     * retrieve the next page. The entity is expected to have an {@code id} field, which is used as the tiebreaker.
+     */
+    public static <T> String createCursor(Class<T> entity, QueryParameters q, T last) {
+
+        if (entity == null || q == null || last == null)
+            throw new IllegalArgumentException("The entity, the query parameters and the last entity cannot be null.");
+
+        return ClassUtils.createCursor(last, getCursorOrder(q, ID_FIELD)).encode();
+    }
+
     public static Comparator createOrderQuery(Class<?> clazz, QueryParameters q) {
         return createOrderQuery(clazz, q, null);
     }
@@ -291,204 +486,432 @@ public class StreamUtils {
 
     private static StreamCriteriaWhereQuery createWhereQueryInternal(Class<?> clazz, QueryParameters q) {
 
-        Predicate predicate = null;
-        Boolean containsToMany = false;
+        QueryFilterExpression filterExpression = FilterExpressionOptimizer.optimize(clazz, getFilterExpression(q));
 
-        for (QueryFilter f : q.getFilters()) {
+        if (filterExpression == null) {
+            return new StreamCriteriaWhereQuery(null, false);
+        }
 
-            Predicate np = null;
+        CompiledFilter compiledFilter = compileFilterExpression(clazz, filterExpression);
 
-            try {
-                StreamCriteriaField criteriaField = getStreamCriteriaField(clazz, f.getField());
+        return new StreamCriteriaWhereQuery(compiledFilter == null ? null : compiledFilter.predicate, false);
+    }
 
-                if (null == criteriaField) {
-                    continue;
-                }
+    /**
+     * Compiles the filter expression into a single predicate. The operands of AND and OR are evaluated from the
+     * cheapest to the most expensive one, so the evaluation usually short-circuits before the expensive operands.
+     * Ignored filters match all entities, the same as in {@link JPAUtils}. Returns {@code null} if the expression
+     * matches all entities.
+     */
+    private static CompiledFilter compileFilterExpression(Class<?> clazz, QueryFilterExpression filterExpression) {
 
-                String entityField = criteriaField.getPath();
+        if (filterExpression.isLeaf()) {
 
-                String[] fieldNames = entityField.split("\\.");
+            Predicate predicate = createFilterPredicate(clazz, filterExpression.value());
 
-                Field field = ClassUtils.fieldLookup(clazz, fieldNames[0]);
+            return predicate == null ? null : new CompiledFilter(predicate, filterCost(clazz, filterExpression.value()));
+        }
 
-                Class<?> clazzTarget = ClassUtils.fieldLookup(clazz, fieldNames[0]).getType();
-                field.setAccessible(true);
+        if (filterExpression.isEmptyLeaf()) {
+            return null;
+        }
 
-                if (fieldNames.length > 1) {
+        FilterExpressionOperation operation = filterExpression.operation();
 
-                    String newFieldName = entityField.substring(fieldNames[0].length() + 1);
-                    do {
+        List<QueryFilterExpression> operands = new ArrayList<>();
+        collectOperands(filterExpression, operation, operands);
 
-                        if (Collection.class.isAssignableFrom(clazzTarget)) {
-                            clazzTarget = getGenericType(field);
-                        }
+        List<CompiledFilter> compiledOperands = new ArrayList<>();
+
+        for (QueryFilterExpression operand : operands) {
+
+            CompiledFilter compiledOperand = compileFilterExpression(clazz, operand);
+
+            if (compiledOperand == null) {
+
+                // an operand that matches all entities decides the disjunction
+                if (operation == FilterExpressionOperation.OR) {
+                    return null;
+                }
 
-                        fieldNames = newFieldName.split("\\.");
+                continue;
+            }
+
+            compiledOperands.add(compiledOperand);
+        }
+
+        if (compiledOperands.isEmpty()) {
+            return null;
+        }
+
+        compiledOperands.sort(Comparator.comparingInt(c -> c.cost));
 
-                        field = ClassUtils.fieldLookup(clazzTarget, fieldNames[0]);
-                        field.setAccessible(true);
+        Predicate[] predicates = compiledOperands.stream().map(c -> c.predicate).toArray(Predicate[]::new);
+        int cost = compiledOperands.stream().mapToInt(c -> c.cost).sum();
 
-                        clazzTarget = field.getType();
+        if (predicates.length == 1) {
+            return new CompiledFilter(predicates[0], cost);
+        }
 
-                        if (fieldNames.length > 1)
-                            newFieldName = newFieldName.substring(fieldNames[0].length() + 1);
+        if (operation == FilterExpressionOperation.AND) {
+            return new CompiledFilter(instance -> {
+                for (Predicate predicate : predicates) {
+                    if (!predicate.test(instance)) {
+                        return false;
+                    }
+                }
+                return true;
+            }, cost);
+        }
 
-                    } while (newFieldName.contains("."));
+        return new CompiledFilter(instance -> {
+            for (Predicate predicate : predicates) {
+                if (predicate.test(instance)) {
+                    return true;
                 }
+            }
+            return false;
+        }, cost);
+    }
+
+    /**
+     * Flattens nested operations of the same kind, e.g. {@code (a AND b) AND c} into {@code a, b, c}.
+     */
+    private static void collectOperands(QueryFilterExpression expression, FilterExpressionOperation operation,
+                                        List<QueryFilterExpression> operands) {
+
+        if (!expression.isLeaf() && !expression.isEmptyLeaf() && expression.operation() == operation) {
+            collectOperands(expression.left(), operation, operands);
+            collectOperands(expression.right(), operation, operands);
+        } else {
+            operands.add(expression);
+        }
+    }
+
+    /**
+     * Estimates the relative cost of evaluating the filter on an entity. Equality and null checks are the cheapest
+     * and usually the most selective, pattern matching is the most expensive, and every relation on the path adds
+     * another lookup, or a scan when the relation is a collection.
+     */
+    private static int filterCost(Class<?> clazz, QueryFilter f) {
+
+        int cost;
+
+        switch (f.getOperation()) {
+            case ISNULL:
+            case ISNOTNULL:
+                cost = 1;
+                break;
+            case EQ:
+            case NEQ:
+                cost = 2;
+                break;
+            case GT:
+            case GTE:
+            case LT:
+            case LTE:
+                cost = 3;
+                break;
+            case EQIC:
+            case NEQIC:
+                cost = 4;
+                break;
+            case IN:
+            case NIN:
+            case INIC:
+            case NINIC:
+                cost = 4 + f.getValues().size() / 8;
+                break;
+            case BETWEEN:
+            case NBETWEEN:
+                cost = 6;
+                break;
+            default:
+                cost = 8;
+        }
+
+        StreamCriteriaField criteriaField = getStreamCriteriaField(clazz, f.getField());
+        int relations = criteriaField.getPath().split("\\.").length - 1;
+
+        cost += relations * 4;
+
+        return criteriaField.isCollection() ? cost * 4 : cost;
+    }
+
+    private static class CompiledFilter {
+
+        private final Predicate predicate;
+        private final int cost;
+
+        private CompiledFilter(Predicate predicate, int cost) {
+            this.predicate = predicate;
+            this.cost = cost;
+        }
+    }
+
+    private static Predicate createFilterPredicate(Class<?> clazz, QueryFilter f) {
+
+        Predicate np = null;
+
+        try {
+            StreamCriteriaField criteriaField = getStreamCriteriaField(clazz, f.getField());
+
+            if (null == criteriaField) {
+                return null;
+            }
+
+            String entityField = criteriaField.getPath();
+
+            String[] fieldNames = entityField.split("\\.");
+
+            Field field = ClassUtils.fieldLookup(clazz, fieldNames[0]);
+
+            Class<?> clazzTarget = ClassUtils.fieldLookup(clazz, fieldNames[0]).getType();
+            field.setAccessible(true);
+
+            if (fieldNames.length > 1) {
+
+                String newFieldName = entityField.substring(fieldNames[0].length() + 1);
+                do {
+
+                    if (Collection.class.isAssignableFrom(clazzTarget)) {
+                        clazzTarget = getGenericType(field);
+                    }
+
+                    fieldNames = newFieldName.split("\\.");
+
+                    field = ClassUtils.fieldLookup(clazzTarget, fieldNames[0]);
+                    field.setAccessible(true);
 
-                switch (f.getOperation()) {
+                    clazzTarget = field.getType();
+
+                    if (fieldNames.length > 1)
+                        newFieldName = newFieldName.substring(fieldNames[0].length() + 1);
+
+                } while (newFieldName.contains("."));
+            }
+
+            switch (f.getOperation()) {
+
+                case EQ:
+                    if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
+                        np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.EQ);
+                    } else if (f.getValue() != null) {
+                        np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.EQ);
+                    }
+                    break;
+                case EQIC:
+                    if (clazzTarget.equals(String.class) && f.getValue() != null) {
+                        np = filter(clazz, entityField, f.getValue().toLowerCase(), FilterOperation.EQIC);
+                    }
+                    break;
+                case NEQ:
+                    if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
+                        np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.NEQ);
+                    } else if (f.getValue() != null) {
+                        np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.NEQ);
+                    }
+                    break;
+                case NEQIC:
+                    if (clazzTarget.equals(String.class) && f.getValue() != null) {
+                        np = filter(clazz, entityField, f.getValue().toLowerCase(), FilterOperation.NEQIC);
+                    }
+                    break;
+                case LIKE:
+                    if (clazzTarget.equals(String.class) && f.getValue() != null) {
+                        np = filter(clazz, entityField, f.getValue(), FilterOperation.LIKE);
+                    }
+                    break;
+                case LIKEIC:
+                    if (clazzTarget.equals(String.class) && f.getValue() != null) {
+                        np = filter(clazz, entityField, f.getValue().toLowerCase(), FilterOperation.LIKEIC);
+                    }
+                    break;
+                case NLIKE:
+                    if (clazzTarget.equals(String.class) && f.getValue() != null) {
+                        np = filter(clazz, entityField, f.getValue(), FilterOperation.NLIKE);
+                    }
+                    break;
+                case NLIKEIC:
+                    if (clazzTarget.equals(String.class) && f.getValue() != null) {
+                        np = filter(clazz, entityField, f.getValue().toLowerCase(), FilterOperation.NLIKEIC);
+                    }
+                    break;
+                case GT:
+                    if (Date.class.isAssignableFrom(clazzTarget) ||
+                            Instant.class.isAssignableFrom(clazzTarget) ||
+                            Number.class.isAssignableFrom(clazzTarget) ||
+                            LocalTime.class.isAssignableFrom(clazz) ||
+                            OffsetTime.class.isAssignableFrom(clazz) ||
+                            LocalDate.class.isAssignableFrom(clazzTarget) ||
+                            LocalDateTime.class.isAssignableFrom(clazzTarget) ||
+                            String.class.isAssignableFrom(clazzTarget)) {
 
-                    case EQ:
                         if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
-                            np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.EQ);
+                            np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.GT);
                         } else if (f.getValue() != null) {
-                            np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.EQ);
-                        }
-                        break;
-                    case EQIC:
-                        if (clazzTarget.equals(String.class) && f.getValue() != null) {
-                            np = filter(clazz, entityField, f.getValue().toLowerCase(), FilterOperation.EQIC);
+                            np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.GT);
                         }
-                        break;
-                    case NEQ:
+                    }
+                    break;
+                case GTE:
+                    if (Date.class.isAssignableFrom(clazzTarget) ||
+                            Instant.class.isAssignableFrom(clazzTarget) ||
+                            Number.class.isAssignableFrom(clazzTarget) ||
+                            LocalTime.class.isAssignableFrom(clazz) ||
+                            OffsetTime.class.isAssignableFrom(clazz) ||
+                            LocalDate.class.isAssignableFrom(clazzTarget) ||
+                            LocalDateTime.class.isAssignableFrom(clazzTarget) ||
+                            String.class.isAssignableFrom(clazzTarget)) {
+
                         if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
-                            np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.NEQ);
+                            np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.GTE);
                         } else if (f.getValue() != null) {
-                            np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.NEQ);
-                        }
-                        break;
-                    case NEQIC:
-                        if (clazzTarget.equals(String.class) && f.getValue() != null) {
-                            np = filter(clazz, entityField, f.getValue().toLowerCase(), FilterOperation.NEQIC);
-                        }
-                        break;
-                    case LIKE:
-                        if (clazzTarget.equals(String.class) && f.getValue() != null) {
-                            np = filter(clazz, entityField, f.getValue(), FilterOperation.LIKE);
-                        }
-                        break;
-                    case LIKEIC:
-                        if (clazzTarget.equals(String.class) && f.getValue() != null) {
-                            np = filter(clazz, entityField, f.getValue().toLowerCase(), FilterOperation.LIKEIC);
-                        }
-                        break;
-                    case NLIKE:
-                        if (clazzTarget.equals(String.class) && f.getValue() != null) {
-                            np = filter(clazz, entityField, f.getValue(), FilterOperation.NLIKE);
-                        }
-                        break;
-                    case NLIKEIC:
-                        if (clazzTarget.equals(String.class) && f.getValue() != null) {
-                            np = filter(clazz, entityField, f.getValue().toLowerCase(), FilterOperation.NLIKEIC);
-                        }
-                        break;
-                    case GT:
-                        if (Date.class.isAssignableFrom(clazzTarget) ||
-                                Instant.class.isAssignableFrom(clazzTarget) ||
-                                Number.class.isAssignableFrom(clazzTarget) ||
-                                LocalTime.class.isAssignableFrom(clazz) ||
-                                OffsetTime.class.isAssignableFrom(clazz) ||
-                                LocalDate.class.isAssignableFrom(clazzTarget) ||
-                                LocalDateTime.class.isAssignableFrom(clazzTarget) ||
-                                String.class.isAssignableFrom(clazzTarget)) {
-
-                            if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
-                                np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.GT);
-                            } else if (f.getValue() != null) {
-                                np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.GT);
-                            }
+                            np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.GTE);
                         }
-                        break;
-                    case GTE:
-                        if (Date.class.isAssignableFrom(clazzTarget) ||
-                                Instant.class.isAssignableFrom(clazzTarget) ||
-                                Number.class.isAssignableFrom(clazzTarget) ||
-                                LocalTime.class.isAssignableFrom(clazz) ||
-                                OffsetTime.class.isAssignableFrom(clazz) ||
-                                LocalDate.class.isAssignableFrom(clazzTarget) ||
-                                LocalDateTime.class.isAssignableFrom(clazzTarget) ||
-                                String.class.isAssignableFrom(clazzTarget)) {
-
-                            if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
-                                np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.GTE);
-                            } else if (f.getValue() != null) {
-                                np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.GTE);
-                            }
-                        }
-                        break;
-                    case LT:
-                        if (Date.class.isAssignableFrom(clazzTarget) ||
-                                Instant.class.isAssignableFrom(clazzTarget) ||
-                                Number.class.isAssignableFrom(clazzTarget) ||
-                                LocalTime.class.isAssignableFrom(clazz) ||
-                                OffsetTime.class.isAssignableFrom(clazz) ||
-                                LocalDate.class.isAssignableFrom(clazzTarget) ||
-                                LocalDateTime.class.isAssignableFrom(clazzTarget) ||
-                                String.class.isAssignableFrom(clazzTarget)) {
-
-                            if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
-                                np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.LT);
-                            } else if (f.getValue() != null) {
-                                np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.LT);
-                            }
+                    }
+                    break;
+                case LT:
+                    if (Date.class.isAssignableFrom(clazzTarget) ||
+                            Instant.class.isAssignableFrom(clazzTarget) ||
+                            Number.class.isAssignableFrom(clazzTarget) ||
+                            LocalTime.class.isAssignableFrom(clazz) ||
+                            OffsetTime.class.isAssignableFrom(clazz) ||
+                            LocalDate.class.isAssignableFrom(clazzTarget) ||
+                            LocalDateTime.class.isAssignableFrom(clazzTarget) ||
+                            String.class.isAssignableFrom(clazzTarget)) {
+
+                        if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
+                            np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.LT);
+                        } else if (f.getValue() != null) {
+                            np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.LT);
                         }
-                        break;
-                    case LTE:
-                        if (Date.class.isAssignableFrom(clazzTarget) ||
-                                Instant.class.isAssignableFrom(clazzTarget) ||
-                                Number.class.isAssignableFrom(clazzTarget) ||
-                                LocalTime.class.isAssignableFrom(clazz) ||
-                                OffsetTime.class.isAssignableFrom(clazz) ||
-                                LocalDate.class.isAssignableFrom(clazzTarget) ||
-                                LocalDateTime.class.isAssignableFrom(clazzTarget) ||
-                                String.class.isAssignableFrom(clazzTarget)) {
-
-                            if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
-                                np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.LTE);
-                            } else if (f.getValue() != null) {
-                                np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.LTE);
-                            }
+                    }
+                    break;
+                case LTE:
+                    if (Date.class.isAssignableFrom(clazzTarget) ||
+                            Instant.class.isAssignableFrom(clazzTarget) ||
+                            Number.class.isAssignableFrom(clazzTarget) ||
+                            LocalTime.class.isAssignableFrom(clazz) ||
+                            OffsetTime.class.isAssignableFrom(clazz) ||
+                            LocalDate.class.isAssignableFrom(clazzTarget) ||
+                            LocalDateTime.class.isAssignableFrom(clazzTarget) ||
+                            String.class.isAssignableFrom(clazzTarget)) {
+
+                        if (f.getDateValue() != null && (clazzTarget.equals(Date.class) || clazzTarget.equals(Instant.class) || clazzTarget.equals(LocalDate.class) || clazzTarget.equals(LocalDateTime.class))) {
+                            np = filter(clazz, entityField, getTargetDateTypeValue(f.getDateValue(), clazzTarget), FilterOperation.LTE);
+                        } else if (f.getValue() != null) {
+                            np = filter(clazz, entityField, getValueForField(field, f.getValue()), FilterOperation.LTE);
                         }
-                        break;
-                    case IN:
-                        np = filter(clazz, entityField, f.getValues(), FilterOperation.IN);
-                        break;
-                    case INIC:
-                        if (clazzTarget.equals(String.class)) {
-                            np = filter(clazz, entityField, f.getValues(), FilterOperation.INIC);
+                    }
+                    break;
+                case IN:
+                    np = filter(clazz, entityField, f.getValues(), FilterOperation.IN);
+                    break;
+                case INIC:
+                    if (clazzTarget.equals(String.class)) {
+                        np = filter(clazz, entityField, f.getValues(), FilterOperation.INIC);
+                    }
+                    break;
+                case NIN:
+                    np = filter(clazz, entityField, f.getValues(), FilterOperation.NIN);
+                    break;
+                case NINIC:
+                    if (clazzTarget.equals(String.class)) {
+
+                        np = filter(clazz, entityField, f.getValues(), FilterOperation.NINIC);
+                    }
+                    break;
+                case ISNULL:
+                    np = filter(clazz, entityField, f.getValues(), FilterOperation.ISNULL);
+                    break;
+                case ISNOTNULL:
+                    np = filter(clazz, entityField, f.getValues(), FilterOperation.ISNOTNULL);
+                    break;
+                case BETWEEN:
+                    if (f.getValues().size() == 2) {
+                        Predicate lower = createFilterPredicate(clazz, new QueryFilter(f.getField(), FilterOperation.GTE, f.getValues().get(0)));
+                        Predicate upper = createFilterPredicate(clazz, new QueryFilter(f.getField(), FilterOperation.LTE, f.getValues().get(1)));
+
+                        if (lower != null && upper != null) {
+                            np = lower.and(upper);
                         }
-                        break;
-                    case NIN:
-                        np = filter(clazz, entityField, f.getValues(), FilterOperation.NIN);
-                        break;
-                    case NINIC:
-                        if (clazzTarget.equals(String.class)) {
-
-                            np = filter(clazz, entityField, f.getValues(), FilterOperation.NINIC);
+                    }
+                    break;
+                case NBETWEEN:
+                    if (f.getValues().size() == 2) {
+                        Predicate lower = createFilterPredicate(clazz, new QueryFilter(f.getField(), FilterOperation.LT, f.getValues().get(0)));
+                        Predicate upper = createFilterPredicate(clazz, new QueryFilter(f.getField(), FilterOperation.GT, f.getValues().get(1)));
+
+                        if (lower != null && upper != null) {
+                            np = lower.or(upper);
                         }
-                        break;
-                    case ISNULL:
-                        np = filter(clazz, entityField, f.getValues(), FilterOperation.ISNULL);
-                        break;
-                    case ISNOTNULL:
-                        np = filter(clazz, entityField, f.getValues(), FilterOperation.ISNOTNULL);
-                        break;
-                }
-            } catch (IllegalArgumentException | NoSuchFieldException e) {
-
-                throw new NoSuchEntityFieldException(e.getMessage(), f.getField(), clazz.getSimpleName());
+                    }
+                    break;
             }
+        } catch (IllegalArgumentException | NoSuchFieldException e) {
 
-            if (predicate == null) {
-                predicate = np;
-            } else {
-                if (np != null) {
-                    predicate = predicate.and(np);
+            throw new NoSuchEntityFieldException(e.getMessage(), f.getField(), clazz.getSimpleName());
+        }
+
+        return np;
+    }
+
+    private static boolean hasIdField(Class<?> clazz) {
+
+        try {
+            return ClassUtils.fieldLookup(clazz, ID_FIELD) != null;
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the keyset pagination predicate, which accepts the entities ordered after the cursor.
+     */
+    private static <T> Predicate<T> createSeekPredicate(Class<T> clazz, QueryParameters q) {
+
+        List<QueryOrder> cursorOrder = getCursorOrder(q, ID_FIELD);
+
+        validateCursor(q.getCursor(), cursorOrder);
+
+        List<List<Field>> paths = new ArrayList<>();
+        List<Object> cursorValues = new ArrayList<>();
+
+        for (int i = 0; i < cursorOrder.size(); i++) {
+
+            String field = cursorOrder.get(i).getField();
+            List<Field> path = getFieldPath(clazz, field);
+
+            paths.add(path);
+            cursorValues.add(getValueForType(path.get(path.size() - 1).getType(), q.getCursor().getValues().get(i), field));
+        }
+
+        return (T instance) -> {
+
+            for (int i = 0; i < cursorOrder.size(); i++) {
+
+                QueryOrder o = cursorOrder.get(i);
+
+                int c = compare(getFieldPathValue(instance, paths.get(i)), cursorValues.get(i), o.getOrder(), o.getNulls());
+
+                if (c != 0) {
+                    return c > 0;
                 }
             }
-        }
 
-        return new StreamCriteriaWhereQuery(predicate, containsToMany);
+            return false;
+        };
+    }
+
+    /**
+     * Returns the path of the entity field the (rest) field is mapped to, or {@code null} if the field is ignored.
+     */
+    static String getEntityFieldPath(Class<?> clazz, String fieldName) {
+
+        StreamCriteriaField criteriaField = getStreamCriteriaField(clazz, fieldName);
+
+        return criteriaField == null ? null : criteriaField.getPath();
     }
 
     private static StreamCriteriaField getStreamCriteriaField(Class<?> clazz, String fieldName) {
@@ -541,607 +964,577 @@ public class StreamUtils {
 
     private static <T> Predicate<T> filter(Class<T> clazz, String fieldName, Object fieldValue, FilterOperation operation) {
 
-        return (T instance) -> {
-            try {
-                String[] fieldNames = fieldName.split("\\.");
-
-                Field f = ClassUtils.fieldLookup(clazz, fieldNames[0]);
+        String[] fieldNames = fieldName.split("\\.");
 
-                if (null == f) {
-                    return true;
-                }
-
-                f.setAccessible(true);
+        final FieldAccessor accessor;
 
-                final Field field = f;
+        try {
+            accessor = fieldAccessorLookup(clazz, fieldNames[0]);
+        } catch (NoSuchFieldException e) {
+            throw new NoSuchEntityFieldException(e.getMessage(), fieldName, clazz.getSimpleName());
+        }
 
-                Object value = field.get(instance);
+        if (null == accessor) {
+            return (T instance) -> true;
+        }
 
-                if (operation.equals(FilterOperation.EQ)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof Integer) {
-                        return value.equals(Integer.parseInt((String) fieldValue));
-                    } else if (value instanceof String) {
-                        return value.equals(fieldValue);
-                    } else if (value instanceof BigDecimal) {
-                        return value.equals(new BigDecimal((String) fieldValue));
-                    } else if (value instanceof LocalTime) {
-                        return value.equals((LocalTime) fieldValue);
-                    } else if (value instanceof OffsetTime) {
-                        return value.equals((OffsetTime) fieldValue);
-                    } else if (value instanceof LocalDate) {
-                        return value.equals((LocalDate) fieldValue);
-                    } else if (value instanceof LocalDateTime) {
-                        return value.equals((LocalDateTime) fieldValue);
-                    } else if (value instanceof Double) {
-                        return value.equals(Double.parseDouble((String) fieldValue));
-                    } else if (value instanceof Float) {
-                        return value.equals(Float.parseFloat((String) fieldValue));
-                    } else if (value instanceof Long) {
-                        return value.equals(Long.parseLong((String) fieldValue));
-                    } else if (value instanceof Boolean) {
-                        return value.equals(fieldValue);
-                    } else if (value instanceof Byte) {
-                        return value.equals(Byte.parseByte((String) fieldValue));
-                    } else if (value instanceof Short) {
-                        return value.equals(Short.parseShort((String) fieldValue));
-                    } else if (value instanceof Date) {
-                        return (((Date) value).toInstant()).equals(((Date) fieldValue).toInstant());
-                    } else if (value instanceof Enum) {
-                        return value.equals(getValueForField(field, fieldValue.toString()));
-                    } else if (value instanceof UUID) {
-                        return value.equals(UUID.fromString(fieldValue.toString()));
-                    } else if (Collection.class.isAssignableFrom(value.getClass())) {
+        final Field field = accessor.getField();
 
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                fieldValue,
-                                FilterOperation.EQ);
+        // The predicate of the remaining path is resolved once and applied to the related entities
+        final Predicate nested;
 
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
+        if (fieldNames.length > 1) {
+            Class<?> nestedClass = Collection.class.isAssignableFrom(field.getType()) ? getGenericType(field) : field.getType();
 
-                    } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.EQ);
-                        return newPredicate.test(value);
-                    }
-                } else if (operation.equals(FilterOperation.EQIC)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof String) {
-                        return ((String) fieldValue).equalsIgnoreCase((String) value);
-                    } else if (Collection.class.isAssignableFrom(value.getClass())) {
+            nested = filter(nestedClass, fieldName.substring(fieldNames[0].length() + 1), fieldValue, operation);
+        } else {
+            nested = (Object instance) -> {
+                throw new InvalidEntityFieldException("The filter operation is not supported for the field type",
+                        fieldName, clazz.getSimpleName());
+            };
+        }
 
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                fieldValue,
-                                FilterOperation.EQIC);
+        final LikeMatcher likeMatcher = fieldValue instanceof String ? createLikeMatcher((String) fieldValue, operation) : null;
 
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
+        // The literal and the values of the field are converted once, not for every entity
+        final Object literal = fieldNames.length == 1 && fieldValue instanceof String
+                ? convertNumber(field.getType(), (String) fieldValue) : null;
 
-                    } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.EQIC);
-                        return newPredicate.test(value);
-                    }
-                } else if (operation.equals(FilterOperation.NEQ)) {
-                    if (value == null) {
-                        return true;
-                    } else if (value instanceof Integer) {
-                        return !value.equals(Integer.parseInt((String) fieldValue));
-                    } else if (value instanceof String) {
-                        return !value.equals(fieldValue);
-                    } else if (value instanceof Double) {
-                        return !value.equals(Double.parseDouble((String) fieldValue));
-                    } else if (value instanceof Float) {
-                        return !value.equals(Float.parseFloat((String) fieldValue));
-                    } else if (value instanceof Long) {
-                        return !value.equals(Long.parseLong((String) fieldValue));
-                    } else if (value instanceof LocalTime) {
-                        return !value.equals((LocalTime) fieldValue);
-                    } else if (value instanceof OffsetTime) {
-                        return !value.equals((OffsetTime) fieldValue);
-                    } else if (value instanceof LocalDate) {
-                        return !value.equals((LocalDate) fieldValue);
-                    } else if (value instanceof LocalDateTime) {
-                        return !value.equals((LocalDateTime) fieldValue);
-                    } else if (value instanceof Boolean) {
-                        return !value.equals(fieldValue);
-                    } else if (value instanceof Byte) {
-                        return !value.equals(Byte.parseByte((String) fieldValue));
-                    } else if (value instanceof Short) {
-                        return !value.equals(Short.parseShort((String) fieldValue));
-                    } else if (value instanceof Date) {
-                        return !(((Date) value).toInstant()).equals(((Date) fieldValue).toInstant());
-                    } else if (value instanceof Enum) {
-                        return !value.equals(getValueForField(field, fieldValue.toString()));
-                    } else if (value instanceof UUID) {
-                        return !value.equals(UUID.fromString(fieldValue.toString()));
-                    } else if (Collection.class.isAssignableFrom(value.getClass())) {
+        final Set<?> values = fieldNames.length == 1 && fieldValue instanceof List
+                ? convertValues(field, (List<?>) fieldValue, operation) : null;
 
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                fieldValue,
-                                FilterOperation.NEQ);
+        return (T instance) -> {
+            Object value = accessor.get(instance);
+
+            if (operation.equals(FilterOperation.EQ)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof Integer) {
+                    return value.equals((Integer) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof String) {
+                    return value.equals(fieldValue);
+                } else if (value instanceof BigDecimal) {
+                    return value.equals((BigDecimal) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof LocalTime) {
+                    return value.equals((LocalTime) fieldValue);
+                } else if (value instanceof OffsetTime) {
+                    return value.equals((OffsetTime) fieldValue);
+                } else if (value instanceof LocalDate) {
+                    return value.equals((LocalDate) fieldValue);
+                } else if (value instanceof LocalDateTime) {
+                    return value.equals((LocalDateTime) fieldValue);
+                } else if (value instanceof Double) {
+                    return value.equals((Double) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Float) {
+                    return value.equals((Float) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Long) {
+                    return value.equals((Long) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Boolean) {
+                    return value.equals(fieldValue);
+                } else if (value instanceof Byte) {
+                    return value.equals((Byte) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Short) {
+                    return value.equals((Short) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Date) {
+                    return (((Date) value).toInstant()).equals(((Date) fieldValue).toInstant());
+                } else if (value instanceof Enum) {
+                    return value.equals(getValueForField(field, fieldValue.toString()));
+                } else if (value instanceof UUID) {
+                    return value.equals(UUID.fromString(fieldValue.toString()));
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.EQIC)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof String) {
+                    return ((String) fieldValue).equalsIgnoreCase((String) value);
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.NEQ)) {
+                if (value == null) {
+                    return true;
+                } else if (value instanceof Integer) {
+                    return !value.equals((Integer) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof String) {
+                    return !value.equals(fieldValue);
+                } else if (value instanceof Double) {
+                    return !value.equals((Double) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Float) {
+                    return !value.equals((Float) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Long) {
+                    return !value.equals((Long) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof LocalTime) {
+                    return !value.equals((LocalTime) fieldValue);
+                } else if (value instanceof OffsetTime) {
+                    return !value.equals((OffsetTime) fieldValue);
+                } else if (value instanceof LocalDate) {
+                    return !value.equals((LocalDate) fieldValue);
+                } else if (value instanceof LocalDateTime) {
+                    return !value.equals((LocalDateTime) fieldValue);
+                } else if (value instanceof Boolean) {
+                    return !value.equals(fieldValue);
+                } else if (value instanceof Byte) {
+                    return !value.equals((Byte) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Short) {
+                    return !value.equals((Short) numberOperand(value, literal, fieldValue));
+                } else if (value instanceof Date) {
+                    return !(((Date) value).toInstant()).equals(((Date) fieldValue).toInstant());
+                } else if (value instanceof Enum) {
+                    return !value.equals(getValueForField(field, fieldValue.toString()));
+                } else if (value instanceof UUID) {
+                    return !value.equals(UUID.fromString(fieldValue.toString()));
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().noneMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.NEQIC) && field.getType().equals(String.class)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof String) {
+                    return !((String) fieldValue).equalsIgnoreCase((String) value);
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().noneMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.LIKE)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof String) {
+                    return likeMatcher.matches((String) value);
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.LIKEIC)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof String) {
+                    return likeMatcher.matches((String) value);
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.NLIKE)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof String) {
+                    return !likeMatcher.matches((String) value);
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.NLIKEIC)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof String) {
+                    return !likeMatcher.matches((String) value);
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.GT)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof Integer) {
+                    return ((Integer) value).compareTo((Integer) numberOperand(value, literal, fieldValue)) > 0;
+                } else if (value instanceof Double) {
+                    return ((Double) value).compareTo((Double) numberOperand(value, literal, fieldValue)) > 0;
+                } else if (value instanceof Float) {
+                    return ((Float) value).compareTo((Float) numberOperand(value, literal, fieldValue)) > 0;
+                } else if (value instanceof Long) {
+                    return ((Long) value).compareTo((Long) numberOperand(value, literal, fieldValue)) > 0;
+                } else if (value instanceof Boolean) {
+                    return ((Boolean) value).compareTo((Boolean) fieldValue) > 0;
+                } else if (value instanceof LocalTime) {
+                    return ((LocalTime) value).compareTo((LocalTime) fieldValue) > 0;
+                } else if (value instanceof OffsetTime) {
+                    return ((OffsetTime) value).compareTo((OffsetTime) fieldValue) > 0;
+                } else if (value instanceof LocalDate) {
+                    return ((LocalDate) value).compareTo((LocalDate) fieldValue) > 0;
+                } else if (value instanceof LocalDateTime) {
+                    return ((LocalDateTime) value).compareTo((LocalDateTime) fieldValue) > 0;
+                } else if (value instanceof Byte) {
+                    return ((Byte) value).compareTo((Byte) numberOperand(value, literal, fieldValue)) > 0;
+                } else if (value instanceof Short) {
+                    return ((Short) value).compareTo((Short) numberOperand(value, literal, fieldValue)) > 0;
+                } else if (value instanceof Date) {
+                    return ((Date) value).toInstant().compareTo(((Date) fieldValue).toInstant()) > 0;
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.GTE)) {
+                if (value == null) {
+                    return false;
+                } else if (value instanceof Integer) {
+                    return ((Integer) value).compareTo((Integer) numberOperand(value, literal, fieldValue)) >= 0;
+                } else if (value instanceof Double) {
+                    return ((Double) value).compareTo((Double) numberOperand(value, literal, fieldValue)) >= 0;
+                } else if (value instanceof Float) {
+                    return ((Float) value).compareTo((Float) numberOperand(value, literal, fieldValue)) >= 0;
+                } else if (value instanceof Long) {
+                    return ((Long) value).compareTo((Long) numberOperand(value, literal, fieldValue)) >= 0;
+                } else if (value instanceof Boolean) {
+                    return ((Boolean) value).compareTo((Boolean) fieldValue) >= 0;
+                } else if (value instanceof LocalTime) {
+                    return ((LocalTime) value).compareTo((LocalTime) fieldValue) >= 0;
+                } else if (value instanceof OffsetTime) {
+                    return ((OffsetTime) value).compareTo((OffsetTime) fieldValue) >= 0;
+                } else if (value instanceof LocalDate) {
+                    return ((LocalDate) value).compareTo((LocalDate) fieldValue) >= 0;
+                } else if (value instanceof LocalDateTime) {
+                    return ((LocalDateTime) value).compareTo((LocalDateTime) fieldValue) >= 0;
+                } else if (value instanceof Byte) {
+                    return ((Byte) value).compareTo((Byte) numberOperand(value, literal, fieldValue)) >= 0;
+                } else if (value instanceof Short) {
+                    return ((Short) value).compareTo((Short) numberOperand(value, literal, fieldValue)) >= 0;
+                } else if (value instanceof Date) {
+                    return ((Date) value).toInstant().compareTo(((Date) fieldValue).toInstant()) >= 0;
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.LT)) {
+
+                if (value == null) {
+                    return false;
+                } else if (value instanceof Integer) {
+                    return ((Integer) value).compareTo((Integer) numberOperand(value, literal, fieldValue)) < 0;
+                } else if (value instanceof Double) {
+                    return ((Double) value).compareTo((Double) numberOperand(value, literal, fieldValue)) < 0;
+                } else if (value instanceof Float) {
+                    return ((Float) value).compareTo((Float) numberOperand(value, literal, fieldValue)) < 0;
+                } else if (value instanceof Long) {
+                    return ((Long) value).compareTo((Long) numberOperand(value, literal, fieldValue)) < 0;
+                } else if (value instanceof Boolean) {
+                    return ((Boolean) value).compareTo((Boolean) fieldValue) < 0;
+                } else if (value instanceof LocalTime) {
+                    return ((LocalTime) value).compareTo((LocalTime) fieldValue) >= 0;
+                } else if (value instanceof OffsetTime) {
+                    return ((OffsetTime) value).compareTo((OffsetTime) fieldValue) >= 0;
+                } else if (value instanceof LocalDate) {
+                    return ((LocalDate) value).compareTo((LocalDate) fieldValue) < 0;
+                } else if (value instanceof LocalDateTime) {
+                    return ((LocalDateTime) value).compareTo((LocalDateTime) fieldValue) < 0;
+                } else if (value instanceof Byte) {
+                    return ((Byte) value).compareTo((Byte) numberOperand(value, literal, fieldValue)) < 0;
+                } else if (value instanceof Short) {
+                    return ((Short) value).compareTo((Short) numberOperand(value, literal, fieldValue)) < 0;
+                } else if (value instanceof Date) {
+                    return ((Date) value).toInstant().compareTo(((Date) fieldValue).toInstant()) < 0;
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.LTE)) {
+
+                if (value == null) {
+                    return false;
+                } else if (value instanceof Integer) {
+                    return ((Integer) value).compareTo((Integer) numberOperand(value, literal, fieldValue)) <= 0;
+                } else if (value instanceof Double) {
+                    return ((Double) value).compareTo((Double) numberOperand(value, literal, fieldValue)) <= 0;
+                } else if (value instanceof Float) {
+                    return ((Float) value).compareTo((Float) numberOperand(value, literal, fieldValue)) <= 0;
+                } else if (value instanceof Long) {
+                    return ((Long) value).compareTo((Long) numberOperand(value, literal, fieldValue)) <= 0;
+                } else if (value instanceof Boolean) {
+                    return ((Boolean) value).compareTo((Boolean) fieldValue) <= 0;
+                } else if (value instanceof LocalTime) {
+                    return ((LocalTime) value).compareTo((LocalTime) fieldValue) >= 0;
+                } else if (value instanceof OffsetTime) {
+                    return ((OffsetTime) value).compareTo((OffsetTime) fieldValue) >= 0;
+                } else if (value instanceof LocalDate) {
+                    return ((LocalDate) value).compareTo((LocalDate) fieldValue) <= 0;
+                } else if (value instanceof LocalDateTime) {
+                    return ((LocalDateTime) value).compareTo((LocalDateTime) fieldValue) <= 0;
+                } else if (value instanceof Byte) {
+                    return ((Byte) value).compareTo((Byte) numberOperand(value, literal, fieldValue)) <= 0;
+                } else if (value instanceof Short) {
+                    return ((Short) value).compareTo((Short) numberOperand(value, literal, fieldValue)) <= 0;
+                } else if (value instanceof Date) {
+                    return ((Date) value).toInstant().compareTo(((Date) fieldValue).toInstant()) <= 0;
+                } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                    return ((List<?>) value).stream().anyMatch(nested);
+                } else { // assume entity class
+                    return nested.test(value);
+                }
+            } else if (operation.equals(FilterOperation.IN)) {
+                if (value != null) {
+                    if (value instanceof String || value instanceof Double || value instanceof Float || value instanceof Long ||
+                        value instanceof Boolean || value instanceof Byte || value instanceof Short || value instanceof Date ||
+                        value instanceof Enum || value instanceof UUID) {
 
-                        return ((List<?>) value).stream().noneMatch(newPredicate);
+                        return values != null ? values.contains(value) : ((List<?>) fieldValue).stream()
+                                .filter(Objects::nonNull)
+                                .map(s -> getValueForField(field, (String) s)).collect(Collectors
+                                        .toList()).contains(value);
 
-                    } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.NEQ);
-                        return newPredicate.test(value);
-                    }
-                } else if (operation.equals(FilterOperation.NEQIC) && field.getType().equals(String.class)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof String) {
-                        return !((String) fieldValue).equalsIgnoreCase((String) field.get(instance));
                     } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.NEQIC);
-
-                        return ((List<?>) value).stream().noneMatch(newPredicate);
-
+                        return ((List<?>) value).stream().anyMatch(nested);
                     } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.NEQIC);
-                        return newPredicate.test(value);
+                        return nested.test(value);
                     }
-                } else if (operation.equals(FilterOperation.LIKE)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof String) {
-                        String expr = ((String) fieldValue);
-                        expr = expr.replace(".", "\\.");
-                        expr = expr.replace("?", ".");
-                        expr = expr.replace("%", ".*");
+                } else
+                    return false;
+            } else if (operation.equals(FilterOperation.INIC)) {
+                if (value != null) {
+                    if (value instanceof String) {
 
-                        return ((String) value).matches(expr);
+                        return values.contains(((String) value).toLowerCase());
 
                     } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.LIKE);
-
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
-
+                        return ((List<?>) value).stream().anyMatch(nested);
                     } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.LIKE);
-                        return newPredicate.test(value);
+                        return nested.test(value);
                     }
-                } else if (operation.equals(FilterOperation.LIKEIC)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof String) {
-                        String expr = ((String) fieldValue).toLowerCase();
-                        expr = expr.replace(".", "\\.");
-                        expr = expr.replace("?", ".");
-                        expr = expr.replace("%", ".*");
+                } else
+                    return false;
+            } else if (operation.equals(FilterOperation.NIN)) {
+                if (value != null) {
+                    if (value instanceof String || value instanceof Double || value instanceof Float || value instanceof Long ||
+                        value instanceof Boolean || value instanceof Byte || value instanceof Short || value instanceof Date ||
+                        value instanceof Enum || value instanceof UUID) {
+
+                        return values != null ? !values.contains(value) : !((List<?>) fieldValue).stream()
+                                .filter(Objects::nonNull)
+                                .map(s -> getValueForField(field, (String) s)).collect(Collectors
+                                        .toList()).contains(value);
 
-                        return ((String) value).toLowerCase().matches(expr);
                     } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.LIKEIC);
-
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
-
+                        return ((List<?>) value).stream().anyMatch(nested);
                     } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.LIKEIC);
-                        return newPredicate.test(value);
+                        return nested.test(value);
                     }
-                } else if (operation.equals(FilterOperation.NLIKE)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof String) {
-                        String expr = ((String) fieldValue);
-                        expr = expr.replace(".", "\\.");
-                        expr = expr.replace("?", ".");
-                        expr = expr.replace("%", ".*");
+                } else
+                    return false;
+            } else if (operation.equals(FilterOperation.NINIC)) {
+                if (value != null) {
+                    if (value instanceof String) {
 
-                        return !((String) value).matches(expr);
+                        return !values.contains(((String) value).toLowerCase());
 
                     } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.NLIKE);
-
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
-
+                        return ((List<?>) value).stream().anyMatch(nested);
                     } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.NLIKE);
-                        return newPredicate.test(value);
-                    }
-                } else if (operation.equals(FilterOperation.NLIKEIC)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof String) {
-                        String expr = ((String) fieldValue).toLowerCase();
-                        expr = expr.replace(".", "\\.");
-                        expr = expr.replace("?", ".");
-                        expr = expr.replace("%", ".*");
 
-                        return !((String) value).toLowerCase().matches(expr);
-                    } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.NLIKEIC);
-
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
-
-                    } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.NLIKEIC);
-                        return newPredicate.test(value);
-                    }
-                } else if (operation.equals(FilterOperation.GT)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof Integer) {
-                        return ((Integer) value).compareTo(Integer.parseInt((String) fieldValue)) > 0;
-                    } else if (value instanceof Double) {
-                        return ((Double) value).compareTo(Double.parseDouble((String) fieldValue)) > 0;
-                    } else if (value instanceof Float) {
-                        return ((Float) value).compareTo(Float.parseFloat((String) fieldValue)) > 0;
-                    } else if (value instanceof Long) {
-                        return ((Long) value).compareTo(Long.parseLong((String) fieldValue)) > 0;
-                    } else if (value instanceof Boolean) {
-                        return ((Boolean) value).compareTo((Boolean) fieldValue) > 0;
-                    } else if (value instanceof LocalTime) {
-                        return ((LocalTime) value).compareTo((LocalTime) fieldValue) > 0;
-                    } else if (value instanceof OffsetTime) {
-                        return ((OffsetTime) value).compareTo((OffsetTime) fieldValue) > 0;
-                    } else if (value instanceof LocalDate) {
-                        return ((LocalDate) value).compareTo((LocalDate) fieldValue) > 0;
-                    } else if (value instanceof LocalDateTime) {
-                        return ((LocalDateTime) value).compareTo((LocalDateTime) fieldValue) > 0;
-                    } else if (value instanceof Byte) {
-                        return ((Byte) value).compareTo(Byte.parseByte((String) fieldValue)) > 0;
-                    } else if (value instanceof Short) {
-                        return ((Short) value).compareTo(Short.parseShort((String) fieldValue)) > 0;
-                    } else if (value instanceof Date) {
-                        return ((Date) value).toInstant().compareTo(((Date) fieldValue).toInstant()) > 0;
-                    } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.GT);
-
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
-
-                    } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.GT);
-                        return newPredicate.test(value);
+                        return nested.test(value);
                     }
-                } else if (operation.equals(FilterOperation.GTE)) {
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof Integer) {
-                        return ((Integer) value).compareTo(Integer.parseInt((String) fieldValue)) >= 0;
-                    } else if (value instanceof Double) {
-                        return ((Double) value).compareTo(Double.parseDouble((String) fieldValue)) >= 0;
-                    } else if (value instanceof Float) {
-                        return ((Float) value).compareTo(Float.parseFloat((String) fieldValue)) >= 0;
-                    } else if (value instanceof Long) {
-                        return ((Long) value).compareTo(Long.parseLong((String) fieldValue)) >= 0;
-                    } else if (value instanceof Boolean) {
-                        return ((Boolean) value).compareTo((Boolean) fieldValue) >= 0;
-                    } else if (value instanceof LocalTime) {
-                        return ((LocalTime) value).compareTo((LocalTime) fieldValue) >= 0;
-                    } else if (value instanceof OffsetTime) {
-                        return ((OffsetTime) value).compareTo((OffsetTime) fieldValue) >= 0;
-                    } else if (value instanceof LocalDate) {
-                        return ((LocalDate) value).compareTo((LocalDate) fieldValue) >= 0;
-                    } else if (value instanceof LocalDateTime) {
-                        return ((LocalDateTime) value).compareTo((LocalDateTime) fieldValue) >= 0;
-                    } else if (value instanceof Byte) {
-                        return ((Byte) value).compareTo(Byte.parseByte((String) fieldValue)) >= 0;
-                    } else if (value instanceof Short) {
-                        return ((Short) value).compareTo(Short.parseShort((String) fieldValue)) >= 0;
-                    } else if (value instanceof Date) {
-                        return ((Date) value).toInstant().compareTo(((Date) fieldValue).toInstant()) >= 0;
-                    } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.GTE);
-
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
-
-                    } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.GTE);
-                        return newPredicate.test(value);
-                    }
-                } else if (operation.equals(FilterOperation.LT)) {
-
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof Integer) {
-                        return ((Integer) value).compareTo(Integer.parseInt((String) fieldValue)) < 0;
-                    } else if (value instanceof Double) {
-                        return ((Double) value).compareTo(Double.parseDouble((String) fieldValue)) < 0;
-                    } else if (value instanceof Float) {
-                        return ((Float) value).compareTo(Float.parseFloat((String) fieldValue)) < 0;
-                    } else if (value instanceof Long) {
-                        return ((Long) value).compareTo(Long.parseLong((String) fieldValue)) < 0;
-                    } else if (value instanceof Boolean) {
-                        return ((Boolean) value).compareTo((Boolean) fieldValue) < 0;
-                    } else if (value instanceof LocalTime) {
-                        return ((LocalTime) value).compareTo((LocalTime) fieldValue) >= 0;
-                    } else if (value instanceof OffsetTime) {
-                        return ((OffsetTime) value).compareTo((OffsetTime) fieldValue) >= 0;
-                    } else if (value instanceof LocalDate) {
-                        return ((LocalDate) value).compareTo((LocalDate) fieldValue) < 0;
-                    } else if (value instanceof LocalDateTime) {
-                        return ((LocalDateTime) value).compareTo((LocalDateTime) fieldValue) < 0;
-                    } else if (value instanceof Byte) {
-                        return ((Byte) value).compareTo(Byte.parseByte((String) fieldValue)) < 0;
-                    } else if (value instanceof Short) {
-                        return ((Short) value).compareTo(Short.parseShort((String) fieldValue)) < 0;
-                    } else if (value instanceof Date) {
-                        return ((Date) value).toInstant().compareTo(((Date) fieldValue).toInstant()) < 0;
-                    } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                fieldValue,
-                                FilterOperation.LT);
-
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
-
+                } else
+                    return true;
+            } else if (operation.equals(FilterOperation.ISNULL)) {
+                if (value == null) {
+                    return true;
+                } else {
+                    if (Collection.class.isAssignableFrom(value.getClass())) {
+                        return ((List<?>) value).stream().anyMatch(nested);
                     } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.LT);
-                        return newPredicate.test(value);
-                    }
-                } else if (operation.equals(FilterOperation.LTE)) {
 
-                    if (value == null) {
-                        return false;
-                    } else if (value instanceof Integer) {
-                        return ((Integer) value).compareTo(Integer.parseInt((String) fieldValue)) <= 0;
-                    } else if (value instanceof Double) {
-                        return ((Double) value).compareTo(Double.parseDouble((String) fieldValue)) <= 0;
-                    } else if (value instanceof Float) {
-                        return ((Float) value).compareTo(Float.parseFloat((String) fieldValue)) <= 0;
-                    } else if (value instanceof Long) {
-                        return ((Long) value).compareTo(Long.parseLong((String) fieldValue)) <= 0;
-                    } else if (value instanceof Boolean) {
-                        return ((Boolean) value).compareTo((Boolean) fieldValue) <= 0;
-                    } else if (value instanceof LocalTime) {
-                        return ((LocalTime) value).compareTo((LocalTime) fieldValue) >= 0;
-                    } else if (value instanceof OffsetTime) {
-                        return ((OffsetTime) value).compareTo((OffsetTime) fieldValue) >= 0;
-                    } else if (value instanceof LocalDate) {
-                        return ((LocalDate) value).compareTo((LocalDate) fieldValue) <= 0;
-                    } else if (value instanceof LocalDateTime) {
-                        return ((LocalDateTime) value).compareTo((LocalDateTime) fieldValue) <= 0;
-                    } else if (value instanceof Byte) {
-                        return ((Byte) value).compareTo(Byte.parseByte((String) fieldValue)) <= 0;
-                    } else if (value instanceof Short) {
-                        return ((Short) value).compareTo(Short.parseShort((String) fieldValue)) <= 0;
-                    } else if (value instanceof Date) {
-                        return ((Date) value).toInstant().compareTo(((Date) fieldValue).toInstant()) <= 0;
-                    } else if (Collection.class.isAssignableFrom(value.getClass())) {
-
-                        Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.LTE);
-
-                        return ((List<?>) value).stream().anyMatch(newPredicate);
-
-                    } else { // assume entity class
-                        Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                FilterOperation.LTE);
-                        return newPredicate.test(value);
-                    }
-                } else if (operation.equals(FilterOperation.IN)) {
-                    if (value != null) {
                         if (value instanceof String || value instanceof Double || value instanceof Float || value instanceof Long ||
-                            value instanceof Boolean || value instanceof Byte || value instanceof Short || value instanceof Date ||
-                            value instanceof Enum || value instanceof UUID) {
-
-                            return ((List<?>) fieldValue).stream()
-                                    .filter(Objects::nonNull)
-                                    .map(s -> getValueForField(field, (String) s)).collect(Collectors
-                                            .toList()).contains(value);
-
-                        } else if (Collection.class.isAssignableFrom(value.getClass())) {
+                                value instanceof Boolean || value instanceof Byte || value instanceof Short || value instanceof Date || value instanceof Enum) {
+                            return false;
+                        } else {
+                            return nested.test(value);
+                        }
+                    }
+                }
+            } else if (operation.equals(FilterOperation.ISNOTNULL)) {
+                return value != null;
+            }
 
-                            Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                    fieldValue,
-                                    FilterOperation.IN);
 
-                            return ((List<?>) value).stream().anyMatch(newPredicate);
+            return false;
+        };
+    }
 
-                        } else { // assume entity class
-                            Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                    FilterOperation.IN);
-                            return newPredicate.test(value);
-                        }
-                    } else
-                        return false;
-                } else if (operation.equals(FilterOperation.INIC)) {
-                    if (value != null) {
-                        if (value instanceof String) {
+    /**
+     * Converts the literal to the number type of the field, or returns {@code null} if the field is not a number or
+     * the literal can't be converted, in which case it is converted (and rejected) when compared.
+     */
+    private static Object convertNumber(Class<?> type, String literal) {
 
-                            return ((List<String>) fieldValue).stream()
-                                    .filter(Objects::nonNull)
-                                    .map(String::toLowerCase).collect(Collectors
-                                            .toList()).contains(((String) value).toLowerCase());
+        try {
+            return parseNumber(type, literal);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 
-                        } else if (Collection.class.isAssignableFrom(value.getClass())) {
+    private static Object parseNumber(Class<?> type, String literal) {
+
+        if (type.equals(Integer.class) || type.equals(int.class)) {
+            return Integer.parseInt(literal);
+        } else if (type.equals(Double.class) || type.equals(double.class)) {
+            return Double.parseDouble(literal);
+        } else if (type.equals(Float.class) || type.equals(float.class)) {
+            return Float.parseFloat(literal);
+        } else if (type.equals(Long.class) || type.equals(long.class)) {
+            return Long.parseLong(literal);
+        } else if (type.equals(Byte.class) || type.equals(byte.class)) {
+            return Byte.parseByte(literal);
+        } else if (type.equals(Short.class) || type.equals(short.class)) {
+            return Short.parseShort(literal);
+        } else if (type.equals(BigDecimal.class)) {
+            return new BigDecimal(literal);
+        }
 
-                            Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                    fieldValue,
-                                    FilterOperation.INIC);
+        return null;
+    }
 
-                            return ((List<?>) value).stream().anyMatch(newPredicate);
+    /**
+     * Returns the literal converted for the number the field holds, parsing it again only if the field holds
+     * numbers of different types.
+     */
+    private static Object numberOperand(Object value, Object literal, Object fieldValue) {
+        return literal != null && literal.getClass().equals(value.getClass())
+                ? literal
+                : parseNumber(value.getClass(), (String) fieldValue);
+    }
 
-                        } else { // assume entity class
-                            Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                    FilterOperation.INIC);
-                            return newPredicate.test(value);
-                        }
-                    } else
-                        return false;
-                } else if (operation.equals(FilterOperation.NIN)) {
-                    if (value != null) {
-                        if (value instanceof String || value instanceof Double || value instanceof Float || value instanceof Long ||
-                            value instanceof Boolean || value instanceof Byte || value instanceof Short || value instanceof Date ||
-                            value instanceof Enum || value instanceof UUID) {
+    /**
+     * Converts the values of the {@code IN} filters to a set of field values, lower cased when the case is ignored.
+     * Returns {@code null} for other filters or if a value can't be converted, in which case the values are converted
+     * (and rejected) when compared.
+     */
+    private static Set<?> convertValues(Field field, List<?> fieldValues, FilterOperation operation) {
 
-                            return !((List<?>) fieldValue).stream()
-                                    .filter(Objects::nonNull)
-                                    .map(s -> getValueForField(field, (String) s)).collect(Collectors
-                                            .toList()).contains(value);
+        switch (operation) {
+            case IN:
+            case NIN:
+                try {
+                    return fieldValues.stream()
+                            .filter(Objects::nonNull)
+                            .map(s -> getValueForField(field, (String) s))
+                            .collect(Collectors.toCollection(HashSet::new));
+                } catch (InvalidFieldValueException e) {
+                    return null;
+                }
+            case INIC:
+            case NINIC:
+                return fieldValues.stream()
+                        .filter(Objects::nonNull)
+                        .map(s -> ((String) s).toLowerCase())
+                        .collect(Collectors.toCollection(HashSet::new));
+            default:
+                return null;
+        }
+    }
 
-                        } else if (Collection.class.isAssignableFrom(value.getClass())) {
+    private static LikeMatcher createLikeMatcher(String fieldValue, FilterOperation operation) {
 
-                            Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                    fieldValue,
-                                    FilterOperation.NIN);
+        switch (operation) {
+            case LIKE:
+            case NLIKE:
+                return LikeMatcher.compile(fieldValue, false);
+            case LIKEIC:
+            case NLIKEIC:
+                return LikeMatcher.compile(fieldValue, true);
+            default:
+                return null;
+        }
+    }
 
-                            return ((List<?>) value).stream().anyMatch(newPredicate);
+    private static <T> Comparator<T> comparator(Class<T> clazz, String fieldName, OrderDirection orderDirection, OrderNulls orderNulls) {
+        //optimization for sorting by children value, shared by the threads of a parallel sort
+        Map<Collection, Optional<Object>> minCollectionValCache = new ConcurrentHashMap<>();
+        return new FieldPathComparator<>(clazz, fieldName, orderDirection, orderNulls, minCollectionValCache);
+    }
 
-                        } else { // assume entity class
-                            Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                    FilterOperation.NIN);
-                            return newPredicate.test(value);
-                        }
-                    } else
-                        return false;
-                } else if (operation.equals(FilterOperation.NINIC)) {
-                    if (value != null) {
-                        if (value instanceof String) {
+    /**
+     * Compares instances by the value of a field path. The fields of the path are resolved when the comparator is
+     * created, so a comparison only reads the values through the resolved accessors.
+     */
+    private static class FieldPathComparator<T> implements Comparator<T> {
 
-                            return !((List<String>) fieldValue).stream()
-                                    .filter(Objects::nonNull)
-                                    .map(String::toLowerCase).collect(Collectors
-                                            .toList()).contains(((String) field.get(instance)).toLowerCase());
+        private final String[] fieldNames;
+        private final FieldAccessor accessor;
+        private final boolean collection;
+        private final OrderDirection orderDirection;
+        private final OrderNulls orderNulls;
+        private final Map<Collection, Optional<Object>> minCollectionValCache;
 
-                        } else if (Collection.class.isAssignableFrom(value.getClass())) {
+        private Comparator elementComparator;
+        private Comparator next;
 
-                            Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                    fieldValue,
-                                    FilterOperation.NINIC);
+        private FieldPathComparator(Class<?> clazz, String fieldName, OrderDirection orderDirection, OrderNulls orderNulls,
+                                    Map<Collection, Optional<Object>> minCollectionValCache) {
 
-                            return ((List<?>) value).stream().anyMatch(newPredicate);
+            this.fieldNames = fieldName.split("\\.");
+            this.orderDirection = orderDirection;
+            this.orderNulls = orderNulls;
+            this.minCollectionValCache = minCollectionValCache;
 
-                        } else { // assume entity class
+            try {
+                this.accessor = fieldAccessorLookup(clazz, fieldNames[0]);
+            } catch (NoSuchFieldException e) {
+                throw new NoSuchEntityFieldException(e.getMessage(), fieldName, clazz.getSimpleName());
+            }
 
-                            Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1), fieldValue,
-                                    FilterOperation.NINIC);
-                            return newPredicate.test(value);
-                        }
-                    } else
-                        return true;
-                } else if (operation.equals(FilterOperation.ISNULL)) {
-                    if (value == null) {
-                        return true;
-                    } else {
-                        if (Collection.class.isAssignableFrom(value.getClass())) {
+            if (accessor == null) {
+                throw new NoSuchEntityFieldException("No such entity field", fieldName, clazz.getSimpleName());
+            }
 
-                            Predicate newPredicate = filter(getGenericType(field), fieldName.substring(fieldNames[0].length() + 1),
-                                    fieldValue,
-                                    FilterOperation.ISNULL);
+            Field f = accessor.getField();
+            Class<?> fieldClass = f.getType();
 
-                            return ((List<?>) value).stream().anyMatch(newPredicate);
+            this.collection = Collection.class.isAssignableFrom(fieldClass);
 
-                        } else { // assume entity class
+            if (fieldNames.length > 1) {
+                String nextLevelFieldName = String.join(".", Arrays.copyOfRange(fieldNames, 1, fieldNames.length));
 
-                            if (value instanceof String || value instanceof Double || value instanceof Float || value instanceof Long ||
-                                    value instanceof Boolean || value instanceof Byte || value instanceof Short || value instanceof Date || value instanceof Enum) {
-                                return false;
-                            } else {
-                                Predicate newPredicate = filter(field.getType(), fieldName.substring(fieldNames[0].length() + 1),
-                                        fieldValue,
-                                        FilterOperation.ISNULL);
-                                return newPredicate.test(value);
-                            }
-                        }
-                    }
-                } else if (operation.equals(FilterOperation.ISNOTNULL)) {
-                    return value != null;
+                if (collection) {
+                    fieldClass = getGenericType(f);
+                    elementComparator = comparator(fieldClass, nextLevelFieldName, orderDirection, orderNulls);
                 }
 
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new NoSuchEntityFieldException(e.getMessage(), fieldName, clazz.getSimpleName());
+                next = new FieldPathComparator<>(fieldClass, nextLevelFieldName, orderDirection, orderNulls,
+                        minCollectionValCache);
             }
-            return false;
-        };
-    }
-
-    private static <T> Comparator<T> comparator(Class<T> clazz, String fieldName, OrderDirection orderDirection, OrderNulls orderNulls) {
-        //optimization for sorting by children value
-        Map<Collection, Optional<Object>> minCollectionValCache = new HashMap<>();
-        return (T instance1, T instance2) -> compareInstanceFields(clazz, fieldName, instance1, instance2, orderDirection, orderNulls,
-                minCollectionValCache);
-    }
-
-    private static <T> int compareInstanceFields(Class<T> clazz, String fieldName, T instance1, T instance2, OrderDirection orderDirection,
-                                                 OrderNulls orderNulls, Map<Collection, Optional<Object>> minCollectionValCache) {
-
-        try {
-            String[] fieldNames = fieldName.split("\\.");
-
-            Class clazzTarget = clazz;
+        }
 
-            Field f = ClassUtils.fieldLookup(clazzTarget, fieldNames[0]);
-            f.setAccessible(true);
-            Class fieldClass = f.getType();
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(T instance1, T instance2) {
 
-            Object value1 = instance1 == null ? null : f.get(instance1);
-            Object value2 = instance2 == null ? null : f.get(instance2);
+            Object value1 = instance1 == null ? null : accessor.get(instance1);
+            Object value2 = instance2 == null ? null : accessor.get(instance2);
 
-            if (Collection.class.isAssignableFrom(fieldClass)) {
+            if (collection) {
                 Collection c1 = (Collection) value1;
                 Collection c2 = (Collection) value2;
                 if (c1 == null || c1.isEmpty() || c2 == null || c2.isEmpty()) {
-                    return compare(c1 == null || c1.isEmpty() ? null : c1.size(), c2 == null || c2.isEmpty() ? null : c2.size(),
-                            orderDirection,
-                            orderNulls);
+                    return StreamUtils.compare(c1 == null || c1.isEmpty() ? null : c1.size(),
+                            c2 == null || c2.isEmpty() ? null : c2.size(), orderDirection, orderNulls);
                 }
-                if (fieldNames.length > 1) {
-
-                    //get from cache
-                    Optional<Object> cachedOpt1 = minCollectionValCache.get(c1);
-                    Optional<Object> cachedOpt2 = minCollectionValCache.get(c2);
-
-                    if (cachedOpt1 == null || cachedOpt2 == null) {
-                        String nextLevelFieldName = String.join(".", Arrays.copyOfRange(fieldNames, 1, fieldNames.length));
-                        Comparator comparator = comparator(getGenericType(f), nextLevelFieldName, orderDirection, orderNulls);
-                        if (cachedOpt1 == null) {
-                            cachedOpt1 = c1.stream().min(comparator);
-                            minCollectionValCache.put(c1, cachedOpt1);
-                        }
-                        if (cachedOpt2 == null) {
-                            cachedOpt2 = c2.stream().min(comparator);
-                            minCollectionValCache.put(c2, cachedOpt2);
-                        }
-                    }
-
-                    value1 = cachedOpt1.orElse(null);
-                    value2 = cachedOpt2.orElse(null);
-
-                } else {
+                if (elementComparator == null) {
                     throw new InvalidEntityFieldException("OneToMany and ManyToMany relations are not supported by the order query",
-                            fieldNames[0], f.getType().getSimpleName());
+                            fieldNames[0], accessor.getField().getType().getSimpleName());
                 }
 
-                fieldClass = getGenericType(f);
+                value1 = minCollectionValCache.computeIfAbsent(c1, c -> c.stream().min(elementComparator)).orElse(null);
+                value2 = minCollectionValCache.computeIfAbsent(c2, c -> c.stream().min(elementComparator)).orElse(null);
             }
 
-            if (fieldNames.length > 1) {
-                String nextLevelFieldName = String.join(".", Arrays.copyOfRange(fieldNames, 1, fieldNames.length));
-                return compareInstanceFields(fieldClass, nextLevelFieldName, value1, value2, orderDirection, orderNulls,
-                        minCollectionValCache);
+            if (next != null) {
+                return next.compare(value1, value2);
             }
 
-            return compare(value1, value2, orderDirection, orderNulls);
-
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            throw new NoSuchEntityFieldException(e.getMessage(), fieldName, clazz.getSimpleName());
+            return StreamUtils.compare(value1, value2, orderDirection, orderNulls);
         }
     }
 
@@ -1210,7 +1603,7 @@ public class StreamUtils {
                         }
                     }
 
-                    for (Field fi : clazzTarget.getDeclaredFields()) {
+                    for (Field fi : EntityDescriptor.of(clazzTarget).getDeclaredFields()) {
                         if (!values.contains(fi.getName())) {
                             fi.setAccessible(true);
                             fi.set(value1, null);
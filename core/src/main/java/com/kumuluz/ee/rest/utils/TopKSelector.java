@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Selects the first {@code k} elements of a stream in the order of a comparator with a bounded heap, so only
+ * {@code k} elements are kept and sorted instead of the whole stream. Equal elements keep their encounter order, the
+ * same as with {@link Stream#sorted(Comparator)}.
+ */
+final class TopKSelector {
+
+    private TopKSelector() {
+    }
+
+    /**
+     * Returns the selected elements as a stream. The source stream is only consumed when the returned stream is.
+     */
+    static <T> Stream<T> select(Stream<T> stream, Comparator<? super T> comparator, int k) {
+
+        return StreamSupport.stream(() -> select(stream.iterator(), comparator, k).spliterator(),
+                Spliterator.ORDERED | Spliterator.SIZED, false).onClose(stream::close);
+    }
+
+    /**
+     * Returns the selected elements of a list. The list is split into chunks, which are selected in parallel on the
+     * current pool and merged, so the result is the same as with sequential selection.
+     */
+    static <T> List<T> selectParallel(List<T> list, Comparator<? super T> comparator, int k) {
+
+        Comparator<Ranked<T>> ranked = ranked(comparator);
+
+        int parallelism = ForkJoinTask.inForkJoinPool()
+                ? ForkJoinTask.getPool().getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism();
+
+        int chunkSize = Math.max(1024, (list.size() + parallelism * 4 - 1) / (parallelism * 4));
+        int chunks = (list.size() + chunkSize - 1) / chunkSize;
+
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> select(list.subList(c * chunkSize, Math.min(list.size(), (c + 1) * chunkSize)).iterator(),
+                        (long) c * chunkSize, ranked, k))
+                .flatMap(List::stream)
+                .sorted(ranked)
+                .limit(k)
+                .map(r -> r.element)
+                .collect(Collectors.toList());
+    }
+
+    private static <T> List<T> select(Iterator<T> iterator, Comparator<? super T> comparator, int k) {
+
+        List<T> result = new ArrayList<>();
+
+        for (Ranked<T> r : select(iterator, 0, ranked(comparator), k)) {
+            result.add(r.element);
+        }
+
+        return result;
+    }
+
+    private static <T> List<Ranked<T>> select(Iterator<T> iterator, long firstIndex, Comparator<Ranked<T>> ranked, int k) {
+
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+
+        // the head of the queue is the greatest of the kept elements, which is replaced by any smaller element
+        PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(Math.min(k, 1024) + 1, ranked.reversed());
+
+        for (long index = firstIndex; iterator.hasNext(); index++) {
+
+            Ranked<T> r = new Ranked<>(iterator.next(), index);
+
+            if (heap.size() < k) {
+                heap.add(r);
+            } else if (ranked.compare(r, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(r);
+            }
+        }
+
+        List<Ranked<T>> selected = new ArrayList<>(heap);
+        selected.sort(ranked);
+
+        return selected;
+    }
+
+    private static <T> Comparator<Ranked<T>> ranked(Comparator<? super T> comparator) {
+        return Comparator.<Ranked<T>, T>comparing(r -> r.element, comparator).thenComparingLong(r -> r.index);
+    }
+
+    private static class Ranked<T> {
+
+        private final T element;
+        private final long index;
+
+        private Ranked(T element, long index) {
+            this.element = element;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ *  Copyright (c) 2014-2026 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.rest.utils;
+
+import com.kumuluz.ee.rest.exceptions.NoSuchEntityFieldException;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.*;
+
+/**
+ * Creates entities from the tuples of a field projection. The aliases of the tuple elements are resolved once per
+ * entity and query shape into a plan of steps with pre-resolved method handles, so creating an entity only reads the
+ * tuple values by position and invokes the handles.
+ * <p>
+ * The rows of an entity are applied in order; the n-th row of the entity fills the n-th element of its collections,
+ * and the values of each row are applied in the order of their aliases.
+ */
+final class TupleMaterializer {
+
+    private static final int MAX_PLANS_PER_ENTITY = 64;
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<Map<List<String>, TupleMaterializer>> PLANS =
+            new ClassValue<Map<List<String>, TupleMaterializer>>() {
+                @Override
+                protected Map<List<String>, TupleMaterializer> computeValue(Class<?> type) {
+                    return new LinkedHashMap<List<String>, TupleMaterializer>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<List<String>, TupleMaterializer> eldest) {
+                            return size() > MAX_PLANS_PER_ENTITY;
+                        }
+                    };
+                }
+            };
+
+    private final Class<?> entity;
+    private final MethodHandle constructor;
+    private final int[] positions;
+    private final String[] aliases;
+    private final Step[] steps;
+
+    private TupleMaterializer(Class<?> entity, List<String> elementAliases) {
+
+        this.entity = entity;
+        this.constructor = constructor(entity);
+
+        Integer[] order = new Integer[elementAliases.size()];
+
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, Comparator.comparing(elementAliases::get));
+
+        this.positions = new int[order.length];
+        this.aliases = new String[order.length];
+        this.steps = new Step[order.length];
+
+        for (int i = 0; i < order.length; i++) {
+
+            positions[i] = order[i];
+            aliases[i] = elementAliases.get(order[i]);
+
+            try {
+                steps[i] = compile(entity, aliases[i].split("\\."), 0);
+            } catch (NoSuchFieldException e) {
+                // reported when the alias has a value, as before the plans were compiled
+                steps[i] = (el, value, row) -> {
+                    throw e;
+                };
+            }
+        }
+    }
+
+    /**
+     * Returns the plan for the entity and the elements of the tuple, which all tuples of a query share.
+     */
+    static TupleMaterializer of(Class<?> entity, Tuple tuple) {
+
+        List<TupleElement<?>> elements = tuple.getElements();
+        List<String> elementAliases = new ArrayList<>(elements.size());
+
+        for (TupleElement<?> element : elements) {
+            elementAliases.add(element.getAlias());
+        }
+
+        Map<List<String>, TupleMaterializer> plans = PLANS.get(entity);
+
+        synchronized (plans) {
+            TupleMaterializer plan = plans.get(elementAliases);
+
+            if (plan == null) {
+                plan = new TupleMaterializer(entity, elementAliases);
+                plans.put(elementAliases, plan);
+            }
+
+            return plan;
+        }
+    }
+
+    /**
+     * Creates one entity from the rows that belong to it.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T materialize(List<Tuple> tuples) {
+
+        Object el = newInstance(constructor, entity);
+
+        for (int row = 0; row < tuples.size(); row++) {
+
+            Tuple t = tuples.get(row);
+
+            for (int i = 0; i < steps.length; i++) {
+
+                Object o = t.get(positions[i]);
+
+                if (o == null) {
+                    continue;
+                }
+
+                try {
+                    steps[i].apply(el, o, row);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new NoSuchEntityFieldException(e.getMessage(), aliases[i], entity.getSimpleName());
+                }
+            }
+        }
+
+        return (T) el;
+    }
+
+    private static Step compile(Class<?> entity, String[] path, int index) throws NoSuchFieldException {
+
+        Field field = ClassUtils.fieldLookup(entity, path[index]);
+
+        if (field == null) {
+            return Step.NONE;
+        }
+
+        if (index == path.length - 1) {
+            return Collection.class.isAssignableFrom(field.getType())
+                    ? new CollectionValueStep(field)
+                    : new ValueStep(field);
+        }
+
+        if (Collection.class.isAssignableFrom(field.getType())) {
+
+            Class<?> childType = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+
+            return new CollectionChildStep(field, childType, compile(childType, path, index + 1));
+        }
+
+        return new ObjectChildStep(field, compile(field.getType(), path, index + 1));
+    }
+
+    private static MethodHandle constructor(Class<?> type) {
+
+        try {
+            Constructor<?> constructor = type.getConstructor();
+            constructor.setAccessible(true);
+
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Object newInstance(MethodHandle constructor, Class<?> type) {
+
+        if (constructor == null) {
+            throw new IllegalStateException("Unable to instantiate " + type.getName());
+        }
+
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to instantiate " + type.getName(), e);
+        }
+    }
+
+    private interface Step {
+
+        Step NONE = (el, value, row) -> {
+        };
+
+        void apply(Object el, Object value, int row) throws Throwable;
+    }
+
+    /**
+     * Base of the steps that read and write one field of the entity.
+     */
+    private abstract static class FieldStep implements Step {
+
+        final MethodHandle getter;
+        final MethodHandle setter;
+        final Class<?> collectionType;
+
+        FieldStep(Field field) {
+
+            try {
+                field.setAccessible(true);
+
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+                this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                this.setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to access field " + field.getName(), e);
+            }
+
+            if (List.class.isAssignableFrom(field.getType())) {
+                collectionType = List.class;
+            } else if (Set.class.isAssignableFrom(field.getType())) {
+                collectionType = Set.class;
+            } else {
+                collectionType = null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Collection<Object> collection(Object el) throws Throwable {
+
+            Collection<Object> collection = (Collection<Object>) (Object) getter.invokeExact(el);
+
+            if (collection == null) {
+
+                if (collectionType == List.class) {
+                    collection = new ArrayList<>();
+                } else if (collectionType == Set.class) {
+                    collection = new HashSet<>();
+                } else {
+                    throw new IllegalStateException("Unable to initialize collection of type " + getter.type());
+                }
+
+                setter.invokeExact(el, (Object) collection);
+            }
+
+            return collection;
+        }
+    }
+
+    private static final class ValueStep extends FieldStep {
+
+        ValueStep(Field field) {
+            super(field);
+        }
+
+        @Override
+        public void apply(Object el, Object value, int row) throws Throwable {
+            setter.invokeExact(el, value);
+        }
+    }
+
+    private static final class CollectionValueStep extends FieldStep {
+
+        CollectionValueStep(Field field) {
+            super(field);
+        }
+
+        @Override
+        public void apply(Object el, Object value, int row) throws Throwable {
+
+            Collection<Object> collection = collection(el);
+
+            if (!collection.contains(value)) {
+                collection.add(value);
+            }
+        }
+    }
+
+    private static final class ObjectChildStep extends FieldStep {
+
+        private final Class<?> childType;
+        private final MethodHandle childConstructor;
+        private final Step next;
+
+        ObjectChildStep(Field field, Step next) {
+            super(field);
+
+            this.childType = field.getType();
+            this.childConstructor = field.getType().isPrimitive() || field.getType() == String.class
+                    ? null
+                    : constructor(childType);
+            this.next = next;
+        }
+
+        @Override
+        public void apply(Object el, Object value, int row) throws Throwable {
+
+            Object child = (Object) getter.invokeExact(el);
+
+            if (child == null) {
+                child = newInstance(childConstructor, childType);
+                setter.invokeExact(el, child);
+            }
+
+            next.apply(child, value, row);
+        }
+    }
+
+    private static final class CollectionChildStep extends FieldStep {
+
+        private final Class<?> childType;
+        private final MethodHandle childConstructor;
+        private final Step next;
+
+        CollectionChildStep(Field field, Class<?> childType, Step next) {
+            super(field);
+
+            this.childType = childType;
+            this.childConstructor = constructor(childType);
+            this.next = next;
+        }
+
+        @Override
+        public void apply(Object el, Object value, int row) throws Throwable {
+
+            Collection<Object> collection = collection(el);
+
+            if (row < collection.size()) {
+
+                Object child = elementAt(collection, row);
+
+                next.apply(child, value, row);
+
+                // an element of a list stays in the list, an element of a set may have to be added again when its
+                // hash code depends on the value that was just set
+                if (!(collection instanceof List) && !collection.contains(child)) {
+                    collection.add(child);
+                }
+            } else {
+
+                Object child = newInstance(childConstructor, childType);
+
+                next.apply(child, value, row);
+
+                if (!collection.contains(child)) {
+                    collection.add(child);
+                }
+            }
+        }
+
+        private static Object elementAt(Collection<Object> collection, int index) {
+
+            if (collection instanceof List) {
+                return ((List<Object>) collection).get(index);
+            }
+
+            Iterator<Object> iterator = collection.iterator();
+
+            for (int i = 0; i < index; i++) {
+                iterator.next();
+            }
+
+            return iterator.next();
+        }
+    }
+}
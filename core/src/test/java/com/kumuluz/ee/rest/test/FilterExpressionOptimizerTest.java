@@ -0,0 +1,138 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.FilterOperation;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.FilterExpressionOptimizer;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import com.kumuluz.ee.rest.utils.StreamUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+@RunWith(Parameterized.class)
+public class FilterExpressionOptimizerTest {
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Test
+    public void testFlattenDeduplicateAndSort() {
+
+        QueryFilterExpression optimized = optimize(null, "((b:eq:1 a:eq:1) (a:eq:1 (c:eq:1 b:eq:1)))");
+
+        Assert.assertEquals("AND('a':EQ:'1','b':EQ:'1','c':EQ:'1')", FilterExpressionOptimizer.canonicalKey(optimized));
+        Assert.assertEquals(FilterExpressionOptimizer.canonicalKey(optimized),
+                FilterExpressionOptimizer.canonicalKey(optimize(null, "c:eq:1 b:eq:1 a:eq:1")));
+        Assert.assertEquals(3, optimized.getAllValues().size());
+
+        Assert.assertEquals("'a':EQ:'1'",
+                FilterExpressionOptimizer.canonicalKey(optimize(null, "a:eq:1,(a:eq:1 a:eq:1)")));
+        Assert.assertEquals("OR('a':EQ:'1',AND('a':EQ:'2','b':EQ:'1'))",
+                FilterExpressionOptimizer.canonicalKey(optimize(null, "(b:eq:1 a:eq:2),a:eq:1,a:eq:1")));
+    }
+
+    @Test
+    public void testTypeDependentRewrites() {
+
+        Assert.assertEquals("'firstname':IN:null['Allen','Bruce','Sandra']",
+                FilterExpressionOptimizer.canonicalKey(optimize(User.class,
+                        "firstname:eq:Allen,firstname:in:[Bruce,Allen],firstname:eq:Sandra")));
+        Assert.assertEquals("'status':EQ:'ACTIVE'",
+                FilterExpressionOptimizer.canonicalKey(optimize(User.class, "status:in:[ACTIVE]")));
+        Assert.assertEquals("AND('firstname':EQ:'Sandra','id':BETWEEN:null['3','8'])",
+                FilterExpressionOptimizer.canonicalKey(optimize(User.class,
+                        "id:lte:8 firstname:in:[Sandra] id:gte:3")));
+
+        // without the entity the types of the fields are unknown
+        Assert.assertEquals("OR('firstname':EQ:'a','firstname':EQ:'b')",
+                FilterExpressionOptimizer.canonicalKey(optimize(null, "firstname:eq:a,firstname:eq:b")));
+
+        // numbers are compared differently by EQ and IN filters of StreamUtils
+        Assert.assertEquals("OR('id':EQ:'1','id':EQ:'3')",
+                FilterExpressionOptimizer.canonicalKey(optimize(User.class, "id:eq:1,id:eq:3")));
+
+        // collections, ambiguous bounds, mapped fields and dates are left as they are
+        Assert.assertEquals("AND('projects.id':GTE:'1','projects.id':LTE:'3')",
+                FilterExpressionOptimizer.canonicalKey(optimize(User.class, "projects.id:gte:1 projects.id:lte:3")));
+        Assert.assertEquals("AND('id':GTE:'1','id':GTE:'2','id':LTE:'3')",
+                FilterExpressionOptimizer.canonicalKey(optimize(User.class, "id:gte:1 id:gte:2 id:lte:3")));
+        Assert.assertEquals("OR('firstnameChanged':EQ:'a','firstnameChanged':EQ:'b')",
+                FilterExpressionOptimizer.canonicalKey(optimize(User.class,
+                        "firstnameChanged:eq:a,firstnameChanged:eq:b")));
+    }
+
+    @Test
+    public void testOriginalExpressionIsNotModified() {
+
+        QueryParameters q = QueryParameters.query("filter=id:eq:1,id:eq:3").build();
+        QueryFilterExpression expression = q.getFilterExpression();
+
+        FilterExpressionOptimizer.optimize(User.class, expression);
+
+        Assert.assertEquals(FilterExpressionOperation.OR, expression.operation());
+        Assert.assertEquals("1", expression.left().value().getValue());
+        Assert.assertEquals("3", expression.right().value().getValue());
+    }
+
+    @Test
+    public void testRewrittenFiltersReturnSameEntities() {
+
+        assertResults("firstname:eq:Sandra,firstname:eq:Bruce", u -> Arrays.asList("Sandra", "Bruce")
+                .contains(u.getFirstname()));
+        assertResults("firstname:eq:Karen,firstname:in:[Laura,Karen],firstname:eq:Laura",
+                u -> Arrays.asList("Karen", "Laura").contains(u.getFirstname()));
+        assertResults("firstname:in:[Sandra]", u -> "Sandra".equals(u.getFirstname()));
+        assertResults("id:gte:3 id:lte:8", u -> u.getId() >= 3 && u.getId() <= 8);
+        assertResults("(id:gte:5 id:lte:60) country:in:[China]", u -> u.getId() >= 5 && u.getId() <= 60 &&
+                "China".equals(u.getCountry()));
+        assertResults("(confirmed:eq:true,confirmed:eq:false) (id:lte:20 id:lte:20 id:gte:10)",
+                u -> u.getConfirmed() != null && u.getId() >= 10 && u.getId() <= 20);
+        assertResults("firstname:eq:Sandra,firstname:eq:Bruce,(id:eq:1,id:eq:2)",
+                u -> Arrays.asList("Sandra", "Bruce").contains(u.getFirstname()) || u.getId() <= 2);
+    }
+
+    private void assertResults(String filter, Predicate<User> expected) {
+
+        QueryParameters q = QueryParameters.query("filter=" + filter).build();
+
+        List<User> all = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        List<Integer> expectedIds = all.stream().filter(expected).map(User::getId).sorted()
+                .collect(Collectors.toList());
+
+        Assert.assertFalse(filter, expectedIds.isEmpty());
+        Assert.assertEquals(filter, expectedIds, JPAUtils.queryEntities(em, User.class, q).stream()
+                .map(User::getId).sorted().collect(Collectors.toList()));
+        Assert.assertEquals(filter, expectedIds, StreamUtils.queryEntities(all, q).stream()
+                .map(User::getId).sorted().collect(Collectors.toList()));
+        Assert.assertEquals(filter, Long.valueOf(expectedIds.size()), JPAUtils.queryEntitiesCount(em, User.class, q));
+    }
+
+    private static QueryFilterExpression optimize(Class<?> entity, String filter) {
+        return FilterExpressionOptimizer.optimize(entity,
+                QueryParameters.query("filter=" + filter).build().getFilterExpression());
+    }
+}
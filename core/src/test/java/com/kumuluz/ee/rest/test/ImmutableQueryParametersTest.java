@@ -0,0 +1,184 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.ImmutableQueryParameters;
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.beans.QueryOrder;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.FilterExpressionOperation;
+import com.kumuluz.ee.rest.enums.FilterOperation;
+import com.kumuluz.ee.rest.enums.OrderDirection;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class ImmutableQueryParametersTest {
+
+    private static final String QUERY = "limit=5&offset=10&order=id DESC&fields=id,name&filter=name:in:[a,b] " +
+            "createdAt:gte:dt'2014-11-26T11:15:08Z'";
+
+    @Test
+    public void testEqualsAndHashCode() {
+
+        ImmutableQueryParameters a = ImmutableQueryParameters.of(QueryParameters.query(QUERY).build());
+        ImmutableQueryParameters b = ImmutableQueryParameters.of(QueryParameters.query(QUERY).build());
+        ImmutableQueryParameters c = ImmutableQueryParameters.of(QueryParameters.query(QUERY + "&count=false").build());
+        ImmutableQueryParameters d = ImmutableQueryParameters.of(
+                QueryParameters.query(QUERY.replace("[a,b]", "[a,c]")).build());
+
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+        Assert.assertNotEquals(a, c);
+        Assert.assertNotEquals(a, d);
+
+        Map<ImmutableQueryParameters, String> cache = new HashMap<>();
+        cache.put(a, "a");
+
+        Assert.assertEquals("a", cache.get(b));
+        Assert.assertNull(cache.get(d));
+    }
+
+    @Test
+    public void testCopiesAreIndependent() {
+
+        QueryParameters q = QueryParameters.query(QUERY).build();
+        ImmutableQueryParameters immutable = ImmutableQueryParameters.of(q);
+
+        q.setLimit(1L);
+        q.getOrder().clear();
+        q.getFilterExpression().left().value().getValues().add("c");
+        q.getFilterExpression().right().value().getDateValue().setTime(0);
+
+        Assert.assertEquals(Long.valueOf(5), immutable.getLimit());
+        Assert.assertEquals(1, immutable.getOrder().size());
+        Assert.assertEquals(2, immutable.getFilterExpression().left().value().getValues().size());
+        Assert.assertNotEquals(0, immutable.getFilterExpression().right().value().getDateValue().getTime());
+
+        immutable.getFilterExpression().right().value().getDateValue().setTime(0);
+        Assert.assertNotEquals(0, immutable.getFilterExpression().right().value().getDateValue().getTime());
+
+        QueryParameters mutable = immutable.toQueryParameters();
+        mutable.getFilterExpression().left().value().getValues().add("c");
+        mutable.getOrder().get(0).setOrder(OrderDirection.ASC);
+
+        Assert.assertEquals(2, immutable.getFilterExpression().left().value().getValues().size());
+        Assert.assertEquals(OrderDirection.DESC, immutable.getOrder().get(0).getOrder());
+        Assert.assertEquals(ImmutableQueryParameters.of(QueryParameters.query(QUERY).build()),
+                ImmutableQueryParameters.of(ImmutableQueryParameters.of(QueryParameters.query(QUERY).build())
+                        .toQueryParameters()));
+    }
+
+    @Test
+    public void testModificationsAreRejected() {
+
+        ImmutableQueryParameters q = ImmutableQueryParameters.of(QueryParameters.query(QUERY).build());
+
+        assertUnsupported(() -> q.getOrder().add(new QueryOrder("name", OrderDirection.ASC)));
+        assertUnsupported(() -> q.getOrder().get(0).setField("name"));
+        assertUnsupported(() -> q.getFields().clear());
+        assertUnsupported(() -> q.getFilterExpression().left().value().setValue("x"));
+        assertUnsupported(() -> q.getFilterExpression().left().value().getValues().add("c"));
+    }
+
+    @Test
+    public void testDerivedVariantsShareStructure() {
+
+        ImmutableQueryParameters q = ImmutableQueryParameters.of(QueryParameters.query(QUERY).build());
+
+        ImmutableQueryParameters page = q.withPage(20L, 5L);
+
+        Assert.assertEquals(Long.valueOf(20), page.getOffset());
+        Assert.assertEquals(Long.valueOf(10), q.getOffset());
+        Assert.assertSame(q.getOrder(), page.getOrder());
+        Assert.assertSame(q.getFields(), page.getFields());
+        Assert.assertSame(q.getFilterExpression(), page.getFilterExpression());
+        Assert.assertNotEquals(q, page);
+        Assert.assertEquals(q, page.withPage(10L, 5L));
+
+        ImmutableQueryParameters filtered = q.withFilter(FilterExpressionOperation.AND,
+                new QueryFilterExpression(new QueryFilter("deleted", FilterOperation.EQ, "false")));
+
+        Assert.assertSame(q.getFilterExpression(), filtered.getFilterExpression().left());
+        Assert.assertEquals("deleted", filtered.getFilterExpression().right().value().getField());
+        Assert.assertEquals(2, q.getFilterExpression().getAllValues().size());
+        Assert.assertEquals(3, filtered.getFilterExpression().getAllValues().size());
+    }
+
+    @Test
+    public void testQueryParametersViewSharesStructure() {
+
+        ImmutableQueryParameters q = ImmutableQueryParameters.of(QueryParameters.query(QUERY).build());
+
+        QueryParameters view = q.asQueryParameters();
+
+        Assert.assertEquals(Long.valueOf(5), view.getLimit());
+        Assert.assertSame(q.getOrder(), view.getOrder());
+        Assert.assertSame(q.getFields(), view.getFields());
+        Assert.assertSame(q.getFilterExpression(), view.getFilterExpression());
+        Assert.assertEquals(q, ImmutableQueryParameters.of(view));
+
+        assertUnsupported(() -> view.setLimit(1L));
+        assertUnsupported(() -> view.getOrder().clear());
+        assertUnsupported(() -> view.addFilterExpression(FilterExpressionOperation.AND,
+                new QueryFilterExpression(new QueryFilter("deleted", FilterOperation.EQ, "false"))));
+    }
+
+    @Test
+    public void testQueryParametersViewIsQueried() {
+
+        String query = "fields=id,firstname,projects.name&order=lastname DESC&filter=id:lte:40&limit=5&offset=3";
+
+        QueryParameters view = ImmutableQueryParameters.of(QueryParameters.query(query).build()).asQueryParameters();
+
+        for (EntityManager em : Arrays.asList(JpaUtil.getInstance().getEclipselinkEntityManager(),
+                JpaUtil.getInstance().getHibernateEntityManager())) {
+
+            Assert.assertEquals(
+                    JPAUtils.queryEntities(em, User.class, QueryParameters.query(query).build()).stream()
+                            .map(User::getId).collect(Collectors.toList()),
+                    JPAUtils.queryEntities(em, User.class, view).stream()
+                            .map(User::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testBuilder() {
+
+        ImmutableQueryParameters q = ImmutableQueryParameters.builder()
+                .limit(5L)
+                .offset(10L)
+                .addOrder(new QueryOrder("id", OrderDirection.DESC))
+                .fields(Arrays.asList("id", "name"))
+                .filterExpression(new QueryFilterExpression(new QueryFilter("name", FilterOperation.IN,
+                        Arrays.asList("a", "b"))))
+                .addFilterExpression(FilterExpressionOperation.AND, new QueryFilterExpression(
+                        QueryParameters.query("filter=createdAt:gte:dt'2014-11-26T11:15:08Z'").build()
+                                .getFilterExpression().value()))
+                .build();
+
+        Assert.assertEquals(ImmutableQueryParameters.of(QueryParameters.query(QUERY).build()), q);
+        Assert.assertEquals(q, q.toBuilder().build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit() {
+        ImmutableQueryParameters.builder().limit(-1L);
+    }
+
+    private static void assertUnsupported(Runnable modification) {
+        try {
+            modification.run();
+            Assert.fail("No exception was thrown");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.annotations.RestIgnore;
+import com.kumuluz.ee.rest.annotations.RestMapping;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.exceptions.InvalidEntityFieldException;
+import com.kumuluz.ee.rest.exceptions.QueryFormatException;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.IndexedCollection;
+import com.kumuluz.ee.rest.utils.StreamUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@RunWith(Parameterized.class)
+public class IndexedCollectionTest {
+
+    private static final List<String> QUERIES = Arrays.asList(
+            "",
+            "filter=country:EQ:China",
+            "filter=country:EQ:China&order=lastname DESC&limit=3",
+            "filter=country:EQ:Nowhere",
+            "filter=id:GT:20 id:LTE:40 country:IN:[China,Russia,Portugal]&order=id DESC",
+            "filter=id:BETWEEN:[10,30] lastname:LIKE:%a%",
+            "filter=id:NBETWEEN:[10,90]&order=id",
+            "filter=role:GTE:1,country:EQ:China&order=role&limit=10",
+            "filter=status:EQ:ACTIVE&order=lastname&offset=5&limit=5",
+            "filter=status:IN:[ACTIVE,INACTIVE] role:LT:2",
+            "filter=birthDate:GT:2015-01-01",
+            "order=lastname&limit=10",
+            "order=lastname DESC&offset=95&limit=10",
+            "order=role DESC NULLS FIRST,lastname&offset=12&limit=7",
+            "order=role ASC NULLS LAST&limit=40",
+            "order=birthDate DESC&limit=5",
+            "filter=lastname:LIKEIC:%son&order=id&limit=0");
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Test
+    public void testIndexedQueriesMatchStreamUtils() {
+
+        List<User> users = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        IndexedCollection<User> indexed = new IndexedCollection<>(User.class, users)
+                .hashIndex("country")
+                .hashIndex("status")
+                .sortedIndex("id")
+                .sortedIndex("role")
+                .sortedIndex("lastname")
+                .sortedIndex("birthDate");
+
+        for (String query : QUERIES) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            Assert.assertEquals(query, StreamUtils.queryEntities(users, q), indexed.queryEntities(q));
+            Assert.assertEquals(query, StreamUtils.queryEntitiesCount(users, q), indexed.queryEntitiesCount(q));
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+
+        List<Reading> readings = IntStream.range(0, 200)
+                .mapToObj(i -> new Reading(i, "sensor-" + i % 5, i % 7 == 0 ? null : i % 17, LocalDate.of(2020, 1, 1).plusDays(i % 30)))
+                .collect(Collectors.toList());
+
+        IndexedCollection<Reading> indexed = new IndexedCollection<>(Reading.class, readings)
+                .hashIndex("sensor")
+                .sortedIndex("value")
+                .sortedIndex("takenAt");
+
+        List<Reading> expected = new ArrayList<>(readings);
+
+        for (int i = 0; i < 200; i += 3) {
+            indexed.remove(readings.get(i));
+            expected.remove(readings.get(i));
+        }
+
+        for (int i = 1; i < 200; i += 4) {
+
+            if (i % 3 == 0) {
+                continue;
+            }
+
+            Reading r = readings.get(i);
+            r.sensor = "sensor-9";
+            r.value = r.value == null ? 3 : r.value + 100;
+            indexed.update(r);
+        }
+
+        for (int i = 200; i < 230; i++) {
+            Reading r = new Reading(i, "sensor-" + i % 10, i % 23, LocalDate.of(2020, 2, 1).plusDays(i % 10));
+            indexed.add(r);
+            expected.add(r);
+        }
+
+        Assert.assertEquals(expected, indexed.toList());
+
+        for (String query : Arrays.asList("filter=sensor:EQ:sensor-9", "filter=sensor:IN:[sensor-1,sensor-9] value:GT:10",
+                "filter=value:BETWEEN:[5,110]&order=value DESC&limit=20", "order=value&offset=10&limit=10",
+                "filter=takenAt:LTE:2020-01-10&order=takenAt DESC,value&limit=15", "order=takenAt&limit=30")) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            Assert.assertEquals(query, StreamUtils.queryEntities(expected, q), indexed.queryEntities(q));
+            Assert.assertEquals(query, StreamUtils.queryEntitiesCount(expected, q), indexed.queryEntitiesCount(q));
+        }
+    }
+
+    @Test(expected = InvalidEntityFieldException.class)
+    public void testCollectionFieldIndex() {
+        new IndexedCollection<>(User.class).hashIndex("projects.name");
+    }
+
+    @Test
+    public void testFieldsDoNotChangeIndexedEntities() {
+
+        List<User> users = em.createNamedQuery("User.getAll", User.class).getResultList().stream()
+                .map(u -> {
+                    User copy = new User();
+                    copy.setId(u.getId());
+                    copy.setCountry(u.getCountry());
+                    return copy;
+                })
+                .collect(Collectors.toList());
+
+        IndexedCollection<User> indexed = new IndexedCollection<>(User.class, users).hashIndex("country");
+
+        try {
+            indexed.queryEntities(QueryParameters.query("fields=id&filter=country:EQ:China").build());
+            Assert.fail();
+        } catch (QueryFormatException e) {
+            // fields are not selected from the stored entities
+        }
+
+        QueryParameters q = QueryParameters.query("filter=country:EQ:China").build();
+
+        Assert.assertFalse(indexed.queryEntities(q).isEmpty());
+        Assert.assertEquals(StreamUtils.queryEntities(users, q), indexed.queryEntities(q));
+    }
+
+    @Test
+    public void testIndexesOfMappedAndIgnoredFields() {
+
+        List<Tag> tags = IntStream.range(0, 50)
+                .mapToObj(i -> new Tag(i, "tag-" + i % 4, i % 6, "owner-" + i % 3))
+                .collect(Collectors.toList());
+
+        IndexedCollection<Tag> indexed = new IndexedCollection<>(Tag.class, tags)
+                .hashIndex("label")
+                .sortedIndex("rank");
+
+        for (String query : Arrays.asList("filter=name:EQ:tag-1", "filter=label:EQ:tag-1 owner:EQ:owner-1",
+                "order=position DESC,id&limit=10", "filter=owner:EQ:owner-1&order=rank,id DESC&limit=5",
+                "filter=position:GTE:3 name:IN:[tag-1,tag-2]&order=id DESC", "order=owner DESC,id&limit=10")) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            Assert.assertEquals(query, StreamUtils.queryEntities(tags, q), indexed.queryEntities(q));
+            Assert.assertEquals(query, StreamUtils.queryEntitiesCount(tags, q), indexed.queryEntitiesCount(q));
+        }
+    }
+
+    public static class Reading {
+
+        private Integer id;
+        private String sensor;
+        private Integer value;
+        private LocalDate takenAt;
+
+        public Reading(Integer id, String sensor, Integer value, LocalDate takenAt) {
+            this.id = id;
+            this.sensor = sensor;
+            this.value = value;
+            this.takenAt = takenAt;
+        }
+    }
+
+    @RestIgnore("owner")
+    public static class Tag {
+
+        private Integer id;
+        @RestMapping("label")
+        private String name;
+        @RestMapping("position")
+        private Integer rank;
+        private String owner;
+
+        public Tag(Integer id, String name, Integer rank, String owner) {
+            this.id = id;
+            this.name = name;
+            this.rank = rank;
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.Queried;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.Predicate;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@RunWith(Parameterized.class)
+public class JPAUtilsAsyncTest {
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @Parameterized.Parameters
+    public static Collection<EntityManagerFactory> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManagerFactory(),
+                jpaUtil.getHibernateEntityManagerFactory()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManagerFactory emf;
+
+    @AfterClass
+    public static void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncMatchesSync() {
+
+        assertAsyncMatchesSync("limit=10&offset=20&order=lastname DESC&where=role:gte:0");
+        assertAsyncMatchesSync("limit=5&order=id&fields=id,firstname");
+        assertAsyncMatchesSync("where=country:like:'%a%'&order=id");
+    }
+
+    @Test
+    public void testAsyncWithoutCount() {
+
+        AtomicInteger tasks = new AtomicInteger();
+
+        QueryParameters q = QueryParameters.query("limit=10&order=id").build();
+        q.setCount(false);
+
+        Queried<User> queried = JPAUtils.getQueriedAsync(emf, User.class, q, runnable -> {
+            tasks.incrementAndGet();
+            executor.execute(runnable);
+        }).join();
+
+        Assert.assertNull(queried.getTotalCount());
+        Assert.assertEquals(10, queried.stream().count());
+        Assert.assertEquals(1, tasks.get());
+    }
+
+    @Test
+    public void testAsyncRunsCountAndPageOnExecutor() {
+
+        AtomicInteger tasks = new AtomicInteger();
+
+        Queried<User> queried = JPAUtils.getQueriedAsync(emf, User.class, QueryParameters.query("limit=3").build(),
+                runnable -> {
+                    tasks.incrementAndGet();
+                    executor.execute(runnable);
+                }).join();
+
+        Assert.assertEquals(Long.valueOf(100), queried.getTotalCount());
+        Assert.assertEquals(3, queried.stream().count());
+        Assert.assertEquals(2, tasks.get());
+    }
+
+    @Test
+    public void testAsyncCursor() {
+
+        Queried<User> first = JPAUtils.getQueriedAsync(emf, User.class,
+                QueryParameters.query("limit=10&order=lastname").build(), executor).join();
+
+        Assert.assertNotNull(first.getNextCursor());
+
+        List<Integer> expected = JPAUtils.queryEntities(emf.createEntityManager(), User.class,
+                QueryParameters.query("limit=10&offset=10&order=lastname").build()).stream()
+                .map(User::getId).collect(Collectors.toList());
+
+        Queried<User> second = JPAUtils.getQueriedAsync(emf, User.class,
+                QueryParameters.query("limit=10&order=lastname&after=" + first.getNextCursor()).build(),
+                executor).join();
+
+        Assert.assertEquals(expected, second.stream().map(User::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testAsyncWithCriteriaFilter() {
+
+        Queried<User> queried = JPAUtils.getQueriedAsync(emf, User.class, QueryParameters.query("limit=5").build(),
+                (p, cb, r) -> {
+                    Predicate predicate = cb.lessThanOrEqualTo(r.get("id"), 20);
+                    return p == null ? predicate : cb.and(p, predicate);
+                }, executor).join();
+
+        Assert.assertEquals(Long.valueOf(20), queried.getTotalCount());
+        Assert.assertEquals(5, queried.stream().count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAsyncWithoutExecutor() {
+
+        JPAUtils.getQueriedAsync(emf, User.class, new QueryParameters(), null);
+    }
+
+    private void assertAsyncMatchesSync(String query) {
+
+        EntityManager em = emf.createEntityManager();
+
+        Long expectedCount = JPAUtils.queryEntitiesCount(em, User.class, QueryParameters.query(query).build());
+        List<Integer> expectedIds = JPAUtils.queryEntities(em, User.class, QueryParameters.query(query).build())
+                .stream().map(User::getId).collect(Collectors.toList());
+
+        Queried<User> actual = JPAUtils.getQueriedAsync(emf, User.class, QueryParameters.query(query).build(),
+                executor).join();
+
+        Assert.assertEquals(expectedCount, actual.getTotalCount());
+        Assert.assertEquals(expectedIds, actual.stream().map(User::getId).collect(Collectors.toList()));
+
+        em.close();
+    }
+}
@@ -0,0 +1,109 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.test.utils.SqlStatementCollector;
+import com.kumuluz.ee.rest.utils.JPAQueryOptions;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+@RunWith(Parameterized.class)
+public class JPAUtilsBindParametersTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Test
+    public void testSameSqlForDifferentValues() {
+
+        List<String> sql1 = executedSql("where=country:eq:China and lastname:like:'%a%' and id:gt:10 and " +
+                "createdAt:lt:'2015-01-01T00:00:00Z' and status:neq:ACTIVE and firstname:in:[Bruce,Karen]");
+        List<String> sql2 = executedSql("where=country:eq:Russia and lastname:like:'%e%' and id:gt:50 and " +
+                "createdAt:lt:'2016-06-01T00:00:00Z' and status:neq:INACTIVE and firstname:in:[Laura,Sandra]");
+
+        Assert.assertFalse(sql1.isEmpty());
+        Assert.assertFalse(sql2.isEmpty());
+        Assert.assertEquals(sql1.get(0), sql2.get(0));
+
+        Assert.assertFalse(sql1.get(0).contains("China"));
+        Assert.assertFalse(sql1.get(0).contains("Karen"));
+        Assert.assertFalse(sql2.get(0).contains("Russia"));
+        Assert.assertFalse(sql2.get(0).contains("Laura"));
+    }
+
+    @Test
+    public void testSameSqlForDifferentValuesWithFields() {
+
+        List<String> sql1 = executedSql("where=firstname:eqic:bruce or id:between:[1,20]&fields=id,firstname&limit=5");
+        List<String> sql2 = executedSql("where=firstname:eqic:karen or id:between:[30,60]&fields=id,firstname&limit=5");
+
+        Assert.assertFalse(sql1.isEmpty());
+        Assert.assertFalse(sql2.isEmpty());
+        Assert.assertEquals(sql1.get(0), sql2.get(0));
+    }
+
+    @Test
+    public void testSameSqlForDifferentCountValues() {
+
+        SqlStatementCollector.clear();
+        Long count1 = JPAUtils.queryEntitiesCount(em, User.class,
+                QueryParameters.query("where=country:like:'%ina'").build());
+        List<String> sql1 = SqlStatementCollector.getStatements();
+
+        SqlStatementCollector.clear();
+        Long count2 = JPAUtils.queryEntitiesCount(em, User.class,
+                QueryParameters.query("where=country:like:'%ssia'").build());
+        List<String> sql2 = SqlStatementCollector.getStatements();
+
+        Assert.assertNotEquals(count1, count2);
+        Assert.assertFalse(sql1.isEmpty());
+        Assert.assertEquals(sql1, sql2);
+    }
+
+    @Test
+    public void testInlinedValuesReturnSameResult() {
+
+        QueryParameters q = QueryParameters.query("where=country:eq:China and id:gte:20&order=id").build();
+
+        List<User> bound = JPAUtils.queryEntities(em, User.class, q);
+        List<User> inlined = JPAUtils.queryEntities(em, User.class, q, null, null, null, false,
+                new JPAQueryOptions().bindParameters(false));
+
+        Assert.assertFalse(bound.isEmpty());
+        Assert.assertEquals(bound.size(), inlined.size());
+
+        for (int i = 0; i < bound.size(); i++) {
+            Assert.assertEquals(bound.get(i).getId(), inlined.get(i).getId());
+        }
+    }
+
+    private List<String> executedSql(String query) {
+
+        QueryParameters q = QueryParameters.query(query).build();
+
+        SqlStatementCollector.clear();
+        JPAUtils.queryEntities(em, User.class, q);
+
+        return SqlStatementCollector.getStatements();
+    }
+}
@@ -1,10 +1,16 @@
 package com.kumuluz.ee.rest.test;
 
+import com.kumuluz.ee.rest.beans.Queried;
+import com.kumuluz.ee.rest.beans.QueryCount;
 import com.kumuluz.ee.rest.beans.QueryFilter;
 import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.CountPrecision;
 import com.kumuluz.ee.rest.enums.FilterOperation;
+import com.kumuluz.ee.rest.test.entities.Project;
 import com.kumuluz.ee.rest.test.entities.User;
 import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.test.utils.SqlStatementCollector;
+import com.kumuluz.ee.rest.utils.JPAQueryOptions;
 import com.kumuluz.ee.rest.utils.JPAUtils;
 import jakarta.persistence.EntityManager;
 import org.junit.Assert;
@@ -86,4 +92,114 @@ public class JPAUtilsCountTest {
         Assert.assertNotNull(count);
         Assert.assertEquals(39, count.longValue());
     }
+
+    @Test
+    public void testBoundedCount() {
+
+        QueryParameters q = QueryParameters.query("count=approx").build();
+
+        QueryCount count = JPAUtils.countEntities(em, User.class, q, null, new JPAQueryOptions().countLimit(50));
+
+        Assert.assertEquals(CountPrecision.BOUNDED, count.getPrecision());
+        Assert.assertEquals(50, count.getValue().longValue());
+        Assert.assertEquals("50+", count.toString());
+
+        count = JPAUtils.countEntities(em, User.class, q, null, new JPAQueryOptions().countLimit(100));
+
+        Assert.assertEquals(QueryCount.exact(100L), count);
+    }
+
+    @Test
+    public void testBoundedCountToMany() {
+
+        QueryParameters q = QueryParameters.query("count=approx&where=projects.status:EQ:ACTIVE").build();
+
+        QueryCount count = JPAUtils.countEntities(em, User.class, q, null, new JPAQueryOptions().countLimit(39));
+
+        Assert.assertEquals(QueryCount.exact(39L), count);
+
+        count = JPAUtils.countEntities(em, User.class, q, null, new JPAQueryOptions().countLimit(38));
+
+        Assert.assertEquals(QueryCount.bounded(38), count);
+    }
+
+    @Test
+    public void testEstimatedCount() {
+
+        JPAQueryOptions options = new JPAQueryOptions().countEstimator((em, entity) -> 12345L);
+
+        QueryCount count = JPAUtils.countEntities(em, User.class, QueryParameters.query("count=approx").build(),
+                null, options);
+
+        Assert.assertEquals(QueryCount.estimated(12345L), count);
+
+        count = JPAUtils.countEntities(em, User.class,
+                QueryParameters.query("count=approx&where=country:EQ:China").build(), null, options);
+
+        Assert.assertEquals(CountPrecision.EXACT, count.getPrecision());
+
+        count = JPAUtils.countEntities(em, User.class, QueryParameters.query("count=true").build(), null, options);
+
+        Assert.assertEquals(QueryCount.exact(100L), count);
+    }
+
+    @Test
+    public void testEstimatorWithoutEstimate() {
+
+        JPAQueryOptions options = new JPAQueryOptions().countLimit(10).countEstimator((em, entity) -> null);
+
+        QueryCount count = JPAUtils.countEntities(em, User.class, QueryParameters.query("count=approx").build(),
+                null, options);
+
+        Assert.assertEquals(QueryCount.bounded(10), count);
+    }
+
+    @Test
+    public void testQueriedCountPrecision() {
+
+        Queried<User> queried = JPAUtils.getQueried(em, User.class,
+                QueryParameters.query("count=approx&limit=5").build(), null, null, null, false,
+                new JPAQueryOptions().countLimit(20));
+
+        Assert.assertEquals(Long.valueOf(20), queried.getTotalCount());
+        Assert.assertEquals(CountPrecision.BOUNDED, queried.getCountPrecision());
+
+        queried = JPAUtils.getQueried(em, User.class, QueryParameters.query("limit=5").build());
+
+        Assert.assertEquals(Long.valueOf(100), queried.getTotalCount());
+        Assert.assertEquals(CountPrecision.EXACT, queried.getCountPrecision());
+    }
+
+    @Test
+    public void testToManyFilterCountWithoutDistinct() {
+
+        QueryParameters q = QueryParameters.query("filter=projects.name:like:B% id:gt:10").build();
+
+        SqlStatementCollector.clear();
+        Long count = JPAUtils.queryEntitiesCount(em, User.class, q);
+        String sql = SqlStatementCollector.getStatements().get(0).toLowerCase();
+
+        Assert.assertEquals(JPAUtils.queryEntities(em, User.class, q).size(), count.intValue());
+        Assert.assertFalse(sql, sql.contains("distinct"));
+        Assert.assertTrue(sql, sql.contains("exists"));
+
+        QueryCount bounded = JPAUtils.countEntities(em, User.class,
+                QueryParameters.query("filter=projects.name:like:B% id:gt:10&count=approx").build(), null,
+                new JPAQueryOptions().countLimit(1000));
+
+        Assert.assertEquals(QueryCount.exact(count), bounded);
+    }
+
+    @Test
+    public void testCountWithoutOrderJoins() {
+
+        QueryParameters q = QueryParameters.query("order=user.firstname DESC&filter=name:like:B%").build();
+
+        SqlStatementCollector.clear();
+        Long count = JPAUtils.queryEntitiesCount(em, Project.class, q);
+        String sql = SqlStatementCollector.getStatements().get(0).toLowerCase();
+
+        Assert.assertEquals(JPAUtils.queryEntities(em, Project.class, q).size(), count.intValue());
+        Assert.assertFalse(sql, sql.contains("join"));
+    }
 }
@@ -0,0 +1,237 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.Queried;
+import com.kumuluz.ee.rest.beans.QueryCursor;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.QueryFormatError;
+import com.kumuluz.ee.rest.exceptions.QueryFormatException;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.JPAQueryOptions;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import com.kumuluz.ee.rest.utils.QueryPlanCache;
+import com.kumuluz.ee.rest.utils.StreamUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(Parameterized.class)
+public class JPAUtilsCursorTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Test
+    public void testCursorPagesMatchOffsetPages() {
+
+        assertCursorPagesMatchOffsetPages("order=lastname DESC", 7);
+        assertCursorPagesMatchOffsetPages("order=country,createdAt DESC", 9);
+        assertCursorPagesMatchOffsetPages("order=id DESC", 10);
+        assertCursorPagesMatchOffsetPages("order=status,score&where=role:gte:0", 6);
+        assertCursorPagesMatchOffsetPages("order=firstnameChanged&where=country:like:'%a%'", 5);
+    }
+
+    @Test
+    public void testCursorPagesOrderedByNullableColumn() {
+
+        List<User> all = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        // a single user has a career, the others are ordered by a null value
+        for (String order : Arrays.asList("order=career.years DESC", "order=career.years ASC NULLS FIRST,lastname",
+                "order=career.years DESC NULLS FIRST", "order=country,career.years,id DESC")) {
+
+            assertCursorPagesMatchOffsetPages(order, 7);
+
+            Assert.assertEquals(order,
+                    StreamUtils.queryEntities(all, QueryParameters.query(order).build()).stream()
+                            .map(User::getId)
+                            .collect(Collectors.toList()),
+                    JPAUtils.queryEntities(em, User.class, QueryParameters.query(order).build()).stream()
+                            .map(User::getId)
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testNoCursorOnDistinctQueryOrderedByNullableColumn() {
+
+        String query = "filter=projects.name:eq:Blue&order=country";
+
+        Queried<User> queried = JPAUtils.getQueried(em, User.class, QueryParameters.query(query + "&limit=2").build());
+
+        Assert.assertEquals(2, queried.stream().count());
+        Assert.assertNull(queried.getNextCursor());
+
+        QueryCursor cursor = new QueryCursor(Arrays.asList("country", "id"), Arrays.asList("Brazil", "8"));
+
+        try {
+
+            JPAUtils.queryEntities(em, User.class, QueryParameters.query(query + "&after=" + cursor.encode()).build());
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("after", e.getField());
+            Assert.assertEquals(QueryFormatError.MALFORMED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testCursorPagesWithFields() {
+
+        assertCursorPagesMatchOffsetPages("order=lastname&fields=id,lastname,firstname", 8);
+    }
+
+    @Test
+    public void testNoCursorWithoutOrder() {
+
+        Queried<User> queried = JPAUtils.getQueried(em, User.class, QueryParameters.query("limit=10").build());
+
+        Assert.assertNull(queried.getNextCursor());
+    }
+
+    @Test
+    public void testNoCursorWhenOrderFieldNotSelected() {
+
+        Queried<User> queried = JPAUtils.getQueried(em, User.class,
+                QueryParameters.query("limit=10&order=lastname&fields=id,firstname").build());
+
+        Assert.assertNull(queried.getNextCursor());
+    }
+
+    @Test
+    public void testCursorWithoutOrderUsesId() {
+
+        QueryCursor cursor = new QueryCursor(Arrays.asList("id"), Arrays.asList("95"));
+
+        List<User> users = JPAUtils.queryEntities(em, User.class,
+                QueryParameters.query("limit=10&after=" + cursor.encode()).build());
+
+        Assert.assertEquals(Arrays.asList(96, 97, 98, 99, 100),
+                users.stream().map(User::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testCursorNotMatchingOrder() {
+
+        QueryCursor cursor = new QueryCursor(Arrays.asList("id"), Arrays.asList("95"));
+
+        try {
+
+            JPAUtils.queryEntities(em, User.class,
+                    QueryParameters.query("limit=10&order=lastname&after=" + cursor.encode()).build());
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("after", e.getField());
+            Assert.assertEquals(QueryFormatError.MALFORMED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testCursorWithQueryPlanCache() {
+
+        QueryPlanCache cache = new QueryPlanCache();
+        JPAQueryOptions options = new JPAQueryOptions().queryPlanCache(cache);
+
+        String query = "order=lastname DESC&limit=10&where=role:gte:0";
+
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new ArrayList<>();
+
+        String cursor = null;
+        int page = 0;
+
+        do {
+            QueryParameters q = QueryParameters.query(query + (cursor == null ? "" : "&after=" + cursor)).build();
+            QueryParameters qOffset = QueryParameters.query(query + "&offset=" + (page++ * 10)).build();
+
+            Queried<User> queried = JPAUtils.getQueried(em, User.class, q, null, null, null, false, options);
+
+            queried.stream().map(User::getId).forEach(actual::add);
+            JPAUtils.queryEntities(em, User.class, qOffset).stream().map(User::getId).forEach(expected::add);
+
+            cursor = queried.getNextCursor();
+        } while (cursor != null);
+
+        Assert.assertEquals(expected, actual);
+        Assert.assertTrue(cache.getHitCount() > 0);
+    }
+
+    @Test
+    public void testStreamCursorPagesMatchJpa() {
+
+        List<User> all = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        String query = "order=country DESC,lastname&limit=9";
+
+        List<Integer> expected = JPAUtils.queryEntities(em, User.class,
+                QueryParameters.query("order=country DESC,lastname").build()).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        List<Integer> actual = new ArrayList<>();
+
+        String cursor = null;
+
+        do {
+            QueryParameters q = QueryParameters.query(query + (cursor == null ? "" : "&after=" + cursor)).build();
+
+            List<User> page = StreamUtils.queryEntities(all, q);
+
+            page.stream().map(User::getId).forEach(actual::add);
+
+            cursor = page.size() == 9 ? StreamUtils.createCursor(User.class, q, page.get(page.size() - 1)) : null;
+        } while (cursor != null);
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    private void assertCursorPagesMatchOffsetPages(String query, int limit) {
+
+        List<Integer> expected = JPAUtils.queryEntities(em, User.class, QueryParameters.query(query).build()).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        List<Integer> actual = new ArrayList<>();
+
+        String cursor = null;
+        int pages = 0;
+
+        do {
+            QueryParameters q = QueryParameters.query(query + "&limit=" + limit +
+                    (cursor == null ? "" : "&after=" + cursor)).build();
+
+            Queried<User> queried = JPAUtils.getQueried(em, User.class, q);
+
+            List<User> page = queried.stream().collect(Collectors.toList());
+
+            Assert.assertTrue(page.size() <= limit);
+
+            page.stream().map(User::getId).forEach(actual::add);
+
+            cursor = queried.getNextCursor();
+            pages++;
+        } while (cursor != null && pages < 100);
+
+        Assert.assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,130 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.ToManyFilterStrategy;
+import com.kumuluz.ee.rest.test.entities.Project;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.test.utils.SqlStatementCollector;
+import com.kumuluz.ee.rest.utils.JPAQueryOptions;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import com.kumuluz.ee.rest.utils.QueryPlanCache;
+import jakarta.persistence.EntityManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compares filters on to-many relations tested with EXISTS subqueries to the joined queries.
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsExistsFilterTest {
+
+    private static final List<String> FILTERS = Arrays.asList(
+            "projects.name:eq:Crimson",
+            "projects.name:isnull",
+            "projects.name:isnotnull",
+            "projects.name:neq:Blue",
+            "projects.name:like:B% projects.id:gt:10",
+            "projects.name:like:B% projects.id:lte:10",
+            "firstname:likeic:%a% projects.name:like:B%",
+            "id:lte:5,projects.name:eq:Blue",
+            "(projects.name:eq:Blue,projects.name:eq:Crimson) projects.id:gt:10 id:gt:3",
+            "projects.projectLocation.locationName:eq:Celje",
+            "projects.projectLocation.locationName:isnull id:lte:20",
+            "projects.name:in:[Blue,Crimson,Goldenrod] career.years:gte:1,id:eq:7");
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    private static final JPAQueryOptions EXISTS_OPTIONS =
+            new JPAQueryOptions().toManyFilterStrategy(ToManyFilterStrategy.EXISTS);
+
+    @Test
+    public void testSameEntitiesAsJoin() {
+
+        for (String filter : FILTERS) {
+
+            QueryParameters q = QueryParameters.query("filter=" + filter + "&order=id").build();
+
+            List<Integer> joined = ids(JPAUtils.queryEntities(em, User.class, q));
+
+            SqlStatementCollector.clear();
+            List<Integer> exists = ids(JPAUtils.queryEntities(em, User.class, q, null, null, null, false, EXISTS_OPTIONS));
+            String sql = SqlStatementCollector.getStatements().get(0).toLowerCase();
+
+            Assert.assertEquals(filter, joined, exists);
+            Assert.assertFalse(sql, sql.startsWith("select distinct"));
+            Assert.assertTrue(sql, sql.contains("exists"));
+        }
+    }
+
+    @Test
+    public void testSameCountAsJoin() {
+
+        for (String filter : FILTERS) {
+
+            QueryParameters q = QueryParameters.query("filter=" + filter).build();
+
+            SqlStatementCollector.clear();
+            Long count = JPAUtils.queryEntitiesCount(em, User.class, q, null, EXISTS_OPTIONS);
+            String sql = SqlStatementCollector.getStatements().get(0).toLowerCase();
+
+            Assert.assertEquals(filter, JPAUtils.queryEntities(em, User.class, q).size(), count.intValue());
+            Assert.assertFalse(sql, sql.contains("distinct"));
+        }
+    }
+
+    @Test
+    public void testPagedWithPlanCache() {
+
+        JPAQueryOptions options = new JPAQueryOptions()
+                .toManyFilterStrategy(ToManyFilterStrategy.EXISTS)
+                .queryPlanCache(new QueryPlanCache());
+
+        for (String name : Arrays.asList("Blue", "Crimson", "Blue")) {
+
+            QueryParameters q = QueryParameters.query("filter=projects.name:eq:" + name + " id:gt:2&order=id&limit=3").build();
+
+            Assert.assertEquals(ids(JPAUtils.queryEntities(em, User.class, q)),
+                    ids(JPAUtils.queryEntities(em, User.class, q, null, null, null, false, options)));
+        }
+    }
+
+    @Test
+    public void testToManyPathThroughToOneRelation() {
+
+        QueryParameters q = QueryParameters.query("filter=user.projects.name:eq:Blue&order=id").build();
+
+        List<Integer> joined = JPAUtils.queryEntities(em, Project.class, q).stream()
+                .map(Project::getId)
+                .collect(Collectors.toList());
+        List<Integer> exists = JPAUtils.queryEntities(em, Project.class, q, null, null, null, false, EXISTS_OPTIONS).stream()
+                .map(Project::getId)
+                .collect(Collectors.toList());
+
+        Assert.assertFalse(joined.isEmpty());
+        Assert.assertEquals(joined, exists);
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}
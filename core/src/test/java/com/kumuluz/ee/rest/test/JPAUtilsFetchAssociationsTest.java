@@ -0,0 +1,118 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.test.entities.Project;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.test.utils.SqlStatementCollector;
+import com.kumuluz.ee.rest.utils.JPAQueryOptions;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests that the associations of the queried entities are fetched with a bounded number of statements.
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsFetchAssociationsTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    private static final JPAQueryOptions FETCH_OPTIONS = new JPAQueryOptions().fetchAssociations(true);
+
+    @Test
+    public void testPagedEntitiesWithToManyAssociation() {
+
+        QueryParameters q = QueryParameters.query("filter=id:lte:40&order=id DESC&limit=10&offset=5").build();
+
+        List<User> expected = JPAUtils.queryEntities(em, User.class, q);
+
+        clearCaches();
+        SqlStatementCollector.clear();
+
+        List<User> users = JPAUtils.queryEntities(em, User.class, q, null, null, null, false, FETCH_OPTIONS);
+        users.forEach(u -> {
+            u.getProjects().forEach(p -> p.getProjectLocation());
+            u.getCareer();
+        });
+
+        Assert.assertTrue(SqlStatementCollector.getStatements().toString(), SqlStatementCollector.getStatements().size() <= 2);
+        Assert.assertEquals(ids(expected), ids(users));
+
+        for (int i = 0; i < users.size(); i++) {
+            Assert.assertEquals(expected.get(i).getProjects().size(), users.get(i).getProjects().size());
+        }
+    }
+
+    @Test
+    public void testEntitiesOrderedByToOneAssociation() {
+
+        QueryParameters q = QueryParameters.query("filter=user.country:isnotnull&order=user.firstname,id&limit=10").build();
+
+        List<Integer> expected = JPAUtils.queryEntities(em, Project.class, q).stream()
+                .map(Project::getId)
+                .collect(Collectors.toList());
+
+        clearCaches();
+        SqlStatementCollector.clear();
+
+        List<Project> projects = JPAUtils.queryEntities(em, Project.class, q, null, null, null, false, FETCH_OPTIONS);
+        projects.forEach(p -> p.getUser().getFirstname());
+
+        List<String> statements = SqlStatementCollector.getStatements();
+
+        // the ids of the page and the projects with their users; Hibernate can not fetch the eager projects of the
+        // users with the projects (a circular fetch), so it adds one statement per distinct user of the page
+        int maxStatements = 2;
+        if (em.getClass().getName().startsWith("org.hibernate.")) {
+            maxStatements += (int) projects.stream().map(p -> p.getUser().getId()).distinct().count();
+        }
+
+        Assert.assertTrue(statements.toString(), statements.size() <= maxStatements);
+        Assert.assertEquals(expected, projects.stream().map(Project::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testUnpagedEntitiesInSingleStatement() {
+
+        QueryParameters q = QueryParameters.query("filter=id:lte:20").build();
+
+        clearCaches();
+        SqlStatementCollector.clear();
+
+        List<User> users = JPAUtils.queryEntities(em, User.class, q, null, null, null, false, FETCH_OPTIONS);
+        users.forEach(u -> u.getProjects().size());
+
+        Assert.assertEquals(SqlStatementCollector.getStatements().toString(), 1, SqlStatementCollector.getStatements().size());
+        Assert.assertEquals(20, users.size());
+    }
+
+    private void clearCaches() {
+        em.clear();
+        em.getEntityManagerFactory().getCache().evictAll();
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}
@@ -2,10 +2,14 @@ package com.kumuluz.ee.rest.test;
 
 import com.kumuluz.ee.rest.beans.QueryFilter;
 import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.FieldsQueryStrategy;
 import com.kumuluz.ee.rest.enums.FilterOperation;
 import com.kumuluz.ee.rest.exceptions.NoSuchEntityFieldException;
+import com.kumuluz.ee.rest.test.entities.Project;
 import com.kumuluz.ee.rest.test.entities.User;
 import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.test.utils.SqlStatementCollector;
+import com.kumuluz.ee.rest.utils.JPAQueryOptions;
 import com.kumuluz.ee.rest.utils.JPAUtils;
 import jakarta.persistence.EntityManager;
 import org.junit.Assert;
@@ -16,6 +20,7 @@ import org.junit.runners.Parameterized;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author Tilen Faganel
@@ -221,4 +226,96 @@ public class JPAUtilsFieldsTest {
 
         JPAUtils.queryEntities(em, User.class, q);
     }
+
+    @Test
+    public void testSingleQueryWithoutToManyFields() {
+
+        QueryParameters q = QueryParameters.query("fields=firstname,career.experience&order=lastname&limit=10&offset=5")
+                .build();
+
+        SqlStatementCollector.clear();
+        List<User> users = JPAUtils.queryEntities(em, User.class, q);
+        List<String> statements = SqlStatementCollector.getStatements();
+
+        List<User> twoPhaseUsers = JPAUtils.queryEntities(em, User.class, q, null, null, null, false,
+                new JPAQueryOptions().fieldsQueryStrategy(FieldsQueryStrategy.TWO_PHASE));
+
+        Assert.assertEquals(1, statements.size());
+        Assert.assertEquals(10, users.size());
+        Assert.assertEquals(ids(twoPhaseUsers), ids(users));
+        Assert.assertEquals(twoPhaseUsers.stream().map(User::getFirstname).collect(Collectors.toList()),
+                users.stream().map(User::getFirstname).collect(Collectors.toList()));
+        Assert.assertNull(users.get(0).getLastname());
+    }
+
+    @Test
+    public void testTwoPhaseWithPagedToManyFields() {
+
+        QueryParameters q = QueryParameters.query("fields=firstname,projects.name&order=id&limit=5").build();
+
+        SqlStatementCollector.clear();
+        List<User> users = JPAUtils.queryEntities(em, User.class, q);
+        List<String> statements = SqlStatementCollector.getStatements();
+
+        List<User> unpagedUsers = JPAUtils.queryEntities(em, User.class,
+                QueryParameters.query("fields=firstname,projects.name&order=id").build());
+
+        Assert.assertEquals(2, statements.size());
+        Assert.assertEquals(5, users.size());
+        Assert.assertEquals(ids(unpagedUsers.subList(0, 5)), ids(users));
+
+        for (int i = 0; i < users.size(); i++) {
+            Assert.assertEquals(projectCount(unpagedUsers.get(i)), projectCount(users.get(i)));
+        }
+    }
+
+    @Test
+    public void testSingleQueryWithUnpagedToManyFields() {
+
+        QueryParameters q = QueryParameters.query("fields=firstname,projects.name&order=id").build();
+
+        SqlStatementCollector.clear();
+        List<User> users = JPAUtils.queryEntities(em, User.class, q);
+        List<String> statements = SqlStatementCollector.getStatements();
+
+        List<User> twoPhaseUsers = JPAUtils.queryEntities(em, User.class, q, null, null, null, false,
+                new JPAQueryOptions().fieldsQueryStrategy(FieldsQueryStrategy.TWO_PHASE));
+
+        Assert.assertEquals(1, statements.size());
+        Assert.assertEquals(ids(twoPhaseUsers), ids(users));
+    }
+
+    @Test
+    public void testToManyChildFieldsFilledPerRow() {
+
+        List<User> users = JPAUtils.queryEntities(em, User.class,
+                QueryParameters.query("fields=projects.name,id,projects.id&filter=id:lte:20&order=id").build());
+        List<User> reordered = JPAUtils.queryEntities(em, User.class,
+                QueryParameters.query("fields=projects.id,projects.name,id&filter=id:lte:20&order=id").build());
+
+        Assert.assertEquals(20, users.size());
+        Assert.assertEquals(ids(users), ids(reordered));
+
+        for (int i = 0; i < users.size(); i++) {
+
+            Assert.assertEquals(projectCount(users.get(i)), projectCount(reordered.get(i)));
+
+            if (users.get(i).getProjects() == null) {
+                continue;
+            }
+
+            for (Project p : users.get(i).getProjects()) {
+                Assert.assertNotNull(p.getId());
+                Assert.assertEquals(em.find(Project.class, p.getId()).getName(), p.getName());
+            }
+        }
+    }
+
+    private static int projectCount(User user) {
+        return user.getProjects() == null ? 0 : user.getProjects().size();
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
 }
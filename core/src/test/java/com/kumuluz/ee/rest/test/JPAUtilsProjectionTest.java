@@ -0,0 +1,108 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the projections of selected fields, which are returned without creating entities.
+ */
+@RunWith(Parameterized.class)
+public class JPAUtilsProjectionTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    public static class UserName {
+
+        private final Integer id;
+        private final String firstname;
+
+        public UserName(Integer id, String firstname) {
+            this.id = id;
+            this.firstname = firstname;
+        }
+    }
+
+    @Test
+    public void testMapProjection() {
+
+        List<Map<String, Object>> rows = JPAUtils.queryProjection(em, User.class,
+                QueryParameters.query("fields=firstname,id&filter=id:gt:10&order=id&limit=3&offset=1").build());
+        List<User> users = JPAUtils.queryEntities(em, User.class,
+                QueryParameters.query("filter=id:gt:10&order=id&limit=3&offset=1").build());
+
+        Assert.assertEquals(3, rows.size());
+
+        for (int i = 0; i < rows.size(); i++) {
+            Assert.assertEquals(Arrays.asList("firstname", "id"), Arrays.asList(rows.get(i).keySet().toArray()));
+            Assert.assertEquals(users.get(i).getId(), rows.get(i).get("id"));
+            Assert.assertEquals(users.get(i).getFirstname(), rows.get(i).get("firstname"));
+        }
+    }
+
+    @Test
+    public void testRowProjection() {
+
+        List<Object[]> rows = JPAUtils.queryRows(em, User.class,
+                QueryParameters.query("fields=lastname,id&filter=id:eq:1").build());
+
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals(2, rows.get(0).length);
+        Assert.assertEquals(1, rows.get(0)[1]);
+        Assert.assertEquals(em.find(User.class, 1).getLastname(), rows.get(0)[0]);
+    }
+
+    @Test
+    public void testConstructorProjection() {
+
+        List<UserName> names = JPAUtils.queryProjection(em, User.class,
+                QueryParameters.query("fields=id,firstname&order=id&limit=5").build(), UserName.class);
+
+        Assert.assertEquals(5, names.size());
+
+        for (int i = 0; i < names.size(); i++) {
+            Assert.assertEquals(Integer.valueOf(i + 1), names.get(i).id);
+            Assert.assertEquals(em.find(User.class, i + 1).getFirstname(), names.get(i).firstname);
+        }
+    }
+
+    @Test
+    public void testToManyProjectionReturnsRowPerElement() {
+
+        User user = em.find(User.class, 15);
+
+        List<Object[]> rows = JPAUtils.queryRows(em, User.class,
+                QueryParameters.query("fields=id,projects.name&filter=id:eq:15").build());
+
+        Assert.assertFalse(user.getProjects().isEmpty());
+        Assert.assertEquals(user.getProjects().size(), rows.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProjectionWithoutFields() {
+        JPAUtils.queryRows(em, User.class, new QueryParameters());
+    }
+}
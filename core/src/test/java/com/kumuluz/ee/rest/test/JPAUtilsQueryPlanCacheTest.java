@@ -0,0 +1,244 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.interfaces.CriteriaFilter;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.JPAQueryOptions;
+import com.kumuluz.ee.rest.utils.JPAUtils;
+import com.kumuluz.ee.rest.utils.QueryPlanCache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@RunWith(Parameterized.class)
+public class JPAUtilsQueryPlanCacheTest {
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    private QueryPlanCache cache;
+
+    private JPAQueryOptions options;
+
+    @Before
+    public void setUp() {
+
+        cache = new QueryPlanCache();
+        options = new JPAQueryOptions().queryPlanCache(cache);
+    }
+
+    @Test
+    public void testPlanReusedForSameShape() {
+
+        assertSameResult("where=country:eq:China&order=id");
+        assertSameResult("where=country:eq:Russia&order=id");
+        assertSameResult("where=country:eq:Portugal&order=id&limit=3&offset=1");
+
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testDifferentShapesAreCachedSeparately() {
+
+        assertSameResult("where=country:eq:China&order=id");
+        assertSameResult("where=country:neq:China&order=id");
+        assertSameResult("where=country:eq:China&order=id DESC");
+        assertSameResult("where=country:eq:China&order=id&fields=id,firstname");
+
+        Assert.assertEquals(4, cache.getMissCount());
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testExpressionsWithAllOperations() {
+
+        assertSameResult("where=firstname:in:[Bruce,Karen,Sandra] or country:like:'%ina'&order=id");
+        assertSameResult("where=firstname:in:[Laura,Karen,Jack] or country:like:'%ssia'&order=id");
+        assertSameResult("where=id:between:[10,20] and lastname:likeic:'%a%'&order=id");
+        assertSameResult("where=id:between:[30,70] and lastname:likeic:'%e%'&order=id");
+        assertSameResult("where=id:gt:40 and role:lte:1 and status:neq:ACTIVE&order=id");
+        assertSameResult("where=id:gt:80 and role:lte:0 and status:neq:INACTIVE&order=id");
+        assertSameResult("where=createdAt:lt:'2014-01-01T00:00:00Z' and firstname:eqic:bruce&order=id");
+        assertSameResult("where=createdAt:lt:'2015-06-01T00:00:00Z' and firstname:eqic:KAREN&order=id");
+        assertSameResult("where=firstname:ninic:[bruce,KAREN] and id:nin:[1,2,3]&order=id");
+        assertSameResult("where=firstname:ninic:[laura,SANDRA] and id:nin:[4,5,6]&order=id");
+
+        Assert.assertEquals(5, cache.getMissCount());
+        Assert.assertEquals(5, cache.getHitCount());
+    }
+
+    @Test
+    public void testDifferentNumberOfInValues() {
+
+        assertSameResult("where=firstname:in:[Bruce,Karen]&order=id");
+        assertSameResult("where=firstname:in:[Bruce,Karen,Sandra]&order=id");
+
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testCountPlan() {
+
+        QueryParameters q1 = QueryParameters.query("where=country:like:'%ina' and projects.status:eq:ACTIVE").build();
+        QueryParameters q2 = QueryParameters.query("where=country:like:'%ssia' and projects.status:eq:INACTIVE").build();
+
+        Assert.assertEquals(JPAUtils.queryEntitiesCount(em, User.class, q1),
+                JPAUtils.queryEntitiesCount(em, User.class, q1, null, options));
+        Assert.assertEquals(JPAUtils.queryEntitiesCount(em, User.class, q2),
+                JPAUtils.queryEntitiesCount(em, User.class, q2, null, options));
+
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testCustomFilterIsNotCached() {
+
+        QueryParameters q = QueryParameters.query("where=country:eq:China").build();
+
+        CriteriaFilter<User> customFilter = (p, cb, r) -> cb.and(p, cb.lessThan(r.get("id"), 50));
+
+        List<User> users = JPAUtils.queryEntities(em, User.class, q, customFilter, null, null, false, options);
+
+        Assert.assertTrue(users.stream().allMatch(u -> u.getId() < 50));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction() {
+
+        cache = new QueryPlanCache(2);
+        options = new JPAQueryOptions().queryPlanCache(cache);
+
+        assertSameResult("where=country:eq:China");
+        assertSameResult("where=country:neq:China");
+        assertSameResult("where=country:like:China");
+
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testSharedAcrossEntityManagersAndThreads() throws Exception {
+
+        List<String> queries = Arrays.asList(
+                "where=country:eq:China&order=id", "where=country:eq:Russia&order=id",
+                "where=id:between:[10,40] and lastname:likeic:'%a%'&order=id DESC&limit=5",
+                "where=id:between:[30,90] and lastname:likeic:'%e%'&order=id DESC&limit=5",
+                "where=country:like:'%ina' and projects.status:eq:ACTIVE&order=id",
+                "where=country:like:'%ssia' and projects.status:eq:INACTIVE&order=id");
+
+        Map<String, List<Integer>> expectedIds = new HashMap<>();
+        Map<String, Long> expectedCounts = new HashMap<>();
+
+        for (String query : queries) {
+            QueryParameters q = QueryParameters.query(query).build();
+
+            expectedIds.put(query, ids(JPAUtils.queryEntities(em, User.class, q)));
+            expectedCounts.put(query, JPAUtils.queryEntitiesCount(em, User.class, q));
+        }
+
+        EntityManagerFactory emf = em.getEntityManagerFactory();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+
+            for (int t = 0; t < 8; t++) {
+
+                int offset = t;
+
+                tasks.add(() -> {
+
+                    EntityManager threadEm = emf.createEntityManager();
+
+                    try {
+                        for (int i = 0; i < 30; i++) {
+
+                            String query = queries.get((i + offset) % queries.size());
+                            QueryParameters q = QueryParameters.query(query).build();
+
+                            Assert.assertEquals(query, expectedIds.get(query),
+                                    ids(JPAUtils.queryEntities(threadEm, User.class, q, null, null, null, false, options)));
+                            Assert.assertEquals(query, expectedCounts.get(query),
+                                    JPAUtils.queryEntitiesCount(threadEm, User.class, q, null, options));
+                        }
+                    } finally {
+                        threadEm.close();
+                    }
+
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        // three list and three count shapes
+        Assert.assertEquals(6, cache.size());
+        Assert.assertEquals(8 * 30 * 2, cache.getMissCount() + cache.getHitCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullOptions() {
+
+        JPAUtils.queryEntities(em, User.class, new QueryParameters(), null, null, null, false, null);
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private void assertSameResult(String query) {
+
+        QueryParameters q = QueryParameters.query(query).build();
+
+        List<Integer> expected = JPAUtils.queryEntities(em, User.class, q).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        List<Integer> actual = JPAUtils.queryEntities(em, User.class, q, null, null, null, false, options).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(expected, actual);
+    }
+}
@@ -4,6 +4,7 @@ import com.kumuluz.ee.rest.beans.Queried;
 import com.kumuluz.ee.rest.beans.QueryParameters;
 import com.kumuluz.ee.rest.test.entities.User;
 import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.test.utils.SqlStatementCollector;
 import com.kumuluz.ee.rest.utils.JPAUtils;
 import org.junit.Assert;
 import org.junit.Test;
@@ -14,6 +15,8 @@ import jakarta.persistence.EntityManager;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * @author gpor0
@@ -105,4 +108,37 @@ public class QueriedTest {
         Assert.assertNull(queried.getTotalCount());
     }
 
+    @Test
+    public void testQueriedCountIsDeferred() {
+        QueryParameters q = QueryParameters.query("limit=5&order=id").build();
+
+        SqlStatementCollector.clear();
+        Queried<User> queried = JPAUtils.getQueried(em, User.class, q);
+        int pageStatements = SqlStatementCollector.getStatements().size();
+
+        Assert.assertFalse(queried.isTotalCountComputed());
+
+        Assert.assertEquals(Long.valueOf(100L), queried.getTotalCount());
+        Assert.assertTrue(queried.isTotalCountComputed());
+        Assert.assertEquals(pageStatements + 1, SqlStatementCollector.getStatements().size());
+
+        Assert.assertEquals(Long.valueOf(100L), queried.getTotalCount());
+        Assert.assertEquals(pageStatements + 1, SqlStatementCollector.getStatements().size());
+    }
+
+    @Test
+    public void testDeferredSupplierCalledOnce() {
+        AtomicInteger calls = new AtomicInteger();
+
+        Queried<Integer> queried = Queried.deferred(() -> {
+            calls.incrementAndGet();
+            return null;
+        }, Stream.of(1, 2));
+
+        Assert.assertEquals(0, calls.get());
+        Assert.assertNull(queried.getTotalCount());
+        Assert.assertNull(queried.getTotalCount());
+        Assert.assertEquals(1, calls.get());
+    }
+
 }
@@ -1,8 +1,11 @@
 package com.kumuluz.ee.rest.test;
 
 import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.exceptions.InvalidEntityFieldException;
+import com.kumuluz.ee.rest.test.entities.Project;
 import com.kumuluz.ee.rest.test.entities.User;
 import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.JPAQueryOptions;
 import com.kumuluz.ee.rest.utils.JPAUtils;
 import jakarta.persistence.EntityManager;
 import org.junit.Assert;
@@ -12,7 +15,11 @@ import org.junit.runners.Parameterized;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -105,4 +112,84 @@ public class QueryStreamTest {
         Assert.assertTrue(first.isPresent());
         Assert.assertNotNull(first.get().getLastname());
     }
+
+    @Test
+    public void testStreamFieldsGroupsRowsOfEntities() {
+
+        QueryParameters q = QueryParameters.query("fields=firstname,projects.name").build();
+
+        List<User> streamed;
+
+        try (Stream<User> users = JPAUtils.getEntityStream(em, User.class, q)) {
+            streamed = users.collect(Collectors.toList());
+        }
+
+        List<User> queried = JPAUtils.queryEntities(em, User.class,
+                QueryParameters.query("fields=firstname,projects.name&order=id").build());
+
+        assertSameUsers(queried, streamed);
+        Assert.assertEquals(100, streamed.size());
+    }
+
+    @Test
+    public void testStreamFieldsKeepsOrder() {
+
+        QueryParameters q = QueryParameters.query("fields=lastname,projects.name&order=lastname DESC&limit=30&offset=5")
+                .build();
+
+        List<User> streamed;
+
+        try (Stream<User> users = JPAUtils.getEntityStream(em, User.class, q, null, null, null, false,
+                new JPAQueryOptions().fetchSize(7))) {
+            streamed = users.collect(Collectors.toList());
+        }
+
+        assertSameUsers(JPAUtils.queryEntities(em, User.class, q), streamed);
+    }
+
+    @Test
+    public void testStreamFieldsIsConsumedLazily() {
+
+        QueryParameters q = QueryParameters.query("fields=firstname,projects.name&filter=id:lte:40").build();
+
+        try (Stream<User> users = JPAUtils.getEntityStream(em, User.class, q, null, null, null, false,
+                new JPAQueryOptions().fetchSize(5))) {
+
+            List<Integer> ids = users.limit(3).map(User::getId).collect(Collectors.toList());
+
+            Assert.assertEquals(Arrays.asList(1, 2, 3), ids);
+        }
+    }
+
+    @Test(expected = InvalidEntityFieldException.class)
+    public void testStreamFieldsOrderedByToManyPath() {
+
+        QueryParameters q = QueryParameters.query("fields=id,firstname&order=projects.name").build();
+
+        // ordering through a to-many relation is rejected like by queryEntities, no partial entities are streamed
+        try (Stream<User> users = JPAUtils.getEntityStream(em, User.class, q)) {
+            users.collect(Collectors.toList());
+        }
+    }
+
+    private static void assertSameUsers(List<User> expected, List<User> actual) {
+
+        Assert.assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+
+            User e = expected.get(i);
+            User a = actual.get(i);
+
+            Assert.assertEquals(e.getId(), a.getId());
+            Assert.assertEquals(e.getFirstname(), a.getFirstname());
+            Assert.assertEquals(e.getLastname(), a.getLastname());
+            Assert.assertEquals(projectNames(e), projectNames(a));
+        }
+    }
+
+    private static Set<String> projectNames(User user) {
+        return user.getProjects() == null ? Collections.emptySet()
+                : user.getProjects().stream().map(Project::getName).collect(Collectors.toSet());
+    }
 }
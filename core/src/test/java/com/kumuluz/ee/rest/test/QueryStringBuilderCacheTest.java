@@ -0,0 +1,202 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryOrder;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.FilterOperation;
+import com.kumuluz.ee.rest.enums.OrderDirection;
+import com.kumuluz.ee.rest.enums.QueryFormatError;
+import com.kumuluz.ee.rest.exceptions.QueryFormatException;
+import com.kumuluz.ee.rest.utils.QueryStringCache;
+import com.kumuluz.ee.rest.utils.QueryStringDefaults;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class QueryStringBuilderCacheTest {
+
+    private static final String QUERY = "limit=5&offset=10&order=id DESC&fields=id,name&filter=name:in:[a,b] " +
+            "createdAt:gte:dt'2014-11-26T11:15:08Z'";
+
+    @Test
+    public void testCachedParametersEqualParsed() {
+
+        QueryStringCache cache = new QueryStringCache();
+        QueryStringDefaults defaults = new QueryStringDefaults().queryStringCache(cache);
+
+        QueryParameters parsed = new QueryStringDefaults().builder().query(QUERY).build();
+        QueryParameters first = defaults.builder().query(QUERY).build();
+
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        QueryParameters second = defaults.builder().query(QUERY).build();
+
+        for (QueryParameters q : new QueryParameters[]{first, second}) {
+
+            Assert.assertEquals(parsed.getLimit(), q.getLimit());
+            Assert.assertEquals(parsed.getOffset(), q.getOffset());
+            Assert.assertEquals(parsed.getCount(), q.getCount());
+            Assert.assertEquals(parsed.getFields(), q.getFields());
+            Assert.assertEquals(OrderDirection.DESC, q.getOrder().get(0).getOrder());
+            Assert.assertEquals(parsed.getFilterExpression().operation(), q.getFilterExpression().operation());
+
+            QueryFilter in = q.getFilterExpression().left().value();
+            QueryFilter gte = q.getFilterExpression().right().value();
+
+            Assert.assertEquals(FilterOperation.IN, in.getOperation());
+            Assert.assertEquals(parsed.getFilterExpression().left().value().getValues(), in.getValues());
+            Assert.assertEquals(parsed.getFilterExpression().right().value().getDateValue(), gte.getDateValue());
+        }
+
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testCachedParametersAreCopies() {
+
+        QueryStringDefaults defaults = new QueryStringDefaults().queryStringCache(new QueryStringCache());
+
+        QueryParameters first = defaults.builder().query(QUERY).build();
+
+        first.setLimit(1L);
+        first.getFields().clear();
+        first.getOrder().add(new QueryOrder("name", OrderDirection.ASC));
+        first.getFilterExpression().left().value().getValues().add("c");
+        first.getFilterExpression().right().value().getDateValue().setTime(0);
+
+        QueryParameters second = defaults.builder().query(QUERY).build();
+
+        Assert.assertEquals(Long.valueOf(5), second.getLimit());
+        Assert.assertEquals(2, second.getFields().size());
+        Assert.assertEquals(1, second.getOrder().size());
+        Assert.assertEquals(2, second.getFilterExpression().left().value().getValues().size());
+        Assert.assertNotEquals(0, second.getFilterExpression().right().value().getDateValue().getTime());
+    }
+
+    @Test
+    public void testFailuresAreCached() {
+
+        QueryStringCache cache = new QueryStringCache();
+        QueryStringDefaults defaults = new QueryStringDefaults().queryStringCache(cache);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                defaults.builder().query("limit=abc").build();
+                Assert.fail("No exception was thrown");
+            } catch (QueryFormatException e) {
+                Assert.assertEquals("limit", e.getField());
+                Assert.assertEquals(QueryFormatError.NOT_A_NUMBER, e.getReason());
+            }
+        }
+
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testConfigurationIsPartOfKey() {
+
+        QueryStringCache cache = new QueryStringCache();
+
+        QueryParameters limited = new QueryStringDefaults().maxLimit(20).queryStringCache(cache).builder()
+                .query("limit=50").build();
+        QueryParameters unlimited = new QueryStringDefaults().maxLimit(100).queryStringCache(cache).builder()
+                .query("limit=50").build();
+        QueryParameters filtered = new QueryStringDefaults().queryStringCache(cache)
+                .defaultFilters(Collections.singletonList(new QueryFilter("deleted", FilterOperation.EQ, "false")))
+                .builder().query("limit=50").build();
+
+        Assert.assertEquals(Long.valueOf(20), limited.getLimit());
+        Assert.assertEquals(Long.valueOf(50), unlimited.getLimit());
+        Assert.assertEquals("deleted", filtered.getFilterExpression().value().getField());
+        Assert.assertEquals(3, cache.getMissCount());
+        Assert.assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+
+        QueryStringCache cache = new QueryStringCache(2);
+        QueryStringDefaults defaults = new QueryStringDefaults().queryStringCache(cache);
+
+        defaults.builder().query("limit=1").build();
+        defaults.builder().query("limit=2").build();
+        defaults.builder().query("limit=1").build();
+        defaults.builder().query("limit=3").build();
+        defaults.builder().query("limit=1").build();
+        defaults.builder().query("limit=2").build();
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(4, cache.getMissCount());
+
+        cache.clear();
+
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSharedAcrossThreads() throws Exception {
+
+        QueryStringCache cache = new QueryStringCache(16);
+        QueryStringDefaults defaults = new QueryStringDefaults().queryStringCache(cache);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+
+            for (int t = 0; t < 8; t++) {
+
+                int offset = t;
+
+                tasks.add(() -> {
+
+                    for (int i = 0; i < 500; i++) {
+
+                        // a few hot query strings and many which are only seen once in a while
+                        long limit = i % 2 == 0 ? i % 5 + 1 : (i * 7 + offset) % 60 + 1;
+
+                        Assert.assertEquals(Long.valueOf(limit),
+                                defaults.builder().query("limit=" + limit).build().getLimit());
+
+                        try {
+                            defaults.builder().query("limit=x" + limit).build();
+                            Assert.fail("No exception was thrown");
+                        } catch (QueryFormatException e) {
+                            Assert.assertEquals(QueryFormatError.NOT_A_NUMBER, e.getReason());
+                        }
+                    }
+
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        Assert.assertTrue(cache.size() <= 16);
+        Assert.assertEquals(8 * 500 * 2, cache.getMissCount() + cache.getHitCount());
+        Assert.assertTrue(cache.getHitCount() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSize() {
+        new QueryStringCache(0);
+    }
+}
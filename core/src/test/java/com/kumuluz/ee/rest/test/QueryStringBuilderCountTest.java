@@ -1,6 +1,7 @@
 package com.kumuluz.ee.rest.test;
 
 import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.CountMode;
 import com.kumuluz.ee.rest.enums.QueryFormatError;
 import com.kumuluz.ee.rest.exceptions.QueryFormatException;
 import com.kumuluz.ee.rest.utils.QueryStringDefaults;
@@ -52,6 +53,41 @@ public class QueryStringBuilderCountTest {
         Assert.assertFalse(query.getCount());
     }
 
+    @Test
+    public void testDefaultCountFalse() {
+        QueryParameters query = new QueryStringDefaults().defaultCount(false).builder().query("limit=10").build();
+
+        Assert.assertNotNull(query);
+        Assert.assertFalse(query.getCount());
+    }
+
+    @Test
+    public void testDefaultCountOverridden() {
+        QueryParameters query = new QueryStringDefaults().defaultCount(false).builder().query("count=true").build();
+
+        Assert.assertNotNull(query);
+        Assert.assertTrue(query.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullDefaultCount() {
+        new QueryStringDefaults().defaultCount(null);
+    }
+
+    @Test
+    public void testCountApproximate() {
+        QueryParameters query = new QueryStringDefaults().builder().query("count=approx").build();
+
+        Assert.assertNotNull(query);
+        Assert.assertTrue(query.getCount());
+        Assert.assertEquals(CountMode.APPROXIMATE, query.getCountMode());
+
+        query = new QueryStringDefaults().builder().query("count=approx&count=true").build();
+
+        Assert.assertTrue(query.getCount());
+        Assert.assertEquals(CountMode.EXACT, query.getCountMode());
+    }
+
     @Test
     public void testCountMalformed() {
         try {
@@ -0,0 +1,166 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryFilterExpression;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.FilterParserStrategy;
+import com.kumuluz.ee.rest.exceptions.QueryFormatException;
+import com.kumuluz.ee.rest.utils.QueryStringDefaults;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the results of the recursive descent filter parser with the Parboiled parser.
+ */
+public class QueryStringBuilderFilterParserTest {
+
+    private static final List<String> FILTERS = Arrays.asList(
+            "username:eq:test",
+            "username:EQ:'some value' and age:gte:20",
+            "a:eq:1,b:eq:2 c:eq:3",
+            "a:eq:1 or b:eq:2;c:eq:3+d:eq:4",
+            "(a:eq:1,b:eq:2) (c:eq:3 OR d:isnull)",
+            "((a:eq:1))",
+            "a:in:[1,2,3] b:nin:['x, y',z,'x, y',z]",
+            "a:in:[] b:in:[,1] c:in:['']",
+            "a:between:[1,5] b:nbetween:['a',b]",
+            "a:eq:[1,2]",
+            "a:in:abc",
+            "createdAt:gte:dt'2014-11-26T11:15:08Z'",
+            "createdAt:gte:dt'2014-11-26'",
+            "a:in:dt'2014-11-26T11:15:08Z'",
+            "a:eq:dtvalue",
+            "a:isnull",
+            "a:isnotnull b:eq:1",
+            "a:isnull:1",
+            "a:eq",
+            "a:foo:1",
+            "a:eq:1 android:eq:2",
+            "a:eq:1 order:eq:2",
+            "a:eq:1 and:eq:2",
+            "a:eq:1,",
+            "a:eq:1 )",
+            "(a:eq:1",
+            "a:eq:'unterminated",
+            "a:eq:''",
+            "a:eq:' padded '",
+            "a:eq:x\ty",
+            "a:eq:1\t;\tb:eq:2",
+            "a.b.c:likeic:%son",
+            "a:eq:1 garbage",
+            ":eq:1",
+            "a::1",
+            "a:eq:value ",
+            "a:in:[x ,y]");
+
+    private static final String[] FRAGMENTS = {"a", "b.c", "name", ":", ":", ":", "eq", "EQ", "in", "isnull", "between",
+            "like", "foo", "'x y'", "''", "'", "[1,2]", "['a,b',c]", "[,1]", "[]", "[", "]", "dt'2014-11-26T11:15:08Z'",
+            "dt'bad'", "dt", " ", "  ", ",", ";", "+", " and ", " OR ", "or", "AND", "(", ")", "\t", "1", "-5", "x.y"};
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullDefaultFilterParser() {
+        new QueryStringDefaults().filterParser(null);
+    }
+
+    @Test
+    public void testFiltersMatchParboiled() {
+
+        for (String filter : FILTERS) {
+            assertSameResult(filter);
+        }
+    }
+
+    @Test
+    public void testGeneratedExpressionsMatchParboiled() {
+
+        Random random = new Random(7);
+
+        for (int i = 0; i < 2000; i++) {
+            assertSameResult(expression(random, 3));
+        }
+    }
+
+    @Test
+    public void testRandomInputsMatchParboiled() {
+
+        Random random = new Random(11);
+
+        for (int i = 0; i < 5000; i++) {
+
+            // inputs without a valid prefix fall back to the Parboiled error recovery, which is slow on random input
+            StringBuilder filter = new StringBuilder(random.nextBoolean() ? "a:eq:1" : "b:isnull");
+
+            for (int j = random.nextInt(14); j >= 0; j--) {
+                filter.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+
+            assertSameResult(filter.toString());
+        }
+    }
+
+    private static String expression(Random random, int depth) {
+
+        if (depth == 0 || random.nextInt(3) == 0) {
+
+            String field = new String[]{"a", "b.c", "Name"}[random.nextInt(3)];
+
+            switch (random.nextInt(5)) {
+                case 0:
+                    return field + ":" + new String[]{"isnull", "ISNOTNULL"}[random.nextInt(2)];
+                case 1:
+                    return field + ":" + new String[]{"in", "NIN", "between"}[random.nextInt(3)] + ":[" + random.nextInt(9)
+                            + ",'" + random.nextInt(9) + " x'," + random.nextInt(9) + "]";
+                case 2:
+                    return field + ":gte:dt'2014-11-2" + random.nextInt(9) + "T11:15:08Z'";
+                default:
+                    return field + ":" + new String[]{"eq", "LIKEIC", "gt"}[random.nextInt(3)] + ":"
+                            + new String[]{"v" + random.nextInt(100), "'q " + random.nextInt(100) + "'"}[random.nextInt(2)];
+            }
+        }
+
+        String left = expression(random, depth - 1);
+        String right = expression(random, depth - 1);
+        String operator = new String[]{" ", ";", "+", " and ", " AND ", ",", " or ", " , "}[random.nextInt(8)];
+
+        String expression = left + operator + right;
+
+        return random.nextInt(3) == 0 ? "(" + expression + ")" : expression;
+    }
+
+    private static void assertSameResult(String filter) {
+        Assert.assertEquals(filter, parse(filter, FilterParserStrategy.PARBOILED),
+                parse(filter, FilterParserStrategy.RECURSIVE_DESCENT));
+    }
+
+    private static String parse(String filter, FilterParserStrategy strategy) {
+
+        try {
+            QueryParameters q = QueryParameters.query("filter=" + filter).filterParser(strategy).build();
+
+            return render(q.getFilterExpression());
+        } catch (QueryFormatException e) {
+            return "error " + e.getReason() + " " + e.getField() + " " + e.getMessage();
+        }
+    }
+
+    private static String render(QueryFilterExpression expression) {
+
+        if (expression == null) {
+            return "null";
+        }
+
+        if (expression.isLeaf()) {
+
+            QueryFilter f = expression.value();
+
+            return "[" + f.getField() + " " + f.getOperation() + " " + f.getValue() + " " + f.getValues() + " "
+                    + (f.getDateValue() == null ? null : f.getDateValue().getTime()) + "]";
+        }
+
+        return expression.operation() + "(" + render(expression.left()) + ", " + render(expression.right()) + ")";
+    }
+}
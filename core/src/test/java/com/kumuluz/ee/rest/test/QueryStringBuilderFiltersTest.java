@@ -10,8 +10,11 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * @author Tilen Faganel
@@ -703,4 +706,26 @@ public class QueryStringBuilderFiltersTest {
         Assert.assertEquals(FilterOperation.EQ, query.getFilterExpression().value().getOperation());
         Assert.assertEquals("0", query.getFilterExpression().value().getValue());
     }
+
+    @Test
+    public void testQuotedAmpersandsAndRepeatedSeparators() {
+
+        QueryParameters query = QueryParameters.query("&&where=title:in:['Tools && Furniture','A&B']&&&limit=5&&").build();
+
+        Assert.assertEquals(Long.valueOf(5), query.getLimit());
+        Assert.assertEquals(FilterOperation.IN, query.getFilterExpression().value().getOperation());
+        Assert.assertEquals(Arrays.asList("Tools && Furniture", "A&B"), query.getFilterExpression().value().getValues());
+    }
+
+    @Test
+    public void testLongInFilter() {
+
+        List<String> values = IntStream.range(0, 500).mapToObj(i -> "'value " + i + "'").collect(Collectors.toList());
+
+        QueryParameters query = QueryParameters.query("where=title:in:[" + String.join(",", values) + "]&limit=5").build();
+
+        Assert.assertEquals(Long.valueOf(5), query.getLimit());
+        Assert.assertEquals(500, query.getFilterExpression().value().getValues().size());
+        Assert.assertEquals("value 499", query.getFilterExpression().value().getValues().get(499));
+    }
 }
@@ -240,4 +240,29 @@ public class QueryStringBuilderOrderTest {
         Assert.assertNotNull(query.getOrder());
         Assert.assertEquals(0, query.getOrder().size());
     }
+
+    @Test
+    public void testPlusSeparatedOrder() {
+
+        QueryParameters query = QueryParameters.query("order=username+DESC+NULLS+FIRST,lastname").build();
+
+        Assert.assertEquals(2, query.getOrder().size());
+        Assert.assertEquals(OrderDirection.DESC, query.getOrder().get(0).getOrder());
+        Assert.assertEquals(OrderNulls.FIRST, query.getOrder().get(0).getNulls());
+        Assert.assertEquals(OrderDirection.ASC, query.getOrder().get(1).getOrder());
+    }
+
+    @Test
+    public void testRepeatedOrderSeparators() {
+
+        try {
+
+            QueryParameters.query("order=lastname  DESC").build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("order", e.getField());
+            Assert.assertEquals(QueryFormatError.NO_SUCH_CONSTANT, e.getReason());
+        }
+    }
 }
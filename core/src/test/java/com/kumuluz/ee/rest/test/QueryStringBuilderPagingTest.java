@@ -1,5 +1,6 @@
 package com.kumuluz.ee.rest.test;
 
+import com.kumuluz.ee.rest.beans.QueryCursor;
 import com.kumuluz.ee.rest.beans.QueryParameters;
 import com.kumuluz.ee.rest.enums.QueryFormatError;
 import com.kumuluz.ee.rest.exceptions.QueryFormatException;
@@ -8,6 +9,7 @@ import org.junit.Test;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 
 /**
  * @author Tilen Faganel
@@ -353,4 +355,49 @@ public class QueryStringBuilderPagingTest {
         Assert.assertNull(query.getLimit());
         Assert.assertNull(query.getOffset());
     }
+
+    @Test
+    public void testCursor() {
+
+        QueryCursor cursor = new QueryCursor(Arrays.asList("lastname", "id"), Arrays.asList("O'Neil & Sons", "12"));
+
+        QueryParameters query = QueryParameters.query("limit=10&after=" + cursor.encode()).build();
+
+        Assert.assertNotNull(query.getCursor());
+        Assert.assertEquals(cursor, query.getCursor());
+        Assert.assertEquals(Arrays.asList("lastname", "id"), query.getCursor().getFields());
+        Assert.assertEquals(Arrays.asList("O'Neil & Sons", "12"), query.getCursor().getValues());
+    }
+
+    @Test
+    public void testCursorWithNullValue() {
+
+        QueryCursor cursor = new QueryCursor(Arrays.asList("lastname", "id"), Arrays.asList(null, "3"));
+
+        Assert.assertEquals(cursor, QueryCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    public void testMalformedCursor() {
+
+        try {
+
+            QueryParameters.query("limit=10&after=bm90LWEtY3Vyc29y").build();
+            Assert.fail("No exception was thrown");
+        } catch (QueryFormatException e) {
+
+            Assert.assertEquals("after", e.getField());
+            Assert.assertEquals(QueryFormatError.MALFORMED, e.getReason());
+        }
+    }
+
+    @Test
+    public void testCursorDisabledPagination() {
+
+        QueryCursor cursor = new QueryCursor(Arrays.asList("id"), Arrays.asList("12"));
+
+        QueryParameters query = QueryParameters.query("after=" + cursor.encode()).enablePagination(false).build();
+
+        Assert.assertNull(query.getCursor());
+    }
 }
@@ -8,6 +8,7 @@ import com.kumuluz.ee.rest.exceptions.NoSuchEntityFieldException;
 import com.kumuluz.ee.rest.test.entities.Project;
 import com.kumuluz.ee.rest.test.entities.User;
 import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.JPAUtils;
 import com.kumuluz.ee.rest.utils.StreamUtils;
 import jakarta.persistence.EntityManager;
 import org.junit.Assert;
@@ -22,6 +23,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author Zvone Gazvoda
@@ -1124,4 +1126,99 @@ public class StreamUtilsFiltersTest {
         StreamUtils.queryEntities(users, q);
     }
 
+    @Test
+    public void testLikePatternsMatchRegex() {
+
+        List<User> all = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        for (String pattern : Arrays.asList("Ja%", "%son", "%an%", "Karen", "%", "%%", "J?son", "%a?n%", "M%r%",
+                "%.%", "J[ae]%", "%n", "JA%", "%AN%")) {
+
+            for (FilterOperation operation : Arrays.asList(FilterOperation.LIKE, FilterOperation.LIKEIC,
+                    FilterOperation.NLIKE, FilterOperation.NLIKEIC)) {
+
+                boolean ignoreCase = operation == FilterOperation.LIKEIC || operation == FilterOperation.NLIKEIC;
+                boolean negate = operation == FilterOperation.NLIKE || operation == FilterOperation.NLIKEIC;
+
+                String expr = (ignoreCase ? pattern.toLowerCase() : pattern)
+                        .replace(".", "\\.").replace("?", ".").replace("%", ".*");
+
+                List<Integer> expected = all.stream()
+                        .filter(u -> u.getFirstname() != null)
+                        .filter(u -> negate != (ignoreCase ? u.getFirstname().toLowerCase() : u.getFirstname()).matches(expr))
+                        .map(User::getId).collect(Collectors.toList());
+
+                QueryParameters q = new QueryParameters();
+                q.getFilters().add(new QueryFilter("firstname", operation, pattern));
+
+                List<Integer> actual = StreamUtils.queryEntities(all, q).stream()
+                        .map(User::getId).collect(Collectors.toList());
+
+                Assert.assertEquals(operation + " " + pattern, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testFilterExpressionMatchesJpa() {
+
+        List<User> all = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        for (String query : Arrays.asList(
+                "filter=firstname:EQ:Sandra,firstname:EQ:Marilyn",
+                "filter=lastname:LIKEIC:%son,country:EQ:China firstname:EQ:Karen",
+                "filter=(lastname:LIKEIC:%son,country:EQ:China) firstname:EQ:Karen",
+                "filter=(country:EQ:China,country:EQ:Russia) id:GT:10 (lastname:LIKE:%a%,firstname:LIKE:%a%)",
+                "filter=projects.status:EQ:ACTIVE,country:EQ:Portugal",
+                "filter=(projects.status:EQ:ACTIVE id:LT:50),(country:IN:[China,Russia] id:GTE:50)")) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            List<Integer> expected = JPAUtils.queryEntities(em, User.class, q).stream()
+                    .map(User::getId).distinct().sorted().collect(Collectors.toList());
+
+            List<Integer> actual = StreamUtils.queryEntities(all, q).stream()
+                    .map(User::getId).sorted().collect(Collectors.toList());
+
+            Assert.assertFalse(query, expected.isEmpty());
+            Assert.assertEquals(query, expected, actual);
+            Assert.assertEquals(query, Long.valueOf(expected.size()), StreamUtils.queryEntitiesCount(all, q));
+        }
+    }
+
+    @Test
+    public void testConvertedValuesMatchJpa() {
+
+        List<User> all = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        for (String query : Arrays.asList(
+                "filter=id:GT:10 id:LTE:60 role:GTE:1",
+                "filter=role:LT:1,id:EQ:7,score:EQ:50.5",
+                "filter=id:NEQ:3 id:LT:20",
+                "filter=country:IN:[China,Russia,Portugal,Brazil] id:GT:5",
+                "filter=country:NIN:[China,Russia,Portugal,Brazil] id:LT:50",
+                "filter=lastname:INIC:[SMITH,hall,Ramos,willis]",
+                "filter=lastname:NINIC:[SMITH,hall,Ramos,willis] id:LT:10",
+                "filter=projects.name:IN:[Blue,Red]")) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            List<Integer> expected = JPAUtils.queryEntities(em, User.class, q).stream()
+                    .map(User::getId).distinct().sorted().collect(Collectors.toList());
+
+            List<Integer> actual = StreamUtils.queryEntities(all, q).stream()
+                    .map(User::getId).sorted().collect(Collectors.toList());
+
+            Assert.assertFalse(query, expected.isEmpty());
+            Assert.assertEquals(query, expected, actual);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testMalformedNumberFilter() {
+
+        List<User> users = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        StreamUtils.queryEntities(users, QueryParameters.query("filter=role:GT:high").build());
+    }
 }
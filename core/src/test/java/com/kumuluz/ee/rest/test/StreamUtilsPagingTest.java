@@ -15,6 +15,9 @@ import org.junit.runners.Parameterized;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * @author Zvone Gazvoda
@@ -149,4 +152,55 @@ public class StreamUtilsPagingTest {
         Assert.assertNotNull(users);
         Assert.assertEquals(0, users.size());
     }
+
+    @Test
+    public void testBoundedSortMatchesFullSort() {
+
+        List<User> users = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        for (String order : Arrays.asList("lastname", "country DESC", "score DESC NULLS FIRST", "birthDate DESC,firstname",
+                "career.years DESC")) {
+
+            List<User> sorted = StreamUtils.queryEntities(users, QueryParameters.query("order=" + order).build());
+
+            for (int[] page : new int[][]{{0, 10}, {5, 20}, {90, 20}, {0, 0}, {0, 150}}) {
+
+                List<User> expected = sorted.stream().skip(page[0]).limit(page[1]).collect(Collectors.toList());
+
+                List<User> actual = StreamUtils.queryEntities(users, QueryParameters
+                        .query("order=" + order + "&offset=" + page[0] + "&limit=" + page[1]).build());
+
+                Assert.assertEquals(order + " " + Arrays.toString(page), expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testBoundedSortIsStable() {
+
+        List<Item> items = IntStream.range(0, 50).mapToObj(i -> new Item(i % 3 == 0 ? null : i % 4, i))
+                .collect(Collectors.toList());
+
+        List<Item> sorted = StreamUtils.queryEntities(items, QueryParameters.query("order=rank").build());
+        List<Item> page = StreamUtils.queryEntities(items, QueryParameters.query("order=rank&offset=10&limit=15").build());
+
+        Assert.assertEquals(sorted.subList(10, 25), page);
+
+        for (int i = 1; i < page.size(); i++) {
+            if (Objects.equals(page.get(i - 1).rank, page.get(i).rank)) {
+                Assert.assertTrue(page.get(i - 1).seq < page.get(i).seq);
+            }
+        }
+    }
+
+    public static class Item {
+
+        private Integer rank;
+        private Integer seq;
+
+        public Item(Integer rank, Integer seq) {
+            this.rank = rank;
+            this.seq = seq;
+        }
+    }
 }
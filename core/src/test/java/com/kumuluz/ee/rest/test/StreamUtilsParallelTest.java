@@ -0,0 +1,106 @@
+package com.kumuluz.ee.rest.test;
+
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.exceptions.NoSuchEntityFieldException;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.test.utils.JpaUtil;
+import com.kumuluz.ee.rest.utils.StreamQueryOptions;
+import com.kumuluz.ee.rest.utils.StreamUtils;
+import jakarta.persistence.EntityManager;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@RunWith(Parameterized.class)
+public class StreamUtilsParallelTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Parameterized.Parameter
+    public EntityManager em;
+
+    @Parameterized.Parameters
+    public static Collection<EntityManager> data() {
+
+        JpaUtil jpaUtil = JpaUtil.getInstance();
+
+        return Arrays.asList(
+                jpaUtil.getEclipselinkEntityManager(),
+                jpaUtil.getHibernateEntityManager()
+        );
+    }
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+
+        List<User> users = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        StreamQueryOptions options = new StreamQueryOptions().parallel(true).parallelThreshold(0);
+        StreamQueryOptions poolOptions = new StreamQueryOptions().parallel(true).parallelThreshold(0).forkJoinPool(POOL);
+
+        for (String query : Arrays.asList("", "order=lastname", "order=country DESC,firstname&offset=5&limit=10",
+                "filter=country:EQ:China,role:GTE:2&order=score DESC NULLS FIRST", "order=projects.name&limit=20",
+                "filter=lastname:LIKEIC:%son&offset=3", "limit=0&order=lastname")) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            List<User> expected = StreamUtils.queryEntities(users, q);
+
+            Assert.assertEquals(query, expected, StreamUtils.queryEntities(users, q, null, options));
+            Assert.assertEquals(query, expected, StreamUtils.queryEntities(users, q, null, poolOptions));
+
+            Long expectedCount = StreamUtils.queryEntitiesCount(users, q);
+
+            Assert.assertEquals(query, expectedCount, StreamUtils.queryEntitiesCount(users, q, null, options));
+            Assert.assertEquals(query, expectedCount, StreamUtils.queryEntitiesCount(users, q, null, poolOptions));
+        }
+
+        QueryParameters first = QueryParameters.query("order=lastname&limit=5").build();
+        String cursor = StreamUtils.createCursor(User.class, first, StreamUtils.queryEntities(users, first).get(4));
+
+        QueryParameters next = QueryParameters.query("order=lastname&limit=5&after=" + cursor).build();
+
+        Assert.assertEquals(StreamUtils.queryEntities(users, next), StreamUtils.queryEntities(users, next, null, poolOptions));
+    }
+
+    @Test
+    public void testParallelBoundedSortIsStable() {
+
+        List<StreamUtilsPagingTest.Item> items = IntStream.range(0, 20_000)
+                .mapToObj(i -> new StreamUtilsPagingTest.Item(i % 7 == 0 ? null : i % 13, i))
+                .collect(Collectors.toList());
+
+        StreamQueryOptions options = new StreamQueryOptions().parallel(true).forkJoinPool(POOL);
+
+        for (String query : Arrays.asList("order=rank", "order=rank DESC&offset=1500&limit=2000",
+                "order=rank ASC NULLS FIRST&limit=10", "order=seq DESC&offset=19990&limit=50")) {
+
+            QueryParameters q = QueryParameters.query(query).build();
+
+            Assert.assertEquals(query, StreamUtils.queryEntities(items, q), StreamUtils.queryEntities(items, q, null, options));
+        }
+    }
+
+    @Test(expected = NoSuchEntityFieldException.class)
+    public void testParallelInvalidField() {
+
+        List<User> users = em.createNamedQuery("User.getAll", User.class).getResultList();
+
+        StreamUtils.queryEntities(users, QueryParameters.query("order=doesNotExist").build(), null,
+                new StreamQueryOptions().parallel(true).parallelThreshold(0).forkJoinPool(POOL));
+    }
+}
@@ -0,0 +1,143 @@
+package com.kumuluz.ee.rest.test.benchmark;
+
+import com.kumuluz.ee.rest.beans.QueryFilter;
+import com.kumuluz.ee.rest.beans.QueryParameters;
+import com.kumuluz.ee.rest.enums.FilterOperation;
+import com.kumuluz.ee.rest.test.entities.Project;
+import com.kumuluz.ee.rest.test.entities.User;
+import com.kumuluz.ee.rest.utils.IndexedCollection;
+import com.kumuluz.ee.rest.utils.StreamQueryOptions;
+import com.kumuluz.ee.rest.utils.StreamUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures filtering and sorting of large in-memory collections with {@link StreamUtils}. Not run as part of the
+ * test suite; run the main method with the test classpath, optionally passing the collection size.
+ */
+public class StreamUtilsBenchmark {
+
+    private static final String[] COUNTRIES = {"China", "Finland", "Slovenia", "Brazil", "Indonesia", "Portugal"};
+    private static final String[] NAMES = {"Jason", "Annie", "Bruce", "Karen", "Sandra", "Laura", "Marko", "Tina"};
+
+    public static void main(String[] args) {
+
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        List<User> users = createUsers(size);
+
+        run("order=lastname,firstname DESC", users, QueryParameters.query("order=lastname,firstname DESC").build());
+        run("order=lastname,firstname DESC&offset=20&limit=10", users,
+                QueryParameters.query("order=lastname,firstname DESC&offset=20&limit=10").build());
+        run("order=projects.name", users, QueryParameters.query("order=projects.name").build());
+
+        QueryParameters q = QueryParameters.query("order=score").build();
+        q.getFilters().add(new QueryFilter("country", FilterOperation.LIKE, "%in%"));
+        q.getFilters().add(new QueryFilter("role", FilterOperation.GTE, "2"));
+        run("where=country:like:'%in%' role:gte:2&order=score", users, q);
+
+        q = new QueryParameters();
+        q.getFilters().add(new QueryFilter("projects.name", FilterOperation.EQ, "Project 3"));
+        run("where=projects.name:eq:'Project 3'", users, q);
+
+        StreamQueryOptions parallel = new StreamQueryOptions().parallel(true);
+
+        run("parallel order=lastname,firstname DESC", users,
+                QueryParameters.query("order=lastname,firstname DESC").build(), parallel);
+        run("parallel order=lastname,firstname DESC&offset=20&limit=10", users,
+                QueryParameters.query("order=lastname,firstname DESC&offset=20&limit=10").build(), parallel);
+        run("parallel where=country:like:'%in%' role:gte:2&order=score", users,
+                QueryParameters.query("where=country:like:'%in%' role:gte:2&order=score").build(), parallel);
+
+        IndexedCollection<User> indexed = new IndexedCollection<>(User.class, users)
+                .hashIndex("lastname")
+                .sortedIndex("id")
+                .sortedIndex("score");
+
+        runIndexed("where=lastname:eq:Jasonson42", users, indexed, QueryParameters.query("where=lastname:eq:Jasonson42").build());
+        runIndexed("where=id:between:[1000,1100]&order=id", users, indexed,
+                QueryParameters.query("where=id:between:[1000,1100]&order=id").build());
+        runIndexed("order=score DESC&limit=10", users, indexed, QueryParameters.query("order=score DESC&limit=10").build());
+    }
+
+    private static void runIndexed(String name, List<User> users, IndexedCollection<User> indexed, QueryParameters q) {
+
+        run(name, users, q);
+
+        for (int i = 0; i < 3; i++) {
+            indexed.queryEntities(q);
+        }
+
+        int runs = 5;
+        long start = System.nanoTime();
+        int results = 0;
+
+        for (int i = 0; i < runs; i++) {
+            results = indexed.queryEntities(q).size();
+        }
+
+        long avgMillis = (System.nanoTime() - start) / runs / 1_000_000;
+
+        System.out.printf("%-50s %8d results %8d ms%n", "indexed " + name, results, avgMillis);
+    }
+
+    private static void run(String name, List<User> users, QueryParameters q) {
+        run(name, users, q, null);
+    }
+
+    private static void run(String name, List<User> users, QueryParameters q, StreamQueryOptions options) {
+
+        // warm up
+        for (int i = 0; i < 3; i++) {
+            StreamUtils.queryEntities(users, q, null, options);
+        }
+
+        int runs = 5;
+        long start = System.nanoTime();
+        int results = 0;
+
+        for (int i = 0; i < runs; i++) {
+            results = StreamUtils.queryEntities(users, q, null, options).size();
+        }
+
+        long avgMillis = (System.nanoTime() - start) / runs / 1_000_000;
+
+        System.out.printf("%-50s %8d results %8d ms%n", name, results, avgMillis);
+    }
+
+    private static List<User> createUsers(int size) {
+
+        Random random = new Random(42);
+
+        List<User> users = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+
+            User user = new User();
+            user.setId(i);
+            user.setFirstname(NAMES[random.nextInt(NAMES.length)]);
+            user.setLastname(NAMES[random.nextInt(NAMES.length)] + "son" + random.nextInt(1000));
+            user.setCountry(COUNTRIES[random.nextInt(COUNTRIES.length)]);
+            user.setRole(random.nextInt(5));
+            user.setScore(BigDecimal.valueOf(random.nextInt(10000), 2));
+
+            List<Project> projects = new ArrayList<>();
+
+            for (int j = random.nextInt(3); j > 0; j--) {
+                Project project = new Project();
+                project.setName("Project " + random.nextInt(10));
+                projects.add(project);
+            }
+
+            user.setProjects(projects.isEmpty() ? Collections.emptyList() : projects);
+
+            users.add(user);
+        }
+
+        return users;
+    }
+}
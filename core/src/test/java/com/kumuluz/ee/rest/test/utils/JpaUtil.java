@@ -35,4 +35,12 @@ public class JpaUtil {
     public EntityManager getHibernateEntityManager() {
         return emfHibernate.createEntityManager();
     }
+
+    public EntityManagerFactory getEclipselinkEntityManagerFactory() {
+        return emfEclipseLink;
+    }
+
+    public EntityManagerFactory getHibernateEntityManagerFactory() {
+        return emfHibernate;
+    }
 }